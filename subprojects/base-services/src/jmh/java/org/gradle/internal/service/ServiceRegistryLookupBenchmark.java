@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * Looks up services from project scoped registries, in the shape of a build with many projects configured or executed in parallel.
+ */
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ServiceRegistryLookupBenchmark {
+
+    @Param({"500"})
+    int projectCount;
+
+    DefaultServiceRegistry globalServices;
+    DefaultServiceRegistry buildServices;
+    DefaultServiceRegistry[] projectServices;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        globalServices = new DefaultServiceRegistry("global services");
+        globalServices.addProvider(new Object() {
+            GlobalService createGlobalService() {
+                return new GlobalService();
+            }
+        });
+        buildServices = new DefaultServiceRegistry("build services", globalServices);
+        buildServices.addProvider(new Object() {
+            BuildService createBuildService(GlobalService globalService) {
+                return new BuildService();
+            }
+        });
+        projectServices = new DefaultServiceRegistry[projectCount];
+        for (int i = 0; i < projectCount; i++) {
+            DefaultServiceRegistry registry = new DefaultServiceRegistry("project services " + i, buildServices);
+            registry.addProvider(new Object() {
+                ProjectService createProjectService(BuildService buildService) {
+                    return new ProjectService();
+                }
+            });
+            projectServices[i] = registry;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (DefaultServiceRegistry registry : projectServices) {
+            registry.close();
+        }
+        buildServices.close();
+        globalServices.close();
+    }
+
+    @Benchmark
+    public void lookupProjectService(ProjectSelector selector, Blackhole bh) {
+        bh.consume(selector.next(this).get(ProjectService.class));
+    }
+
+    @Benchmark
+    public void lookupGlobalServiceFromProject(ProjectSelector selector, Blackhole bh) {
+        bh.consume(selector.next(this).get(GlobalService.class));
+    }
+
+    @State(Scope.Thread)
+    public static class ProjectSelector {
+        private final Random random = new Random(1234L);
+
+        DefaultServiceRegistry next(ServiceRegistryLookupBenchmark benchmark) {
+            return benchmark.projectServices[random.nextInt(benchmark.projectCount)];
+        }
+    }
+
+    static class GlobalService {
+    }
+
+    static class BuildService {
+    }
+
+    static class ProjectService {
+    }
+}
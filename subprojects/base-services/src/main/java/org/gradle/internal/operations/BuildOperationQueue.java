@@ -16,6 +16,8 @@
 
 package org.gradle.internal.operations;
 
+import javax.annotation.Nullable;
+
 /**
  * An individual active, single use, queue of build operations.
  * <p>
@@ -23,6 +25,8 @@ package org.gradle.internal.operations;
  * The queue is single use in that no further work can be added once {@link #waitForCompletion()} has completed.
  * <p>
  * A queue instance is threadsafe. Build operations can submit further operations to the queue but must not block waiting for them to complete.
+ * <p>
+ * While waiting for completion, the waiting thread may execute operations from queues created by the operations of this queue.
  *
  * @param <T> type of build operations to hold
  */
@@ -54,6 +58,12 @@ public interface BuildOperationQueue<T extends BuildOperation> {
      */
     void setLogLocation(String logLocation);
 
+    /**
+     * Returns statistics about this queue, or null if they are not available. Should be called once {@link #waitForCompletion()} has returned.
+     */
+    @Nullable
+    BuildOperationQueueProgressDetails getProgressDetails();
+
     interface QueueWorker<O extends BuildOperation> {
         void execute(O buildOperation);
         String getDisplayName();
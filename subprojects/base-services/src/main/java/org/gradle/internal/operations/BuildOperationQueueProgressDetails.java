@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.operations;
+
+/**
+ * Statistics about a {@link BuildOperationQueue}, published as progress details of the build operation that waited for the queue to complete.
+ */
+public interface BuildOperationQueueProgressDetails {
+    /**
+     * The number of operations added to the queue.
+     */
+    int getOperationCount();
+
+    /**
+     * The largest number of operations waiting in the queue at one time.
+     */
+    int getMaxQueueLength();
+
+    /**
+     * The time the waiting thread spent blocked, after it had run out of work it could do itself.
+     */
+    long getWaitTimeMillis();
+
+    /**
+     * The number of operations from nested queues that the waiting thread executed while waiting.
+     */
+    int getStolenOperationCount();
+}
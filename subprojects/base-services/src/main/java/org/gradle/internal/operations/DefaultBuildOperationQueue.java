@@ -20,24 +20,40 @@ import org.gradle.internal.UncheckedException;
 import org.gradle.internal.work.WorkerLeaseRegistry;
 import org.gradle.internal.work.WorkerLeaseService;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * A queue that executes operations using a pool of workers plus the thread waiting for completion.
+ *
+ * <p>Queues created while running an operation of this queue are nested in this queue. Once there is no more work in this queue,
+ * the thread waiting for completion executes operations from nested queues rather than sitting idle. It does this using the worker lease
+ * it already holds, so no additional leases are required.</p>
+ */
 class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOperationQueue<T> {
     private enum QueueState {
         Working, Finishing, Cancelled, Done
     }
 
+    // The queue whose operation is running on the current thread, if any
+    private static final ThreadLocal<DefaultBuildOperationQueue<?>> CURRENT_QUEUE = new ThreadLocal<DefaultBuildOperationQueue<?>>();
+
     private final WorkerLeaseService workerLeases;
     private final WorkerLeaseRegistry.WorkerLease parentWorkerLease;
     private final Executor executor;
     private final QueueWorker<T> queueWorker;
+    private final DefaultBuildOperationQueue<?> parentQueue;
+    private final List<DefaultBuildOperationQueue<?>> nestedQueues = new CopyOnWriteArrayList<DefaultBuildOperationQueue<?>>();
     private String logLocation;
 
     // Lock protects the following state, using an intentionally simple locking strategy
@@ -49,12 +65,21 @@ class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOpera
     private int pendingOperations;
     private final Deque<T> workQueue = new LinkedList<T>();
     private final LinkedList<Throwable> failures = new LinkedList<Throwable>();
+    private long nestedWorkAdded;
+    private int operationCount;
+    private int maxQueueLength;
+    private long waitTimeNanos;
+    private int stolenOperationCount;
 
     DefaultBuildOperationQueue(WorkerLeaseService workerLeases, Executor executor, QueueWorker<T> queueWorker) {
         this.workerLeases = workerLeases;
         this.parentWorkerLease = workerLeases.getWorkerLease();
         this.executor = executor;
         this.queueWorker = queueWorker;
+        this.parentQueue = CURRENT_QUEUE.get();
+        if (parentQueue != null) {
+            parentQueue.nestedQueues.add(this);
+        }
     }
 
     @Override
@@ -69,15 +94,31 @@ class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOpera
             }
             workQueue.add(operation);
             pendingOperations++;
+            operationCount++;
+            maxQueueLength = Math.max(maxQueueLength, workQueue.size());
             workAvailable.signalAll();
             if (workerCount == 0 || workerCount < workerLeases.getMaxWorkerCount() - 1) {
                 // `getMaxWorkerCount() - 1` because main thread executes work as well. See https://github.com/gradle/gradle/issues/3273
-                // TODO This could be more efficient, so that we only start a worker when there are none idle _and_ there is a worker lease available
+                workerCount++;
                 executor.execute(new WorkerRunnable());
             }
         } finally {
             lock.unlock();
         }
+
+        for (DefaultBuildOperationQueue<?> ancestor = parentQueue; ancestor != null; ancestor = ancestor.parentQueue) {
+            ancestor.nestedWorkAdded();
+        }
+    }
+
+    private void nestedWorkAdded() {
+        lock.lock();
+        try {
+            nestedWorkAdded++;
+            operationsComplete.signalAll();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
@@ -113,19 +154,34 @@ class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOpera
         // workers from other threads.  In other words, it ensures that all worker leases
         // are being utilized, regardless of the bounds of the thread pool.
         try {
-            new WorkerRunnable().run();
+            new WorkerRunnable().runOperations();
         } catch (Throwable t) {
             addFailure(t);
         }
 
         lock.lock();
         try {
-            // Wait for any work still running in other threads
+            // Wait for any work still running in other threads, helping out with nested queues in the meantime
             while (pendingOperations > 0) {
+                long seenNestedWork = nestedWorkAdded;
+                lock.unlock();
+                boolean stole;
                 try {
-                    operationsComplete.await();
-                } catch (InterruptedException e) {
-                    throw UncheckedException.throwAsUncheckedException(e);
+                    stole = runNestedOperation();
+                } finally {
+                    lock.lock();
+                }
+                if (stole) {
+                    stolenOperationCount++;
+                } else if (pendingOperations > 0 && seenNestedWork == nestedWorkAdded) {
+                    long startTime = System.nanoTime();
+                    try {
+                        operationsComplete.await();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    } finally {
+                        waitTimeNanos += System.nanoTime() - startTime;
+                    }
                 }
             }
 
@@ -135,6 +191,58 @@ class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOpera
             }
         } finally {
             lock.unlock();
+            if (parentQueue != null) {
+                parentQueue.nestedQueues.remove(this);
+            }
+        }
+    }
+
+    /**
+     * Executes one queued operation from a nested queue, if there is one.
+     */
+    private boolean runNestedOperation() {
+        for (DefaultBuildOperationQueue<?> nestedQueue : nestedQueues) {
+            if (nestedQueue.runQueuedOperation() || nestedQueue.runNestedOperation()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Executes one queued operation from this queue on the current thread, if there is one.
+     */
+    private boolean runQueuedOperation() {
+        T operation;
+        lock.lock();
+        try {
+            if (queueState == QueueState.Cancelled || queueState == QueueState.Done) {
+                return false;
+            }
+            operation = workQueue.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+        if (operation == null) {
+            return false;
+        }
+        try {
+            runOperation(operation);
+        } finally {
+            completeOperations(1);
+        }
+        return true;
+    }
+
+    private void runOperation(T operation) {
+        DefaultBuildOperationQueue<?> previous = CURRENT_QUEUE.get();
+        CURRENT_QUEUE.set(this);
+        try {
+            queueWorker.execute(operation);
+        } catch (Throwable t) {
+            addFailure(t);
+        } finally {
+            CURRENT_QUEUE.set(previous);
         }
     }
 
@@ -162,6 +270,17 @@ class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOpera
         this.logLocation = logLocation;
     }
 
+    @Nullable
+    @Override
+    public BuildOperationQueueProgressDetails getProgressDetails() {
+        lock.lock();
+        try {
+            return new DefaultBuildOperationQueueProgressDetails(operationCount, maxQueueLength, TimeUnit.NANOSECONDS.toMillis(waitTimeNanos), stolenOperationCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private static String getFailureMessage(Collection<? extends Throwable> failures) {
         if (failures.size() == 1) {
             return "A build operation failed.";
@@ -172,11 +291,18 @@ class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOpera
     private class WorkerRunnable implements Runnable {
         @Override
         public void run() {
+            try {
+                runOperations();
+            } finally {
+                shutDown();
+            }
+        }
+
+        void runOperations() {
             T operation;
             while ((operation = waitForNextOperation()) != null) {
                 runBatch(operation);
             }
-            shutDown();
         }
 
         private T waitForNextOperation() {
@@ -225,14 +351,6 @@ class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOpera
             }
         }
 
-        private void runOperation(T operation) {
-            try {
-                queueWorker.execute(operation);
-            } catch (Throwable t) {
-                addFailure(t);
-            }
-        }
-
         private void shutDown() {
             lock.lock();
             try {
@@ -242,4 +360,38 @@ class DefaultBuildOperationQueue<T extends BuildOperation> implements BuildOpera
             }
         }
     }
+
+    private static class DefaultBuildOperationQueueProgressDetails implements BuildOperationQueueProgressDetails {
+        private final int operationCount;
+        private final int maxQueueLength;
+        private final long waitTimeMillis;
+        private final int stolenOperationCount;
+
+        DefaultBuildOperationQueueProgressDetails(int operationCount, int maxQueueLength, long waitTimeMillis, int stolenOperationCount) {
+            this.operationCount = operationCount;
+            this.maxQueueLength = maxQueueLength;
+            this.waitTimeMillis = waitTimeMillis;
+            this.stolenOperationCount = stolenOperationCount;
+        }
+
+        @Override
+        public int getOperationCount() {
+            return operationCount;
+        }
+
+        @Override
+        public int getMaxQueueLength() {
+            return maxQueueLength;
+        }
+
+        @Override
+        public long getWaitTimeMillis() {
+            return waitTimeMillis;
+        }
+
+        @Override
+        public int getStolenOperationCount() {
+            return stolenOperationCount;
+        }
+    }
 }
@@ -21,12 +21,25 @@ import com.google.common.collect.Sets;
 import org.gradle.api.Transformer;
 import org.gradle.internal.UncheckedException;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Coordinates changes to resource lock state.
+ *
+ * <p>Threads that need to wait for a state change queue up in arrival order, each with its own condition. When the state changes, the waiters are
+ * woken one at a time in that order rather than all at once. Each woken waiter runs its transform and then hands off to the next waiter that has not
+ * yet seen the change. This means a state change causes each waiter to retry at most once, and the waiters do not all contend for the state lock
+ * at the same time.</p>
+ */
 public class DefaultResourceLockCoordinationService implements ResourceLockCoordinationService {
-    private final Object lock = new Object();
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Deque<Waiter> waiters = new ArrayDeque<Waiter>();
     private final ThreadLocal<List<ResourceLockState>> currentState = new ThreadLocal<List<ResourceLockState>>() {
         @Override
         protected List<ResourceLockState> initialValue() {
@@ -34,12 +47,23 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
         }
     };
 
+    // The following are guarded by lock
+    private long stateVersion;
+    private Waiter signalledWaiter;
+    private long waitTimeNanos;
+    private long wakeUps;
+    private long spuriousWakeUps;
+
     @Override
     public boolean withStateLock(Transformer<ResourceLockState.Disposition, ResourceLockState> stateLockAction) {
-        while (true) {
-            DefaultResourceLockState resourceLockState = new DefaultResourceLockState();
-            ResourceLockState.Disposition disposition;
-            synchronized (lock) {
+        Waiter waiter = null;
+        lock.lock();
+        try {
+            while (true) {
+                DefaultResourceLockState resourceLockState = new DefaultResourceLockState();
+                ResourceLockState.Disposition disposition;
+                // A nested call to withStateLock can wait and release the lock, so the state may change while the action runs
+                long versionBeforeAction = stateVersion;
                 try {
                     currentState.get().add(resourceLockState);
                     disposition = stateLockAction.transform(resourceLockState);
@@ -47,10 +71,17 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
                     switch (disposition) {
                         case RETRY:
                             resourceLockState.releaseLocks();
-                            try {
-                                lock.wait();
-                            } catch (InterruptedException e) {
-                                throw UncheckedException.throwAsUncheckedException(e);
+                            if (waiter == null) {
+                                waiter = new Waiter();
+                                waiters.addLast(waiter);
+                            }
+                            waiter.seenVersion = versionBeforeAction;
+                            passOnSignalHeldByCurrentThread();
+                            if (versionBeforeAction == stateVersion) {
+                                if (waiter.woken) {
+                                    spuriousWakeUps++;
+                                }
+                                await(waiter);
                             }
                             break;
                         case FINISHED:
@@ -69,6 +100,64 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
                     currentState.get().remove(resourceLockState);
                 }
             }
+        } finally {
+            if (waiter != null) {
+                waiters.remove(waiter);
+                if (signalledWaiter == waiter) {
+                    signalledWaiter = null;
+                    signalNextWaiter();
+                }
+            }
+            lock.unlock();
+        }
+    }
+
+    private void await(Waiter waiter) throws InterruptedException {
+        long startTime = System.nanoTime();
+        waiter.waiting = true;
+        try {
+            while (!waiter.signalled) {
+                waiter.condition.await();
+            }
+        } finally {
+            waiter.waiting = false;
+        }
+        waiter.signalled = false;
+        waiter.woken = true;
+        waitTimeNanos += System.nanoTime() - startTime;
+        wakeUps++;
+    }
+
+    /**
+     * Passes the signal on to the next waiter, if it was given to a waiter of the current thread.
+     *
+     * <p>The signal is held by a waiter from when it is woken until it waits again or returns. The current thread may be about to wait in a nested call to
+     * withStateLock while an enclosing call holds the signal, so the signal is passed on based on the thread rather than on the waiter.</p>
+     */
+    private void passOnSignalHeldByCurrentThread() {
+        if (signalledWaiter != null && signalledWaiter.thread == Thread.currentThread()) {
+            signalledWaiter = null;
+            signalNextWaiter();
+        }
+    }
+
+    /**
+     * Wakes the longest waiting thread that has not yet retried since the last state change, unless a thread is already awake and retrying.
+     *
+     * <p>Waiters whose thread is not blocked, such as an enclosing call while a nested call runs, are skipped. Such a waiter retries without blocking
+     * when the state has changed since its action started.</p>
+     */
+    private void signalNextWaiter() {
+        if (signalledWaiter != null) {
+            return;
+        }
+        for (Waiter waiter : waiters) {
+            if (waiter.waiting && waiter.seenVersion != stateVersion) {
+                signalledWaiter = waiter;
+                waiter.signalled = true;
+                waiter.condition.signal();
+                return;
+            }
         }
     }
 
@@ -89,11 +178,60 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
     }
 
     public void notifyStateChange() {
-        synchronized (lock) {
-            lock.notifyAll();
+        lock.lock();
+        try {
+            stateVersion++;
+            signalNextWaiter();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the total time threads have spent blocked waiting for a state change.
+     */
+    public long getWaitTimeNanos() {
+        lock.lock();
+        try {
+            return waitTimeNanos;
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * Returns the number of times a blocked thread was woken to retry.
+     */
+    public long getWakeUps() {
+        lock.lock();
+        try {
+            return wakeUps;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of times a thread was woken to retry and then had to block again.
+     */
+    public long getSpuriousWakeUps() {
+        lock.lock();
+        try {
+            return spuriousWakeUps;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class Waiter {
+        final Condition condition = lock.newCondition();
+        final Thread thread = Thread.currentThread();
+        long seenVersion;
+        boolean waiting;
+        boolean signalled;
+        boolean woken;
+    }
+
     private static class DefaultResourceLockState implements ResourceLockState {
         private Set<ResourceLock> lockedResources;
         private Set<ResourceLock> unlockedResources;
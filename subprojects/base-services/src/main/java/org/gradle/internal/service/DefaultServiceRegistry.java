@@ -39,7 +39,9 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -83,9 +85,12 @@ public class DefaultServiceRegistry implements ServiceRegistry, Closeable {
     private final String displayName;
     private final ServiceProvider thisAsServiceProvider;
 
-    private State state = State.INIT;
+    private volatile State state = State.INIT;
     private final Object stateLock = new Object();
     private final AtomicInteger inProgress = new AtomicInteger(0);
+    // Services already located by this registry. Once the registry is in use its providers cannot change, so these lookups
+    // can be answered without walking the providers and the parent registries, and without touching the in-progress counters.
+    private final ConcurrentMap<Type, Object> locatedServices = new ConcurrentHashMap<Type, Object>();
 
 
     public DefaultServiceRegistry() {
@@ -265,6 +270,7 @@ public class DefaultServiceRegistry implements ServiceRegistry, Closeable {
             }
             state = State.CLOSING;
             waitForPendingRequests();
+            locatedServices.clear();
             CompositeStoppable.stoppable(allServices).stop();
             state = State.CLOSED;
         }
@@ -317,12 +323,19 @@ public class DefaultServiceRegistry implements ServiceRegistry, Closeable {
     }
 
     public Object get(Type serviceType) throws UnknownServiceException, ServiceLookupException {
+        Object instance = locatedServices.get(serviceType);
+        if (instance != null && state == State.IN_USE) {
+            return instance;
+        }
         assertValidServiceType(unwrap(serviceType));
         Service provider = getService(serviceType);
-        Object instance = provider == null ? null : provider.get();
+        instance = provider == null ? null : provider.get();
         if (instance == null) {
             throw new UnknownServiceException(serviceType, String.format("No service of type %s available in %s.", format(serviceType), getDisplayName()));
         }
+        if (state == State.IN_USE) {
+            locatedServices.putIfAbsent(serviceType, instance);
+        }
         return instance;
     }
 
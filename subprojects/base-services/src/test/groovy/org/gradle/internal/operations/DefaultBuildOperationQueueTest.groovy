@@ -25,7 +25,9 @@ import org.gradle.internal.work.WorkerLeaseService
 import spock.lang.Specification
 import spock.lang.Unroll
 
+import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
 import java.util.concurrent.Executors
 
 class DefaultBuildOperationQueueTest extends Specification {
@@ -195,6 +197,53 @@ class DefaultBuildOperationQueueTest extends Specification {
         5    | 10
     }
 
+    def "waiting thread executes operations of nested queues"() {
+        given:
+        setupQueue(2)
+        def outerStarted = new CountDownLatch(1)
+        def nestedDone = new CountDownLatch(3)
+        def nestedThreads = new CopyOnWriteArrayList<Thread>()
+        def nestedOperation = new ActionOperation({
+            nestedThreads << Thread.currentThread()
+            nestedDone.countDown()
+        })
+        def outerOperation = new ActionOperation({
+            // Nested queue without pool workers, so its operations can only run on a waiting thread
+            def nestedQueue = new DefaultBuildOperationQueue(workerRegistry, { } as Executor, new SimpleWorker())
+            3.times { nestedQueue.add(nestedOperation) }
+            outerStarted.countDown()
+            nestedDone.await()
+            nestedQueue.waitForCompletion()
+        })
+
+        when:
+        operationQueue.add(outerOperation)
+        outerStarted.await()
+        operationQueue.waitForCompletion()
+
+        then:
+        nestedThreads == [Thread.currentThread()] * 3
+
+        and:
+        def details = operationQueue.progressDetails
+        details.operationCount == 1
+        details.maxQueueLength == 1
+        details.stolenOperationCount == 3
+    }
+
+    static class ActionOperation extends TestBuildOperation {
+        final Runnable action
+
+        ActionOperation(Runnable action) {
+            this.action = action
+        }
+
+        @Override
+        void run(BuildOperationContext context) {
+            action.run()
+        }
+    }
+
     static class SynchronizedBuildOperation extends TestBuildOperation {
         final Runnable operationAction
         final CountDownLatch startedLatch
@@ -21,6 +21,10 @@ import org.gradle.api.Transformer
 import org.gradle.test.fixtures.ConcurrentTestUtil
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
 import static org.gradle.internal.resources.ResourceLockState.Disposition.*
 import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.*
 
@@ -108,6 +112,55 @@ class DefaultResourceLockCoordinationServiceTest extends ConcurrentSpec {
         lock2.lockedState
     }
 
+    def "wakes waiting threads one at a time in the order they started waiting"() {
+        def available = new AtomicInteger()
+        def acquired = new CopyOnWriteArrayList<Integer>()
+        def attempts = new AtomicInteger()
+
+        when:
+        async {
+            (1..3).each { id ->
+                start {
+                    def waiting = new AtomicBoolean()
+                    coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+                        @Override
+                        ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                            attempts.incrementAndGet()
+                            if (available.get() > 0) {
+                                available.decrementAndGet()
+                                acquired << id
+                                return FINISHED
+                            }
+                            if (waiting.compareAndSet(false, true)) {
+                                instant."waiting${id}"
+                            }
+                            return RETRY
+                        }
+                    })
+                }
+                thread.blockUntil."waiting${id}"
+            }
+
+            available.set(1)
+            coordinationService.notifyStateChange()
+            ConcurrentTestUtil.poll {
+                assert coordinationService.spuriousWakeUps == 2
+            }
+
+            assert acquired == [1]
+            assert attempts.get() == 6
+
+            available.set(2)
+            coordinationService.notifyStateChange()
+        }
+
+        then:
+        acquired == [1, 2, 3]
+        attempts.get() == 8
+        coordinationService.wakeUps == 5
+        coordinationService.spuriousWakeUps == 2
+    }
+
     def "can nest multiple calls to withStateLock"() {
         def lock = [
             resourceLock("lock1"),
@@ -159,6 +212,79 @@ class DefaultResourceLockCoordinationServiceTest extends ConcurrentSpec {
         [false, true, false, false]  | [false, true, true, true]
     }
 
+    def "passes the signal on when a woken thread waits in a nested call to withStateLock"() {
+        def outerReady = new AtomicBoolean()
+        def innerReady = new AtomicBoolean()
+        def otherReady = new AtomicBoolean()
+        def innerAction = new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+            def waiting = new AtomicBoolean()
+
+            @Override
+            ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                if (innerReady.get()) {
+                    return FINISHED
+                }
+                if (waiting.compareAndSet(false, true)) {
+                    instant.innerWaiting
+                }
+                return RETRY
+            }
+        }
+        def outerAction = new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+            def waiting = new AtomicBoolean()
+
+            @Override
+            ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                if (outerReady.get()) {
+                    coordinationService.withStateLock(innerAction)
+                    return FINISHED
+                }
+                if (waiting.compareAndSet(false, true)) {
+                    instant.outerWaiting
+                }
+                return RETRY
+            }
+        }
+        def otherAction = new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+            def waiting = new AtomicBoolean()
+
+            @Override
+            ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                if (otherReady.get()) {
+                    return FINISHED
+                }
+                if (waiting.compareAndSet(false, true)) {
+                    instant.otherWaiting
+                }
+                return RETRY
+            }
+        }
+
+        when:
+        async {
+            start {
+                coordinationService.withStateLock(outerAction)
+            }
+            thread.blockUntil.outerWaiting
+            start {
+                coordinationService.withStateLock(otherAction)
+            }
+            thread.blockUntil.otherWaiting
+
+            // Wakes the outer call, which then waits in the nested call while the other thread is still waiting
+            outerReady.set(true)
+            coordinationService.notifyStateChange()
+            thread.blockUntil.innerWaiting
+
+            innerReady.set(true)
+            otherReady.set(true)
+            coordinationService.notifyStateChange()
+        }
+
+        then:
+        noExceptionThrown()
+    }
+
     def "can get the current resource lock state"() {
         when:
         coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
@@ -53,6 +53,23 @@ class DefaultServiceRegistryTest extends Specification {
         1 * parent.get(BigDecimal) >> value
     }
 
+    def reusesServiceLocatedInParent() {
+        def value = BigDecimal.TEN
+        def parent = Mock(ServiceRegistry)
+        def registry = new TestRegistry(parent)
+
+        when:
+        def first = registry.get(BigDecimal)
+        def second = registry.get(BigDecimal)
+
+        then:
+        first.is(value)
+        second.is(value)
+
+        and:
+        1 * parent.get(BigDecimal) >> value
+    }
+
     def delegatesToParentsForUnknownService() {
         def value = BigDecimal.TEN
         def parent1 = Mock(ServiceRegistry)
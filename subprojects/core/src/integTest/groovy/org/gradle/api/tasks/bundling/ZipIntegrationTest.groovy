@@ -236,6 +236,70 @@ class ZipIntegrationTest extends AbstractIntegrationSpec {
         output.contains "Value of input property 'rootSpec\$1\$1\$1.destPath' has changed for task ':zip'"
     }
 
+    def "archive compressed in parallel is identical to sequentially compressed archive"() {
+        given:
+        createTestFiles()
+        buildFile << """
+            task sequentialZip(type: Zip) {
+                from 'dir1'
+                from 'dir2'
+                destinationDir = buildDir
+                archiveName = 'sequential.zip'
+            }
+            task parallelZip(type: Zip) {
+                with sequentialZip
+                parallelCompression = true
+                destinationDir = buildDir
+                archiveName = 'parallel.zip'
+            }
+            """
+
+        when:
+        run 'sequentialZip', 'parallelZip'
+
+        then:
+        def sequential = new ZipTestFixture(file('build/sequential.zip'))
+        def parallel = new ZipTestFixture(file('build/parallel.zip'))
+        parallel.hasDescendantsInOrder('file1.txt', 'file2.txt')
+        sequential.hasDescendantsInOrder('file1.txt', 'file2.txt')
+        parallel.assertFileContent('file1.txt', "dir1/file1.txt")
+        parallel.assertFileContent('file2.txt', "dir2/file2.txt")
+        file('build/parallel.zip').bytes == file('build/sequential.zip').bytes
+
+        when:
+        def firstArchive = file('build/parallel.zip').bytes
+        file('build/parallel.zip').delete()
+        run 'parallelZip', '--max-workers=1'
+
+        then:
+        file('build/parallel.zip').bytes == firstArchive
+    }
+
+    def "changing parallel compression does not make archive out of date"() {
+        given:
+        createTestFiles()
+        buildFile << """
+            task zip(type: Zip) {
+                from 'dir1'
+                parallelCompression = project.hasProperty('parallel')
+                destinationDir = buildDir
+                archiveName = 'test.zip'
+            }
+            """
+
+        when:
+        run 'zip'
+
+        then:
+        executedAndNotSkipped ':zip'
+
+        when:
+        run 'zip', '-Pparallel'
+
+        then:
+        skipped ':zip'
+    }
+
     private def createTestFiles() {
         createDir('dir1', {
             file('file1.txt').text = "dir1/file1.txt"
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of instantiating an already generated class, which goes through the generated class lookup on each call.
+ */
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ClassGeneratorBenchmark {
+    private final AsmBackedClassGenerator generator = new AsmBackedClassGenerator();
+
+    @Setup
+    public void generateClass() {
+        generator.generate(Bean.class);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Bean newInstance_1_thread() {
+        return generator.newInstance(Bean.class);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Bean newInstance_8_threads() {
+        return generator.newInstance(Bean.class);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Bean newInstance_32_threads() {
+        return generator.newInstance(Bean.class);
+    }
+
+    public static class Bean {
+        private String value;
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+}
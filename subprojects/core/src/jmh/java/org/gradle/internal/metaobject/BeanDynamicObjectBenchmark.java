@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.metaobject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures DSL style property and method access through {@link BeanDynamicObject}, with and without cached meta-class lookups.
+ */
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class BeanDynamicObjectBenchmark {
+    private static final String UNCACHED = "-D" + MetaClassLookupCache.CACHE_LOOKUPS_PROPERTY + "=false";
+
+    @Param({"1", "1000"})
+    int beanCount;
+
+    private BeanDynamicObject[] dynamicObjects;
+    private int next;
+
+    @Setup
+    public void createBeans() {
+        dynamicObjects = new BeanDynamicObject[beanCount];
+        for (int i = 0; i < beanCount; i++) {
+            dynamicObjects[i] = new BeanDynamicObject(new Bean());
+        }
+    }
+
+    private BeanDynamicObject nextObject() {
+        BeanDynamicObject dynamicObject = dynamicObjects[next];
+        next = (next + 1) % dynamicObjects.length;
+        return dynamicObject;
+    }
+
+    @Benchmark
+    public Object getProperty_cached() {
+        return nextObject().getProperty("value");
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = UNCACHED)
+    public Object getProperty_uncached() {
+        return nextObject().getProperty("value");
+    }
+
+    @Benchmark
+    public Object setProperty_cached() {
+        nextObject().setProperty("value", "some value");
+        return next;
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = UNCACHED)
+    public Object setProperty_uncached() {
+        nextObject().setProperty("value", "some value");
+        return next;
+    }
+
+    @Benchmark
+    public Object invokeMethod_cached() {
+        return nextObject().invokeMethod("value", "some value");
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = UNCACHED)
+    public Object invokeMethod_uncached() {
+        return nextObject().invokeMethod("value", "some value");
+    }
+
+    @Benchmark
+    public boolean missingProperty_cached() {
+        return nextObject().hasProperty("unknown");
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = UNCACHED)
+    public boolean missingProperty_uncached() {
+        return nextObject().hasProperty("unknown");
+    }
+
+    public static class Bean {
+        private String value;
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+
+        public Bean value(String value) {
+            this.value = value;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.execution.internal;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.util.Path;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the file system inputs of the tasks executed during a continuous build, so that tasks whose inputs have not changed since
+ * they were last executed can be skipped without checking whether they are up-to-date.
+ *
+ * <p>The inputs of a task are forgotten as soon as a change to one of them is detected, and only recorded again when the task is next executed.</p>
+ */
+public class AffectedTasksTracker {
+    /**
+     * Opt-in flag to only re-execute the tasks affected by a change in continuous build.
+     */
+    public static final String AFFECTED_TASKS_ONLY_PROPERTY = "org.gradle.internal.continuous.affectedTasksOnly";
+
+    private final Map<Path, FileSystemSubset> taskInputs = new ConcurrentHashMap<Path, FileSystemSubset>();
+    private volatile boolean tracking;
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(AFFECTED_TASKS_ONLY_PROPERTY);
+    }
+
+    public void startTracking() {
+        tracking = true;
+    }
+
+    public void stopTracking() {
+        tracking = false;
+        taskInputs.clear();
+    }
+
+    /**
+     * Records the file system inputs of a task that is about to be executed.
+     */
+    public void inputsWatched(TaskInternal task, FileSystemSubset inputs) {
+        if (tracking) {
+            taskInputs.put(task.getIdentityPath(), inputs);
+        }
+    }
+
+    /**
+     * Forgets the inputs of a task, so that it is executed as usual by the next build.
+     */
+    public void taskFailed(TaskInternal task) {
+        taskInputs.remove(task.getIdentityPath());
+    }
+
+    /**
+     * Forgets the inputs of all tasks affected by the given changes.
+     *
+     * @param changedFiles the changed files, or {@code null} when it is not known which files have changed.
+     */
+    public void changesDetected(@Nullable Collection<File> changedFiles) {
+        if (changedFiles == null) {
+            taskInputs.clear();
+            return;
+        }
+        for (Iterator<FileSystemSubset> iterator = taskInputs.values().iterator(); iterator.hasNext();) {
+            FileSystemSubset inputs = iterator.next();
+            for (File changedFile : changedFiles) {
+                if (affects(inputs, changedFile)) {
+                    iterator.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the inputs of the given task when none of them have changed since the task was last executed, or {@code null} when the task may be affected by a change.
+     */
+    @Nullable
+    public FileSystemSubset getUnaffectedInputs(TaskInternal task) {
+        if (!tracking) {
+            return null;
+        }
+        FileSystemSubset inputs = taskInputs.get(task.getIdentityPath());
+        if (inputs == null || inputs.isEmpty()) {
+            // Tasks without file system inputs are not considered, as they may depend on anything
+            return null;
+        }
+        return inputs;
+    }
+
+    private static boolean affects(FileSystemSubset inputs, File changedFile) {
+        if (inputs.contains(changedFile)) {
+            return true;
+        }
+        // Also consider a change to a directory containing the inputs, for example when it was deleted
+        String changedDirPrefix = changedFile.getAbsolutePath() + File.separator;
+        for (File root : inputs.getRoots()) {
+            if (root.getAbsolutePath().startsWith(changedDirPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
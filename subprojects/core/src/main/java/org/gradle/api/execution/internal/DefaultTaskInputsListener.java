@@ -22,14 +22,28 @@ import org.gradle.api.internal.file.FileSystemSubset;
 import org.gradle.internal.filewatch.FileSystemChangeWaiter;
 
 public class DefaultTaskInputsListener implements TaskInputsListener {
+    private final AffectedTasksTracker affectedTasksTracker;
     private FileSystemChangeWaiter waiter;
 
+    public DefaultTaskInputsListener(AffectedTasksTracker affectedTasksTracker) {
+        this.affectedTasksTracker = affectedTasksTracker;
+    }
+
     @Override
     public void onExecute(TaskInternal taskInternal, FileCollectionInternal fileSystemInputs) {
         if (waiter!=null) {
             FileSystemSubset.Builder fileSystemSubsetBuilder = FileSystemSubset.builder();
             fileSystemInputs.registerWatchPoints(fileSystemSubsetBuilder);
-            waiter.watch(fileSystemSubsetBuilder.build());
+            FileSystemSubset fileSystemSubset = fileSystemSubsetBuilder.build();
+            affectedTasksTracker.inputsWatched(taskInternal, fileSystemSubset);
+            waiter.watch(fileSystemSubset);
+        }
+    }
+
+    @Override
+    public void onUnaffected(TaskInternal taskInternal, FileSystemSubset fileSystemInputs) {
+        if (waiter!=null) {
+            waiter.watch(fileSystemInputs);
         }
     }
 
@@ -85,4 +85,9 @@ public class ExecuteTaskBuildOperationResult implements ExecuteTaskBuildOperatio
         return ctx.getUpToDateMessages();
     }
 
+    @Override
+    public int getSharedClasspathSnapshotCount() {
+        return ctx.getSharedClasspathSnapshotCount();
+    }
+
 }
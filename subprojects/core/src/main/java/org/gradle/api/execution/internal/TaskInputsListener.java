@@ -18,6 +18,7 @@ package org.gradle.api.execution.internal;
 
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.file.FileCollectionInternal;
+import org.gradle.api.internal.file.FileSystemSubset;
 import org.gradle.internal.filewatch.FileSystemChangeWaiter;
 
 public interface TaskInputsListener {
@@ -32,6 +33,14 @@ public interface TaskInputsListener {
      */
     void onExecute(TaskInternal taskInternal, FileCollectionInternal fileSystemInputs);
 
+    /**
+     * Called when the given task is skipped because none of its file system inputs have changed since it was last executed.
+     *
+     * @param taskInternal the skipped task
+     * @param fileSystemInputs the file system inputs recorded when the task was last executed
+     */
+    void onUnaffected(TaskInternal taskInternal, FileSystemSubset fileSystemInputs);
+
     void setFileSystemWaiter(FileSystemChangeWaiter waiter);
 
 }
@@ -17,11 +17,10 @@
 package org.gradle.api.internal;
 
 import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.SetMultimap;
 import groovy.lang.Closure;
 import groovy.lang.GroovyObject;
-import org.apache.commons.collections.map.AbstractReferenceMap;
-import org.apache.commons.collections.map.ReferenceMap;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.NonExtensible;
@@ -43,13 +42,14 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -66,7 +66,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * </ul>
  */
 public abstract class AbstractClassGenerator implements ClassGenerator {
-    private static final Map<Class<?>, Map<Class<?>, Class<?>>> GENERATED_CLASSES = new HashMap<Class<?>, Map<Class<?>, Class<?>>>();
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Class<?>>> GENERATED_CLASSES = new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, Class<?>>>();
     private static final Lock CACHE_LOCK = new ReentrantLock();
     private static final Collection<String> SKIP_PROPERTIES = Arrays.asList("class", "metaClass", "conventionMapping", "convention", "asDynamicObject", "extensions");
 
@@ -75,23 +75,36 @@ public abstract class AbstractClassGenerator implements ClassGenerator {
     }
 
     public <T> Class<? extends T> generate(Class<T> type) {
+        ConcurrentMap<Class<?>, Class<?>> cache = getCache();
+        // Classes are only generated under the lock, but already generated classes can be looked up without it
+        Class<?> generatedClass = cache.get(type);
+        if (generatedClass != null) {
+            return generatedClass.asSubclass(type);
+        }
         try {
             CACHE_LOCK.lock();
-            return generateUnderLock(type);
+            return generateUnderLock(type, cache);
         } finally {
             CACHE_LOCK.unlock();
         }
     }
 
-    private <T> Class<? extends T> generateUnderLock(Class<T> type) {
-        Map<Class<?>, Class<?>> cache = GENERATED_CLASSES.get(getClass());
+    private ConcurrentMap<Class<?>, Class<?>> getCache() {
+        ConcurrentMap<Class<?>, Class<?>> cache = GENERATED_CLASSES.get(getClass());
         if (cache == null) {
             // WeakHashMap won't work here. It keeps a strong reference to the mapping value, which is the generated class in this case
             // However, the generated class has a strong reference to the source class (by extending it), so the keys will always be
             // strongly reachable while this Class is strongly reachable. Use weak references for both key and value of the mapping instead.
-            cache = new ReferenceMap(AbstractReferenceMap.WEAK, AbstractReferenceMap.WEAK);
-            GENERATED_CLASSES.put(getClass(), cache);
+            ConcurrentMap<Class<?>, Class<?>> newCache = new MapMaker().weakKeys().weakValues().makeMap();
+            cache = GENERATED_CLASSES.putIfAbsent(getClass(), newCache);
+            if (cache == null) {
+                cache = newCache;
+            }
         }
+        return cache;
+    }
+
+    private <T> Class<? extends T> generateUnderLock(Class<T> type, Map<Class<?>, Class<?>> cache) {
         Class<?> generatedClass = cache.get(type);
         if (generatedClass != null) {
             return generatedClass.asSubclass(type);
@@ -108,6 +121,13 @@ public abstract class AbstractClassGenerator implements ClassGenerator {
 
         Class<? extends T> subclass;
         try {
+            subclass = loadPreviouslyGenerated(type);
+            if (subclass != null) {
+                cache.put(type, subclass);
+                cache.put(subclass, subclass);
+                return subclass;
+            }
+
             ClassMetaData classMetaData = inspectType(type);
 
             ClassBuilder<T> builder = start(type, classMetaData);
@@ -229,6 +249,16 @@ public abstract class AbstractClassGenerator implements ClassGenerator {
         return subclass;
     }
 
+    /**
+     * Defines the subclass for the given type from bytecode generated by an earlier process, if available.
+     *
+     * @return the subclass or {@code null} when it needs to be generated.
+     */
+    @Nullable
+    protected <T> Class<? extends T> loadPreviouslyGenerated(Class<T> type) {
+        return null;
+    }
+
     protected abstract <T> ClassBuilder<T> start(Class<T> type, ClassMetaData classMetaData);
 
     private ClassMetaData inspectType(Class<?> type) {
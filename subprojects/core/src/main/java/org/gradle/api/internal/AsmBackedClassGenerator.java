@@ -29,6 +29,7 @@ import org.gradle.api.internal.provider.PropertyInternal;
 import org.gradle.api.plugins.Convention;
 import org.gradle.api.plugins.ExtensionAware;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
 import org.gradle.internal.metaobject.AbstractDynamicObject;
 import org.gradle.internal.metaobject.BeanDynamicObject;
 import org.gradle.internal.metaobject.DynamicObject;
@@ -63,9 +64,37 @@ import static org.objectweb.asm.Opcodes.*;
 import static org.objectweb.asm.Type.VOID_TYPE;
 
 public class AsmBackedClassGenerator extends AbstractClassGenerator {
+    private static final String CLASS_NAME_SUFFIX = "_Decorated";
+    private final GeneratedClassBytecodeCache bytecodeCache;
+
+    public AsmBackedClassGenerator() {
+        this(null);
+    }
+
+    /**
+     * Creates a generator that reuses the bytecode of classes generated by earlier processes, when a cache is given.
+     */
+    public AsmBackedClassGenerator(@Nullable GeneratedClassBytecodeCache bytecodeCache) {
+        this.bytecodeCache = bytecodeCache;
+    }
+
+    @Nullable
+    @Override
+    protected <T> Class<? extends T> loadPreviouslyGenerated(Class<T> type) {
+        if (bytecodeCache == null) {
+            return null;
+        }
+        byte[] bytecode = bytecodeCache.load(getClass(), type);
+        if (bytecode == null) {
+            return null;
+        }
+        Class<?> generatedClass = ClassLoaderUtils.define(type.getClassLoader(), type.getName() + CLASS_NAME_SUFFIX, bytecode);
+        return generatedClass.asSubclass(type);
+    }
+
     @Override
     protected <T> ClassBuilder<T> start(Class<T> type, ClassMetaData classMetaData) {
-        return new ClassBuilderImpl<T>(type, classMetaData);
+        return new ClassBuilderImpl<T>(type, classMetaData, getClass(), bytecodeCache);
     }
 
     private static class ClassBuilderImpl<T> implements ClassBuilder<T> {
@@ -135,11 +164,15 @@ public class AsmBackedClassGenerator extends AbstractClassGenerator {
         private final boolean conventionAware;
         private final boolean extensible;
         private final boolean providesOwnDynamicObject;
+        private final Class<?> generator;
+        private final GeneratedClassBytecodeCache bytecodeCache;
 
-        private ClassBuilderImpl(Class<T> type, ClassMetaData classMetaData) {
+        private ClassBuilderImpl(Class<T> type, ClassMetaData classMetaData, Class<?> generator, @Nullable GeneratedClassBytecodeCache bytecodeCache) {
             this.type = type;
+            this.generator = generator;
+            this.bytecodeCache = bytecodeCache;
 
-            classGenerator = new AsmClassGenerator(type, "_Decorated");
+            classGenerator = new AsmClassGenerator(type, CLASS_NAME_SUFFIX);
             visitor = classGenerator.getVisitor();
             generatedType = classGenerator.getGeneratedType();
             superclassType = Type.getType(type);
@@ -964,7 +997,12 @@ public class AsmBackedClassGenerator extends AbstractClassGenerator {
             writeGenericReturnTypeFields();
             visitor.visitEnd();
 
-            return classGenerator.define().asSubclass(type);
+            byte[] bytecode = visitor.toByteArray();
+            Class<?> generatedClass = ClassLoaderUtils.define(type.getClassLoader(), classGenerator.getGeneratedTypeName(), bytecode);
+            if (bytecodeCache != null) {
+                bytecodeCache.store(generator, type, bytecode);
+            }
+            return generatedClass.asSubclass(type);
         }
 
         private void writeGenericReturnTypeFields() {
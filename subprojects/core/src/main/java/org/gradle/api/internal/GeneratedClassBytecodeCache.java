@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal;
+
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persists the bytecode of generated classes across daemons, so that a fresh process can define a previously generated class instead of generating it again.
+ *
+ * <p>Entries are keyed by the generator, the generator version and the hash of the class loader hierarchy that defines the source class. Classes whose class loader cannot be hashed reliably are not cached.</p>
+ */
+public class GeneratedClassBytecodeCache implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeneratedClassBytecodeCache.class);
+
+    // Change this whenever the bytecode produced by the generators changes shape
+    private static final int GENERATOR_VERSION = 1;
+
+    private final PersistentIndexedCache<HashCode, byte[]> cache;
+    private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger stored = new AtomicInteger();
+
+    public GeneratedClassBytecodeCache(PersistentIndexedCache<HashCode, byte[]> cache, ClassLoaderHierarchyHasher classLoaderHierarchyHasher) {
+        this.cache = cache;
+        this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+    }
+
+    /**
+     * Returns the previously generated bytecode for the given type, or {@code null} when there is none.
+     */
+    @Nullable
+    public byte[] load(Class<?> generator, Class<?> type) {
+        HashCode key = keyFor(generator, type);
+        if (key == null) {
+            return null;
+        }
+        byte[] bytecode = cache.get(key);
+        if (bytecode == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return bytecode;
+    }
+
+    public void store(Class<?> generator, Class<?> type, byte[] bytecode) {
+        HashCode key = keyFor(generator, type);
+        if (key == null) {
+            return;
+        }
+        cache.put(key, bytecode);
+        stored.incrementAndGet();
+    }
+
+    public int getHitCount() {
+        return hits.get();
+    }
+
+    public int getMissCount() {
+        return misses.get();
+    }
+
+    @Nullable
+    private HashCode keyFor(Class<?> generator, Class<?> type) {
+        ClassLoader classLoader = type.getClassLoader();
+        if (classLoader == null) {
+            return null;
+        }
+        HashCode classLoaderHash = classLoaderHierarchyHasher.getClassLoaderHash(classLoader);
+        if (classLoaderHash == null) {
+            return null;
+        }
+        Hasher hasher = Hashing.md5().newHasher();
+        hasher.putInt(GENERATOR_VERSION);
+        hasher.putString(generator.getName());
+        hasher.putString(type.getName());
+        hasher.putHash(classLoaderHash);
+        return hasher.hash();
+    }
+
+    @Override
+    public void close() {
+        LOGGER.debug("Generated class bytecode cache: {} hits, {} misses, {} classes stored.", hits.get(), misses.get(), stored.get());
+    }
+}
@@ -40,6 +40,12 @@ public interface TaskArtifactState {
      */
     boolean isUpToDate(Collection<String> messages);
 
+    /**
+     * Returns true if the task has been executed successfully before, and its implementation, input properties and output files have not changed since.
+     * Does not snapshot the input files of the task.
+     */
+    boolean isUnchangedExceptForInputFiles();
+
     IncrementalTaskInputs getInputChanges(TaskProperties taskProperties);
 
     /**
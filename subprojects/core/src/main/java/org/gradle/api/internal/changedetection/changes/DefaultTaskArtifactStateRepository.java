@@ -39,6 +39,8 @@ import org.gradle.api.internal.changedetection.state.TaskOutputFilesRepository;
 import org.gradle.api.internal.tasks.OriginTaskExecutionMetadata;
 import org.gradle.api.internal.tasks.TaskExecutionContext;
 import org.gradle.api.internal.tasks.execution.TaskProperties;
+import org.gradle.api.internal.tasks.execution.statistics.TaskExecutionPhase;
+import org.gradle.api.internal.tasks.execution.statistics.TaskPhaseTimer;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.caching.internal.tasks.TaskCacheKeyCalculator;
 import org.gradle.caching.internal.tasks.TaskOutputCachingBuildCacheKey;
@@ -93,6 +95,11 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
             return upToDate;
         }
 
+        @Override
+        public boolean isUnchangedExceptForInputFiles() {
+            return history.isUnchangedExceptForInputFiles();
+        }
+
         @Override
         public IncrementalTaskInputs getInputChanges(TaskProperties taskProperties) {
             assert !upToDate : "Should not be here if the task is up-to-date";
@@ -173,11 +180,17 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
 
         @Override
         public void snapshotAfterTaskExecution(Throwable failure, UniqueId buildInvocationId, TaskExecutionContext taskExecutionContext) {
-            history.updateCurrentExecution(taskInputs);
-            snapshotAfterOutputsWereGenerated(history, failure, new OriginTaskExecutionMetadata(
-                buildInvocationId,
-                taskExecutionContext.markExecutionTime()
-            ));
+            TaskPhaseTimer phaseTimer = taskExecutionContext.getPhaseTimer();
+            phaseTimer.start(TaskExecutionPhase.OUTPUT_SNAPSHOTTING);
+            try {
+                history.updateCurrentExecution(taskInputs);
+                snapshotAfterOutputsWereGenerated(history, failure, new OriginTaskExecutionMetadata(
+                    buildInvocationId,
+                    taskExecutionContext.markExecutionTime()
+                ));
+            } finally {
+                phaseTimer.finish();
+            }
         }
 
         @Override
@@ -97,6 +97,11 @@ class NoHistoryArtifactState implements TaskArtifactState, TaskExecutionHistory
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean isUnchangedExceptForInputFiles() {
+        return false;
+    }
+
     @Override
     public boolean isAllowedToUseCachedResults() {
         return false;
@@ -92,6 +92,11 @@ public class ShortCircuitTaskArtifactStateRepository implements TaskArtifactStat
             return instantiator.newInstance(RebuildIncrementalTaskInputs.class, task, taskProperties);
         }
 
+        @Override
+        public boolean isUnchangedExceptForInputFiles() {
+            return false;
+        }
+
         @Override
         public boolean isAllowedToUseCachedResults() {
             return false;
@@ -23,9 +23,12 @@ import org.gradle.api.internal.file.FileCollectionVisitor;
 import org.gradle.api.internal.file.FileTreeInternal;
 import org.gradle.api.internal.file.collections.DirectoryFileTree;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
+import org.gradle.internal.Factory;
+import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.serialize.SerializerRegistry;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -54,6 +57,27 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
         return builder.build();
     }
 
+    /**
+     * Calculates the snapshot of the given file collection, reusing the snapshot of an identical collection from the given cache when the collection consists only of individual files.
+     */
+    protected FileCollectionSnapshot snapshot(FileCollection input, ClasspathSnapshotCache cache, HashCode normalization, final Factory<? extends VisitingFileCollectionSnapshotBuilder> builderFactory) {
+        FileCollectionInternal fileCollection = (FileCollectionInternal) input;
+        final RootElementsCollector rootElements = new RootElementsCollector();
+        fileCollection.visitRootElements(rootElements);
+        Factory<FileCollectionSnapshot> snapshotFactory = new Factory<FileCollectionSnapshot>() {
+            @Override
+            public FileCollectionSnapshot create() {
+                VisitingFileCollectionSnapshotBuilder builder = builderFactory.create();
+                rootElements.visit(new FileCollectionVisitorImpl(builder));
+                return builder.build();
+            }
+        };
+        if (rootElements.containsTrees) {
+            return snapshotFactory.create();
+        }
+        return cache.get(normalization, rootElements.files, snapshotFactory);
+    }
+
     protected StringInterner getStringInterner() {
         return stringInterner;
     }
@@ -67,7 +91,11 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
 
         @Override
         public void visitCollection(FileCollectionInternal fileCollection) {
-            for (File file : fileCollection) {
+            visitFiles(fileCollection);
+        }
+
+        void visitFiles(Iterable<File> files) {
+            for (File file : files) {
                 FileSnapshot fileSnapshot = fileSystemSnapshotter.snapshotSelf(file);
                 switch (fileSnapshot.getType()) {
                     case Missing:
@@ -100,4 +128,48 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
             fileSnapshotVisitor.visitFileTreeSnapshot(descendants);
         }
     }
+
+    /**
+     * Collects the root elements of a file collection, so that they can be used as a cache key before being visited.
+     */
+    private static class RootElementsCollector implements FileCollectionVisitor {
+        private final List<Object> elements = new ArrayList<Object>();
+        private final List<File> files = new ArrayList<File>();
+        private boolean containsTrees;
+
+        @Override
+        public void visitCollection(FileCollectionInternal fileCollection) {
+            List<File> collectionFiles = new ArrayList<File>();
+            for (File file : fileCollection) {
+                collectionFiles.add(file);
+            }
+            elements.add(collectionFiles);
+            files.addAll(collectionFiles);
+        }
+
+        @Override
+        public void visitTree(FileTreeInternal fileTree) {
+            elements.add(fileTree);
+            containsTrees = true;
+        }
+
+        @Override
+        public void visitDirectoryTree(DirectoryFileTree directoryTree) {
+            elements.add(directoryTree);
+            containsTrees = true;
+        }
+
+        @SuppressWarnings("unchecked")
+        void visit(FileCollectionVisitorImpl visitor) {
+            for (Object element : elements) {
+                if (element instanceof FileTreeInternal) {
+                    visitor.visitTree((FileTreeInternal) element);
+                } else if (element instanceof DirectoryFileTree) {
+                    visitor.visitDirectoryTree((DirectoryFileTree) element);
+                } else {
+                    visitor.visitFiles((List<File>) element);
+                }
+            }
+        }
+    }
 }
@@ -63,6 +63,8 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
     private static final Logger LOGGER = LoggerFactory.getLogger(CacheBackedTaskHistoryRepository.class);
 
     private final PersistentIndexedCache<String, HistoricalTaskExecution> taskHistoryCache;
+    private final PersistentIndexedCache<String, HistoricalTaskExecution> legacyTaskHistoryCache;
+    private final FileCollectionSnapshotStore snapshotStore;
     private final StringInterner stringInterner;
     private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
     private final ValueSnapshotter valueSnapshotter;
@@ -72,6 +74,7 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
     public CacheBackedTaskHistoryRepository(
         TaskHistoryStore cacheAccess,
         Serializer<FileCollectionSnapshot> fileCollectionSnapshotSerializer,
+        FileCollectionSnapshotStore snapshotStore,
         StringInterner stringInterner,
         ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
         ValueSnapshotter valueSnapshotter,
@@ -83,8 +86,12 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         this.valueSnapshotter = valueSnapshotter;
         this.snapshotterRegistry = snapshotterRegistry;
         this.fileCollectionFactory = fileCollectionFactory;
-        TaskExecutionSnapshotSerializer serializer = new TaskExecutionSnapshotSerializer(stringInterner, fileCollectionSnapshotSerializer);
-        this.taskHistoryCache = cacheAccess.createCache("taskHistory", String.class, serializer, 10000, false);
+        this.snapshotStore = snapshotStore;
+        TaskExecutionSnapshotSerializer serializer = new TaskExecutionSnapshotSerializer(stringInterner, snapshotStore);
+        this.taskHistoryCache = cacheAccess.createCache("taskExecutions", String.class, serializer, 10000, false);
+        // Entries written before file collection snapshots were stored by content are still read, and are migrated when the task is executed again
+        TaskExecutionSnapshotSerializer legacySerializer = new TaskExecutionSnapshotSerializer(stringInterner, fileCollectionSnapshotSerializer);
+        this.legacyTaskHistoryCache = cacheAccess.createCache("taskHistory", String.class, legacySerializer, 10000, false);
     }
 
     @Override
@@ -93,6 +100,7 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
 
         return new History() {
             private boolean previousExecutionLoadAttempted;
+            private boolean previousExecutionIsLegacy;
             private HistoricalTaskExecution previousExecution;
             private CurrentTaskExecution currentExecution;
 
@@ -100,7 +108,11 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
             public HistoricalTaskExecution getPreviousExecution() {
                 if (!previousExecutionLoadAttempted) {
                     previousExecutionLoadAttempted = true;
-                    previousExecution = loadPreviousExecution(task);
+                    previousExecution = taskHistoryCache.get(task.getPath());
+                    if (previousExecution == null) {
+                        previousExecution = legacyTaskHistoryCache.get(task.getPath());
+                        previousExecutionIsLegacy = previousExecution != null;
+                    }
                 }
                 return previousExecution;
             }
@@ -113,6 +125,16 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                 return currentExecution;
             }
 
+            @Override
+            public boolean isUnchangedExceptForInputFiles() {
+                HistoricalTaskExecution previousExecution = getPreviousExecution();
+                return previousExecution != null
+                    && previousExecution.isSuccessful()
+                    && hasSameImplementation(task, previousExecution)
+                    && hasSameInputProperties(task, taskProperties, previousExecution)
+                    && hasSameOutputFiles(task, taskProperties, previousExecution, normalizationStrategy);
+            }
+
             @Override
             public void updateCurrentExecution(IncrementalTaskInputsInternal taskInputs) {
                 updateExecution(getPreviousExecution(), getCurrentExecution(), task, taskProperties, taskInputs, normalizationStrategy);
@@ -125,12 +147,49 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
 
             @Override
             public void persist() {
-                taskHistoryCache.put(task.getPath(), getCurrentExecution().archive());
+                HistoricalTaskExecution previousExecution = getPreviousExecution();
+                HistoricalTaskExecution execution = getCurrentExecution().archive();
+                // Retain the new snapshots before releasing the replaced ones, so that snapshots shared by both are kept
+                snapshotStore.retain(getFileCollectionSnapshots(execution));
+                taskHistoryCache.put(task.getPath(), execution);
+                if (previousExecutionIsLegacy) {
+                    // The snapshots of a legacy entry are stored inline and not counted by the store
+                    legacyTaskHistoryCache.remove(task.getPath());
+                } else if (previousExecution != null) {
+                    snapshotStore.release(getFileCollectionSnapshots(previousExecution));
+                }
             }
 
         };
     }
 
+    private boolean hasSameImplementation(TaskInternal task, HistoricalTaskExecution previousExecution) {
+        // Implementations loaded with an unknown class loader are never equal
+        Class<? extends TaskInternal> taskClass = task.getClass();
+        ImplementationSnapshot taskImplementation = new ImplementationSnapshot(taskClass.getName(), classLoaderHierarchyHasher.getClassLoaderHash(taskClass.getClassLoader()));
+        return taskImplementation.equals(previousExecution.getTaskImplementation())
+            && collectActionImplementations(task.getTaskActions(), classLoaderHierarchyHasher).equals(previousExecution.getTaskActionImplementations());
+    }
+
+    private boolean hasSameInputProperties(TaskInternal task, TaskProperties taskProperties, HistoricalTaskExecution previousExecution) {
+        ImmutableSortedMap<String, ValueSnapshot> previousInputProperties = previousExecution.getInputProperties();
+        return snapshotTaskInputProperties(task, taskProperties, previousInputProperties, valueSnapshotter).equals(previousInputProperties);
+    }
+
+    private boolean hasSameOutputFiles(TaskInternal task, TaskProperties taskProperties, HistoricalTaskExecution previousExecution, InputNormalizationStrategy normalizationStrategy) {
+        ImmutableSortedMap<String, FileCollectionSnapshot> previousOutputFiles = previousExecution.getOutputFilesSnapshot();
+        ImmutableSortedMap<String, FileCollectionSnapshot> outputFiles = snapshotTaskFiles(task, "Output", normalizationStrategy, taskProperties.getOutputFileProperties(), snapshotterRegistry);
+        if (!outputFiles.keySet().equals(previousOutputFiles.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, FileCollectionSnapshot> entry : outputFiles.entrySet()) {
+            if (!entry.getValue().getHash().equals(previousOutputFiles.get(entry.getKey()).getHash())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private CurrentTaskExecution createExecution(TaskInternal task, TaskProperties taskProperties, @Nullable HistoricalTaskExecution previousExecution, InputNormalizationStrategy normalizationStrategy) {
         Class<? extends TaskInternal> taskClass = task.getClass();
         List<ContextAwareTaskAction> taskActions = task.getTaskActions();
@@ -358,9 +417,12 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         return FileCollectionSnapshot.EMPTY;
     }
 
-    @Nullable
-    private HistoricalTaskExecution loadPreviousExecution(TaskInternal task) {
-        return taskHistoryCache.get(task.getPath());
+    private static List<FileCollectionSnapshot> getFileCollectionSnapshots(HistoricalTaskExecution execution) {
+        List<FileCollectionSnapshot> snapshots = Lists.newArrayList();
+        snapshots.addAll(execution.getInputFilesSnapshot().values());
+        snapshots.addAll(execution.getOutputFilesSnapshot().values());
+        snapshots.add(execution.getDiscoveredInputFilesSnapshot());
+        return snapshots;
     }
 
     private static ImmutableSortedSet<String> getOutputPropertyNamesForCacheKey(TaskProperties taskProperties) {
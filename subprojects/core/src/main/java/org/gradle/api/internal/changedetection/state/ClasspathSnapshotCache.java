@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener;
+import org.gradle.initialization.RootBuildLifecycleListener;
+import org.gradle.internal.Factory;
+import org.gradle.internal.hash.HashCode;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shares the snapshots of identical classpaths between the tasks of a build.
+ *
+ * <p>Snapshots are keyed by the normalization applied and the ordered list of classpath entries. Like the {@link FileSystemMirror}, the cached snapshots are discarded when any task generates outputs and at the start and end of each build.</p>
+ *
+ * <p>The number of snapshots reused is tracked per thread, so that it can be reported for the task executing on that thread.</p>
+ */
+public class ClasspathSnapshotCache implements TaskOutputsGenerationListener, RootBuildLifecycleListener {
+    private final ConcurrentMap<Key, FileCollectionSnapshot> snapshots = new ConcurrentHashMap<Key, FileCollectionSnapshot>();
+    private final ThreadLocal<HitCounter> hits = new ThreadLocal<HitCounter>() {
+        @Override
+        protected HitCounter initialValue() {
+            return new HitCounter();
+        }
+    };
+
+    /**
+     * Returns the snapshot of the given classpath entries, creating it when no task of this build has snapshotted the same classpath with the same normalization.
+     */
+    public FileCollectionSnapshot get(HashCode normalization, List<File> files, Factory<FileCollectionSnapshot> factory) {
+        Key key = new Key(normalization, ImmutableList.copyOf(files));
+        FileCollectionSnapshot snapshot = snapshots.get(key);
+        if (snapshot != null) {
+            hits.get().count++;
+            return snapshot;
+        }
+        snapshot = factory.create();
+        FileCollectionSnapshot existing = snapshots.putIfAbsent(key, snapshot);
+        return existing != null ? existing : snapshot;
+    }
+
+    /**
+     * Returns the number of snapshots reused by the current thread since it started.
+     */
+    public int getHitCount() {
+        return hits.get().count;
+    }
+
+    @Override
+    public void beforeTaskOutputsGenerated() {
+        snapshots.clear();
+    }
+
+    @Override
+    public void afterStart() {
+        snapshots.clear();
+    }
+
+    @Override
+    public void beforeComplete() {
+        snapshots.clear();
+    }
+
+    private static class HitCounter {
+        int count;
+    }
+
+    private static class Key {
+        private final HashCode normalization;
+        private final List<File> files;
+        private final int hashCode;
+
+        Key(HashCode normalization, List<File> files) {
+            this.normalization = normalization;
+            this.files = files;
+            this.hashCode = 31 * normalization.hashCode() + files.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hashCode == other.hashCode && normalization.equals(other.normalization) && files.equals(other.files);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
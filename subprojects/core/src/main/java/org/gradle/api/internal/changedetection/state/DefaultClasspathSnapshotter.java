@@ -21,14 +21,25 @@ import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.tasks.ClasspathNormalizer;
 import org.gradle.api.tasks.FileNormalizer;
+import org.gradle.caching.internal.DefaultBuildCacheHasher;
+import org.gradle.internal.Factory;
+import org.gradle.internal.hash.HashCode;
 import org.gradle.normalization.internal.InputNormalizationStrategy;
 
+import javax.annotation.Nullable;
+
 public class DefaultClasspathSnapshotter extends AbstractFileCollectionSnapshotter implements ClasspathSnapshotter {
     private final ResourceSnapshotterCacheService cacheService;
+    private final ClasspathSnapshotCache snapshotCache;
 
     public DefaultClasspathSnapshotter(ResourceSnapshotterCacheService cacheService, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemSnapshotter fileSystemSnapshotter, StringInterner stringInterner) {
+        this(cacheService, directoryFileTreeFactory, fileSystemSnapshotter, stringInterner, null);
+    }
+
+    public DefaultClasspathSnapshotter(ResourceSnapshotterCacheService cacheService, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemSnapshotter fileSystemSnapshotter, StringInterner stringInterner, @Nullable ClasspathSnapshotCache snapshotCache) {
         super(stringInterner, directoryFileTreeFactory, fileSystemSnapshotter);
         this.cacheService = cacheService;
+        this.snapshotCache = snapshotCache;
     }
 
     @Override
@@ -38,7 +49,22 @@ public class DefaultClasspathSnapshotter extends AbstractFileCollectionSnapshott
 
     @Override
     public FileCollectionSnapshot snapshot(FileCollection files, PathNormalizationStrategy pathNormalizationStrategy, InputNormalizationStrategy inputNormalizationStrategy) {
-        ResourceHasher classpathResourceHasher = inputNormalizationStrategy.getRuntimeClasspathNormalizationStrategy().getRuntimeClasspathResourceHasher();
-        return super.snapshot(files, new RuntimeClasspathSnapshotBuilder(classpathResourceHasher, cacheService, getStringInterner()));
+        final ResourceHasher classpathResourceHasher = inputNormalizationStrategy.getRuntimeClasspathNormalizationStrategy().getRuntimeClasspathResourceHasher();
+        if (snapshotCache == null) {
+            return super.snapshot(files, new RuntimeClasspathSnapshotBuilder(classpathResourceHasher, cacheService, getStringInterner()));
+        }
+        return super.snapshot(files, snapshotCache, normalizationHash(classpathResourceHasher), new Factory<VisitingFileCollectionSnapshotBuilder>() {
+            @Override
+            public VisitingFileCollectionSnapshotBuilder create() {
+                return new RuntimeClasspathSnapshotBuilder(classpathResourceHasher, cacheService, getStringInterner());
+            }
+        });
+    }
+
+    private static HashCode normalizationHash(ResourceHasher classpathResourceHasher) {
+        DefaultBuildCacheHasher hasher = new DefaultBuildCacheHasher();
+        hasher.putString(DefaultClasspathSnapshotter.class.getName());
+        classpathResourceHasher.appendConfigurationToHasher(hasher);
+        return hasher.hash();
     }
 }
@@ -21,23 +21,46 @@ import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.tasks.CompileClasspathNormalizer;
 import org.gradle.api.tasks.FileNormalizer;
+import org.gradle.caching.internal.DefaultBuildCacheHasher;
+import org.gradle.internal.Factory;
+import org.gradle.internal.hash.HashCode;
 import org.gradle.normalization.internal.InputNormalizationStrategy;
 
+import javax.annotation.Nullable;
+
 public class DefaultCompileClasspathSnapshotter extends AbstractFileCollectionSnapshotter implements CompileClasspathSnapshotter {
     private final ResourceHasher classpathResourceHasher;
     private final ResourceSnapshotterCacheService cacheService;
+    private final ClasspathSnapshotCache snapshotCache;
+    private final HashCode normalizationHash;
+    private final Factory<VisitingFileCollectionSnapshotBuilder> builderFactory = new Factory<VisitingFileCollectionSnapshotBuilder>() {
+        @Override
+        public VisitingFileCollectionSnapshotBuilder create() {
+            return new CompileClasspathSnapshotBuilder(classpathResourceHasher, cacheService, getStringInterner());
+        }
+    };
 
     public DefaultCompileClasspathSnapshotter(ResourceSnapshotterCacheService cacheService, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemSnapshotter fileSystemSnapshotter, StringInterner stringInterner) {
+        this(cacheService, directoryFileTreeFactory, fileSystemSnapshotter, stringInterner, null);
+    }
+
+    public DefaultCompileClasspathSnapshotter(ResourceSnapshotterCacheService cacheService, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemSnapshotter fileSystemSnapshotter, StringInterner stringInterner, @Nullable ClasspathSnapshotCache snapshotCache) {
         super(stringInterner, directoryFileTreeFactory, fileSystemSnapshotter);
         this.cacheService = cacheService;
+        this.snapshotCache = snapshotCache;
         this.classpathResourceHasher = new CachingResourceHasher(new AbiExtractingClasspathResourceHasher(), cacheService);
+        DefaultBuildCacheHasher hasher = new DefaultBuildCacheHasher();
+        hasher.putString(getClass().getName());
+        classpathResourceHasher.appendConfigurationToHasher(hasher);
+        this.normalizationHash = hasher.hash();
     }
 
     @Override
     public FileCollectionSnapshot snapshot(FileCollection files, PathNormalizationStrategy pathNormalizationStrategy, InputNormalizationStrategy inputNormalizationStrategy) {
-        return super.snapshot(
-            files,
-            new CompileClasspathSnapshotBuilder(classpathResourceHasher, cacheService, getStringInterner()));
+        if (snapshotCache == null) {
+            return super.snapshot(files, builderFactory.create());
+        }
+        return super.snapshot(files, snapshotCache, normalizationHash, builderFactory);
     }
 
     @Override
@@ -111,6 +111,20 @@ public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
         hasher.putHash(getHash());
     }
 
+    /**
+     * Appends everything that identifies this snapshot to the given hasher: the compare strategy, and the absolute path, normalized path and content hash of each element.
+     * {@link #getHash()} is not enough, as it may ignore the absolute paths and, for unordered snapshots, which absolute path has which content.
+     */
+    void appendIdentityToHasher(BuildCacheHasher hasher) {
+        hasher.putInt(compareStrategy.ordinal());
+        hasher.putBoolean(pathIsAbsolute);
+        for (Map.Entry<String, NormalizedFileSnapshot> entry : snapshots.entrySet()) {
+            hasher.putString(entry.getKey());
+            hasher.putString(entry.getValue().getNormalizedPath());
+            hasher.putHash(entry.getValue().getSnapshot().getContentMd5());
+        }
+    }
+
     @Override
     public List<File> getElements() {
         return cachedElementsFactory.create();
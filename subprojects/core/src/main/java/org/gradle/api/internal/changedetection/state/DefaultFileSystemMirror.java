@@ -19,19 +19,41 @@ package org.gradle.api.internal.changedetection.state;
 import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener;
 import org.gradle.initialization.RootBuildLifecycleListener;
 import org.gradle.internal.classpath.CachedJarFileStore;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.file.DefaultFileHierarchySet;
 import org.gradle.internal.file.FileHierarchySet;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.os.OperatingSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * See {@link DefaultFileSystemSnapshotter} for some more details
+ * See {@link DefaultFileSystemSnapshotter} for some more details.
+ *
+ * <p>When created with a {@link FileWatcherFactory}, the state for files that do not live in an append-only cache is retained between builds,
+ * and only the state for locations that the file watcher reports as changed is discarded at the start of the next build. Only state inside
+ * the watched directory trees is retained, see {@link FileWatchingChangeTracker}, and at most {@link #MAX_RETAINED_SNAPSHOTS} entries are
+ * retained.</p>
  */
-public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGenerationListener, RootBuildLifecycleListener {
+public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGenerationListener, RootBuildLifecycleListener, Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFileSystemMirror.class);
+
+    /**
+     * Opt-in flag to retain file system state between builds, using file watching to discard changed locations.
+     */
+    public static final String RETAIN_SNAPSHOTS_PROPERTY = "org.gradle.internal.filewatch.retainSnapshots";
+    static final int MAX_RETAINED_SNAPSHOTS = 100000;
+
     // Maps from interned absolute path for a file to known details for the file.
     private final Map<String, FileSnapshot> files = new ConcurrentHashMap<String, FileSnapshot>();
     private final Map<String, FileSnapshot> cacheFiles = new ConcurrentHashMap<String, FileSnapshot>();
@@ -42,8 +64,23 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGen
     private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
     private final Map<String, Snapshot> cacheSnapshots = new ConcurrentHashMap<String, Snapshot>();
     private final FileHierarchySet cachedDirectories;
+    @Nullable
+    private final FileWatchingChangeTracker changeTracker;
 
     public DefaultFileSystemMirror(List<CachedJarFileStore> fileStores) {
+        this(fileStores, null, null);
+    }
+
+    /**
+     * Creates a mirror that retains its state between builds.
+     *
+     * @param markerDir a directory owned by this mirror, used to check that all file system changes have been received.
+     */
+    public DefaultFileSystemMirror(List<CachedJarFileStore> fileStores, FileWatcherFactory fileWatcherFactory, File markerDir) {
+        this(fileStores, new FileWatchingChangeTracker(fileWatcherFactory, markerDir));
+    }
+
+    private DefaultFileSystemMirror(List<CachedJarFileStore> fileStores, @Nullable FileWatchingChangeTracker changeTracker) {
         FileHierarchySet cachedDirectories = DefaultFileHierarchySet.of();
         for (CachedJarFileStore fileStore : fileStores) {
             for (File file : fileStore.getFileStoreRoots()) {
@@ -51,6 +88,14 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGen
             }
         }
         this.cachedDirectories = cachedDirectories;
+        this.changeTracker = changeTracker;
+    }
+
+    /**
+     * Returns true when snapshots should be retained between builds. This is not enabled on macOS, where changes are detected by polling.
+     */
+    public static boolean isRetainSnapshotsEnabled() {
+        return Boolean.getBoolean(RETAIN_SNAPSHOTS_PROPERTY) && !OperatingSystem.current().isMacOsX();
     }
 
     @Nullable
@@ -71,6 +116,7 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGen
             cacheFiles.put(file.getPath(), file);
         } else {
             files.put(file.getPath(), file);
+            snapshotTaken(file.getPath());
         }
     }
 
@@ -90,6 +136,7 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGen
             cacheSnapshots.put(path, snapshot);
         } else {
             snapshots.put(path, snapshot);
+            snapshotTaken(path);
         }
     }
 
@@ -111,6 +158,15 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGen
             cacheTrees.put(directory.getPath(), directory);
         } else {
             trees.put(directory.getPath(), directory);
+            if (changeTracker != null) {
+                changeTracker.directorySnapshotTaken(directory.getPath());
+            }
+        }
+    }
+
+    private void snapshotTaken(String path) {
+        if (changeTracker != null) {
+            changeTracker.snapshotTaken(path);
         }
     }
 
@@ -121,20 +177,85 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGen
         files.clear();
         trees.clear();
         snapshots.clear();
+        if (changeTracker != null) {
+            changeTracker.snapshotsDiscarded();
+        }
     }
 
     @Override
     public void afterStart() {
+        if (changeTracker == null) {
+            return;
+        }
+        Collection<String> changes = changeTracker.takeChanges();
+        if (changes == null) {
+            files.clear();
+            trees.clear();
+            snapshots.clear();
+        } else if (!changes.isEmpty()) {
+            discardChanged(changes);
+        }
     }
 
     @Override
     public void beforeComplete() {
-        // We throw away all state between builds
-        files.clear();
         cacheFiles.clear();
-        trees.clear();
         cacheTrees.clear();
-        snapshots.clear();
         cacheSnapshots.clear();
+        Collection<String> untrusted = changeTracker == null ? null : changeTracker.startWatching();
+        if (untrusted == null) {
+            // We throw away all state between builds
+            files.clear();
+            trees.clear();
+            snapshots.clear();
+        } else {
+            // Throw away the state for the locations that were not yet watched when it was captured
+            for (String path : untrusted) {
+                files.remove(path);
+                trees.remove(path);
+                snapshots.remove(path);
+            }
+            if (files.size() + trees.size() + snapshots.size() > MAX_RETAINED_SNAPSHOTS) {
+                LOGGER.debug("Too many file system snapshots to retain, discarding all file system snapshots.");
+                files.clear();
+                trees.clear();
+                snapshots.clear();
+            }
+        }
+    }
+
+    private void discardChanged(Collection<String> changedPaths) {
+        FileHierarchySet changed = DefaultFileHierarchySet.of();
+        Set<String> ancestors = new HashSet<String>();
+        for (String path : changedPaths) {
+            File file = new File(path);
+            changed = changed.plus(file);
+            for (File parent = file.getParentFile(); parent != null; parent = parent.getParentFile()) {
+                if (!ancestors.add(parent.getPath())) {
+                    break;
+                }
+            }
+        }
+        // A file snapshot is stale when the file itself or one of its ancestors changed
+        removeMatching(files.keySet(), changed, null);
+        // A tree or content snapshot is stale when anything inside the tree changed as well
+        removeMatching(trees.keySet(), changed, ancestors);
+        removeMatching(snapshots.keySet(), changed, ancestors);
+    }
+
+    private static void removeMatching(Set<String> paths, FileHierarchySet changed, @Nullable Set<String> changedAncestors) {
+        for (Iterator<String> iterator = paths.iterator(); iterator.hasNext();) {
+            String path = iterator.next();
+            if (changed.contains(path) || (changedAncestors != null && changedAncestors.contains(path))) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (changeTracker != null) {
+            changeTracker.stop();
+        }
     }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.ImmutableSortedMap;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.FileLockManager;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.caching.internal.DefaultBuildCacheHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Serializer;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * A content-addressed store of {@link FileCollectionSnapshot}s, where each distinct snapshot is stored once.
+ *
+ * <p>Task history entries refer to snapshots by their key, so that file collections shared between many tasks, such as classpaths, are only
+ * persisted and deserialized once. The store uses its own cache, so that it can be read and written while the task history cache is being accessed.</p>
+ *
+ * <p>The store counts the task history entries referring to each snapshot. Callers {@link #retain(Iterable) retain} the snapshots of an entry before
+ * writing it and {@link #release(Iterable) release} the snapshots of the entry it replaces, and a snapshot is removed once it is no longer referenced.</p>
+ */
+public class FileCollectionSnapshotStore implements Closeable {
+    /**
+     * Returned in place of a snapshot that is no longer available. Releasing it has no effect.
+     */
+    static final FileCollectionSnapshot MISSING = new DefaultFileCollectionSnapshot(ImmutableSortedMap.<String, NormalizedFileSnapshot>of(), TaskFilePropertyCompareStrategy.UNORDERED, true);
+
+    private final PersistentCache cache;
+    private final PersistentIndexedCache<HashCode, FileCollectionSnapshot> snapshots;
+    private final PersistentIndexedCache<HashCode, Integer> referenceCounts;
+
+    public FileCollectionSnapshotStore(Gradle gradle, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, Serializer<FileCollectionSnapshot> serializer) {
+        this.cache = cacheRepository
+            .cache(gradle, "fileSnapshots")
+            .withDisplayName("file snapshot cache")
+            .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
+            .open();
+        // Keep shared snapshots in memory for short lived processes too, so that each one is only deserialized once per build
+        PersistentIndexedCacheParameters<HashCode, FileCollectionSnapshot> parameters = new PersistentIndexedCacheParameters<HashCode, FileCollectionSnapshot>("fileCollectionSnapshots", HashCode.class, serializer)
+            .cacheDecorator(inMemoryCacheDecoratorFactory.decorator(10000, true));
+        this.snapshots = cache.createCache(parameters);
+        this.referenceCounts = cache.createCache(new PersistentIndexedCacheParameters<HashCode, Integer>("fileCollectionSnapshotReferences", HashCode.class, BaseSerializerFactory.INTEGER_SERIALIZER));
+    }
+
+    /**
+     * Returns the key of the given snapshot in this store.
+     *
+     * <p>The key is derived from the compare strategy and the absolute path, normalized path and content hash of each element,
+     * so that snapshots that differ only in which absolute path has which content get different keys.</p>
+     */
+    public HashCode keyOf(FileCollectionSnapshot snapshot) {
+        DefaultBuildCacheHasher hasher = new DefaultBuildCacheHasher();
+        ((DefaultFileCollectionSnapshot) snapshot).appendIdentityToHasher(hasher);
+        return hasher.hash();
+    }
+
+    /**
+     * Adds a reference to each of the given snapshots, storing those that are not yet present.
+     */
+    public void retain(final Iterable<FileCollectionSnapshot> snapshotsToRetain) {
+        cache.useCache(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (FileCollectionSnapshotStore.this) {
+                    for (FileCollectionSnapshot snapshot : snapshotsToRetain) {
+                        HashCode key = keyOf(snapshot);
+                        Integer count = referenceCounts.get(key);
+                        if (count == null || snapshots.get(key) == null) {
+                            count = 0;
+                            snapshots.put(key, snapshot);
+                        }
+                        referenceCounts.put(key, count + 1);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes a reference from each of the given snapshots, removing those that are no longer referenced.
+     */
+    public void release(final Iterable<FileCollectionSnapshot> snapshotsToRelease) {
+        cache.useCache(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (FileCollectionSnapshotStore.this) {
+                    for (FileCollectionSnapshot snapshot : snapshotsToRelease) {
+                        if (snapshot == MISSING) {
+                            continue;
+                        }
+                        HashCode key = keyOf(snapshot);
+                        Integer count = referenceCounts.get(key);
+                        if (count == null) {
+                            continue;
+                        }
+                        if (count <= 1) {
+                            referenceCounts.remove(key);
+                            snapshots.remove(key);
+                        } else {
+                            referenceCounts.put(key, count - 1);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the snapshot with the given key, or returns {@code null} when this store does not contain it.
+     */
+    @Nullable
+    public FileCollectionSnapshot load(HashCode key) {
+        return snapshots.get(key);
+    }
+
+    @Override
+    public void close() {
+        cache.close();
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import org.gradle.api.Action;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.file.DefaultFileHierarchySet;
+import org.gradle.internal.file.FileHierarchySet;
+import org.gradle.internal.filewatch.FileWatcher;
+import org.gradle.internal.filewatch.FileWatcherEvent;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.filewatch.FileWatcherListener;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Watches the directory trees snapshotted by a {@link DefaultFileSystemMirror}, so that the mirror can retain its snapshots between builds
+ * and only discard those that have changed.
+ *
+ * <p>A snapshot is only trusted when it lives in a directory tree that was already being watched when the snapshot was taken. Directory trees
+ * snapshotted for the first time start being watched at the end of the build, and snapshots inside them are retained from the following build
+ * on. Individual files are not watched, so snapshots of files outside of a watched directory tree are never retained.</p>
+ *
+ * <p>Before the changes are handed out at the start of a build, a marker file is written into a watched directory and the tracker waits for
+ * the watcher to report it. This makes sure the changes made before the build started have been received. When the marker is not reported in
+ * time, all snapshots are discarded.</p>
+ *
+ * <p>At most {@link #MAX_WATCHED_ROOTS} directory trees are watched. When a build snapshots trees that would exceed this, the trees watched
+ * for previous builds are no longer watched and all snapshots are discarded.</p>
+ */
+class FileWatchingChangeTracker implements FileWatcherListener, Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileWatchingChangeTracker.class);
+    static final int MAX_PENDING_CHANGES = 100000;
+    static final int MAX_WATCHED_ROOTS = 1000;
+    static final long FLUSH_TIMEOUT_MILLIS = 1000;
+
+    private final FileWatcherFactory fileWatcherFactory;
+    private final File markerDir;
+    private final Set<String> requestedRoots = Sets.newConcurrentHashSet();
+    private final Set<String> untrustedPaths = Sets.newConcurrentHashSet();
+    private final Set<String> watchedRootPaths = new HashSet<String>();
+    private volatile FileHierarchySet watchedRoots = DefaultFileHierarchySet.of();
+    private FileWatcher watcher;
+
+    private final Object changesLock = new Object();
+    private List<String> changedPaths = new ArrayList<String>();
+    private boolean overflow;
+    private File expectedMarker;
+
+    FileWatchingChangeTracker(FileWatcherFactory fileWatcherFactory, File markerDir) {
+        this.fileWatcherFactory = fileWatcherFactory;
+        this.markerDir = markerDir;
+    }
+
+    /**
+     * Records that the given location has been snapshotted.
+     */
+    void snapshotTaken(String path) {
+        if (!watchedRoots.contains(path)) {
+            untrustedPaths.add(path);
+        }
+    }
+
+    /**
+     * Records that the directory tree at the given location has been snapshotted, and should be watched from now on.
+     */
+    void directorySnapshotTaken(String path) {
+        if (!watchedRoots.contains(path)) {
+            untrustedPaths.add(path);
+            requestedRoots.add(path);
+        }
+    }
+
+    /**
+     * Records that all snapshots taken so far have been discarded.
+     */
+    void snapshotsDiscarded() {
+        untrustedPaths.clear();
+    }
+
+    /**
+     * Starts watching the directory trees snapshotted during this build.
+     *
+     * @return the locations whose snapshots must not be retained, or {@code null} when no snapshot can be retained.
+     */
+    @Nullable
+    Collection<String> startWatching() {
+        List<String> untrusted = ImmutableList.copyOf(untrustedPaths);
+        untrustedPaths.clear();
+        List<String> roots = ImmutableList.copyOf(requestedRoots);
+        requestedRoots.clear();
+        if (watcher != null && !watcher.isRunning()) {
+            LOGGER.debug("File watcher has stopped, discarding all file system snapshots.");
+            reset();
+            return null;
+        }
+        if (roots.isEmpty()) {
+            return untrusted;
+        }
+        boolean evict = watchedRootPaths.size() + roots.size() > MAX_WATCHED_ROOTS;
+        if (evict) {
+            // Start over, watching only the directory trees of this build
+            LOGGER.debug("Too many directory trees watched, discarding all file system snapshots.");
+            reset();
+            if (roots.size() > MAX_WATCHED_ROOTS) {
+                return null;
+            }
+        }
+        try {
+            FileSystemSubset.Builder subset = FileSystemSubset.builder();
+            if (watcher == null) {
+                GFileUtils.mkdirs(markerDir);
+                subset.add(markerDir);
+                watcher = fileWatcherFactory.watch(new Action<Throwable>() {
+                    @Override
+                    public void execute(Throwable throwable) {
+                        LOGGER.debug("Failure while watching file system, discarding all file system snapshots.", throwable);
+                        markOverflow();
+                    }
+                }, this);
+            }
+            FileHierarchySet watched = watchedRoots;
+            for (String root : roots) {
+                File file = new File(root);
+                subset.add(file);
+                watched = watched.plus(file);
+            }
+            watcher.watch(subset.build());
+            watchedRoots = watched;
+            watchedRootPaths.addAll(roots);
+            return evict ? null : untrusted;
+        } catch (Exception e) {
+            LOGGER.debug("Could not watch file system, discarding all file system snapshots.", e);
+            reset();
+            return null;
+        }
+    }
+
+    /**
+     * Returns the locations that have changed since the last call, or {@code null} when changes may have been missed.
+     */
+    @Nullable
+    Collection<String> takeChanges() {
+        if (watcher != null && !flush()) {
+            LOGGER.debug("Could not confirm that all file system changes have been received, discarding all file system snapshots.");
+            markOverflow();
+        }
+        synchronized (changesLock) {
+            boolean missedChanges = overflow || (watcher != null && !watcher.isRunning());
+            List<String> changes = changedPaths;
+            changedPaths = new ArrayList<String>();
+            overflow = false;
+            return missedChanges ? null : changes;
+        }
+    }
+
+    /**
+     * Writes a marker file and waits until the watcher has reported it, so that any change made before the marker has been received.
+     *
+     * @return true when the marker has been reported.
+     */
+    private boolean flush() {
+        File marker = new File(markerDir, "flush-" + UUID.randomUUID());
+        synchronized (changesLock) {
+            expectedMarker = marker;
+        }
+        try {
+            if (!marker.createNewFile()) {
+                return false;
+            }
+            long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MILLIS;
+            synchronized (changesLock) {
+                while (expectedMarker != null && !overflow) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    changesLock.wait(remaining);
+                }
+                return true;
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not write file watching marker.", e);
+            return false;
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            synchronized (changesLock) {
+                expectedMarker = null;
+            }
+            GFileUtils.deleteQuietly(marker);
+        }
+    }
+
+    @Override
+    public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+        if (event.getType() == FileWatcherEvent.Type.UNDEFINED || event.getFile() == null) {
+            markOverflow();
+            return;
+        }
+        File file = event.getFile();
+        if (markerDir.equals(file.getParentFile())) {
+            synchronized (changesLock) {
+                if (file.equals(expectedMarker)) {
+                    expectedMarker = null;
+                    changesLock.notifyAll();
+                }
+            }
+            return;
+        }
+        synchronized (changesLock) {
+            if (overflow) {
+                return;
+            }
+            if (changedPaths.size() >= MAX_PENDING_CHANGES) {
+                markOverflow();
+                return;
+            }
+            changedPaths.add(file.getAbsolutePath());
+        }
+    }
+
+    private void markOverflow() {
+        synchronized (changesLock) {
+            overflow = true;
+            changedPaths = new ArrayList<String>();
+            changesLock.notifyAll();
+        }
+    }
+
+    private void reset() {
+        stopWatcher();
+        watchedRoots = DefaultFileHierarchySet.of();
+        watchedRootPaths.clear();
+        untrustedPaths.clear();
+        requestedRoots.clear();
+        markOverflow();
+    }
+
+    private void stopWatcher() {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+    }
+
+    @Override
+    public void stop() {
+        stopWatcher();
+        GFileUtils.deleteQuietly(markerDir);
+    }
+}
@@ -16,8 +16,14 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Lists;
 import org.gradle.api.Transformer;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
@@ -32,7 +38,18 @@ import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
 import org.gradle.cache.internal.CrossProcessSynchronizingCache;
 import org.gradle.cache.internal.HeapProportionalCacheSizer;
 import org.gradle.cache.internal.MultiProcessSafeAsyncPersistentIndexedCache;
+import org.gradle.internal.util.NumberUtil;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -40,15 +57,28 @@ import java.util.concurrent.atomic.AtomicReference;
  * The in-memory cache is invalidated when the backing cache is changed by another process.
  *
  * Also decorates each cache so that updates to the backing cache are made asynchronously.
+ *
+ * In addition to the maximum number of entries of each in-memory cache, the estimated size of the entries of all in-memory caches is limited by a heap budget.
+ * When the budget is exceeded, entries are discarded from the caches with the lowest hit rate since the budget was last exceeded.
  */
 public class InMemoryCacheDecoratorFactory {
     private final static Logger LOG = Logging.getLogger(InMemoryCacheDecoratorFactory.class);
     private final boolean longLivingProcess;
     private final HeapProportionalCacheSizer cacheSizer = new HeapProportionalCacheSizer();
     private final CrossBuildInMemoryCache<String, CacheDetails> caches;
+    private final ConcurrentMap<String, WeakReference<CacheDetails>> liveCaches = new ConcurrentHashMap<String, WeakReference<CacheDetails>>();
+    private final long maxWeight;
+    private final AtomicLong totalWeight = new AtomicLong();
+    private final AtomicBoolean trimming = new AtomicBoolean();
 
     public InMemoryCacheDecoratorFactory(boolean longLivingProcess, CrossBuildInMemoryCacheFactory cacheFactory) {
+        this(longLivingProcess, cacheFactory, new HeapProportionalCacheSizer().getHeapBudget());
+    }
+
+    @VisibleForTesting
+    InMemoryCacheDecoratorFactory(boolean longLivingProcess, CrossBuildInMemoryCacheFactory cacheFactory, long maxWeight) {
         this.longLivingProcess = longLivingProcess;
+        this.maxWeight = maxWeight;
         caches = cacheFactory.newCache();
     }
 
@@ -64,15 +94,15 @@ public class InMemoryCacheDecoratorFactory {
         }
         int targetSize = cacheSizer.scaleCacheSize(maxEntriesToKeepInMemory);
         CacheDetails cacheDetails = getCache(cacheId, targetSize);
-        return new InMemoryDecoratedCache<K, V>(backingCache, cacheDetails.entries, cacheId, cacheDetails.lockState);
+        return new InMemoryDecoratedCache<K, V>(backingCache, cacheDetails.entries, cacheId, cacheDetails.lockState, cacheDetails);
     }
 
     private CacheDetails getCache(final String cacheId, final int maxSize) {
         CacheDetails cacheDetails = caches.get(cacheId, new Transformer<CacheDetails, String>() {
             @Override
             public CacheDetails transform(String cacheId) {
-                Cache<Object, Object> entries = createInMemoryCache(cacheId, maxSize);
-                CacheDetails cacheDetails = new CacheDetails(cacheId, maxSize, entries, new AtomicReference<FileLock.State>(null));
+                CacheDetails cacheDetails = new CacheDetails(cacheId, maxSize, new AtomicReference<FileLock.State>(null));
+                liveCaches.put(cacheId, new WeakReference<CacheDetails>(cacheDetails));
                 LOG.debug("Creating in-memory store for cache {} (max size: {})", cacheId, maxSize);
                 return cacheDetails;
             }
@@ -83,12 +113,93 @@ public class InMemoryCacheDecoratorFactory {
         return cacheDetails;
     }
 
-    private Cache<Object, Object> createInMemoryCache(String cacheId, int maxSize) {
-        LoggingEvictionListener evictionListener = new LoggingEvictionListener(cacheId, maxSize);
-        final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().removalListener(evictionListener);
-        Cache<Object, Object> inMemoryCache = cacheBuilder.build();
-        evictionListener.setCache(inMemoryCache);
-        return inMemoryCache;
+    /**
+     * Returns the maximum estimated size, in bytes, of the entries of all in-memory caches.
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Returns the statistics of the in-memory caches that are currently retained.
+     */
+    public List<CacheStatistics> getStatistics() {
+        List<CacheStatistics> statistics = new ArrayList<CacheStatistics>();
+        for (CacheDetails cacheDetails : getLiveCaches()) {
+            CacheStats stats = cacheDetails.entries.stats();
+            statistics.add(new CacheStatistics(cacheDetails.cacheId, cacheDetails.entries.size(), cacheDetails.weight.get(), stats.hitCount(), stats.missCount(), cacheDetails.evictions.get()));
+        }
+        Collections.sort(statistics, new Comparator<CacheStatistics>() {
+            @Override
+            public int compare(CacheStatistics o1, CacheStatistics o2) {
+                return o1.getCacheId().compareTo(o2.getCacheId());
+            }
+        });
+        return statistics;
+    }
+
+    private List<CacheDetails> getLiveCaches() {
+        List<CacheDetails> result = new ArrayList<CacheDetails>();
+        Iterator<WeakReference<CacheDetails>> iterator = liveCaches.values().iterator();
+        while (iterator.hasNext()) {
+            CacheDetails cacheDetails = iterator.next().get();
+            if (cacheDetails == null) {
+                // The in-memory cache has been garbage collected
+                iterator.remove();
+            } else {
+                result.add(cacheDetails);
+            }
+        }
+        return result;
+    }
+
+    private void weightAdded(long weight) {
+        if (totalWeight.addAndGet(weight) > maxWeight) {
+            trimToBudget();
+        }
+    }
+
+    /**
+     * Discards entries until the estimated size of all in-memory caches is below the budget, starting with the caches that have the lowest hit rate since the last time this happened.
+     */
+    private void trimToBudget() {
+        if (!trimming.compareAndSet(false, true)) {
+            // Another thread is already doing this
+            return;
+        }
+        try {
+            List<CacheDetails> live = getLiveCaches();
+            long weight = 0;
+            for (CacheDetails cacheDetails : live) {
+                weight += cacheDetails.weight.get();
+            }
+            // Resynchronize with the caches, as the weight of caches that have been garbage collected is never removed
+            totalWeight.set(weight);
+            if (weight <= maxWeight) {
+                return;
+            }
+            long targetWeight = maxWeight - maxWeight / 10;
+            for (CacheDetails cacheDetails : live) {
+                cacheDetails.updateRecentHitRate();
+            }
+            Collections.sort(live, new Comparator<CacheDetails>() {
+                @Override
+                public int compare(CacheDetails o1, CacheDetails o2) {
+                    return Double.compare(o1.recentHitRate, o2.recentHitRate);
+                }
+            });
+            for (CacheDetails cacheDetails : live) {
+                long discarded = cacheDetails.discard(totalWeight.get() - targetWeight);
+                if (discarded > 0) {
+                    LOG.info("In-memory cache of {} exceeded the heap budget of {}, discarded {} entries.{}", cacheDetails.cacheId, NumberUtil.formatBytes(maxWeight), discarded, LoggingEvictionListener.EVICTION_MITIGATION_MESSAGE);
+                }
+                if (totalWeight.get() <= targetWeight) {
+                    break;
+                }
+            }
+        } finally {
+            trimming.set(false);
+        }
     }
 
     private class InMemoryCacheDecorator implements CacheDecorator {
@@ -125,17 +236,124 @@ public class InMemoryCacheDecoratorFactory {
         }
     }
 
-    private static class CacheDetails {
+    private class CacheDetails implements InMemoryDecoratedCache.EntryListener, RemovalListener<Object, Object> {
         private final String cacheId;
         private final int maxEntries;
         private final Cache<Object, Object> entries;
         private final AtomicReference<FileLock.State> lockState;
+        private final LoggingEvictionListener evictionListener;
+        private final AtomicLong weight = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+        private long lastHitCount;
+        private long lastRequestCount;
+        private double recentHitRate;
 
-        CacheDetails(String cacheId, int maxEntries, Cache<Object, Object> entries, AtomicReference<FileLock.State> lockState) {
+        CacheDetails(String cacheId, int maxEntries, AtomicReference<FileLock.State> lockState) {
             this.cacheId = cacheId;
             this.maxEntries = maxEntries;
-            this.entries = entries;
             this.lockState = lockState;
+            this.evictionListener = new LoggingEvictionListener(cacheId, maxEntries);
+            this.entries = CacheBuilder.newBuilder().maximumSize(maxEntries).recordStats().removalListener(this).build();
+            evictionListener.setCache(entries);
+        }
+
+        @Override
+        public void entryAdded(Object key, Object value) {
+            long entryWeight = InMemoryCacheEntryWeigher.weigh(key, value);
+            weight.addAndGet(entryWeight);
+            weightAdded(entryWeight);
+        }
+
+        @Override
+        public void onRemoval(RemovalNotification<Object, Object> notification) {
+            long entryWeight = InMemoryCacheEntryWeigher.weigh(notification.getKey(), notification.getValue());
+            weight.addAndGet(-entryWeight);
+            totalWeight.addAndGet(-entryWeight);
+            if (notification.getCause() == RemovalCause.SIZE) {
+                evictions.incrementAndGet();
+            }
+            evictionListener.onRemoval(notification);
+        }
+
+        void updateRecentHitRate() {
+            CacheStats stats = entries.stats();
+            long requests = stats.requestCount() - lastRequestCount;
+            long hits = stats.hitCount() - lastHitCount;
+            if (requests > 0) {
+                recentHitRate = (double) hits / requests;
+            }
+            lastRequestCount = stats.requestCount();
+            lastHitCount = stats.hitCount();
+        }
+
+        /**
+         * Discards entries of this cache until at least the given weight has been discarded or the cache is empty.
+         */
+        long discard(long weightToDiscard) {
+            long targetWeight = weight.get() - weightToDiscard;
+            long discarded = 0;
+            for (Object key : Lists.newArrayList(entries.asMap().keySet())) {
+                if (weight.get() <= targetWeight) {
+                    break;
+                }
+                entries.invalidate(key);
+                discarded++;
+            }
+            evictions.addAndGet(discarded);
+            return discarded;
+        }
+    }
+
+    /**
+     * Statistics of an in-memory cache.
+     */
+    public static class CacheStatistics {
+        private final String cacheId;
+        private final long entryCount;
+        private final long weight;
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+
+        CacheStatistics(String cacheId, long entryCount, long weight, long hitCount, long missCount, long evictionCount) {
+            this.cacheId = cacheId;
+            this.entryCount = entryCount;
+            this.weight = weight;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+        }
+
+        public String getCacheId() {
+            return cacheId;
+        }
+
+        public long getEntryCount() {
+            return entryCount;
+        }
+
+        /**
+         * The estimated size of the entries, in bytes.
+         */
+        public long getWeight() {
+            return weight;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        @Override
+        public String toString() {
+            return cacheId + " [entries: " + entryCount + ", size: " + NumberUtil.formatBytes(weight) + ", hits: " + hitCount + ", misses: " + missCount + ", evictions: " + evictionCount + "]";
         }
     }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.hash.HashCode;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Estimates the heap used by the entries of in-memory caches, in bytes.
+ *
+ * <p>The estimates are deliberately coarse: they only need to be proportional to the actual size of the entries, so that caches holding large values are given a larger share of the heap budget than caches holding many small values.</p>
+ *
+ * <p>The file collection snapshots of a task execution are held by the in-memory cache of the {@link FileCollectionSnapshotStore}, and are weighed there.
+ * A task execution only references them, so they are not weighed again as part of the execution.</p>
+ */
+class InMemoryCacheEntryWeigher {
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int OBJECT_SIZE = 48;
+    private static final int FILE_SNAPSHOT_SIZE = 120;
+    private static final int INPUT_PROPERTY_SIZE = 96;
+    private static final int REFERENCE_SIZE = 8;
+
+    private InMemoryCacheEntryWeigher() {
+    }
+
+    static long weigh(Object key, Object value) {
+        return ENTRY_OVERHEAD + weigh(key) + weigh(value);
+    }
+
+    private static long weigh(Object value) {
+        if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        }
+        if (value instanceof File) {
+            return 56 + 2L * ((File) value).getPath().length();
+        }
+        if (value instanceof HashCode) {
+            return 32 + ((HashCode) value).length();
+        }
+        if (value instanceof FileCollectionSnapshot) {
+            return weigh((FileCollectionSnapshot) value);
+        }
+        if (value instanceof HistoricalTaskExecution) {
+            return weigh((HistoricalTaskExecution) value);
+        }
+        return OBJECT_SIZE;
+    }
+
+    private static long weigh(FileCollectionSnapshot snapshot) {
+        return OBJECT_SIZE + (long) FILE_SNAPSHOT_SIZE * snapshot.getSnapshots().size();
+    }
+
+    private static long weigh(HistoricalTaskExecution execution) {
+        long weight = 4L * OBJECT_SIZE + (long) INPUT_PROPERTY_SIZE * execution.getInputProperties().size();
+        weight += weigh(execution.getInputFilesSnapshot());
+        weight += weigh(execution.getOutputFilesSnapshot());
+        weight += REFERENCE_SIZE;
+        return weight;
+    }
+
+    private static long weigh(Map<String, FileCollectionSnapshot> snapshots) {
+        long weight = 0;
+        for (String propertyName : snapshots.keySet()) {
+            weight += weigh(propertyName) + REFERENCE_SIZE;
+        }
+        return weight;
+    }
+}
@@ -35,16 +35,27 @@ import java.util.concurrent.atomic.AtomicReference;
 class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentIndexedCache<K, V> {
     private final static Logger LOG = Logging.getLogger(InMemoryDecoratedCache.class);
     private final static Object NULL = new Object();
+    private final static EntryListener NO_OP_LISTENER = new EntryListener() {
+        @Override
+        public void entryAdded(Object key, Object value) {
+        }
+    };
     private final MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate;
     private final Cache<Object, Object> inMemoryCache;
     private final String cacheId;
     private final AtomicReference<FileLock.State> fileLockStateReference;
+    private final EntryListener entryListener;
 
     public InMemoryDecoratedCache(MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate, Cache<Object, Object> inMemoryCache, String cacheId, AtomicReference<FileLock.State> fileLockStateReference) {
+        this(delegate, inMemoryCache, cacheId, fileLockStateReference, NO_OP_LISTENER);
+    }
+
+    public InMemoryDecoratedCache(MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate, Cache<Object, Object> inMemoryCache, String cacheId, AtomicReference<FileLock.State> fileLockStateReference, EntryListener entryListener) {
         this.delegate = delegate;
         this.inMemoryCache = inMemoryCache;
         this.cacheId = cacheId;
         this.fileLockStateReference = fileLockStateReference;
+        this.entryListener = entryListener;
     }
 
     @Override
@@ -61,7 +72,9 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
                 @Override
                 public Object call() throws Exception {
                     Object out = delegate.get(key);
-                    return out == null ? NULL : out;
+                    out = out == null ? NULL : out;
+                    entryListener.entryAdded(key, out);
+                    return out;
                 }
             });
         } catch (UncheckedExecutionException e) {
@@ -95,10 +108,12 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
                     if (!wasNull) {
                         Object out = delegate.get(key);
                         if (out != null) {
+                            entryListener.entryAdded(key, out);
                             return out;
                         }
                     }
                     V value = producer.transform(key);
+                    entryListener.entryAdded(key, value);
                     delegate.putLater(key, value, completion);
                     completionRef.set(Runnables.doNothing());
                     return value;
@@ -120,12 +135,14 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
 
     @Override
     public void putLater(K key, V value, Runnable completion) {
+        entryListener.entryAdded(key, value);
         inMemoryCache.put(key, value);
         delegate.putLater(key, value, completion);
     }
 
     @Override
     public void removeLater(K key, Runnable completion) {
+        entryListener.entryAdded(key, NULL);
         inMemoryCache.put(key, NULL);
         delegate.removeLater(key, completion);
     }
@@ -156,4 +173,11 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
         fileLockStateReference.set(currentCacheState);
         delegate.beforeLockRelease(currentCacheState);
     }
+
+    /**
+     * Notified before an entry is added to the in-memory cache.
+     */
+    interface EntryListener {
+        void entryAdded(Object key, Object value);
+    }
 }
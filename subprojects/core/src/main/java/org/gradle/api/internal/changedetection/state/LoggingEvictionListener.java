@@ -26,7 +26,7 @@ import org.gradle.api.logging.Logging;
 
 class LoggingEvictionListener implements RemovalListener<Object, Object> {
     private static Logger logger = Logging.getLogger(LoggingEvictionListener.class);
-    private static final String EVICTION_MITIGATION_MESSAGE = "\nPerformance may suffer from in-memory cache misses. Increase max heap size of Gradle build process to reduce cache misses.";
+    static final String EVICTION_MITIGATION_MESSAGE = "\nPerformance may suffer from in-memory cache misses. Increase max heap size of Gradle build process to reduce cache misses.";
     volatile int evictionCounter;
     private final String cacheId;
     private Cache<Object, Object> cache;
@@ -26,11 +26,16 @@ import org.gradle.internal.id.UniqueId;
 import org.gradle.internal.serialize.AbstractSerializer;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.IOException;
 import java.util.Map;
 
+/**
+ * Serializes task history entries. When a {@link FileCollectionSnapshotStore} is given, only the keys of the file collection snapshots are written to the entry.
+ * The snapshots themselves must have been retained in the store.
+ */
 public class TaskExecutionSnapshotSerializer extends AbstractSerializer<HistoricalTaskExecution> {
     private final InputPropertiesSerializer inputPropertiesSerializer;
     private final StringInterner stringInterner;
@@ -42,6 +47,10 @@ public class TaskExecutionSnapshotSerializer extends AbstractSerializer<Historic
         this.stringInterner = stringInterner;
     }
 
+    TaskExecutionSnapshotSerializer(StringInterner stringInterner, FileCollectionSnapshotStore snapshotStore) {
+        this(stringInterner, new StoredFileCollectionSnapshotSerializer(snapshotStore));
+    }
+
     public HistoricalTaskExecution read(Decoder decoder) throws Exception {
         boolean successful = decoder.readBoolean();
 
@@ -74,6 +83,11 @@ public class TaskExecutionSnapshotSerializer extends AbstractSerializer<Historic
 
         ImmutableSortedMap<String, ValueSnapshot> inputProperties = inputPropertiesSerializer.read(decoder);
 
+        if (containsMissingSnapshot(inputFilesSnapshots.values()) || containsMissingSnapshot(outputFilesSnapshots.values()) || discoveredFilesSnapshot == FileCollectionSnapshotStore.MISSING) {
+            // Some snapshots are no longer available, so treat the execution as failed to make sure the task is executed again
+            successful = false;
+        }
+
         return new HistoricalTaskExecution(
             taskImplementation,
             taskActionImplementations,
@@ -140,4 +154,36 @@ public class TaskExecutionSnapshotSerializer extends AbstractSerializer<Historic
             fileCollectionSnapshotSerializer.write(encoder, entry.getValue());
         }
     }
+
+    private static boolean containsMissingSnapshot(Iterable<FileCollectionSnapshot> snapshots) {
+        for (FileCollectionSnapshot snapshot : snapshots) {
+            if (snapshot == FileCollectionSnapshotStore.MISSING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the key of each snapshot in a {@link FileCollectionSnapshotStore}, instead of the snapshot itself.
+     */
+    private static class StoredFileCollectionSnapshotSerializer extends AbstractSerializer<FileCollectionSnapshot> {
+        private final HashCodeSerializer keySerializer = new HashCodeSerializer();
+        private final FileCollectionSnapshotStore snapshotStore;
+
+        StoredFileCollectionSnapshotSerializer(FileCollectionSnapshotStore snapshotStore) {
+            this.snapshotStore = snapshotStore;
+        }
+
+        @Override
+        public FileCollectionSnapshot read(Decoder decoder) throws Exception {
+            FileCollectionSnapshot snapshot = snapshotStore.load(keySerializer.read(decoder));
+            return snapshot == null ? FileCollectionSnapshotStore.MISSING : snapshot;
+        }
+
+        @Override
+        public void write(Encoder encoder, FileCollectionSnapshot value) throws Exception {
+            keySerializer.write(encoder, snapshotStore.keyOf(value));
+        }
+    }
 }
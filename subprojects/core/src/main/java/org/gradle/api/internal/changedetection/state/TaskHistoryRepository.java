@@ -31,6 +31,12 @@ public interface TaskHistoryRepository {
 
         CurrentTaskExecution getCurrentExecution();
 
+        /**
+         * Returns true if the previous execution was successful, and the implementation, input properties and output files of the task are the same as after it.
+         * Does not snapshot the input files of the task.
+         */
+        boolean isUnchangedExceptForInputFiles();
+
         void updateCurrentExecution(IncrementalTaskInputsInternal taskInputs);
 
         void updateCurrentExecutionWithOutputs(IncrementalTaskInputsInternal taskInputs, ImmutableSortedMap<String, FileCollectionSnapshot> newOutputSnapshot);
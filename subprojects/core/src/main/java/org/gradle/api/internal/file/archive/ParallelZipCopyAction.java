@@ -0,0 +1,288 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.archive;
+
+import org.apache.commons.compress.archivers.zip.UnixStat;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.Zip64RequiredException;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.api.tasks.WorkResults;
+import org.gradle.api.tasks.bundling.Zip;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.work.WorkerLeaseRegistry.WorkerLease;
+import org.gradle.internal.work.WorkerLeaseService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.gradle.api.internal.file.archive.ZipCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES;
+
+/**
+ * Creates a ZIP file like {@link ZipCopyAction}, but compresses the content of the entries on several threads.
+ *
+ * <p>The content of each file is read on the calling thread and compressed into a buffer by a worker thread. Entries are
+ * written to the archive in the order in which they are visited, so the produced archive does not depend on the number of
+ * threads or on their scheduling. Large files and files of unknown size are not buffered, they are written directly once all
+ * preceding entries have been written.</p>
+ *
+ * <p>Each worker thread holds a worker lease while compressing, so the compression counts towards {@code --max-workers}. When the
+ * calling thread needs an entry whose compression has not started yet, it compresses the entry itself using its own worker lease,
+ * rather than waiting for a lease to become available.</p>
+ *
+ * <p>The archive is written with the same header fields as {@link ZipCopyAction} writes, as long as the zip64 extension is not
+ * used.</p>
+ */
+public class ParallelZipCopyAction implements CopyAction {
+    static final long MAX_BUFFERED_ENTRY_SIZE = 8 * 1024 * 1024;
+    static final long MAX_PENDING_BYTES = 64 * 1024 * 1024;
+
+    private final File zipFile;
+    private final boolean allowZip64;
+    private final int entryCompressionMethod;
+    private final DocumentationRegistry documentationRegistry;
+    private final String encoding;
+    private final boolean preserveFileTimestamps;
+    private final ExecutorFactory executorFactory;
+    private final WorkerLeaseService workerLeaseService;
+
+    public ParallelZipCopyAction(File zipFile, boolean allowZip64, int entryCompressionMethod, DocumentationRegistry documentationRegistry, String encoding, boolean preserveFileTimestamps, ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService) {
+        this.zipFile = zipFile;
+        this.allowZip64 = allowZip64;
+        this.entryCompressionMethod = entryCompressionMethod;
+        this.documentationRegistry = documentationRegistry;
+        this.encoding = encoding;
+        this.preserveFileTimestamps = preserveFileTimestamps;
+        this.executorFactory = executorFactory;
+        this.workerLeaseService = workerLeaseService;
+    }
+
+    public WorkResult execute(CopyActionProcessingStream stream) {
+        ZipArchiveOutputStream zipOutStr;
+        try {
+            zipOutStr = new ZipArchiveOutputStream(zipFile);
+            zipOutStr.setUseZip64(allowZip64 ? Zip64Mode.AsNeeded : Zip64Mode.Never);
+            zipOutStr.setMethod(entryCompressionMethod);
+            // Use the same default as the Ant based implementation
+            zipOutStr.setEncoding(encoding != null ? encoding : Charset.defaultCharset().name());
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
+        }
+
+        // `getMaxWorkerCount() - 1` because the calling thread compresses entries as well
+        ManagedExecutor executor = executorFactory.create("ZIP entry compression", Math.max(1, workerLeaseService.getMaxWorkerCount() - 1));
+        try {
+            StreamAction action = new StreamAction(zipOutStr, executor, workerLeaseService.getWorkerLease());
+            stream.process(action);
+            action.writePending(0);
+            zipOutStr.finish();
+        } catch (Zip64RequiredException e) {
+            throw zip64Required(e);
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
+        } finally {
+            executor.requestStop();
+            try {
+                zipOutStr.close();
+            } catch (IOException e) {
+                // Ignore, a failure has already been reported or the archive has been finished
+            }
+        }
+
+        return WorkResults.didWork(true);
+    }
+
+    private RuntimeException zip64Required(Zip64RequiredException e) {
+        return new org.gradle.api.tasks.bundling.internal.Zip64RequiredException(
+            String.format("%s\n\nTo build this archive, please enable the zip64 extension.\nSee: %s", e.getMessage(), documentationRegistry.getDslRefForProperty(Zip.class, "zip64"))
+        );
+    }
+
+    private class StreamAction implements CopyActionProcessingStreamAction {
+        private final ZipArchiveOutputStream zipOutStr;
+        private final ManagedExecutor executor;
+        private final WorkerLease parentWorkerLease;
+        private final Deque<PendingEntry> pending = new ArrayDeque<PendingEntry>();
+        private long pendingBytes;
+
+        public StreamAction(ZipArchiveOutputStream zipOutStr, ManagedExecutor executor, WorkerLease parentWorkerLease) {
+            this.zipOutStr = zipOutStr;
+            this.executor = executor;
+            this.parentWorkerLease = parentWorkerLease;
+        }
+
+        public void processFile(FileCopyDetailsInternal details) {
+            if (details.isDirectory() || !isBuffered(details)) {
+                // Written directly, so all preceding entries need to be written first
+                writePending(0);
+            }
+            try {
+                if (details.isDirectory()) {
+                    visitDir(details);
+                } else {
+                    visitFile(details);
+                }
+            } catch (Zip64RequiredException e) {
+                throw zip64Required(e);
+            } catch (Exception e) {
+                throw new GradleException(String.format("Could not add %s to ZIP '%s'.", details, zipFile), e);
+            }
+            writePending(MAX_PENDING_BYTES);
+        }
+
+        private void visitFile(FileCopyDetails fileDetails) throws IOException {
+            final ZipArchiveEntry archiveEntry = new ZipArchiveEntry(fileDetails.getRelativePath().getPathString());
+            archiveEntry.setTime(getArchiveTimeFor(fileDetails));
+            archiveEntry.setUnixMode(UnixStat.FILE_FLAG | fileDetails.getMode());
+            if (!isBuffered(fileDetails)) {
+                zipOutStr.putArchiveEntry(archiveEntry);
+                fileDetails.copyTo(zipOutStr);
+                zipOutStr.closeArchiveEntry();
+                return;
+            }
+
+            // The size has been checked above, so it fits into an int
+            ByteArrayOutputStream content = new ByteArrayOutputStream((int) fileDetails.getSize());
+            fileDetails.copyTo(content);
+            final byte[] bytes = content.toByteArray();
+            final FutureTask<byte[]> compressed = new FutureTask<byte[]>(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    return compress(archiveEntry, bytes);
+                }
+            });
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // The calling thread may already have compressed the entry
+                    if (!compressed.isDone()) {
+                        workerLeaseService.withLocks(Collections.singleton(parentWorkerLease.createChild()), compressed);
+                    }
+                }
+            });
+            pending.add(new PendingEntry(fileDetails.toString(), archiveEntry, compressed, bytes.length));
+            pendingBytes += bytes.length;
+        }
+
+        private boolean isBuffered(FileCopyDetails fileDetails) {
+            // The size is negative when it is not known up front
+            long size = fileDetails.getSize();
+            return size >= 0 && size <= MAX_BUFFERED_ENTRY_SIZE;
+        }
+
+        private void visitDir(FileCopyDetails dirDetails) throws IOException {
+            // Trailing slash in name indicates that entry is a directory
+            ZipArchiveEntry archiveEntry = new ZipArchiveEntry(dirDetails.getRelativePath().getPathString() + '/');
+            archiveEntry.setTime(getArchiveTimeFor(dirDetails));
+            archiveEntry.setUnixMode(UnixStat.DIR_FLAG | dirDetails.getMode());
+            zipOutStr.putArchiveEntry(archiveEntry);
+            zipOutStr.closeArchiveEntry();
+        }
+
+        /**
+         * Writes pending entries in order, until at most the given number of bytes are pending. Also writes any entries at the head
+         * of the queue that have already been compressed.
+         */
+        void writePending(long maxPendingBytes) {
+            while (!pending.isEmpty() && (pendingBytes > maxPendingBytes || pending.peek().compressed.isDone())) {
+                PendingEntry entry = pending.remove();
+                pendingBytes -= entry.size;
+                entry.writeTo(zipOutStr);
+            }
+        }
+    }
+
+    private byte[] compress(ZipArchiveEntry archiveEntry, byte[] content) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        archiveEntry.setMethod(entryCompressionMethod);
+        archiveEntry.setCrc(crc.getValue());
+        archiveEntry.setSize(content.length);
+        if (entryCompressionMethod == ZipArchiveEntry.STORED) {
+            archiveEntry.setCompressedSize(content.length);
+            return content;
+        }
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, content.length / 2));
+            DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(compressed, deflater);
+            deflaterOutputStream.write(content);
+            deflaterOutputStream.finish();
+            archiveEntry.setCompressedSize(compressed.size());
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private class PendingEntry {
+        private final String displayName;
+        private final ZipArchiveEntry archiveEntry;
+        private final FutureTask<byte[]> compressed;
+        private final long size;
+
+        PendingEntry(String displayName, ZipArchiveEntry archiveEntry, FutureTask<byte[]> compressed, long size) {
+            this.displayName = displayName;
+            this.archiveEntry = archiveEntry;
+            this.compressed = compressed;
+            this.size = size;
+        }
+
+        void writeTo(ZipArchiveOutputStream zipOutStr) {
+            // Compress on this thread if no worker has started yet, this is a no-op otherwise
+            compressed.run();
+            try {
+                zipOutStr.addRawArchiveEntry(archiveEntry, new ByteArrayInputStream(compressed.get()));
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } catch (ExecutionException e) {
+                throw new GradleException(String.format("Could not add %s to ZIP '%s'.", displayName, zipFile), e.getCause());
+            } catch (Zip64RequiredException e) {
+                throw zip64Required(e);
+            } catch (IOException e) {
+                throw new GradleException(String.format("Could not add %s to ZIP '%s'.", displayName, zipFile), e);
+            }
+        }
+    }
+
+    private long getArchiveTimeFor(FileCopyDetails details) {
+        return preserveFileTimestamps ? details.getLastModified() : CONSTANT_TIME_FOR_ZIP_ENTRIES;
+    }
+}
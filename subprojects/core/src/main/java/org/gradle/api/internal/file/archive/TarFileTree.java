@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.file.archive;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.apache.tools.tar.TarEntry;
 import org.apache.tools.tar.TarInputStream;
 import org.gradle.api.GradleException;
@@ -99,7 +101,13 @@ public class TarFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         AtomicBoolean stopFlag = new AtomicBoolean();
         NoCloseTarInputStream tar = new NoCloseTarInputStream(inputStream);
         TarEntry entry;
-        File expandedDir = getExpandedDir();
+        // Hashing the archive to locate the expanded directory means reading it again, so only do this when a visitor asks for a file
+        Supplier<File> expandedDir = Suppliers.memoize(new Supplier<File>() {
+            @Override
+            public File get() {
+                return getExpandedDir();
+            }
+        });
         while (!stopFlag.get() && (entry = tar.getNextEntry()) != null) {
             if (entry.isDirectory()) {
                 visitor.visitDir(new DetailsImpl(resource, expandedDir, entry, tar, stopFlag, chmod));
@@ -170,11 +178,11 @@ public class TarFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         private final NoCloseTarInputStream tar;
         private final AtomicBoolean stopFlag;
         private final ReadableResourceInternal resource;
-        private final File expandedDir;
+        private final Supplier<File> expandedDir;
         private File file;
         private boolean read;
 
-        public DetailsImpl(ReadableResourceInternal resource, File expandedDir, TarEntry entry, NoCloseTarInputStream tar, AtomicBoolean stopFlag, Chmod chmod) {
+        public DetailsImpl(ReadableResourceInternal resource, Supplier<File> expandedDir, TarEntry entry, NoCloseTarInputStream tar, AtomicBoolean stopFlag, Chmod chmod) {
             super(chmod);
             this.resource = resource;
             this.expandedDir = expandedDir;
@@ -193,7 +201,7 @@ public class TarFileTree implements MinimalFileTree, FileSystemMirroringFileTree
 
         public File getFile() {
             if (file == null) {
-                file = new File(expandedDir, entry.getName());
+                file = new File(expandedDir.get(), entry.getName());
                 if (!file.exists()) {
                     copyTo(file);
                 }
@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.file.archive;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.apache.tools.zip.ZipEntry;
 import org.apache.tools.zip.ZipFile;
 import org.gradle.api.GradleException;
@@ -78,7 +80,13 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
 
         try {
             ZipFile zip = new ZipFile(zipFile);
-            File expandedDir = getExpandedDir();
+            // Entries are read directly from the archive, and only extracted when a visitor asks for the file
+            Supplier<File> expandedDir = Suppliers.memoize(new Supplier<File>() {
+                @Override
+                public File get() {
+                    return getExpandedDir();
+                }
+            });
             try {
                 // The iteration order of zip.getEntries() is based on the hash of the zip entry. This isn't much use
                 // to us. So, collect the entries in a map and iterate over them in alphabetical order.
@@ -116,13 +124,13 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
 
     private static class DetailsImpl extends AbstractFileTreeElement implements FileVisitDetails {
         private final File originalFile;
-        private final File expandedDir;
+        private final Supplier<File> expandedDir;
         private final ZipEntry entry;
         private final ZipFile zip;
         private final AtomicBoolean stopFlag;
         private File file;
 
-        public DetailsImpl(File originalFile, File expandedDir, ZipEntry entry, ZipFile zip, AtomicBoolean stopFlag, Chmod chmod) {
+        public DetailsImpl(File originalFile, Supplier<File> expandedDir, ZipEntry entry, ZipFile zip, AtomicBoolean stopFlag, Chmod chmod) {
             super(chmod);
             this.originalFile = originalFile;
             this.expandedDir = expandedDir;
@@ -141,7 +149,7 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
 
         public File getFile() {
             if (file == null) {
-                file = new File(expandedDir, entry.getName());
+                file = new File(expandedDir.get(), entry.getName());
                 if (!file.exists()) {
                     copyTo(file);
                 }
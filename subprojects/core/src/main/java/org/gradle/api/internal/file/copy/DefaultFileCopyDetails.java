@@ -23,8 +23,10 @@ import org.gradle.api.file.DuplicatesStrategy;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.AbstractFileTreeElement;
+import org.gradle.api.internal.file.DefaultFileTreeElement;
 import org.gradle.internal.nativeintegration.filesystem.Chmod;
 
+import javax.annotation.Nullable;
 import java.io.*;
 import java.util.Map;
 
@@ -65,6 +67,14 @@ public class DefaultFileCopyDetails extends AbstractFileTreeElement implements F
         }
     }
 
+    @Nullable
+    public File getUnfilteredSourceFile() {
+        if (filterChain.hasFilters() || !(fileDetails instanceof DefaultFileTreeElement)) {
+            return null;
+        }
+        return fileDetails.getFile();
+    }
+
     public boolean isDirectory() {
         return fileDetails.isDirectory();
     }
@@ -15,36 +15,189 @@
  */
 package org.gradle.api.internal.file.copy;
 
+import com.google.common.collect.Lists;
 import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
 import org.gradle.api.tasks.WorkResult;
 import org.gradle.api.tasks.WorkResults;
+import org.gradle.internal.FileUtils;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.file.PathToFileResolver;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.work.WorkerLeaseRegistry.WorkerLease;
+import org.gradle.internal.work.WorkerLeaseService;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 public class FileCopyAction implements CopyAction {
 
     private final PathToFileResolver fileResolver;
+    private final FileHasher fileHasher;
+    private final FileSystem fileSystem;
+    private final ExecutorFactory executorFactory;
+    private final WorkerLeaseService workerLeaseService;
 
     public FileCopyAction(PathToFileResolver fileResolver) {
+        this(fileResolver, null, null, null, null);
+    }
+
+    /**
+     * Creates a copy action that copies unfiltered files in parallel, and leaves destination files alone when they already have the content of
+     * their source. Each copy runs under a worker lease, so the copies share the build's {@code --max-workers} limit with other work. Content
+     * is compared using the given hasher, so that the hashes already calculated for the task's inputs and for the outputs of its previous
+     * execution are reused.
+     */
+    public FileCopyAction(PathToFileResolver fileResolver, @Nullable FileHasher fileHasher, @Nullable FileSystem fileSystem, @Nullable ExecutorFactory executorFactory, @Nullable WorkerLeaseService workerLeaseService) {
         this.fileResolver = fileResolver;
+        this.fileHasher = fileHasher;
+        this.fileSystem = fileSystem;
+        this.executorFactory = executorFactory;
+        this.workerLeaseService = workerLeaseService;
     }
 
     public WorkResult execute(CopyActionProcessingStream stream) {
-        FileCopyDetailsInternalAction action = new FileCopyDetailsInternalAction();
-        stream.process(action);
+        if (executorFactory == null || workerLeaseService == null) {
+            FileCopyDetailsInternalAction action = new FileCopyDetailsInternalAction(null, null);
+            stream.process(action);
+            return WorkResults.didWork(action.didWork);
+        }
+
+        // `getMaxWorkerCount() - 1` because the calling thread copies files as well
+        ManagedExecutor executor = executorFactory.create("File copy", Math.max(1, workerLeaseService.getMaxWorkerCount() - 1));
+        FileCopyDetailsInternalAction action = new FileCopyDetailsInternalAction(executor, workerLeaseService.getWorkerLease());
+        try {
+            try {
+                stream.process(action);
+            } catch (Throwable t) {
+                // Report the failure of the visit, and the failures of the copies that were scheduled before it as suppressed exceptions
+                for (Throwable copyFailure : action.awaitCopies()) {
+                    t.addSuppressed(copyFailure);
+                }
+                throw UncheckedException.throwAsUncheckedException(t);
+            }
+            List<Throwable> failures = action.awaitCopies();
+            if (!failures.isEmpty()) {
+                Throwable failure = failures.get(0);
+                for (Throwable copyFailure : failures.subList(1, failures.size())) {
+                    failure.addSuppressed(copyFailure);
+                }
+                throw UncheckedException.throwAsUncheckedException(failure);
+            }
+        } finally {
+            executor.requestStop();
+        }
         return WorkResults.didWork(action.didWork);
     }
 
     private class FileCopyDetailsInternalAction implements CopyActionProcessingStreamAction {
+        private final ManagedExecutor executor;
+        private final WorkerLease parentWorkerLease;
+        // The copies that may still be running, by destination key
+        private final Map<String, FutureTask<Void>> scheduled = new HashMap<String, FutureTask<Void>>();
+        private final List<Throwable> failures = Lists.newArrayList();
         private boolean didWork;
 
+        FileCopyDetailsInternalAction(@Nullable ManagedExecutor executor, @Nullable WorkerLease parentWorkerLease) {
+            this.executor = executor;
+            this.parentWorkerLease = parentWorkerLease;
+        }
+
         public void processFile(FileCopyDetailsInternal details) {
             File target = fileResolver.resolve(details.getRelativePath().getPathString());
+            if (executor != null) {
+                String targetKey = destinationKey(target);
+                // Copies to the same destination must happen in order, so that the last one wins
+                awaitCopy(scheduled.remove(targetKey));
+                File source = details.isDirectory() ? null : details.getUnfilteredSourceFile();
+                if (source != null) {
+                    // The source file stays readable after the visit, so it can be copied in the background
+                    scheduleCopy(details, source, target, targetKey);
+                    didWork = true;
+                    return;
+                }
+            }
             boolean copied = details.copyTo(target);
             if (copied) {
                 didWork = true;
             }
         }
+
+        /**
+         * Returns the key of the given destination in {@link #scheduled}, which is the same for all spellings of the destination. The canonical path
+         * of a file that does not exist yet keeps the case it was given in, so the key ignores case on case-insensitive file systems.
+         */
+        private String destinationKey(File target) {
+            String path = FileUtils.canonicalize(target).getPath();
+            return fileSystem != null && !fileSystem.isCaseSensitive() ? path.toLowerCase(Locale.ROOT) : path;
+        }
+
+        private void scheduleCopy(final FileCopyDetailsInternal details, final File source, final File target, String targetKey) {
+            final FutureTask<Void> copy = new FutureTask<Void>(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    if (hasContent(target, source)) {
+                        fileSystem.chmod(target, details.getMode());
+                    } else {
+                        details.copyTo(target);
+                    }
+                    return null;
+                }
+            });
+            scheduled.put(targetKey, copy);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // The calling thread may already have copied the file
+                    if (!copy.isDone()) {
+                        workerLeaseService.withLocks(Collections.singleton(parentWorkerLease.createChild()), copy);
+                    }
+                }
+            });
+        }
+
+        private boolean hasContent(File target, File source) {
+            return fileHasher != null
+                && fileSystem != null
+                && target.isFile()
+                && target.length() == source.length()
+                && fileHasher.hash(target).equals(fileHasher.hash(source));
+        }
+
+        private void awaitCopy(@Nullable FutureTask<Void> copy) {
+            if (copy == null) {
+                return;
+            }
+            // Copy the file on this thread when no worker has started to copy it yet
+            copy.run();
+            try {
+                copy.get();
+            } catch (ExecutionException e) {
+                failures.add(e.getCause());
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+
+        /**
+         * Waits for all scheduled copies to complete, and returns their failures.
+         */
+        List<Throwable> awaitCopies() {
+            for (FutureTask<Void> copy : scheduled.values()) {
+                awaitCopy(copy);
+            }
+            scheduled.clear();
+            return failures;
+        }
     }
 }
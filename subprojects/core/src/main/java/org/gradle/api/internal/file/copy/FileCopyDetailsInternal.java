@@ -18,8 +18,17 @@ package org.gradle.api.internal.file.copy;
 
 import org.gradle.api.file.FileCopyDetails;
 
+import javax.annotation.Nullable;
+import java.io.File;
+
 public interface FileCopyDetailsInternal extends FileCopyDetails {
 
     boolean isIncludeEmptyDirs();
 
+    /**
+     * Returns the file on disk whose content is copied unchanged by {@link #copyTo(File)}, or null when the content is filtered or does not come from a plain file.
+     */
+    @Nullable
+    File getUnfilteredSourceFile();
+
 }
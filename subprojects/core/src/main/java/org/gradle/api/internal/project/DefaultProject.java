@@ -76,6 +76,7 @@ import org.gradle.api.resources.ResourceHandler;
 import org.gradle.api.tasks.WorkResult;
 import org.gradle.configuration.ScriptPluginFactory;
 import org.gradle.configuration.project.ProjectConfigurationActionContainer;
+import org.gradle.configuration.project.ProjectConfigurationLocks;
 import org.gradle.configuration.project.ProjectEvaluator;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.internal.Actions;
@@ -376,6 +377,9 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
 
     @Override
     public ProjectInternal getParent() {
+        if (parent != null) {
+            ProjectConfigurationLocks.beforeAccessing(parent);
+        }
         return parent;
     }
 
@@ -447,6 +451,7 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
 
     @Override
     public Map<String, Project> getChildProjects() {
+        ProjectConfigurationLocks.beforeAccessing(childProjects.values());
         return childProjects;
     }
 
@@ -610,26 +615,36 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
         if (isNullOrEmpty(path)) {
             throw new InvalidUserDataException("A path must be specified!");
         }
-        return getProjectRegistry().getProject(absoluteProjectPath(path));
+        ProjectInternal project = getProjectRegistry().getProject(absoluteProjectPath(path));
+        if (project != null) {
+            ProjectConfigurationLocks.beforeAccessing(project);
+        }
+        return project;
     }
 
     @Override
     public Set<Project> getAllprojects() {
-        return new TreeSet<Project>(getProjectRegistry().getAllProjects(getPath()));
+        Set<Project> projects = new TreeSet<Project>(getProjectRegistry().getAllProjects(getPath()));
+        ProjectConfigurationLocks.beforeAccessing(projects);
+        return projects;
     }
 
     @Override
     public Set<Project> getSubprojects() {
-        return new TreeSet<Project>(getProjectRegistry().getSubProjects(getPath()));
+        Set<Project> projects = new TreeSet<Project>(getProjectRegistry().getSubProjects(getPath()));
+        ProjectConfigurationLocks.beforeAccessing(projects);
+        return projects;
     }
 
     @Override
     public void subprojects(Action<? super Project> action) {
+        ProjectConfigurationLocks.assertSupported("Project.subprojects()");
         getProjectConfigurator().subprojects(getSubprojects(), action);
     }
 
     @Override
     public void allprojects(Action<? super Project> action) {
+        ProjectConfigurationLocks.assertSupported("Project.allprojects()");
         getProjectConfigurator().allprojects(getAllprojects(), action);
     }
 
@@ -664,7 +679,12 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
 
     @Override
     public DefaultProject evaluate() {
-        getProjectEvaluator().evaluate(this, state);
+        ProjectConfigurationLocks.beforeEvaluating(this);
+        try {
+            getProjectEvaluator().evaluate(this, state);
+        } finally {
+            ProjectConfigurationLocks.afterEvaluating(this);
+        }
         return this;
     }
 
@@ -740,6 +760,8 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
     }
 
     private Project evaluationDependsOn(DefaultProject projectToEvaluate) {
+        // When configuring in parallel, waits for any other thread configuring the project
+        ProjectConfigurationLocks.beforeEvaluating(projectToEvaluate);
         if (projectToEvaluate.getState().getExecuting()) {
             throw new CircularReferenceException(String.format("Circular referencing during evaluation for %s.",
                 projectToEvaluate));
@@ -960,21 +982,25 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
 
     @Override
     public void beforeEvaluate(Action<? super Project> action) {
+        ProjectConfigurationLocks.assertSupported("Project.beforeEvaluate() for another project", this);
         evaluationListener.add("beforeEvaluate", action);
     }
 
     @Override
     public void afterEvaluate(Action<? super Project> action) {
+        ProjectConfigurationLocks.assertSupported("Project.afterEvaluate() for another project", this);
         evaluationListener.add("afterEvaluate", action);
     }
 
     @Override
     public void beforeEvaluate(Closure closure) {
+        ProjectConfigurationLocks.assertSupported("Project.beforeEvaluate() for another project", this);
         evaluationListener.add(new ClosureBackedMethodInvocationDispatch("beforeEvaluate", closure));
     }
 
     @Override
     public void afterEvaluate(Closure closure) {
+        ProjectConfigurationLocks.assertSupported("Project.afterEvaluate() for another project", this);
         evaluationListener.add(new ClosureBackedMethodInvocationDispatch("afterEvaluate", closure));
     }
 
@@ -1116,11 +1142,13 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
 
     @Override
     public void subprojects(Closure configureClosure) {
+        ProjectConfigurationLocks.assertSupported("Project.subprojects()");
         getProjectConfigurator().subprojects(getSubprojects(), configureClosure);
     }
 
     @Override
     public void allprojects(Closure configureClosure) {
+        ProjectConfigurationLocks.assertSupported("Project.allprojects()");
         getProjectConfigurator().allprojects(getAllprojects(), configureClosure);
     }
 
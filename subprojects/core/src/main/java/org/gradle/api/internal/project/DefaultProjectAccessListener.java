@@ -16,20 +16,35 @@
 
 package org.gradle.api.internal.project;
 
+import org.gradle.configuration.project.ProjectConfigurationLocks;
 import org.gradle.initialization.ProjectAccessListener;
 
 public class DefaultProjectAccessListener implements ProjectAccessListener {
 
     public void beforeRequestingTaskByPath(ProjectInternal targetProject) {
+        // Take the project's configuration lock, if required, before taking the lock below
+        ProjectConfigurationLocks.beforeEvaluating(targetProject);
         evaluateProjectAndDiscoverTasks(targetProject);
     }
 
     public void beforeResolvingProjectDependency(ProjectInternal targetProject) {
+        ProjectConfigurationLocks.beforeEvaluating(targetProject);
         evaluateProjectAndDiscoverTasks(targetProject);
     }
 
-    private synchronized void evaluateProjectAndDiscoverTasks(final ProjectInternal targetProject) {
-        targetProject.evaluate();
-        targetProject.getTasks().discoverTasks();
+    private void evaluateProjectAndDiscoverTasks(final ProjectInternal targetProject) {
+        if (ProjectConfigurationLocks.isConfiguringInParallel()) {
+            // The configuration lock of the target project is held, or the project is configured. Do not hold a lock for the whole build while the
+            // target is evaluated, as its configuration may wait for another thread that needs that lock
+            targetProject.evaluate();
+            synchronized (targetProject) {
+                targetProject.getTasks().discoverTasks();
+            }
+            return;
+        }
+        synchronized (this) {
+            targetProject.evaluate();
+            targetProject.getTasks().discoverTasks();
+        }
     }
 }
@@ -18,6 +18,7 @@ package org.gradle.api.internal.tasks;
 
 import org.gradle.api.internal.changedetection.TaskArtifactState;
 import org.gradle.api.internal.tasks.execution.TaskProperties;
+import org.gradle.api.internal.tasks.execution.statistics.TaskPhaseTimer;
 import org.gradle.caching.internal.tasks.TaskOutputCachingBuildCacheKey;
 
 import javax.annotation.Nullable;
@@ -68,5 +69,17 @@ public interface TaskExecutionContext {
 
     void setTaskProperties(TaskProperties taskProperties);
 
+    /**
+     * The number of classpath snapshots of this task that were shared with other tasks of the build.
+     */
+    int getSharedClasspathSnapshotCount();
+
+    void setSharedClasspathSnapshotCount(int sharedClasspathSnapshotCount);
+
     TaskProperties getTaskProperties();
+
+    /**
+     * Measures the time spent in each phase of this execution.
+     */
+    TaskPhaseTimer getPhaseTimer();
 }
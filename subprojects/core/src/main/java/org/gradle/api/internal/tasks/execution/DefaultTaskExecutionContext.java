@@ -18,6 +18,7 @@ package org.gradle.api.internal.tasks.execution;
 import org.gradle.api.internal.changedetection.TaskArtifactState;
 import org.gradle.api.internal.tasks.OriginTaskExecutionMetadata;
 import org.gradle.api.internal.tasks.TaskExecutionContext;
+import org.gradle.api.internal.tasks.execution.statistics.TaskPhaseTimer;
 import org.gradle.caching.internal.tasks.TaskOutputCachingBuildCacheKey;
 import org.gradle.internal.time.Time;
 import org.gradle.internal.time.Timer;
@@ -33,11 +34,14 @@ public class DefaultTaskExecutionContext implements TaskExecutionContext {
     private TaskProperties taskProperties;
     private OriginTaskExecutionMetadata originExecutionMetadata;
     private Long executionTime;
+    private int sharedClasspathSnapshotCount;
 
     private final Timer executionTimer;
+    private final TaskPhaseTimer phaseTimer;
 
     public DefaultTaskExecutionContext() {
         this.executionTimer = Time.startTimer();
+        this.phaseTimer = new TaskPhaseTimer();
     }
 
     @Override
@@ -108,4 +112,19 @@ public class DefaultTaskExecutionContext implements TaskExecutionContext {
         return taskProperties;
     }
 
+    @Override
+    public int getSharedClasspathSnapshotCount() {
+        return sharedClasspathSnapshotCount;
+    }
+
+    @Override
+    public void setSharedClasspathSnapshotCount(int sharedClasspathSnapshotCount) {
+        this.sharedClasspathSnapshotCount = sharedClasspathSnapshotCount;
+    }
+
+    @Override
+    public TaskPhaseTimer getPhaseTimer() {
+        return phaseTimer;
+    }
+
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.execution;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.ClasspathSnapshotCache;
+import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.TaskExecutionContext;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+
+/**
+ * Records how many classpath snapshots of a task were shared with other tasks of the build.
+ */
+public class RecordSharedClasspathSnapshotsTaskExecuter implements TaskExecuter {
+    private final ClasspathSnapshotCache classpathSnapshotCache;
+    private final TaskExecuter delegate;
+
+    public RecordSharedClasspathSnapshotsTaskExecuter(ClasspathSnapshotCache classpathSnapshotCache, TaskExecuter delegate) {
+        this.classpathSnapshotCache = classpathSnapshotCache;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
+        int hitsBefore = classpathSnapshotCache.getHitCount();
+        try {
+            delegate.execute(task, state, context);
+        } finally {
+            context.setSharedClasspathSnapshotCount(classpathSnapshotCache.getHitCount() - hitsBefore);
+        }
+    }
+}
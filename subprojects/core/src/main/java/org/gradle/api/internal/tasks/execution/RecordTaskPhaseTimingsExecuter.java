@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.execution;
+
+import org.gradle.api.internal.GeneratedSubclasses;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.TaskExecutionContext;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.api.internal.tasks.execution.statistics.TaskPhaseHistograms;
+import org.gradle.api.internal.tasks.execution.statistics.TaskPhaseTimer;
+
+/**
+ * Adds the phase timings of each task execution to the histograms of its task type.
+ */
+public class RecordTaskPhaseTimingsExecuter implements TaskExecuter {
+    private final TaskPhaseHistograms histograms;
+    private final TaskExecuter delegate;
+
+    public RecordTaskPhaseTimingsExecuter(TaskPhaseHistograms histograms, TaskExecuter delegate) {
+        this.histograms = histograms;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
+        try {
+            delegate.execute(task, state, context);
+        } finally {
+            TaskPhaseTimer timer = context.getPhaseTimer();
+            timer.stop();
+            histograms.record(GeneratedSubclasses.unpack(task.getClass()).getName(), timer);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.execution;
+
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionGraph;
+import org.gradle.api.execution.internal.AffectedTasksTracker;
+import org.gradle.api.execution.internal.TaskInputsListener;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.TaskExecutionContext;
+import org.gradle.api.internal.tasks.TaskExecutionOutcome;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * A {@link TaskExecuter} which skips tasks in a continuous build when none of their file system inputs have changed since they were last executed,
+ * and none of their dependencies have been executed.
+ *
+ * <p>The implementation, input properties and output files of such a task are still compared with its previous execution, and the task is
+ * executed as usual when any of them has changed. Only the snapshotting of the input files is avoided. Tasks without declared outputs, and tasks
+ * whose {@code upToDateWhen} spec is not satisfied, are never skipped.</p>
+ *
+ * <p>Must be applied inside {@link ResolveTaskArtifactStateTaskExecuter}, which provides the task artifact state.</p>
+ */
+public class SkipUnaffectedTaskExecuter implements TaskExecuter {
+    private static final Logger LOGGER = Logging.getLogger(SkipUnaffectedTaskExecuter.class);
+    private final TaskExecutionGraph taskExecutionGraph;
+    private final AffectedTasksTracker affectedTasksTracker;
+    private final TaskInputsListener taskInputsListener;
+    private final TaskExecuter executer;
+
+    public SkipUnaffectedTaskExecuter(TaskExecutionGraph taskExecutionGraph, AffectedTasksTracker affectedTasksTracker, TaskInputsListener taskInputsListener, TaskExecuter executer) {
+        this.taskExecutionGraph = taskExecutionGraph;
+        this.affectedTasksTracker = affectedTasksTracker;
+        this.taskInputsListener = taskInputsListener;
+        this.executer = executer;
+    }
+
+    public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
+        FileSystemSubset unaffectedInputs = affectedTasksTracker.getUnaffectedInputs(task);
+        if (unaffectedInputs != null && canBeUpToDate(task, context) && taskExecutionGraph.hasTask(task) && !anyDependencyExecuted(task)) {
+            if (context.getTaskArtifactState().isUnchangedExceptForInputFiles()) {
+                LOGGER.info("Skipping {} as none of its inputs have changed since it was last executed.", task);
+                taskInputsListener.onUnaffected(task, unaffectedInputs);
+                state.setOutcome(TaskExecutionOutcome.UP_TO_DATE);
+                return;
+            }
+            LOGGER.info("Not skipping {} as its implementation, input properties or outputs have changed since it was last executed.", task);
+        }
+        try {
+            executer.execute(task, state, context);
+        } finally {
+            if (state.getFailure() != null || !state.getExecuted()) {
+                affectedTasksTracker.taskFailed(task);
+            }
+        }
+    }
+
+    private static boolean canBeUpToDate(TaskInternal task, TaskExecutionContext context) {
+        return context.getTaskProperties().hasDeclaredOutputs() && task.getOutputs().getUpToDateSpec().isSatisfiedBy(task);
+    }
+
+    private boolean anyDependencyExecuted(TaskInternal task) {
+        for (Task dependency : taskExecutionGraph.getDependencies(task)) {
+            // A dependency loaded from the cache is skipped, but has new outputs
+            TaskStateInternal dependencyState = ((TaskInternal) dependency).getState();
+            if (dependencyState.getDidWork() || dependencyState.isFromCache()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.execution.statistics;
+
+/**
+ * The parts of executing a task that are timed separately.
+ */
+public enum TaskExecutionPhase {
+    INPUT_SNAPSHOTTING("input snapshotting"),
+    CACHE_KEY_CALCULATION("cache key calculation"),
+    UP_TO_DATE_CHECK("up-to-date check"),
+    CACHE_LOAD_AND_STORE("cache load and store"),
+    ACTIONS("actions"),
+    OUTPUT_SNAPSHOTTING("output snapshotting"),
+    OTHER("other");
+
+    private final String displayName;
+
+    TaskExecutionPhase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
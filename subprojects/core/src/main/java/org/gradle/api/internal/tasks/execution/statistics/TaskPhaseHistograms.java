@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.execution.statistics;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Aggregates the phase timings of task executions by task type, for all builds run by this process.
+ *
+ * Each phase keeps a histogram with power-of-two microsecond buckets, so the memory used does not grow with the number of executions.
+ */
+public class TaskPhaseHistograms {
+    private final ConcurrentMap<String, Histogram[]> histogramsByTaskType = new ConcurrentHashMap<String, Histogram[]>();
+
+    public void record(String taskType, TaskPhaseTimer timer) {
+        Histogram[] histograms = histogramsByTaskType.get(taskType);
+        if (histograms == null) {
+            Histogram[] newHistograms = new Histogram[TaskExecutionPhase.values().length];
+            for (int i = 0; i < newHistograms.length; i++) {
+                newHistograms[i] = new Histogram();
+            }
+            histograms = histogramsByTaskType.putIfAbsent(taskType, newHistograms);
+            if (histograms == null) {
+                histograms = newHistograms;
+            }
+        }
+        for (TaskExecutionPhase phase : TaskExecutionPhase.values()) {
+            if (timer.hasEntered(phase)) {
+                histograms[phase.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(timer.getElapsedNanos(phase)));
+            }
+        }
+    }
+
+    @Nullable
+    public Histogram getHistogram(String taskType, TaskExecutionPhase phase) {
+        Histogram[] histograms = histogramsByTaskType.get(taskType);
+        return histograms == null ? null : histograms[phase.ordinal()];
+    }
+
+    /**
+     * Writes one line per task type and phase, ordered by task type.
+     */
+    public void writeReport(Appendable out) throws IOException {
+        Map<String, Histogram[]> sorted = new TreeMap<String, Histogram[]>(histogramsByTaskType);
+        for (Map.Entry<String, Histogram[]> entry : sorted.entrySet()) {
+            out.append(entry.getKey()).append('\n');
+            for (TaskExecutionPhase phase : TaskExecutionPhase.values()) {
+                Histogram histogram = entry.getValue()[phase.ordinal()];
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                out.append("  ").append(phase.getDisplayName())
+                    .append(" count=").append(String.valueOf(histogram.getCount()))
+                    .append(" total=").append(millis(histogram.getTotalMicros()))
+                    .append(" p50<=").append(millis(histogram.getPercentileUpperBoundMicros(0.5)))
+                    .append(" p90<=").append(millis(histogram.getPercentileUpperBoundMicros(0.9)))
+                    .append(" max<=").append(millis(histogram.getPercentileUpperBoundMicros(1)))
+                    .append('\n');
+            }
+        }
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.US, "%.1fms", micros / 1000d);
+    }
+
+    public static class Histogram {
+        static final int BUCKET_COUNT = 32;
+
+        // Bucket 0 holds values below 1us, bucket n holds values in [2^(n-1), 2^n)
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMicros = new AtomicLong();
+
+        void record(long micros) {
+            buckets.incrementAndGet(bucketFor(micros));
+            count.incrementAndGet();
+            totalMicros.addAndGet(micros);
+        }
+
+        private static int bucketFor(long micros) {
+            if (micros <= 0) {
+                return 0;
+            }
+            return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalMicros() {
+            return totalMicros.get();
+        }
+
+        /**
+         * Returns the upper bound of the bucket that contains the given percentile, where 1 is the maximum.
+         */
+        public long getPercentileUpperBoundMicros(double percentile) {
+            long target = (long) Math.ceil(percentile * count.get());
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets.get(i);
+                if (seen >= target && seen > 0) {
+                    return i == 0 ? 0 : (1L << i) - 1;
+                }
+            }
+            return 0;
+        }
+    }
+}
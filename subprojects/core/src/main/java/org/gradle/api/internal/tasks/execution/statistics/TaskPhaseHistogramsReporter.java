@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.execution.statistics;
+
+import com.google.common.base.Charsets;
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.StartParameter;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.util.GFileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Reports the task phase histograms accumulated by this daemon at the end of each root build.
+ *
+ * The report is written to the file given by the {@value #REPORT_SYSPROP} system property, or logged at debug level when the property is not set.
+ */
+public class TaskPhaseHistogramsReporter extends BuildAdapter {
+    public static final String REPORT_SYSPROP = "org.gradle.internal.tasks.phases.report";
+
+    private static final Logger LOGGER = Logging.getLogger(TaskPhaseHistogramsReporter.class);
+
+    private final TaskPhaseHistograms histograms;
+    private final StartParameter startParameter;
+
+    public TaskPhaseHistogramsReporter(TaskPhaseHistograms histograms, StartParameter startParameter) {
+        this.histograms = histograms;
+        this.startParameter = startParameter;
+    }
+
+    @Override
+    public void buildFinished(BuildResult result) {
+        // The histograms are shared by all builds in the daemon, so only report once per invocation
+        if (result.getGradle().getParent() != null) {
+            return;
+        }
+        String reportPath = startParameter.getSystemPropertiesArgs().get(REPORT_SYSPROP);
+        if (reportPath == null) {
+            reportPath = System.getProperty(REPORT_SYSPROP);
+        }
+        if (reportPath != null) {
+            writeReport(new File(reportPath));
+        } else if (LOGGER.isDebugEnabled()) {
+            StringBuilder report = new StringBuilder();
+            try {
+                histograms.writeReport(report);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            LOGGER.debug("Task phase timings for this daemon:\n{}", report);
+        }
+    }
+
+    private void writeReport(File reportFile) {
+        GFileUtils.mkdirs(reportFile.getAbsoluteFile().getParentFile());
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(reportFile), Charsets.UTF_8);
+            try {
+                histograms.writeReport(writer);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write task phase timings to " + reportFile, e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.execution.statistics;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Measures the wall time a single task execution spends in each {@link TaskExecutionPhase}.
+ *
+ * Phases nest. Time spent in a nested phase is only counted for the nested phase, so the elapsed times of all phases add up to the total time of the execution.
+ * Time not spent in any other phase is counted as {@link TaskExecutionPhase#OTHER}. Not thread-safe.
+ */
+public class TaskPhaseTimer {
+    private final long[] elapsedNanos = new long[TaskExecutionPhase.values().length];
+    private final boolean[] entered = new boolean[TaskExecutionPhase.values().length];
+    private final Deque<TaskExecutionPhase> enclosing = new ArrayDeque<TaskExecutionPhase>();
+    private TaskExecutionPhase current = TaskExecutionPhase.OTHER;
+    private long since = System.nanoTime();
+    private boolean stopped;
+
+    public TaskPhaseTimer() {
+        entered[TaskExecutionPhase.OTHER.ordinal()] = true;
+    }
+
+    public void start(TaskExecutionPhase phase) {
+        creditCurrentPhase();
+        enclosing.push(current);
+        current = phase;
+        entered[phase.ordinal()] = true;
+    }
+
+    public void finish() {
+        creditCurrentPhase();
+        current = enclosing.pop();
+    }
+
+    /**
+     * Stops timing. Time after this point is not counted.
+     */
+    public void stop() {
+        creditCurrentPhase();
+        stopped = true;
+    }
+
+    private void creditCurrentPhase() {
+        if (stopped) {
+            return;
+        }
+        long now = System.nanoTime();
+        elapsedNanos[current.ordinal()] += now - since;
+        since = now;
+    }
+
+    /**
+     * Returns true when the given phase was part of the execution.
+     */
+    public boolean hasEntered(TaskExecutionPhase phase) {
+        return entered[phase.ordinal()];
+    }
+
+    public long getElapsedNanos(TaskExecutionPhase phase) {
+        return elapsedNanos[phase.ordinal()];
+    }
+}
@@ -38,11 +38,16 @@ import org.gradle.api.internal.file.copy.CopySpecInternal;
 import org.gradle.api.internal.file.copy.CopySpecResolver;
 import org.gradle.api.internal.file.copy.CopySpecSource;
 import org.gradle.api.internal.file.copy.DefaultCopySpec;
+import org.gradle.api.internal.file.copy.FileCopyAction;
 import org.gradle.api.specs.Spec;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 import org.gradle.internal.reflect.Instantiator;
+import org.gradle.internal.work.WorkerLeaseService;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.io.FilterReader;
 import java.util.Map;
 import java.util.Set;
@@ -175,6 +180,14 @@ public abstract class AbstractCopyTask extends ConventionTask implements CopySpe
         setDidWork(didWork.getDidWork());
     }
 
+    /**
+     * Creates the action that copies files into the given directory. Files are copied in parallel within the {@code --max-workers} limit, and destination files that
+     * already have the content of their source are left untouched.
+     */
+    FileCopyAction createFileCopyAction(File destinationDir) {
+        return new FileCopyAction(getFileLookup().getFileResolver(destinationDir), getServices().get(FileHasher.class), getFileSystem(), getServices().get(ExecutorFactory.class), getServices().get(WorkerLeaseService.class));
+    }
+
     protected CopyActionExecuter createCopyActionExecuter() {
         Instantiator instantiator = getInstantiator();
         FileSystem fileSystem = getFileSystem();
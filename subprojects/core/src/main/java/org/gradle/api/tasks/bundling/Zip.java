@@ -19,6 +19,7 @@ import org.apache.tools.zip.ZipOutputStream;
 import org.gradle.api.Incubating;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.file.archive.ParallelZipCopyAction;
 import org.gradle.api.internal.file.archive.ZipCopyAction;
 import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.internal.file.copy.DefaultZipCompressor;
@@ -26,6 +27,8 @@ import org.gradle.api.internal.file.copy.ZipCompressor;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.work.WorkerLeaseService;
 
 import java.nio.charset.Charset;
 
@@ -39,6 +42,7 @@ public class Zip extends AbstractArchiveTask {
     private ZipEntryCompression entryCompression = ZipEntryCompression.DEFLATED;
     private boolean allowZip64;
     private String metadataCharset;
+    private boolean parallelCompression;
 
     public Zip() {
         setExtension(ZIP_EXTENSION);
@@ -60,7 +64,13 @@ public class Zip extends AbstractArchiveTask {
     @Override
     protected CopyAction createCopyAction() {
         DocumentationRegistry documentationRegistry = getServices().get(DocumentationRegistry.class);
-        return new ZipCopyAction(getArchivePath(), getCompressor(), documentationRegistry, metadataCharset, isPreserveFileTimestamps());
+        ZipCompressor compressor = getCompressor();
+        // Entries of zip64 archives get different headers when written in parallel, so these are always written sequentially
+        if (parallelCompression && !allowZip64 && compressor instanceof DefaultZipCompressor) {
+            DefaultZipCompressor defaultCompressor = (DefaultZipCompressor) compressor;
+            return new ParallelZipCopyAction(getArchivePath(), defaultCompressor.isAllowZip64(), defaultCompressor.getEntryCompressionMethod(), documentationRegistry, metadataCharset, isPreserveFileTimestamps(), getServices().get(ExecutorFactory.class), getServices().get(WorkerLeaseService.class));
+        }
+        return new ZipCopyAction(getArchivePath(), compressor, documentationRegistry, metadataCharset, isPreserveFileTimestamps());
     }
 
     /**
@@ -111,6 +121,34 @@ public class Zip extends AbstractArchiveTask {
         return allowZip64;
     }
 
+    /**
+     * Whether the content of the entries is compressed on several threads. The entries are still written in the same order,
+     * so that the archive does not depend on the number of threads used. At most {@code --max-workers} threads are used.
+     * <p>
+     * The archive is the same as the one created without parallel compression. Archives that use the zip64 extension are
+     * always compressed on a single thread.
+     * <p>
+     * Defaults to {@code false}.
+     *
+     * @since 4.6
+     */
+    @Internal
+    @Incubating
+    public boolean isParallelCompression() {
+        return parallelCompression;
+    }
+
+    /**
+     * Sets whether the content of the entries is compressed on several threads.
+     *
+     * @see #isParallelCompression()
+     * @since 4.6
+     */
+    @Incubating
+    public void setParallelCompression(boolean parallelCompression) {
+        this.parallelCompression = parallelCompression;
+    }
+
     /**
      * The character set used to encode ZIP metadata like file names.
      * Defaults to the platform's default character set.
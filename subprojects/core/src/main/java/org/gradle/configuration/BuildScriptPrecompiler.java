@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.initialization.ClassLoaderScope;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.groovy.scripts.ScriptCompilerFactory;
+import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.internal.Actions;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDescriptor;
+import org.gradle.plugin.management.internal.PluginRequestsSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * Compiles the first pass of all Groovy project build scripts of a build concurrently, once the project hierarchy is known and before the projects are configured.
+ *
+ * <p>The scripts are compiled through the regular {@link ScriptCompilerFactory}, so the compiled scripts end up in the same in-memory and persistent caches as when
+ * they are compiled lazily during configuration. The second pass of a script is compiled against the classpath declared by its {@code buildscript {}} and
+ * {@code plugins {}} blocks, which is only known after the first pass has run, so it is still compiled when the project is configured.</p>
+ *
+ * <p>Only scripts whose project's base class loader scope is already locked are compiled. Creating the class loader of a scope that is not locked yet
+ * would fix the structure of its class loaders before the scope is complete, and scopes are not thread-safe while they are being built. The class loader
+ * is created on the calling thread for the same reason. The other scripts are compiled when their project is configured.</p>
+ *
+ * <p>Failures are ignored here, so that they are reported with the usual context when the script is compiled again during configuration.</p>
+ */
+public class BuildScriptPrecompiler {
+    public static final String PRECOMPILE_PROPERTY = "org.gradle.internal.scripts.precompile";
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildScriptPrecompiler.class);
+    private static final String GROOVY_SCRIPT_EXTENSION = ".gradle";
+
+    private final ScriptCompilerFactory scriptCompilerFactory;
+    private final DocumentationRegistry documentationRegistry;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final PluginRequestsSerializer pluginRequestsSerializer = new PluginRequestsSerializer();
+
+    public BuildScriptPrecompiler(ScriptCompilerFactory scriptCompilerFactory, DocumentationRegistry documentationRegistry, BuildOperationExecutor buildOperationExecutor) {
+        this.scriptCompilerFactory = scriptCompilerFactory;
+        this.documentationRegistry = documentationRegistry;
+        this.buildOperationExecutor = buildOperationExecutor;
+    }
+
+    public boolean isEnabled() {
+        return Boolean.getBoolean(PRECOMPILE_PROPERTY);
+    }
+
+    public void precompile(final GradleInternal gradle) {
+        if (!isEnabled()) {
+            return;
+        }
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+            @Override
+            public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                for (Project project : gradle.getRootProject().getAllprojects()) {
+                    ProjectInternal projectInternal = (ProjectInternal) project;
+                    ClassLoaderScope baseScope = projectInternal.getBaseClassLoaderScope();
+                    if (baseScope.isLocked() && isGroovyBuildScript(projectInternal.getBuildScriptSource())) {
+                        queue.add(new PrecompileInitialPass(projectInternal, baseScope.getExportClassLoader()));
+                    }
+                }
+            }
+        });
+    }
+
+    private static boolean isGroovyBuildScript(ScriptSource source) {
+        File file = source.getResource().getFile();
+        return file != null && file.getName().endsWith(GROOVY_SCRIPT_EXTENSION) && source.getResource().getExists();
+    }
+
+    private class PrecompileInitialPass implements RunnableBuildOperation {
+        private final ProjectInternal project;
+        private final ClassLoader classLoader;
+
+        PrecompileInitialPass(ProjectInternal project, ClassLoader classLoader) {
+            this.project = project;
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            ScriptSource scriptSource = project.getBuildScriptSource();
+            ScriptTarget initialPassScriptTarget = new ProjectScriptTarget(project);
+            try {
+                scriptCompilerFactory.createCompiler(scriptSource).compile(
+                    initialPassScriptTarget.getScriptClass(),
+                    DefaultScriptPluginFactory.initialPassOperation(scriptSource, initialPassScriptTarget, documentationRegistry, pluginRequestsSerializer),
+                    classLoader,
+                    Actions.doNothing());
+            } catch (Exception e) {
+                LOGGER.debug("Could not precompile {}, it will be compiled when the project is configured.", scriptSource.getDisplayName(), e);
+            }
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Precompile " + project.getBuildScriptSource().getDisplayName());
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.configuration.project;
+
+import com.google.common.collect.Lists;
+import org.gradle.api.InvalidUserCodeException;
+import org.gradle.api.Project;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.execution.ParallelProjectConfigurer;
+import org.gradle.internal.UncheckedException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coordinates access to projects while they are being configured in parallel.
+ *
+ * <p>A thread takes the lock on a project before it configures it. Projects that have been configured can be accessed without taking a lock. When
+ * a thread accesses a project that has not been configured yet, the project is treated as it would be when configuring serially, in the order of
+ * {@link Project#compareTo(Object)}:</p>
+ *
+ * <ul>
+ * <li>A project that comes before the project being configured is configured first, as {@code evaluationDependsOn()} does, waiting if another thread
+ * holds its lock.</li>
+ * <li>A project that comes after the project being configured is locked, waiting if another thread holds its lock. A thread keeps the locks it takes
+ * until the configuration action it is running finishes, so the project is configured after the project that accessed it.</li>
+ * </ul>
+ *
+ * <p>When the configuration actions of some projects access each other before they are configured, these actions would wait for each other forever.
+ * Instead, the remaining configuration becomes serial: a thread that has to wait for a project only continues once it holds a single token, which is
+ * released when its action finishes. The thread holding the token may access a project locked by another thread, as long as that other thread is
+ * waiting. This is how configuring serially would have accessed the project.</p>
+ *
+ * <p>Other projects can only be accessed safely through the lookups that take their locks. Code that runs on the thread configuring another project,
+ * or that changes projects that are already configured, cannot be coordinated. Such code is rejected by {@link #assertSupported(String)}.</p>
+ *
+ * <p>The static methods do nothing on threads that are not running an action using {@link #runWithLocks(ProjectInternal, Runnable)}.</p>
+ */
+public class ProjectConfigurationLocks {
+    private static final ThreadLocal<Holder> CURRENT = new ThreadLocal<Holder>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    // The following are guarded by lock
+    private final Map<ProjectInternal, Holder> owners = new HashMap<ProjectInternal, Holder>();
+    private final Map<Holder, ProjectInternal> waitingFor = new HashMap<Holder, ProjectInternal>();
+    private final Set<Holder> waiting = new HashSet<Holder>();
+    private final Set<ProjectInternal> configured = new HashSet<ProjectInternal>();
+    private final List<String> serializations = new ArrayList<String>();
+    private boolean serial;
+    private Holder serialToken;
+
+    /**
+     * Marks the given project as configured, so that it can be accessed without taking its lock.
+     */
+    public void configured(ProjectInternal project) {
+        lock.lock();
+        try {
+            configured.add(project);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the given action to configure the given project, releasing any project locks it takes once it finishes.
+     */
+    public void runWithLocks(ProjectInternal project, Runnable action) {
+        Holder previous = CURRENT.get();
+        Holder holder = new Holder(project);
+        CURRENT.set(holder);
+        try {
+            action.run();
+        } finally {
+            CURRENT.set(previous);
+            release(holder);
+        }
+    }
+
+    /**
+     * Returns a description of each time the configuration of one project had to wait for, or delay the configuration of, another project.
+     */
+    public List<String> getSerializations() {
+        lock.lock();
+        try {
+            return new ArrayList<String>(serializations);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true when configuration of other projects is being coordinated for the current thread, because it is configuring a project in parallel.
+     */
+    public static boolean isConfiguringInParallel() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Returns true when the remaining projects are configured serially, because the configuration of some projects accessed each other.
+     */
+    public boolean isSerial() {
+        lock.lock();
+        try {
+            return serial;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called before the current thread accesses the given project.
+     */
+    public static void beforeAccessing(ProjectInternal target) {
+        Holder holder = CURRENT.get();
+        if (holder != null) {
+            holder.getLocks().access(holder, target);
+        }
+    }
+
+    /**
+     * Called before the current thread accesses the given projects.
+     */
+    public static void beforeAccessing(Iterable<? extends Project> targets) {
+        Holder holder = CURRENT.get();
+        if (holder != null) {
+            for (Project target : targets) {
+                holder.getLocks().access(holder, (ProjectInternal) target);
+            }
+        }
+    }
+
+    /**
+     * Called before the current thread evaluates the given project.
+     */
+    public static void beforeEvaluating(ProjectInternal target) {
+        Holder holder = CURRENT.get();
+        if (holder != null) {
+            holder.getLocks().acquire(holder, target, true);
+        }
+    }
+
+    /**
+     * Fails when the current thread is configuring a project in parallel, as the given operation cannot be coordinated with the configuration of
+     * other projects.
+     */
+    public static void assertSupported(String operation) {
+        Holder holder = CURRENT.get();
+        if (holder != null) {
+            throw unsupported(operation, holder);
+        }
+    }
+
+    /**
+     * Fails when the current thread is configuring a project in parallel and does not hold the lock of the given project, as the given operation
+     * cannot be coordinated with the configuration of the given project.
+     */
+    public static void assertSupported(String operation, ProjectInternal target) {
+        Holder holder = CURRENT.get();
+        // Only the current thread changes the projects it holds
+        if (holder != null && holder.project != target && !holder.held.contains(target) && !holder.borrowed.contains(target)) {
+            throw unsupported(operation, holder);
+        }
+    }
+
+    private static InvalidUserCodeException unsupported(String operation, Holder holder) {
+        return new InvalidUserCodeException(String.format("%s is not supported when projects are configured in parallel, but was used while configuring %s. Remove it, or configure the projects serially by not setting the '%s' system property.",
+            operation, holder.project, ParallelProjectConfigurer.PARALLEL_CONFIGURATION_PROPERTY));
+    }
+
+    /**
+     * Called after the current thread has evaluated the given project.
+     */
+    public static void afterEvaluating(ProjectInternal target) {
+        Holder holder = CURRENT.get();
+        if (holder != null && target.getState().getExecuted()) {
+            holder.getLocks().evaluated(holder, target);
+        }
+    }
+
+    private void access(Holder holder, ProjectInternal target) {
+        if (target.compareTo(holder.project) < 0) {
+            // Configuring serially would have configured the target before the project being configured
+            target.evaluate();
+        } else {
+            acquire(holder, target, false);
+        }
+    }
+
+    private void acquire(Holder holder, ProjectInternal target, boolean evaluating) {
+        lock.lock();
+        try {
+            Holder waitedFor = null;
+            while (true) {
+                // Once serial, a thread that had to wait only continues when it holds the token, so that it does not run alongside the token holder
+                if (waitedFor != null && serial && !takeSerialToken(holder)) {
+                    await(holder);
+                    continue;
+                }
+                if (configured.contains(target)) {
+                    if (waitedFor != null) {
+                        serializations.add(String.format("Configuration of %s waited for %s to be configured by the configuration of %s.", holder.project, target, waitedFor.project));
+                    }
+                    return;
+                }
+                Holder owner = owners.get(target);
+                if (owner == holder) {
+                    return;
+                }
+                if (owner == null) {
+                    owners.put(target, holder);
+                    holder.held.add(target);
+                    if (waitedFor != null) {
+                        serializations.add(String.format("Configuration of %s waited for %s, which was accessed by the configuration of %s.", holder.project, target, waitedFor.project));
+                    } else if (!evaluating) {
+                        serializations.add(String.format("Configuration of %s accessed %s before it was configured, so %s is configured afterwards.", holder.project, target, target));
+                    }
+                    return;
+                }
+                if (!serial) {
+                    List<String> cycle = findCycle(holder, target, owner);
+                    if (cycle != null) {
+                        serial = true;
+                        serialToken = holder;
+                        serializations.add(String.format("Configuration of projects %s accessed each other before they were configured, so the remaining projects are configured serially.", cycle));
+                    }
+                }
+                if (serial && takeSerialToken(holder) && waiting.contains(owner)) {
+                    // The owner cannot continue until the token is released, so access the project as configuring serially would
+                    if (holder.borrowed.add(target)) {
+                        serializations.add(String.format("Configuration of %s accessed %s while the configuration of %s was waiting.", holder.project, target, owner.project));
+                    }
+                    return;
+                }
+                waitedFor = owner;
+                waitingFor.put(holder, target);
+                await(holder);
+                waitingFor.remove(holder);
+            }
+        } finally {
+            waiting.remove(holder);
+            waitingFor.remove(holder);
+            lock.unlock();
+        }
+    }
+
+    private boolean takeSerialToken(Holder holder) {
+        if (serialToken == null) {
+            serialToken = holder;
+        }
+        return serialToken == holder;
+    }
+
+    private void await(Holder holder) {
+        if (waiting.add(holder)) {
+            // Wake the token holder, which may be waiting to access a project locked by this thread
+            stateChanged.signalAll();
+        }
+        try {
+            stateChanged.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    /**
+     * Returns the paths of the projects that the given thread and the threads it waits for are waiting for, when these threads would wait for each
+     * other forever.
+     */
+    private List<String> findCycle(Holder holder, ProjectInternal target, Holder owner) {
+        List<String> cycle = Lists.newArrayList(holder.project.getPath(), target.getPath());
+        Holder current = owner;
+        while (current != null && current != holder) {
+            ProjectInternal next = waitingFor.get(current);
+            if (next == null) {
+                return null;
+            }
+            cycle.add(next.getPath());
+            current = owners.get(next);
+        }
+        return current == holder ? cycle : null;
+    }
+
+    private void evaluated(Holder holder, ProjectInternal target) {
+        lock.lock();
+        try {
+            configured.add(target);
+            if (owners.get(target) == holder) {
+                owners.remove(target);
+                holder.held.remove(target);
+            }
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Holder holder) {
+        lock.lock();
+        try {
+            for (ProjectInternal project : holder.held) {
+                owners.remove(project);
+            }
+            holder.held.clear();
+            if (serialToken == holder) {
+                serialToken = null;
+            }
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class Holder {
+        private final ProjectInternal project;
+        private final Set<ProjectInternal> held = new LinkedHashSet<ProjectInternal>();
+        private final Set<ProjectInternal> borrowed = new HashSet<ProjectInternal>();
+
+        Holder(ProjectInternal project) {
+            this.project = project;
+        }
+
+        ProjectConfigurationLocks getLocks() {
+            return ProjectConfigurationLocks.this;
+        }
+    }
+}
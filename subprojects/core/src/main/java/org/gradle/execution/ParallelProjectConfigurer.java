@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution;
+
+import org.gradle.StartParameter;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.configuration.project.ProjectConfigurationLocks;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDescriptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Configures the sub-projects of a build in parallel, when parallel execution is enabled and the {@value #PARALLEL_CONFIGURATION_PROPERTY} system property is set to true.
+ *
+ * <p>The root project is configured first. The remaining projects are then configured concurrently, each one after its parent.
+ * Cross-project access is coordinated using {@link ProjectConfigurationLocks}. Each time the configuration of one project had to wait for another is logged at info level.
+ * When projects access each other before they are configured, the remaining projects are configured serially.</p>
+ *
+ * <p>Projects configured in parallel may access other projects through the project lookups, {@code evaluationDependsOn()}, task paths and project
+ * dependencies. They may not use {@code allprojects {}} or {@code subprojects {}}, register {@code beforeEvaluate} or {@code afterEvaluate} hooks
+ * on other projects, or register {@code beforeProject}, {@code afterProject} or {@code projectsEvaluated} hooks on the build. These fail the build,
+ * as the code they run cannot be coordinated with the configuration of the other projects. The root project is configured before the other
+ * projects and may use all of them.</p>
+ */
+public class ParallelProjectConfigurer implements ProjectConfigurer {
+    public static final String PARALLEL_CONFIGURATION_PROPERTY = "org.gradle.internal.configure.parallel";
+
+    private static final Logger LOGGER = Logging.getLogger(ParallelProjectConfigurer.class);
+
+    private final ProjectConfigurer delegate;
+    private final BuildOperationExecutor buildOperationExecutor;
+
+    public ParallelProjectConfigurer(ProjectConfigurer delegate, BuildOperationExecutor buildOperationExecutor) {
+        this.delegate = delegate;
+        this.buildOperationExecutor = buildOperationExecutor;
+    }
+
+    @Override
+    public void configure(ProjectInternal project) {
+        delegate.configure(project);
+    }
+
+    @Override
+    public void configureFully(ProjectInternal project) {
+        delegate.configureFully(project);
+    }
+
+    @Override
+    public void configureHierarchy(ProjectInternal project) {
+        if (project.getParent() != null || !isEnabled(project.getGradle().getStartParameter())) {
+            delegate.configureHierarchy(project);
+            return;
+        }
+
+        delegate.configure(project);
+
+        ProjectConfigurationLocks locks = new ProjectConfigurationLocks();
+        final List<ProjectInternal> unconfigured = new ArrayList<ProjectInternal>();
+        for (Project candidate : project.getAllprojects()) {
+            ProjectInternal subproject = (ProjectInternal) candidate;
+            if (subproject.getState().getExecuted()) {
+                locks.configured(subproject);
+            } else {
+                unconfigured.add(subproject);
+            }
+        }
+        if (unconfigured.isEmpty()) {
+            return;
+        }
+
+        final Map<ProjectInternal, Throwable> failures = new ConcurrentHashMap<ProjectInternal, Throwable>();
+        final ProjectConfigurationLocks projectLocks = locks;
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+            @Override
+            public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                for (ProjectInternal subproject : unconfigured) {
+                    queue.add(new ConfigureProjectInParallel(subproject, projectLocks, failures));
+                }
+            }
+        });
+
+        if (LOGGER.isInfoEnabled()) {
+            List<String> serializations = locks.getSerializations();
+            if (locks.isSerial()) {
+                LOGGER.info("Configured {} projects in parallel until some of them accessed each other, then serially, with {} cross-project waits.", unconfigured.size(), serializations.size());
+            } else {
+                LOGGER.info("Configured {} projects in parallel, with {} cross-project waits.", unconfigured.size(), serializations.size());
+            }
+            for (String serialization : serializations) {
+                LOGGER.info(serialization);
+            }
+        }
+
+        // Report the failure that configuring serially would have reported
+        for (ProjectInternal subproject : unconfigured) {
+            Throwable failure = failures.get(subproject);
+            if (failure != null) {
+                throw UncheckedException.throwAsUncheckedException(failure);
+            }
+        }
+    }
+
+    @Override
+    public void configureHierarchyFully(ProjectInternal project) {
+        delegate.configureHierarchyFully(project);
+    }
+
+    private static boolean isEnabled(StartParameter startParameter) {
+        if (!startParameter.isParallelProjectExecutionEnabled() || startParameter.isConfigureOnDemand()) {
+            return false;
+        }
+        String value = startParameter.getSystemPropertiesArgs().get(PARALLEL_CONFIGURATION_PROPERTY);
+        if (value == null) {
+            value = System.getProperty(PARALLEL_CONFIGURATION_PROPERTY);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    private void configureWithParents(ProjectInternal project) {
+        ProjectInternal parent = project.getParent();
+        if (parent != null) {
+            configureWithParents(parent);
+        }
+        delegate.configure(project);
+    }
+
+    private class ConfigureProjectInParallel implements RunnableBuildOperation {
+        private final ProjectInternal project;
+        private final ProjectConfigurationLocks locks;
+        private final Map<ProjectInternal, Throwable> failures;
+
+        ConfigureProjectInParallel(ProjectInternal project, ProjectConfigurationLocks locks, Map<ProjectInternal, Throwable> failures) {
+            this.project = project;
+            this.locks = locks;
+            this.failures = failures;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            try {
+                locks.runWithLocks(project, new Runnable() {
+                    @Override
+                    public void run() {
+                        configureWithParents(project);
+                    }
+                });
+            } catch (Throwable t) {
+                failures.put(project, t);
+            }
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Configure " + project.getDisplayName() + " in parallel");
+        }
+    }
+}
@@ -49,6 +49,10 @@ import org.gradle.internal.classloader.VisitableURLClassLoader;
 import org.gradle.internal.classpath.ClassPath;
 import org.gradle.internal.classpath.DefaultClassPath;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.CallableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDescriptor;
 import org.gradle.internal.serialize.Serializer;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
@@ -59,6 +63,7 @@ import org.gradle.util.GFileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -66,6 +71,7 @@ import java.lang.reflect.Field;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.CodeSource;
+import java.security.cert.Certificate;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -78,10 +84,12 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
     private static final int HAS_METHODS_FLAG = 2;
 
     private final ClassLoaderCache classLoaderCache;
+    private final BuildOperationExecutor buildOperationExecutor;
     private final Map<String, List<String>> simpleNameToFQN;
 
-    public DefaultScriptCompilationHandler(ClassLoaderCache classLoaderCache, ImportsReader importsReader) {
+    public DefaultScriptCompilationHandler(ClassLoaderCache classLoaderCache, ImportsReader importsReader, BuildOperationExecutor buildOperationExecutor) {
         this.classLoaderCache = classLoaderCache;
+        this.buildOperationExecutor = buildOperationExecutor;
         simpleNameToFQN = importsReader.getSimpleNameToFullClassNamesMapping();
     }
 
@@ -349,20 +357,69 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
                 if (isEmpty && !hasMethods) {
                     throw new UnsupportedOperationException("Cannot load script that does nothing.");
                 }
-                try {
-                    // Classloader scope will be handled by the cache, class will be released when the classloader is.
-                    ClassLoader loader = classLoaderCache.put(classLoaderId, new ScriptClassLoader(source, classLoader, new DefaultClassPath(scriptCacheDir), sourceHashCode));
-                    scriptClass = loader.loadClass(source.getClassName()).asSubclass(scriptBaseClass);
-                } catch (Exception e) {
-                    File expectedClassFile = new File(scriptCacheDir, source.getClassName() + ".class");
-                    if (!expectedClassFile.exists()) {
-                        throw new GradleException(String.format("Could not load compiled classes for %s from cache. Expected class file %s does not exist.", source.getDisplayName(), expectedClassFile.getAbsolutePath()), e);
+                scriptClass = buildOperationExecutor.call(new CallableBuildOperation<Class<? extends T>>() {
+                    @Override
+                    public Class<? extends T> call(BuildOperationContext context) {
+                        Map<String, byte[]> bundledClasses = ScriptClassBundle.read(ScriptClassBundle.bundleFileFor(scriptCacheDir));
+                        Class<? extends T> loadedClass = doLoadClass(bundledClasses);
+                        context.setResult(new LoadScriptClassesResult(bundledClasses));
+                        return loadedClass;
                     }
-                    throw new GradleException(String.format("Could not load compiled classes for %s from cache.", source.getDisplayName()), e);
-                }
+
+                    @Override
+                    public BuildOperationDescriptor.Builder description() {
+                        return BuildOperationDescriptor.displayName("Load classes for " + source.getDisplayName())
+                            .details(new LoadScriptClassesDetails(source.getDisplayName()));
+                    }
+                });
             }
             return scriptClass;
         }
+
+        private Class<? extends T> doLoadClass(Map<String, byte[]> bundledClasses) {
+            try {
+                // Classloader scope will be handled by the cache, class will be released when the classloader is.
+                ClassLoader loader = classLoaderCache.put(classLoaderId, new ScriptClassLoader(source, classLoader, new DefaultClassPath(scriptCacheDir), sourceHashCode, bundledClasses));
+                return loader.loadClass(source.getClassName()).asSubclass(scriptBaseClass);
+            } catch (Exception e) {
+                File expectedClassFile = new File(scriptCacheDir, source.getClassName() + ".class");
+                if (!expectedClassFile.exists()) {
+                    throw new GradleException(String.format("Could not load compiled classes for %s from cache. Expected class file %s does not exist.", source.getDisplayName(), expectedClassFile.getAbsolutePath()), e);
+                }
+                throw new GradleException(String.format("Could not load compiled classes for %s from cache.", source.getDisplayName()), e);
+            }
+        }
+    }
+
+    private static class LoadScriptClassesDetails implements LoadScriptClassesBuildOperationType.Details {
+        private final String scriptDisplayName;
+
+        LoadScriptClassesDetails(String scriptDisplayName) {
+            this.scriptDisplayName = scriptDisplayName;
+        }
+
+        @Override
+        public String getScriptDisplayName() {
+            return scriptDisplayName;
+        }
+    }
+
+    private static class LoadScriptClassesResult implements LoadScriptClassesBuildOperationType.Result {
+        private final Map<String, byte[]> bundledClasses;
+
+        LoadScriptClassesResult(Map<String, byte[]> bundledClasses) {
+            this.bundledClasses = bundledClasses;
+        }
+
+        @Override
+        public boolean isLoadedFromBundle() {
+            return bundledClasses != null;
+        }
+
+        @Override
+        public int getBundledClassCount() {
+            return bundledClasses == null ? 0 : bundledClasses.size();
+        }
     }
 
     /**
@@ -371,11 +428,15 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
     private static class ScriptClassLoader extends VisitableURLClassLoader implements ImplementationHashAware {
         private final ScriptSource scriptSource;
         private final HashCode implementationHash;
+        private final Map<String, byte[]> bundledClasses;
+        private final CodeSource codeSource;
 
-        ScriptClassLoader(ScriptSource scriptSource, ClassLoader parent, ClassPath classPath, HashCode implementationHash) {
+        ScriptClassLoader(ScriptSource scriptSource, ClassLoader parent, ClassPath classPath, HashCode implementationHash, @Nullable Map<String, byte[]> bundledClasses) {
             super(parent, classPath);
             this.scriptSource = scriptSource;
             this.implementationHash = implementationHash;
+            this.bundledClasses = bundledClasses;
+            this.codeSource = new CodeSource(classPath.getAsURLArray()[0], (Certificate[]) null);
         }
 
         @Override
@@ -398,5 +459,15 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
             }
             return super.loadClass(name, resolve);
         }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            // Classes from the bundle are defined from memory, the classes directory is only used when there is no bundle
+            byte[] bytes = bundledClasses == null ? null : bundledClasses.get(name);
+            if (bytes != null) {
+                return defineClass(name, bytes, 0, bytes.length, codeSource);
+            }
+            return super.findClass(name);
+        }
     }
 }
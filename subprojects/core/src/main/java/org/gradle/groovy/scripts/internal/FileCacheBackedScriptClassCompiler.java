@@ -47,11 +47,14 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * A {@link ScriptClassCompiler} which compiles scripts to a cache directory, and loads them from there.
  */
 public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler, Closeable {
+    private static final String CLASS_FILE_EXTENSION = ".class";
     private final ScriptCompilationHandler scriptCompilationHandler;
     private final ProgressLoggerFactory progressLoggerFactory;
     private final CacheRepository cacheRepository;
@@ -418,6 +421,7 @@ public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler,
             if (!relocalizedDir.exists()) {
                 relocalizedDir.mkdir();
             }
+            Map<String, byte[]> bundledClasses = new LinkedHashMap<String, byte[]>();
             File[] files = scriptCacheDir.listFiles();
             if (files != null) {
                 for (File file : files) {
@@ -433,12 +437,17 @@ public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler,
                         String contentHash = Hashing.md5().hashBytes(contents).toString();
                         BuildScriptRemapper remapper = new BuildScriptRemapper(cv, origin, originalClassName, contentHash);
                         cr.accept(remapper, 0);
-                        Files.write(cv.toByteArray(), new File(relocalizedDir, renamed));
+                        byte[] remappedContents = cv.toByteArray();
+                        Files.write(remappedContents, new File(relocalizedDir, renamed));
+                        if (renamed.endsWith(CLASS_FILE_EXTENSION)) {
+                            bundledClasses.put(renamed.substring(0, renamed.length() - CLASS_FILE_EXTENSION.length()), remappedContents);
+                        }
                     } catch (IOException ex) {
                         throw UncheckedException.throwAsUncheckedException(ex);
                     }
                 }
             }
+            ScriptClassBundle.write(bundledClasses, ScriptClassBundle.bundleFileFor(relocalizedDir));
         }
 
         private void copyMetadata(File source, File dest) {
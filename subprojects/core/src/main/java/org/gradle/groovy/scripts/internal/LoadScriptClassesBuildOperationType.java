@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.groovy.scripts.internal;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Loading the compiled classes of a script from the script cache.
+ *
+ * @since 4.6
+ */
+public final class LoadScriptClassesBuildOperationType implements BuildOperationType<LoadScriptClassesBuildOperationType.Details, LoadScriptClassesBuildOperationType.Result> {
+
+    public interface Details {
+
+        /**
+         * The display name of the script whose classes are loaded.
+         */
+        String getScriptDisplayName();
+    }
+
+    public interface Result {
+
+        /**
+         * Whether the classes were read from a class bundle, rather than the classes directory.
+         */
+        boolean isLoadedFromBundle();
+
+        /**
+         * The number of classes contained in the bundle, or 0 when no bundle was used.
+         */
+        int getBundledClassCount();
+    }
+
+    private LoadScriptClassesBuildOperationType() {
+    }
+}
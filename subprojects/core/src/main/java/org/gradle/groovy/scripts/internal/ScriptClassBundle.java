@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.groovy.scripts.internal;
+
+import com.google.common.collect.ImmutableMap;
+import org.gradle.internal.UncheckedException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A single file containing the bytecode of all the classes compiled for a script, indexed by class name.
+ *
+ * <p>The bundle is written next to the classes directory of a remapped script cache entry, so that a new daemon can read all classes of a script with a single
+ * sequential read and define them from memory, rather than resolving each class through the classes directory.</p>
+ */
+public class ScriptClassBundle {
+    private static final int MAGIC = 0x47534342;
+    private static final int VERSION = 1;
+    private static final String BUNDLE_FILE_NAME = "classes.bundle";
+
+    private ScriptClassBundle() {
+    }
+
+    /**
+     * Returns the location of the bundle for the given classes directory.
+     */
+    public static File bundleFileFor(File classesDir) {
+        return new File(classesDir.getParentFile(), BUNDLE_FILE_NAME);
+    }
+
+    /**
+     * Writes the given classes, keyed by binary class name, to the given bundle file.
+     */
+    public static void write(Map<String, byte[]> classes, File bundleFile) {
+        File tmpFile = new File(bundleFile.getParentFile(), bundleFile.getName() + ".tmp");
+        try {
+            DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                outputStream.writeInt(MAGIC);
+                outputStream.writeInt(VERSION);
+                outputStream.writeInt(classes.size());
+                for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                    outputStream.writeUTF(entry.getKey());
+                    outputStream.writeInt(entry.getValue().length);
+                    outputStream.write(entry.getValue());
+                }
+            } finally {
+                outputStream.close();
+            }
+            if (!tmpFile.renameTo(bundleFile)) {
+                throw new IOException("Could not rename " + tmpFile + " to " + bundleFile);
+            }
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    /**
+     * Reads the classes from the given bundle file. Returns null when there is no bundle, or it was written by an incompatible version.
+     */
+    public static Map<String, byte[]> read(File bundleFile) {
+        if (!bundleFile.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(bundleFile)));
+            try {
+                if (inputStream.readInt() != MAGIC || inputStream.readInt() != VERSION) {
+                    return null;
+                }
+                int count = inputStream.readInt();
+                ImmutableMap.Builder<String, byte[]> classes = ImmutableMap.builder();
+                for (int i = 0; i < count; i++) {
+                    String className = inputStream.readUTF();
+                    byte[] bytes = new byte[inputStream.readInt()];
+                    inputStream.readFully(bytes);
+                    classes.put(className, bytes);
+                }
+                return classes.build();
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+}
@@ -25,13 +25,16 @@ import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.tasks.execution.statistics.TaskExecutionStatisticsEventAdapter;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.logging.configuration.ShowStacktrace;
+import org.gradle.cache.internal.FileLockWaitStatistics;
 import org.gradle.configuration.BuildConfigurer;
 import org.gradle.deployment.internal.DefaultDeploymentRegistry;
 import org.gradle.execution.BuildConfigurationActionExecuter;
 import org.gradle.execution.BuildExecuter;
 import org.gradle.internal.buildevents.BuildLogger;
 import org.gradle.internal.buildevents.BuildStartedTime;
+import org.gradle.internal.buildevents.FileLockWaitStatisticsReporter;
 import org.gradle.internal.buildevents.ProjectEvaluationLogger;
+import org.gradle.internal.buildevents.ResourceLockWaitStatisticsReporter;
 import org.gradle.internal.buildevents.TaskExecutionLogger;
 import org.gradle.internal.buildevents.TaskExecutionStatisticsReporter;
 import org.gradle.internal.classpath.ClassPath;
@@ -51,6 +54,8 @@ import org.gradle.internal.progress.BuildOperationDescriptor;
 import org.gradle.internal.progress.BuildProgressFilter;
 import org.gradle.internal.progress.BuildProgressLogger;
 import org.gradle.internal.progress.LoggerProvider;
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
+import org.gradle.internal.resources.ResourceLockCoordinationService;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.internal.service.scopes.BuildScopeServices;
@@ -148,6 +153,11 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
             BuildStartedTime buildStartedTime = serviceRegistry.get(BuildStartedTime.class);
             Clock clock = serviceRegistry.get(Clock.class);
             listenerManager.useLogger(new BuildLogger(Logging.getLogger(BuildLogger.class), serviceRegistry.get(StyledTextOutputFactory.class), startParameter, requestMetaData, buildStartedTime, clock));
+            listenerManager.addListener(new FileLockWaitStatisticsReporter(serviceRegistry.get(StyledTextOutputFactory.class), serviceRegistry.get(FileLockWaitStatistics.class)));
+            ResourceLockCoordinationService coordinationService = serviceRegistry.get(ResourceLockCoordinationService.class);
+            if (coordinationService instanceof DefaultResourceLockCoordinationService) {
+                listenerManager.addListener(new ResourceLockWaitStatisticsReporter(serviceRegistry.get(StyledTextOutputFactory.class), (DefaultResourceLockCoordinationService) coordinationService));
+            }
         }
 
         listenerManager.addListener(serviceRegistry.get(TaskExecutionStatisticsEventAdapter.class));
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.internal.buildevents;
+
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.cache.internal.FileLockWaitStatistics;
+import org.gradle.internal.logging.text.StyledTextOutput;
+import org.gradle.internal.logging.text.StyledTextOutputFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reports the time the build spent waiting for file locks held by other Gradle processes.
+ */
+public class FileLockWaitStatisticsReporter extends BuildAdapter {
+    private final StyledTextOutputFactory textOutputFactory;
+    private final FileLockWaitStatistics statistics;
+
+    public FileLockWaitStatisticsReporter(StyledTextOutputFactory textOutputFactory, FileLockWaitStatistics statistics) {
+        this.textOutputFactory = textOutputFactory;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void buildStarted(Gradle gradle) {
+        // Discard waits from before this build, such as those of a previous build in the same daemon
+        statistics.drain();
+    }
+
+    @Override
+    public void buildFinished(BuildResult result) {
+        FileLockWaitStatistics recorded = statistics.drain();
+        if (recorded.isEmpty()) {
+            return;
+        }
+        StyledTextOutput textOutput = textOutputFactory.create(FileLockWaitStatisticsReporter.class, LogLevel.INFO);
+        textOutput.println("Waited for file locks held by other Gradle processes:");
+        for (Map.Entry<String, FileLockWaitStatistics.WaitTime> entry : new TreeMap<String, FileLockWaitStatistics.WaitTime>(recorded.getWaitTimesByTarget()).entrySet()) {
+            textOutput.formatln("  %s: %s", entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, FileLockWaitStatistics.WaitTime> entry : new TreeMap<String, FileLockWaitStatistics.WaitTime>(recorded.getWaitTimesByHolder()).entrySet()) {
+            textOutput.formatln("  held by process %s: %s", entry.getKey(), entry.getValue());
+        }
+    }
+}
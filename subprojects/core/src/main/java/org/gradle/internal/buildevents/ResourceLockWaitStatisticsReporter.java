@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.internal.buildevents;
+
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.internal.logging.text.StyledTextOutput;
+import org.gradle.internal.logging.text.StyledTextOutputFactory;
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the time the threads of the build spent waiting for resource locks, such as worker leases, held by other threads of the same process.
+ */
+public class ResourceLockWaitStatisticsReporter extends BuildAdapter {
+    private final StyledTextOutputFactory textOutputFactory;
+    private final DefaultResourceLockCoordinationService coordinationService;
+    private long waitTimeNanosAtStart;
+    private long wakeUpsAtStart;
+    private long spuriousWakeUpsAtStart;
+
+    public ResourceLockWaitStatisticsReporter(StyledTextOutputFactory textOutputFactory, DefaultResourceLockCoordinationService coordinationService) {
+        this.textOutputFactory = textOutputFactory;
+        this.coordinationService = coordinationService;
+    }
+
+    @Override
+    public void buildStarted(Gradle gradle) {
+        // The coordination service is shared by the builds of a session, such as those of a continuous build
+        waitTimeNanosAtStart = coordinationService.getWaitTimeNanos();
+        wakeUpsAtStart = coordinationService.getWakeUps();
+        spuriousWakeUpsAtStart = coordinationService.getSpuriousWakeUps();
+    }
+
+    @Override
+    public void buildFinished(BuildResult result) {
+        long wakeUps = coordinationService.getWakeUps() - wakeUpsAtStart;
+        if (wakeUps == 0) {
+            return;
+        }
+        long waitTimeMillis = TimeUnit.NANOSECONDS.toMillis(coordinationService.getWaitTimeNanos() - waitTimeNanosAtStart);
+        long spuriousWakeUps = coordinationService.getSpuriousWakeUps() - spuriousWakeUpsAtStart;
+        StyledTextOutput textOutput = textOutputFactory.create(ResourceLockWaitStatisticsReporter.class, LogLevel.INFO);
+        textOutput.formatln("Waited for resource locks held by other threads: %d wake-ups, %d ms total, %d wake-ups that had to wait again", wakeUps, waitTimeMillis, spuriousWakeUps);
+    }
+}
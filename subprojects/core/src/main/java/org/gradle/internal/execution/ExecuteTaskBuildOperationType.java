@@ -132,6 +132,14 @@ public final class ExecuteTaskBuildOperationType implements BuildOperationType<E
         @Nullable
         List<String> getUpToDateMessages();
 
+        /**
+         * The number of classpath snapshots of the task that were reused from other tasks of the same build
+         * with an identical classpath and normalization, instead of being calculated again.
+         *
+         * @since 4.6
+         */
+        int getSharedClasspathSnapshotCount();
+
     }
 
     private ExecuteTaskBuildOperationType() {
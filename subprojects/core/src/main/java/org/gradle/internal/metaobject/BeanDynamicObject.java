@@ -327,11 +327,25 @@ public class BeanDynamicObject extends AbstractDynamicObject {
         /*
          * MetaClass.getMetaProperty(name) is very expensive when the property is not known.
          * Instead, we reach into the meta class to call a much more efficient lookup method.
-         * Since we do this in a hot code path, we also reuse the argument array used for the
-         * reflective call to save memory.
+         * The result is cached per meta class, as this is a hot code path.
          */
         @Nullable
         protected MetaProperty lookupProperty(MetaClass metaClass, String name) {
+            MetaClassLookupCache cache = MetaClassLookupCache.forMetaClass(metaClass);
+            if (cache == null) {
+                return doLookupProperty(metaClass, name);
+            }
+            Object cached = cache.getProperty(name);
+            if (cached == null) {
+                MetaProperty property = doLookupProperty(metaClass, name);
+                cache.putProperty(name, property);
+                return property;
+            }
+            return MetaClassLookupCache.isMissing(cached) ? null : (MetaProperty) cached;
+        }
+
+        @Nullable
+        private MetaProperty doLookupProperty(MetaClass metaClass, String name) {
             if (metaClass instanceof MetaClassImpl) {
                 try {
                     return (MetaProperty) META_PROP_METHOD.invoke(metaClass, name, false);
@@ -508,7 +522,17 @@ public class BeanDynamicObject extends AbstractDynamicObject {
 
         @Nullable
         protected MetaMethod lookupMethod(MetaClass metaClass, String name, Class[] arguments) {
-            return metaClass.pickMethod(name, arguments);
+            MetaClassLookupCache cache = MetaClassLookupCache.forMetaClass(metaClass);
+            if (cache == null) {
+                return metaClass.pickMethod(name, arguments);
+            }
+            Object cached = cache.getMethod(name, arguments);
+            if (cached == null) {
+                MetaMethod method = metaClass.pickMethod(name, arguments);
+                cache.putMethod(name, arguments, method);
+                return method;
+            }
+            return MetaClassLookupCache.isMissing(cached) ? null : (MetaMethod) cached;
         }
 
         protected DynamicInvokeResult invokeOpaqueMethod(MetaClass metaClass, String name, Object[] arguments) {
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.metaobject;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import groovy.lang.MetaClass;
+import groovy.lang.MetaClassImpl;
+import groovy.lang.MetaMethod;
+import groovy.lang.MetaProperty;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the results of looking up properties and methods on a meta-class, so that DSL access to the same property or method of many objects
+ * of the same type does the expensive meta-class lookup only once.
+ *
+ * <p>Caches are kept per meta-class instance, and only for plain {@link MetaClassImpl} instances, which cannot be changed once they have been
+ * initialized. When the meta-class of a type or object is replaced, lookups use the new meta-class instance and so a new, empty cache.
+ * Other meta-class implementations, such as {@code ExpandoMetaClass}, can be changed at any time and are never cached.</p>
+ */
+class MetaClassLookupCache {
+    static final String CACHE_LOOKUPS_PROPERTY = "org.gradle.internal.metaobject.cacheLookups";
+    private static final boolean ENABLED = !"false".equals(System.getProperty(CACHE_LOOKUPS_PROPERTY));
+    private static final Object MISSING = new Object();
+    private static final LoadingCache<MetaClass, MetaClassLookupCache> CACHES = CacheBuilder.newBuilder().weakKeys().build(new CacheLoader<MetaClass, MetaClassLookupCache>() {
+        @Override
+        public MetaClassLookupCache load(MetaClass metaClass) {
+            return new MetaClassLookupCache();
+        }
+    });
+
+    private final ConcurrentMap<String, Object> properties = new ConcurrentHashMap<String, Object>();
+    private final ConcurrentMap<MethodKey, Object> methods = new ConcurrentHashMap<MethodKey, Object>();
+
+    /**
+     * Returns the cache for the given meta-class, or null when lookups on the meta-class cannot be cached.
+     */
+    @Nullable
+    static MetaClassLookupCache forMetaClass(MetaClass metaClass) {
+        if (!ENABLED || metaClass.getClass() != MetaClassImpl.class) {
+            return null;
+        }
+        return CACHES.getUnchecked(metaClass);
+    }
+
+    /**
+     * Returns the cached result of looking up the given property, {@link #MISSING} when the property is known not to exist, or null when not cached.
+     */
+    @Nullable
+    Object getProperty(String name) {
+        return properties.get(name);
+    }
+
+    void putProperty(String name, @Nullable MetaProperty property) {
+        properties.put(name, property == null ? MISSING : property);
+    }
+
+    @Nullable
+    Object getMethod(String name, Class[] arguments) {
+        return methods.get(new MethodKey(name, arguments));
+    }
+
+    void putMethod(String name, Class[] arguments, @Nullable MetaMethod method) {
+        methods.put(new MethodKey(name, arguments.clone()), method == null ? MISSING : method);
+    }
+
+    static boolean isMissing(Object result) {
+        return result == MISSING;
+    }
+
+    private static class MethodKey {
+        private final String name;
+        private final Class[] arguments;
+        private final int hashCode;
+
+        MethodKey(String name, Class[] arguments) {
+            this.name = name;
+            this.arguments = arguments;
+            this.hashCode = 31 * name.hashCode() + Arrays.hashCode(arguments);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            MethodKey other = (MethodKey) obj;
+            return name.equals(other.name) && Arrays.equals(arguments, other.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
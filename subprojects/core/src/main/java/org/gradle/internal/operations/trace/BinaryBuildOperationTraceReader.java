@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.operations.trace;
+
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+
+import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the events of a trace written by {@link BinaryBuildOperationTraceWriter}, in the order they were recorded.
+ * Only the type name table is kept in memory.
+ */
+public class BinaryBuildOperationTraceReader {
+
+    public interface Visitor {
+        /**
+         * @param parentId the id of the parent operation, or 0 for a root operation.
+         */
+        void started(long id, long parentId, String displayName, @Nullable String detailsType, long startTime);
+
+        void finished(long id, long endTime, @Nullable String resultType, @Nullable String failure);
+    }
+
+    private BinaryBuildOperationTraceReader() {
+    }
+
+    public static void read(File traceFile, Visitor visitor) throws IOException {
+        KryoBackedDecoder decoder = new KryoBackedDecoder(new FileInputStream(traceFile), 64 * 1024);
+        try {
+            if (decoder.readInt() != BinaryBuildOperationTraceWriter.MAGIC) {
+                throw new IOException(traceFile + " is not a binary build operation trace.");
+            }
+            byte version = decoder.readByte();
+            if (version != BinaryBuildOperationTraceWriter.VERSION) {
+                throw new IOException("Unsupported version " + version + " of binary build operation trace " + traceFile + ".");
+            }
+            List<String> typeNames = new ArrayList<String>();
+            while (true) {
+                byte kind = decoder.readByte();
+                if (kind == BinaryBuildOperationTraceWriter.END) {
+                    return;
+                }
+                long id = decoder.readSmallLong();
+                if (kind == BinaryBuildOperationTraceWriter.START) {
+                    long parentId = decoder.readSmallLong();
+                    long startTime = decoder.readLong();
+                    String displayName = decoder.readString();
+                    String detailsType = readTypeName(decoder, typeNames);
+                    visitor.started(id, parentId, displayName, detailsType, startTime);
+                } else if (kind == BinaryBuildOperationTraceWriter.FINISH) {
+                    long endTime = decoder.readLong();
+                    String failure = decoder.readNullableString();
+                    String resultType = readTypeName(decoder, typeNames);
+                    visitor.finished(id, endTime, resultType, failure);
+                } else {
+                    throw new IOException("Unexpected record " + kind + " in binary build operation trace " + traceFile + ".");
+                }
+            }
+        } catch (EOFException e) {
+            // Trace was not closed cleanly, use what was written
+        } finally {
+            decoder.close();
+        }
+    }
+
+    @Nullable
+    private static String readTypeName(KryoBackedDecoder decoder, List<String> typeNames) throws IOException {
+        int index = decoder.readSmallInt();
+        if (index == 0) {
+            return null;
+        }
+        if (index > typeNames.size()) {
+            typeNames.add(decoder.readString());
+        }
+        return typeNames.get(index - 1);
+    }
+}
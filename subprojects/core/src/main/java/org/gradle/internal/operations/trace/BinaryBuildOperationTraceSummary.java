@@ -0,0 +1,280 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.operations.trace;
+
+import com.google.common.base.Charsets;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queries a binary build operation trace without loading it into memory.
+ *
+ * Memory use is bounded by the number of operations that are running at the same time, except for the tree,
+ * which also keeps the duration of each operation in a primitive array.
+ *
+ * Can be run from the command line with the trace file as argument, to print the summary and the tree.
+ */
+public class BinaryBuildOperationTraceSummary {
+
+    private static final String NO_DETAILS = "(no details)";
+
+    private BinaryBuildOperationTraceSummary() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: BinaryBuildOperationTraceSummary <trace-file>");
+        }
+        File traceFile = new File(args[0]);
+        Writer out = new OutputStreamWriter(System.out, Charsets.UTF_8);
+        writeSummary(traceFile, out);
+        out.append('\n');
+        writeTree(traceFile, out);
+        out.flush();
+    }
+
+    /**
+     * Writes the total time spent per operation details type, and the critical path through the operations.
+     */
+    public static void writeSummary(File traceFile, Appendable out) throws IOException {
+        SummaryVisitor visitor = new SummaryVisitor();
+        BinaryBuildOperationTraceReader.read(traceFile, visitor);
+
+        out.append("Totals by details type:\n");
+        List<Map.Entry<String, TypeTotal>> totals = new ArrayList<Map.Entry<String, TypeTotal>>(visitor.totals.entrySet());
+        Collections.sort(totals, new Comparator<Map.Entry<String, TypeTotal>>() {
+            @Override
+            public int compare(Map.Entry<String, TypeTotal> o1, Map.Entry<String, TypeTotal> o2) {
+                long diff = o2.getValue().totalTime - o1.getValue().totalTime;
+                return diff < 0 ? -1 : diff > 0 ? 1 : o1.getKey().compareTo(o2.getKey());
+            }
+        });
+        for (Map.Entry<String, TypeTotal> entry : totals) {
+            TypeTotal total = entry.getValue();
+            out.append("  ").append(entry.getKey())
+                .append(" count=").append(String.valueOf(total.count))
+                .append(" total=").append(String.valueOf(total.totalTime)).append("ms")
+                .append(" max=").append(String.valueOf(total.maxTime)).append("ms\n");
+        }
+
+        out.append("Critical path:\n");
+        String indent = "  ";
+        for (PathNode node = visitor.criticalPath; node != null; node = node.next) {
+            out.append(indent).append(node.displayName)
+                .append(" [").append(String.valueOf(node.duration)).append("ms]")
+                .append(" (").append(String.valueOf(node.id)).append(")\n");
+            indent += "  ";
+        }
+    }
+
+    /**
+     * Writes the operations in the order they started, indented by their depth in the operation tree.
+     * Operations that run in parallel are interleaved, so each line also includes the id of the parent operation.
+     */
+    public static void writeTree(File traceFile, final Appendable out) throws IOException {
+        final DurationsById durations = new DurationsById();
+        BinaryBuildOperationTraceReader.read(traceFile, new BinaryBuildOperationTraceReader.Visitor() {
+            private final Map<Long, Long> startTimes = new HashMap<Long, Long>();
+
+            @Override
+            public void started(long id, long parentId, String displayName, @Nullable String detailsType, long startTime) {
+                startTimes.put(id, startTime);
+            }
+
+            @Override
+            public void finished(long id, long endTime, @Nullable String resultType, @Nullable String failure) {
+                Long startTime = startTimes.remove(id);
+                if (startTime != null) {
+                    durations.put(id, endTime - startTime);
+                }
+            }
+        });
+
+        final StringBuilder line = new StringBuilder();
+        final IOException[] failure = new IOException[1];
+        BinaryBuildOperationTraceReader.read(traceFile, new BinaryBuildOperationTraceReader.Visitor() {
+            private final Map<Long, Integer> depths = new HashMap<Long, Integer>();
+
+            @Override
+            public void started(long id, long parentId, String displayName, @Nullable String detailsType, long startTime) {
+                Integer parentDepth = depths.get(parentId);
+                int depth = parentDepth == null ? 0 : parentDepth + 1;
+                depths.put(id, depth);
+
+                line.setLength(0);
+                for (int i = 0; i < depth; i++) {
+                    line.append("  ");
+                }
+                line.append(displayName);
+                long duration = durations.get(id);
+                if (duration >= 0) {
+                    line.append(" [").append(duration).append("ms]");
+                }
+                line.append(" (").append(id);
+                if (parentId != 0) {
+                    line.append(" <- ").append(parentId);
+                }
+                line.append(")\n");
+                try {
+                    out.append(line);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+
+            @Override
+            public void finished(long id, long endTime, @Nullable String resultType, @Nullable String failure) {
+                depths.remove(id);
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    private static class SummaryVisitor implements BinaryBuildOperationTraceReader.Visitor {
+        private final Map<Long, RunningOperation> running = new HashMap<Long, RunningOperation>();
+        private final Map<String, TypeTotal> totals = new HashMap<String, TypeTotal>();
+        private PathNode criticalPath;
+        private long criticalPathEndTime;
+
+        @Override
+        public void started(long id, long parentId, String displayName, @Nullable String detailsType, long startTime) {
+            running.put(id, new RunningOperation(parentId, displayName, detailsType, startTime));
+        }
+
+        @Override
+        public void finished(long id, long endTime, @Nullable String resultType, @Nullable String failure) {
+            RunningOperation operation = running.remove(id);
+            if (operation == null) {
+                return;
+            }
+            long duration = endTime - operation.startTime;
+
+            String type = operation.detailsType == null ? NO_DETAILS : operation.detailsType;
+            TypeTotal total = totals.get(type);
+            if (total == null) {
+                total = new TypeTotal();
+                totals.put(type, total);
+            }
+            total.add(duration);
+
+            // The critical path of an operation continues through the child that finished last
+            PathNode node = new PathNode(id, operation.displayName, duration, operation.lastFinishedChild);
+            RunningOperation parent = running.get(operation.parentId);
+            if (parent != null) {
+                if (parent.lastFinishedChild == null || endTime >= parent.lastChildEndTime) {
+                    parent.lastFinishedChild = node;
+                    parent.lastChildEndTime = endTime;
+                }
+            } else if (criticalPath == null || duration > criticalPath.duration || (duration == criticalPath.duration && endTime > criticalPathEndTime)) {
+                criticalPath = node;
+                criticalPathEndTime = endTime;
+            }
+        }
+    }
+
+    private static class RunningOperation {
+        final long parentId;
+        final String displayName;
+        final String detailsType;
+        final long startTime;
+        PathNode lastFinishedChild;
+        long lastChildEndTime;
+
+        RunningOperation(long parentId, String displayName, @Nullable String detailsType, long startTime) {
+            this.parentId = parentId;
+            this.displayName = displayName;
+            this.detailsType = detailsType;
+            this.startTime = startTime;
+        }
+    }
+
+    private static class PathNode {
+        final long id;
+        final String displayName;
+        final long duration;
+        final PathNode next;
+
+        PathNode(long id, String displayName, long duration, @Nullable PathNode next) {
+            this.id = id;
+            this.displayName = displayName;
+            this.duration = duration;
+            this.next = next;
+        }
+    }
+
+    private static class TypeTotal {
+        long count;
+        long totalTime;
+        long maxTime;
+
+        void add(long duration) {
+            count++;
+            totalTime += duration;
+            maxTime = Math.max(maxTime, duration);
+        }
+    }
+
+    /**
+     * Operation ids are allocated sequentially, so durations are kept in a primitive array indexed relative to the lowest id seen.
+     */
+    private static class DurationsById {
+        private long base = -1;
+        private long[] durations = new long[0];
+
+        void put(long id, long duration) {
+            if (base < 0) {
+                base = id;
+            }
+            if (id < base) {
+                long[] rebased = new long[(int) (durations.length + base - id)];
+                Arrays.fill(rebased, -1);
+                System.arraycopy(durations, 0, rebased, (int) (base - id), durations.length);
+                durations = rebased;
+                base = id;
+            }
+            int index = (int) (id - base);
+            if (index >= durations.length) {
+                long[] grown = new long[Math.max(index + 1, durations.length * 2)];
+                Arrays.fill(grown, durations.length, grown.length, -1);
+                System.arraycopy(durations, 0, grown, 0, durations.length);
+                durations = grown;
+            }
+            durations[index] = duration;
+        }
+
+        long get(long id) {
+            if (base < 0 || id < base || id - base >= durations.length) {
+                return -1;
+            }
+            return durations[(int) (id - base)];
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.operations.trace;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.logging.events.OperationIdentifier;
+import org.gradle.internal.progress.BuildOperationDescriptor;
+import org.gradle.internal.progress.BuildOperationListener;
+import org.gradle.internal.progress.OperationFinishEvent;
+import org.gradle.internal.progress.OperationProgressEvent;
+import org.gradle.internal.progress.OperationStartEvent;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes the build operation stream in the compact binary format read by {@link BinaryBuildOperationTraceReader}.
+ *
+ * Only the structure, timing and types of the operations are recorded, which is enough to compute the tree, per-type totals and the critical path.
+ * Events are handed to a background thread through a bounded queue, so the listener never encodes or does IO itself
+ * and the memory used by the trace does not grow with the size of the build.
+ */
+class BinaryBuildOperationTraceWriter implements BuildOperationListener, Stoppable {
+
+    static final int MAGIC = 0x474f5054;
+    static final byte VERSION = 1;
+
+    static final byte START = 1;
+    static final byte FINISH = 2;
+    static final byte END = 3;
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final Event END_OF_STREAM = new Event(END, 0, 0, 0, null, null, null);
+
+    private final BlockingQueue<Event> queue = new ArrayBlockingQueue<Event>(QUEUE_CAPACITY);
+    private final KryoBackedEncoder encoder;
+    private final ManagedExecutor executor;
+    private final Map<String, Integer> typeNames = new HashMap<String, Integer>();
+    private volatile Throwable failure;
+
+    BinaryBuildOperationTraceWriter(File traceFile, ExecutorFactory executorFactory) {
+        try {
+            encoder = new KryoBackedEncoder(new FileOutputStream(traceFile), 64 * 1024);
+        } catch (FileNotFoundException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        encoder.writeInt(MAGIC);
+        encoder.writeByte(VERSION);
+        executor = executorFactory.create("Build operation trace writer");
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeEvents();
+            }
+        });
+    }
+
+    @Override
+    public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+        Object details = buildOperation.getDetails();
+        enqueue(new Event(
+            START,
+            id(buildOperation.getId()),
+            buildOperation.getParentId() == null ? 0 : id(buildOperation.getParentId()),
+            startEvent.getStartTime(),
+            buildOperation.getDisplayName(),
+            details == null ? null : details.getClass().getName(),
+            null
+        ));
+    }
+
+    @Override
+    public void progress(BuildOperationDescriptor buildOperation, OperationProgressEvent progressEvent) {
+        // Progress is not part of the binary trace
+    }
+
+    @Override
+    public void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+        Object result = finishEvent.getResult();
+        enqueue(new Event(
+            FINISH,
+            id(buildOperation.getId()),
+            0,
+            finishEvent.getEndTime(),
+            null,
+            result == null ? null : result.getClass().getName(),
+            finishEvent.getFailure() == null ? null : finishEvent.getFailure().toString()
+        ));
+    }
+
+    private static long id(Object operationId) {
+        return ((OperationIdentifier) operationId).getId();
+    }
+
+    private void enqueue(Event event) {
+        try {
+            // Blocks when the writer falls behind, rather than buffering an unbounded number of events
+            queue.put(event);
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private void writeEvents() {
+        List<Event> batch = new ArrayList<Event>(QUEUE_CAPACITY);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (Event event : batch) {
+                    if (event == END_OF_STREAM) {
+                        return;
+                    }
+                    if (failure == null) {
+                        write(event);
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private void write(Event event) {
+        try {
+            encoder.writeByte(event.kind);
+            encoder.writeSmallLong(event.id);
+            if (event.kind == START) {
+                encoder.writeSmallLong(event.parentId);
+                encoder.writeLong(event.time);
+                encoder.writeString(event.displayName);
+            } else {
+                encoder.writeLong(event.time);
+                encoder.writeNullableString(event.failure);
+            }
+            writeTypeName(event.typeName);
+        } catch (Throwable t) {
+            // Keep draining the queue, so that the build is not blocked by a broken trace
+            failure = t;
+        }
+    }
+
+    /**
+     * Type names are written once and referenced by index afterwards. 0 means no type.
+     */
+    private void writeTypeName(String typeName) {
+        if (typeName == null) {
+            encoder.writeSmallInt(0);
+            return;
+        }
+        Integer index = typeNames.get(typeName);
+        if (index != null) {
+            encoder.writeSmallInt(index);
+            return;
+        }
+        index = typeNames.size() + 1;
+        typeNames.put(typeName, index);
+        encoder.writeSmallInt(index);
+        encoder.writeString(typeName);
+    }
+
+    @Override
+    public void stop() {
+        enqueue(END_OF_STREAM);
+        executor.stop();
+        try {
+            if (failure == null) {
+                encoder.writeByte(END);
+            }
+        } finally {
+            encoder.close();
+        }
+        if (failure != null) {
+            throw UncheckedException.throwAsUncheckedException(failure);
+        }
+    }
+
+    private static class Event {
+        final byte kind;
+        final long id;
+        final long parentId;
+        final long time;
+        final String displayName;
+        final String typeName;
+        final String failure;
+
+        Event(byte kind, long id, long parentId, long time, String displayName, String typeName, String failure) {
+            this.kind = kind;
+            this.id = id;
+            this.parentId = parentId;
+            this.time = time;
+            this.displayName = displayName;
+            this.typeName = typeName;
+            this.failure = failure;
+        }
+    }
+}
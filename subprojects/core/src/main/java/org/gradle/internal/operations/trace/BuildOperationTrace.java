@@ -23,6 +23,7 @@ import groovy.json.JsonOutput;
 import groovy.json.JsonSlurper;
 import org.gradle.StartParameter;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.progress.BuildOperationListener;
 import org.gradle.internal.progress.BuildOperationListenerManager;
@@ -34,6 +35,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Writer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -66,6 +68,15 @@ import static org.gradle.internal.Cast.uncheckedCast;
  * The «path-base» param is optional.
  * If invoked as `-Dorg.gradle.internal.operations.trace`, a base value of "operations" will be used.
  *
+ * For large builds, `-Dorg.gradle.internal.operations.trace.format=binary` records a compact binary trace instead,
+ * which only captures the structure, timing and types of the operations and is written in the background:
+ *
+ * - «path-base»-log.bin: the binary trace, see {@link BinaryBuildOperationTraceReader}
+ * - «path-base»-summary.txt: the total time per details type and the critical path
+ * - «path-base»-tree.txt: the operations in start order, indented by depth
+ *
+ * These are produced by streaming over the binary trace, see {@link BinaryBuildOperationTraceSummary}.
+ *
  * The “trace” produced here is different to the trace produced by Gradle Profiler.
  * There, the focus is analyzing the performance profile.
  * Here, the focus is debugging/developing the information structure of build operations.
@@ -75,27 +86,39 @@ import static org.gradle.internal.Cast.uncheckedCast;
 public class BuildOperationTrace implements Stoppable {
 
     public static final String SYSPROP = "org.gradle.internal.operations.trace";
+    public static final String FORMAT_SYSPROP = SYSPROP + ".format";
+    public static final String BINARY_FORMAT = "binary";
 
     private final String basePath;
     private final OutputStream logOutputStream;
+    private final BinaryBuildOperationTraceWriter binaryWriter;
     private final BuildOperationListenerManager listenerManager;
 
     private BuildOperationListener listener;
 
-    public BuildOperationTrace(StartParameter startParameter, BuildOperationListenerManager listenerManager) {
+    public BuildOperationTrace(StartParameter startParameter, BuildOperationListenerManager listenerManager, ExecutorFactory executorFactory) {
         this.listenerManager = listenerManager;
 
         Map<String, String> sysProps = startParameter.getSystemPropertiesArgs();
-        String basePath = sysProps.get(SYSPROP);
-        if (basePath == null) {
-            basePath = System.getProperty(SYSPROP);
-        }
+        String basePath = systemProperty(sysProps, SYSPROP);
 
         this.basePath = basePath;
         if (this.basePath == null || basePath.equals(Boolean.FALSE.toString())) {
             this.logOutputStream = null;
+            this.binaryWriter = null;
+            return;
+        }
+
+        if (BINARY_FORMAT.equals(systemProperty(sysProps, FORMAT_SYSPROP))) {
+            File binaryLogFile = binaryLogFile(basePath);
+            GFileUtils.mkdirs(binaryLogFile.getParentFile());
+            this.logOutputStream = null;
+            this.binaryWriter = new BinaryBuildOperationTraceWriter(binaryLogFile, executorFactory);
+            listener = binaryWriter;
+            listenerManager.addListener(listener);
             return;
         }
+        this.binaryWriter = null;
 
         try {
             File logFile = logFile(basePath);
@@ -122,6 +145,17 @@ public class BuildOperationTrace implements Stoppable {
             listenerManager.removeListener(listener);
         }
 
+        if (binaryWriter != null) {
+            binaryWriter.stop();
+            try {
+                File binaryLogFile = binaryLogFile(basePath);
+                writeBinarySummary(binaryLogFile);
+                writeBinaryTree(binaryLogFile);
+            } catch (IOException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+
         if (logOutputStream != null) {
             try {
                 logOutputStream.close();
@@ -135,6 +169,24 @@ public class BuildOperationTrace implements Stoppable {
         }
     }
 
+    private void writeBinarySummary(File binaryLogFile) throws IOException {
+        Writer writer = Files.newWriter(file(basePath, "-summary.txt"), Charsets.UTF_8);
+        try {
+            BinaryBuildOperationTraceSummary.writeSummary(binaryLogFile, writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeBinaryTree(File binaryLogFile) throws IOException {
+        Writer writer = Files.newWriter(file(basePath, "-tree.txt"), Charsets.UTF_8);
+        try {
+            BinaryBuildOperationTraceSummary.writeTree(binaryLogFile, writer);
+        } finally {
+            writer.close();
+        }
+    }
+
     private void writeDetailTree(List<BuildOperationRecord> roots) throws IOException {
         String rawJson = JsonOutput.toJson(BuildOperationTree.serialize(roots));
         String prettyJson = JsonOutput.prettyPrint(rawJson);
@@ -302,6 +354,18 @@ public class BuildOperationTrace implements Stoppable {
 
     }
 
+    private static String systemProperty(Map<String, String> sysProps, String name) {
+        String value = sysProps.get(name);
+        if (value == null) {
+            value = System.getProperty(name);
+        }
+        return value;
+    }
+
+    private static File binaryLogFile(String basePath) {
+        return file(basePath, "-log.bin");
+    }
+
     private static File logFile(String basePath) {
         return file(basePath, "-log.txt");
     }
@@ -42,6 +42,7 @@ import org.gradle.internal.operations.BuildOperationIdentifierRegistry;
 import org.gradle.internal.operations.BuildOperationQueue;
 import org.gradle.internal.operations.BuildOperationQueueFactory;
 import org.gradle.internal.operations.BuildOperationQueueFailure;
+import org.gradle.internal.operations.BuildOperationQueueProgressDetails;
 import org.gradle.internal.operations.BuildOperationWorker;
 import org.gradle.internal.operations.CallableBuildOperation;
 import org.gradle.internal.operations.DefaultBuildOperationIdFactory;
@@ -160,6 +161,7 @@ public class DefaultBuildOperationExecutor implements BuildOperationExecutor, St
         } catch (MultipleBuildOperationFailures e) {
             failures.add(e);
         }
+        notifyQueueProgress(queue);
 
         if (failures.size() == 1) {
             throw failures.get(0);
@@ -168,6 +170,14 @@ public class DefaultBuildOperationExecutor implements BuildOperationExecutor, St
         }
     }
 
+    private void notifyQueueProgress(BuildOperationQueue<?> queue) {
+        DefaultBuildOperationState current = currentOperation.get();
+        BuildOperationQueueProgressDetails details = queue.getProgressDetails();
+        if (current != null && details != null) {
+            listener.progress(current.getDescription(), new OperationProgressEvent(clock.getCurrentTime(), details));
+        }
+    }
+
     private <O extends BuildOperation> void execute(O buildOperation, BuildOperationWorker<O> worker, @Nullable DefaultBuildOperationState defaultParent) {
         failIfInResourceLockTransform();
 
@@ -17,6 +17,7 @@
 package org.gradle.internal.service.scopes;
 
 import com.google.common.collect.Iterables;
+import org.gradle.api.execution.internal.AffectedTasksTracker;
 import org.gradle.api.execution.internal.DefaultTaskInputsListener;
 import org.gradle.api.execution.internal.TaskInputsListener;
 import org.gradle.api.internal.AsmBackedClassGenerator;
@@ -43,6 +44,7 @@ import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.internal.model.DefaultObjectFactory;
 import org.gradle.api.internal.model.NamedObjectInstantiator;
 import org.gradle.api.internal.provider.DefaultProviderFactory;
+import org.gradle.api.internal.tasks.execution.statistics.TaskPhaseHistograms;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.tasks.util.PatternSet;
@@ -332,8 +334,16 @@ public class GlobalScopeServices extends BasicGlobalScopeServices {
         return new BuildLayoutFactory(scriptFileResolver);
     }
 
-    TaskInputsListener createTaskInputsListener() {
-        return new DefaultTaskInputsListener();
+    AffectedTasksTracker createAffectedTasksTracker() {
+        return new AffectedTasksTracker();
+    }
+
+    TaskPhaseHistograms createTaskPhaseHistograms() {
+        return new TaskPhaseHistograms();
+    }
+
+    TaskInputsListener createTaskInputsListener(AffectedTasksTracker affectedTasksTracker) {
+        return new DefaultTaskInputsListener(affectedTasksTracker);
     }
 
     ParallelismConfigurationManager createMaxWorkersManager(ListenerManager listenerManager) {
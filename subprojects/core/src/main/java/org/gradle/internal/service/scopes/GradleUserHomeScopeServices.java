@@ -16,9 +16,14 @@
 
 package org.gradle.internal.service.scopes;
 
+import org.gradle.api.internal.AsmBackedClassGenerator;
+import org.gradle.api.internal.ClassGenerator;
 import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.api.internal.DefaultClassPathProvider;
 import org.gradle.api.internal.DefaultClassPathRegistry;
+import org.gradle.api.internal.DefaultInstantiatorFactory;
+import org.gradle.api.internal.GeneratedClassBytecodeCache;
+import org.gradle.api.internal.InstantiatorFactory;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.CachingFileHasher;
 import org.gradle.api.internal.changedetection.state.ClasspathSnapshotter;
@@ -63,6 +68,7 @@ import org.gradle.internal.classpath.CachedJarFileStore;
 import org.gradle.internal.classpath.DefaultCachedClasspathTransformer;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.file.JarCache;
+import org.gradle.internal.filewatch.FileWatcherFactory;
 import org.gradle.internal.hash.ContentHasherFactory;
 import org.gradle.internal.hash.DefaultFileHasher;
 import org.gradle.internal.hash.FileHasher;
@@ -73,7 +79,9 @@ import org.gradle.internal.jvm.inspection.JvmVersionDetector;
 import org.gradle.internal.logging.LoggingManagerInternal;
 import org.gradle.internal.logging.events.OutputEventListener;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.remote.MessagingServer;
+import org.gradle.internal.serialize.BaseSerializerFactory;
 import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.ServiceRegistry;
@@ -138,8 +146,28 @@ public class GradleUserHomeScopeServices {
         return new RegistryAwareClassLoaderHierarchyHasher(registry, classLoaderHasher);
     }
 
-    FileSystemMirror createFileSystemMirror(ListenerManager listenerManager, List<CachedJarFileStore> fileStores) {
-        DefaultFileSystemMirror fileSystemMirror = new DefaultFileSystemMirror(fileStores);
+    GeneratedClassBytecodeCache createGeneratedClassBytecodeCache(TaskHistoryStore store, ClassLoaderHierarchyHasher classLoaderHierarchyHasher) {
+        PersistentIndexedCache<HashCode, byte[]> bytecodeCache = store.createCache("generatedClasses", HashCode.class, BaseSerializerFactory.BYTE_ARRAY_SERIALIZER, 2000, true);
+        return new GeneratedClassBytecodeCache(bytecodeCache, classLoaderHierarchyHasher);
+    }
+
+    // Replaces the global class generator, so that the classes decorated for builds using this user home are cached there
+    ClassGenerator createClassGenerator(GeneratedClassBytecodeCache generatedClassBytecodeCache) {
+        return new AsmBackedClassGenerator(generatedClassBytecodeCache);
+    }
+
+    InstantiatorFactory createInstantiatorFactory(ClassGenerator classGenerator, CrossBuildInMemoryCacheFactory cacheFactory) {
+        return new DefaultInstantiatorFactory(classGenerator, cacheFactory);
+    }
+
+    Instantiator createInstantiator(InstantiatorFactory instantiatorFactory) {
+        return instantiatorFactory.decorate();
+    }
+
+    FileSystemMirror createFileSystemMirror(ListenerManager listenerManager, List<CachedJarFileStore> fileStores, FileWatcherFactory fileWatcherFactory, TemporaryFileProvider temporaryFileProvider) {
+        DefaultFileSystemMirror fileSystemMirror = DefaultFileSystemMirror.isRetainSnapshotsEnabled()
+            ? new DefaultFileSystemMirror(fileStores, fileWatcherFactory, temporaryFileProvider.createTemporaryDirectory("file-watching", null))
+            : new DefaultFileSystemMirror(fileStores);
         listenerManager.addListener(fileSystemMirror);
         return fileSystemMirror;
     }
@@ -19,16 +19,19 @@ import com.google.common.collect.ImmutableList;
 import org.gradle.StartParameter;
 import org.gradle.api.execution.TaskActionListener;
 import org.gradle.api.execution.TaskExecutionGraph;
+import org.gradle.api.execution.internal.AffectedTasksTracker;
 import org.gradle.api.execution.internal.TaskInputsListener;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.DefaultTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.state.CacheBackedTaskHistoryRepository;
+import org.gradle.api.internal.changedetection.state.ClasspathSnapshotCache;
 import org.gradle.api.internal.changedetection.state.DefaultFileCollectionSnapshotterRegistry;
 import org.gradle.api.internal.changedetection.state.DefaultTaskHistoryStore;
 import org.gradle.api.internal.changedetection.state.DefaultTaskOutputFilesRepository;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot;
+import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotStore;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotterRegistry;
 import org.gradle.api.internal.changedetection.state.FileSystemSnapshotter;
@@ -46,6 +49,8 @@ import org.gradle.api.internal.tasks.execution.ExecuteActionsTaskExecuter;
 import org.gradle.api.internal.tasks.execution.ExecuteAtMostOnceTaskExecuter;
 import org.gradle.api.internal.tasks.execution.FinalizeInputFilePropertiesTaskExecuter;
 import org.gradle.api.internal.tasks.execution.OutputDirectoryCreatingTaskExecuter;
+import org.gradle.api.internal.tasks.execution.RecordSharedClasspathSnapshotsTaskExecuter;
+import org.gradle.api.internal.tasks.execution.RecordTaskPhaseTimingsExecuter;
 import org.gradle.api.internal.tasks.execution.ResolveBuildCacheKeyExecuter;
 import org.gradle.api.internal.tasks.execution.ResolveTaskArtifactStateTaskExecuter;
 import org.gradle.api.internal.tasks.execution.ResolveTaskOutputCachingStateExecuter;
@@ -53,9 +58,15 @@ import org.gradle.api.internal.tasks.execution.SkipCachedTaskExecuter;
 import org.gradle.api.internal.tasks.execution.SkipEmptySourceFilesTaskExecuter;
 import org.gradle.api.internal.tasks.execution.SkipOnlyIfTaskExecuter;
 import org.gradle.api.internal.tasks.execution.SkipTaskWithNoActionsExecuter;
+import org.gradle.api.internal.tasks.execution.SkipUnaffectedTaskExecuter;
 import org.gradle.api.internal.tasks.execution.SkipUpToDateTaskExecuter;
+import org.gradle.api.internal.tasks.execution.SnapshotTaskInputsExecuter;
 import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener;
+import org.gradle.api.internal.tasks.execution.TimeTaskPhaseExecuter;
 import org.gradle.api.internal.tasks.execution.ValidatingTaskExecuter;
+import org.gradle.api.internal.tasks.execution.statistics.TaskExecutionPhase;
+import org.gradle.api.internal.tasks.execution.statistics.TaskPhaseHistograms;
+import org.gradle.api.internal.tasks.execution.statistics.TaskPhaseHistogramsReporter;
 import org.gradle.api.internal.tasks.properties.PropertyWalker;
 import org.gradle.api.internal.tasks.properties.annotations.FileSnapshottingPropertyAnnotationHandler;
 import org.gradle.api.invocation.Gradle;
@@ -78,6 +89,7 @@ import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.scan.config.BuildScanPluginApplied;
 import org.gradle.internal.scopeids.id.BuildInvocationScopeId;
 import org.gradle.internal.serialize.DefaultSerializerRegistry;
+import org.gradle.internal.serialize.Serializer;
 import org.gradle.internal.serialize.SerializerRegistry;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.internal.work.AsyncWorkTracker;
@@ -97,6 +109,7 @@ public class TaskExecutionServices {
                                     StartParameter startParameter,
                                     ListenerManager listenerManager,
                                     TaskInputsListener inputsListener,
+                                    AffectedTasksTracker affectedTasksTracker,
                                     BuildOperationExecutor buildOperationExecutor,
                                     AsyncWorkTracker asyncWorkTracker,
                                     BuildOutputCleanupRegistry cleanupRegistry,
@@ -105,7 +118,9 @@ public class TaskExecutionServices {
                                     PathToFileResolver resolver,
                                     PropertyWalker propertyWalker,
                                     TaskExecutionGraph taskExecutionGraph,
-                                    BuildInvocationScopeId buildInvocationScopeId
+                                    BuildInvocationScopeId buildInvocationScopeId,
+                                    ClasspathSnapshotCache classpathSnapshotCache,
+                                    TaskPhaseHistograms taskPhaseHistograms
     ) {
 
         boolean taskOutputCacheEnabled = startParameter.isBuildCacheEnabled();
@@ -119,32 +134,51 @@ public class TaskExecutionServices {
             asyncWorkTracker,
             buildInvocationScopeId
         );
+        executer = timed(TaskExecutionPhase.ACTIONS, executer);
         executer = new OutputDirectoryCreatingTaskExecuter(executer);
         if (taskOutputCacheEnabled) {
-            executer = new SkipCachedTaskExecuter(
+            executer = timed(TaskExecutionPhase.CACHE_LOAD_AND_STORE, new SkipCachedTaskExecuter(
                 buildCacheController,
                 taskOutputsGenerationListener,
                 taskOutputCacheCommandFactory,
-                executer
-            );
+                untimed(executer)
+            ));
         }
-        executer = new SkipUpToDateTaskExecuter(executer);
+        executer = timed(TaskExecutionPhase.UP_TO_DATE_CHECK, new SkipUpToDateTaskExecuter(untimed(executer)));
         executer = new ResolveTaskOutputCachingStateExecuter(taskOutputCacheEnabled, executer);
         if (taskOutputCacheEnabled || scanPluginApplied) {
-            executer = new ResolveBuildCacheKeyExecuter(executer, buildOperationExecutor);
+            executer = timed(TaskExecutionPhase.CACHE_KEY_CALCULATION, new ResolveBuildCacheKeyExecuter(untimed(executer), buildOperationExecutor));
         }
+        executer = timed(TaskExecutionPhase.INPUT_SNAPSHOTTING, new SnapshotTaskInputsExecuter(untimed(executer)));
         executer = new ValidatingTaskExecuter(executer);
         executer = new SkipEmptySourceFilesTaskExecuter(inputsListener, cleanupRegistry, taskOutputsGenerationListener, executer, buildInvocationScopeId);
         executer = new FinalizeInputFilePropertiesTaskExecuter(executer);
         executer = new CleanupStaleOutputsExecuter(cleanupRegistry, taskOutputFilesRepository, buildOperationExecutor, executer);
+        if (AffectedTasksTracker.isEnabled()) {
+            executer = new SkipUnaffectedTaskExecuter(taskExecutionGraph, affectedTasksTracker, inputsListener, executer);
+        }
         executer = new ResolveTaskArtifactStateTaskExecuter(repository, resolver, propertyWalker, executer);
         executer = new SkipTaskWithNoActionsExecuter(taskExecutionGraph, executer);
         executer = new SkipOnlyIfTaskExecuter(executer);
         executer = new ExecuteAtMostOnceTaskExecuter(executer);
+        executer = new RecordSharedClasspathSnapshotsTaskExecuter(classpathSnapshotCache, executer);
+        executer = new RecordTaskPhaseTimingsExecuter(taskPhaseHistograms, executer);
         executer = new CatchExceptionTaskExecuter(executer);
+        listenerManager.addListener(new TaskPhaseHistogramsReporter(taskPhaseHistograms, startParameter));
         return executer;
     }
 
+    private static TaskExecuter timed(TaskExecutionPhase phase, TaskExecuter executer) {
+        return new TimeTaskPhaseExecuter(phase, executer);
+    }
+
+    /**
+     * Counts the time spent in the given executer and the executers it delegates to as {@link TaskExecutionPhase#OTHER}, until one of them starts another phase.
+     */
+    private static TaskExecuter untimed(TaskExecuter executer) {
+        return new TimeTaskPhaseExecuter(TaskExecutionPhase.OTHER, executer);
+    }
+
     TaskHistoryStore createCacheAccess(Gradle gradle, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
         return new DefaultTaskHistoryStore(gradle, cacheRepository, inMemoryCacheDecoratorFactory);
     }
@@ -159,22 +193,30 @@ public class TaskExecutionServices {
         return new DefaultFileCollectionSnapshotterRegistry(snapshotterImplementations.build());
     }
 
+    FileCollectionSnapshotStore createFileCollectionSnapshotStore(Gradle gradle, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, FileCollectionSnapshotterRegistry fileCollectionSnapshotterRegistry) {
+        return new FileCollectionSnapshotStore(gradle, cacheRepository, inMemoryCacheDecoratorFactory, createFileCollectionSnapshotSerializer(fileCollectionSnapshotterRegistry));
+    }
+
+    private static Serializer<FileCollectionSnapshot> createFileCollectionSnapshotSerializer(FileCollectionSnapshotterRegistry fileCollectionSnapshotterRegistry) {
+        SerializerRegistry serializerRegistry = new DefaultSerializerRegistry();
+        for (FileCollectionSnapshotter snapshotter : fileCollectionSnapshotterRegistry.getAllSnapshotters()) {
+            snapshotter.registerSerializers(serializerRegistry);
+        }
+        return serializerRegistry.build(FileCollectionSnapshot.class);
+    }
+
     TaskHistoryRepository createTaskHistoryRepository(
         TaskHistoryStore cacheAccess,
-        FileCollectionSnapshotterRegistry fileCollectionSnapshotterRegistry,
+        FileCollectionSnapshotStore snapshotStore,
         StringInterner stringInterner,
         ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
         ValueSnapshotter valueSnapshotter,
         FileCollectionSnapshotterRegistry snapshotterRegistry,
         FileCollectionFactory fileCollectionFactory) {
-        SerializerRegistry serializerRegistry = new DefaultSerializerRegistry();
-        for (FileCollectionSnapshotter snapshotter : fileCollectionSnapshotterRegistry.getAllSnapshotters()) {
-            snapshotter.registerSerializers(serializerRegistry);
-        }
-
         return new CacheBackedTaskHistoryRepository(
             cacheAccess,
-            serializerRegistry.build(FileCollectionSnapshot.class),
+            createFileCollectionSnapshotSerializer(snapshotterRegistry),
+            snapshotStore,
             stringInterner,
             classLoaderHierarchyHasher,
             valueSnapshotter,
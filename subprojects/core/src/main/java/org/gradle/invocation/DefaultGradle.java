@@ -39,6 +39,7 @@ import org.gradle.api.internal.project.CrossProjectConfigurator;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.configuration.ScriptPluginFactory;
+import org.gradle.configuration.project.ProjectConfigurationLocks;
 import org.gradle.execution.TaskGraphExecuter;
 import org.gradle.initialization.ClassLoaderScopeRegistry;
 import org.gradle.internal.MutableActionSet;
@@ -271,21 +272,25 @@ public class DefaultGradle extends AbstractPluginAware implements GradleInternal
 
     @Override
     public void beforeProject(Closure closure) {
+        ProjectConfigurationLocks.assertSupported("Gradle.beforeProject()");
         projectEvaluationListenerBroadcast.add(new ClosureBackedMethodInvocationDispatch("beforeEvaluate", closure));
     }
 
     @Override
     public void beforeProject(Action<? super Project> action) {
+        ProjectConfigurationLocks.assertSupported("Gradle.beforeProject()");
         projectEvaluationListenerBroadcast.add("beforeEvaluate", action);
     }
 
     @Override
     public void afterProject(Closure closure) {
+        ProjectConfigurationLocks.assertSupported("Gradle.afterProject()");
         projectEvaluationListenerBroadcast.add(new ClosureBackedMethodInvocationDispatch("afterEvaluate", closure));
     }
 
     @Override
     public void afterProject(Action<? super Project> action) {
+        ProjectConfigurationLocks.assertSupported("Gradle.afterProject()");
         projectEvaluationListenerBroadcast.add("afterEvaluate", action);
     }
 
@@ -321,11 +326,13 @@ public class DefaultGradle extends AbstractPluginAware implements GradleInternal
 
     @Override
     public void projectsEvaluated(Closure closure) {
+        ProjectConfigurationLocks.assertSupported("Gradle.projectsEvaluated()");
         buildListenerBroadcast.add(new ClosureBackedMethodInvocationDispatch("projectsEvaluated", closure));
     }
 
     @Override
     public void projectsEvaluated(Action<? super Gradle> action) {
+        ProjectConfigurationLocks.assertSupported("Gradle.projectsEvaluated()");
         buildListenerBroadcast.add("projectsEvaluated", action);
     }
 
@@ -51,6 +51,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.gradle.api.internal.AbstractClassGeneratorTestGroovy.BeanWithGroovyBoolean;
 import static org.gradle.util.Matchers.isEmpty;
@@ -123,6 +126,27 @@ public class AsmBackedClassGeneratorTest {
         assertSame(generator.generate(Bean.class), generator.generate(Bean.class));
     }
 
+    @Test
+    public void generatesSubclassOnceWhenUsedConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Class<?>>> results = new ArrayList<Future<Class<?>>>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(new Callable<Class<?>>() {
+                    @Override
+                    public Class<?> call() {
+                        return generator.generate(ConcurrentlyGeneratedBean.class);
+                    }
+                }));
+            }
+            for (Future<Class<?>> result : results) {
+                assertSame(generator.generate(ConcurrentlyGeneratedBean.class), result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void doesNotDecorateAlreadyDecoratedClass() {
         Class<? extends Bean> generatedClass = generator.generate(Bean.class);
@@ -891,6 +915,9 @@ public class AsmBackedClassGeneratorTest {
         }
     }
 
+    public static class ConcurrentlyGeneratedBean extends Bean {
+    }
+
     public static class BeanWithOverriddenMethods extends Bean {
         @Override
         public String getProp() {
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal
+
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher
+import org.gradle.internal.hash.HashCode
+import spock.lang.Specification
+
+class GeneratedClassBytecodeCacheTest extends Specification {
+    def entries = [:]
+    def store = Stub(PersistentIndexedCache) {
+        get(_) >> { HashCode key -> entries[key] }
+        put(_, _) >> { HashCode key, byte[] value -> entries[key] = value }
+    }
+    def classLoaderHierarchyHasher = Stub(ClassLoaderHierarchyHasher)
+    def cache = new GeneratedClassBytecodeCache(store, classLoaderHierarchyHasher)
+
+    def cleanup() {
+        cache.close()
+    }
+
+    def "loads bytecode stored for the same generator, type and class loader hash"() {
+        def bytecode = [1, 2, 3] as byte[]
+        classLoaderHierarchyHasher.getClassLoaderHash(_) >> HashCode.fromInt(123)
+
+        expect:
+        cache.load(AsmBackedClassGenerator, CachedBean) == null
+
+        when:
+        cache.store(AsmBackedClassGenerator, CachedBean, bytecode)
+
+        then:
+        cache.load(AsmBackedClassGenerator, CachedBean) == bytecode
+        cache.load(AbstractClassGenerator, CachedBean) == null
+        cache.hitCount == 1
+        cache.missCount == 2
+    }
+
+    def "does not reuse bytecode when the class loader hash changes"() {
+        classLoaderHierarchyHasher.getClassLoaderHash(_) >>> [HashCode.fromInt(123), HashCode.fromInt(456)]
+
+        when:
+        cache.store(AsmBackedClassGenerator, CachedBean, [1, 2, 3] as byte[])
+
+        then:
+        cache.load(AsmBackedClassGenerator, CachedBean) == null
+    }
+
+    def "does not cache classes whose class loader cannot be hashed"() {
+        classLoaderHierarchyHasher.getClassLoaderHash(_) >> null
+
+        when:
+        cache.store(AsmBackedClassGenerator, CachedBean, [1, 2, 3] as byte[])
+
+        then:
+        entries.isEmpty()
+        cache.load(AsmBackedClassGenerator, CachedBean) == null
+        cache.missCount == 0
+    }
+
+    def "class generator stores the bytecode of classes it generates"() {
+        classLoaderHierarchyHasher.getClassLoaderHash(_) >> HashCode.fromInt(123)
+        def type = new IsolatingClassLoader().loadClass(CachedBean.name)
+
+        when:
+        def generated = new AsmBackedClassGenerator(cache).generate(type)
+
+        then:
+        generated.name == CachedBean.name + "_Decorated"
+        cache.missCount == 1
+        entries.size() == 1
+    }
+
+    def "class generator defines class from bytecode generated for a class that has been discarded"() {
+        classLoaderHierarchyHasher.getClassLoaderHash(_) >> HashCode.fromInt(123)
+        new AsmBackedClassGenerator(cache).generate(new IsolatingClassLoader().loadClass(CachedBean.name))
+
+        when:
+        def classLoader = new IsolatingClassLoader()
+        def generated = new AsmBackedClassGenerator(cache).generate(classLoader.loadClass(CachedBean.name))
+
+        then:
+        generated.classLoader.is(classLoader)
+        generated.name == CachedBean.name + "_Decorated"
+        cache.missCount == 1
+        cache.hitCount == 1
+        entries.size() == 1
+
+        when:
+        def bean = generated.newInstance()
+        bean.prop = "value"
+
+        then:
+        bean.prop == "value"
+        bean.asDynamicObject.getProperty("prop") == "value"
+    }
+
+    def "class generator without cache does not store bytecode"() {
+        classLoaderHierarchyHasher.getClassLoaderHash(_) >> HashCode.fromInt(123)
+
+        when:
+        new AsmBackedClassGenerator().generate(new IsolatingClassLoader().loadClass(CachedBean.name))
+
+        then:
+        entries.isEmpty()
+    }
+
+    static class CachedBean {
+        String prop
+    }
+
+    /**
+     * Defines its own copy of {@link CachedBean}, so that each instance stands in for a class loader of a new process.
+     */
+    static class IsolatingClassLoader extends ClassLoader {
+        IsolatingClassLoader() {
+            super(CachedBean.classLoader)
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name != CachedBean.name) {
+                return super.loadClass(name, resolve)
+            }
+            def loaded = findLoadedClass(name)
+            if (loaded == null) {
+                def bytecode = CachedBean.getResourceAsStream("/${name.replace('.', '/')}.class").bytes
+                loaded = defineClass(name, bytecode, 0, bytecode.length)
+            }
+            return loaded
+        }
+    }
+}
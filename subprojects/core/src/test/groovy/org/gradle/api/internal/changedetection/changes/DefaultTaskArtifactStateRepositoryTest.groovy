@@ -29,6 +29,7 @@ import org.gradle.api.internal.changedetection.state.DefaultFileSystemSnapshotte
 import org.gradle.api.internal.changedetection.state.DefaultGenericFileCollectionSnapshotter
 import org.gradle.api.internal.changedetection.state.DefaultTaskHistoryStore
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot
+import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotStore
 import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory
 import org.gradle.api.internal.changedetection.state.TaskHistoryRepository
 import org.gradle.api.internal.changedetection.state.TaskHistoryStore
@@ -41,6 +42,7 @@ import org.gradle.api.internal.tasks.TaskStateInternal
 import org.gradle.api.internal.tasks.execution.DefaultTaskExecutionContext
 import org.gradle.api.internal.tasks.execution.ResolveTaskArtifactStateTaskExecuter
 import org.gradle.api.internal.tasks.execution.TaskProperties
+import org.gradle.api.internal.tasks.execution.statistics.TaskPhaseTimer
 import org.gradle.api.internal.tasks.properties.PropertyWalker
 import org.gradle.api.tasks.incremental.InputFileDetails
 import org.gradle.cache.CacheRepository
@@ -92,7 +94,9 @@ class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuilderSpec
     DefaultFileSystemMirror fileSystemMirror
     TaskOutputFilesRepository taskOutputFilesRepository = Stub(TaskOutputFilesRepository)
     final originMetadata = new OriginTaskExecutionMetadata(buildScopeId.id, 1)
-    def taskExecutionContext = Mock(TaskExecutionContext)
+    def taskExecutionContext = Mock(TaskExecutionContext) {
+        getPhaseTimer() >> new TaskPhaseTimer()
+    }
 
     def setup() {
         gradle = project.getGradle()
@@ -110,9 +114,11 @@ class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuilderSpec
         SerializerRegistry serializerRegistry = new DefaultSerializerRegistry()
         fileCollectionSnapshotter.registerSerializers(serializerRegistry)
         def snapshotterRegistry = new DefaultFileCollectionSnapshotterRegistry([fileCollectionSnapshotter])
+        def snapshotStore = new FileCollectionSnapshotStore(gradle, cacheRepository, new InMemoryCacheDecoratorFactory(false, cacheFactory), serializerRegistry.build(FileCollectionSnapshot))
         TaskHistoryRepository taskHistoryRepository = new CacheBackedTaskHistoryRepository(
             cacheAccess,
             serializerRegistry.build(FileCollectionSnapshot),
+            snapshotStore,
             stringInterner,
             classLoaderHierarchyHasher,
             TestUtil.valueSnapshotter(),
@@ -390,7 +396,7 @@ class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuilderSpec
         state.isUpToDate([])
         fileSystemMirror.beforeTaskOutputsGenerated()
         outputDirFile.createFile()
-        state.snapshotAfterTaskExecution(null, buildScopeId.id, Mock(TaskExecutionContext))
+        state.snapshotAfterTaskExecution(null, buildScopeId.id, taskExecutionContext)
 
         then:
         !state.upToDate
@@ -409,7 +415,7 @@ class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuilderSpec
         when:
         fileSystemMirror.beforeTaskOutputsGenerated()
         outputDirFile2.createFile()
-        state.snapshotAfterTaskExecution(null, buildScopeId.id, Mock(TaskExecutionContext))
+        state.snapshotAfterTaskExecution(null, buildScopeId.id, taskExecutionContext)
 
         then:
         // Task should be out-of-date
@@ -447,6 +453,42 @@ class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuilderSpec
         upToDate task
     }
 
+    def "is unchanged except for input files when only input files have changed"() {
+        given:
+        execute(task)
+
+        when:
+        inputFile.write("some new content")
+
+        then:
+        getStateFor(task).isUnchangedExceptForInputFiles()
+    }
+
+    def "is not unchanged except for input files when task has never been executed"() {
+        expect:
+        !getStateFor(task).isUnchangedExceptForInputFiles()
+    }
+
+    def "is not unchanged except for input files when an output file has been deleted"() {
+        given:
+        execute(task)
+
+        when:
+        outputFile.delete()
+
+        then:
+        !getStateFor(task).isUnchangedExceptForInputFiles()
+    }
+
+    def "is not unchanged except for input files when an input property has changed"() {
+        when:
+        execute(builder.withProperty("prop", "original value").task())
+
+        then:
+        getStateFor(builder.withProperty("prop", "original value").task()).isUnchangedExceptForInputFiles()
+        !getStateFor(builder.withProperty("prop", "new value").task()).isUnchangedExceptForInputFiles()
+    }
+
     def "has empty task history when task has never been executed"() {
         when:
         TaskArtifactState state = getStateFor(task)
@@ -523,7 +565,7 @@ class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuilderSpec
         execute(task)
         fileSystemMirror.beforeTaskOutputsGenerated()
         otherFile.write("new content")
-        state.snapshotAfterTaskExecution(null, buildScopeId.id, Mock(TaskExecutionContext))
+        state.snapshotAfterTaskExecution(null, buildScopeId.id, taskExecutionContext)
         otherFile.delete()
 
         then:
@@ -539,7 +581,7 @@ class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuilderSpec
         outputDirFile.delete()
         TaskArtifactState state = getStateFor(task)
         state.isUpToDate([])
-        state.snapshotAfterTaskExecution(null, buildScopeId.id, Mock(TaskExecutionContext))
+        state.snapshotAfterTaskExecution(null, buildScopeId.id, taskExecutionContext)
 
         when:
         outputDirFile.write("ignore me")
@@ -18,6 +18,7 @@ package org.gradle.api.internal.changedetection.state
 
 import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.file.collections.FileTreeAdapter
 import org.gradle.api.internal.file.collections.SimpleFileCollection
 import org.gradle.internal.hash.HashCode
 import org.gradle.internal.hash.TestFileHasher
@@ -47,11 +48,13 @@ class DefaultClasspathSnapshotterTest extends Specification {
     def fileSystemSnapshotter = new DefaultFileSystemSnapshotter(fileHasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror)
     InMemoryIndexedCache<HashCode, HashCode> resourceHashesCache = new InMemoryIndexedCache<>(new HashCodeSerializer())
     def cacheService = new ResourceSnapshotterCacheService(resourceHashesCache)
+    def snapshotCache = new ClasspathSnapshotCache()
     def snapshotter = new DefaultClasspathSnapshotter(
         cacheService,
         directoryFileTreeFactory,
         fileSystemSnapshotter,
-        stringInterner)
+        stringInterner,
+        snapshotCache)
 
     def "directories and missing files are ignored"() {
         def emptyDir = file('root/emptyDir').createDir()
@@ -204,8 +207,55 @@ class DefaultClasspathSnapshotterTest extends Specification {
         values == ['f31495fd1bb4b8c3b8fb1f46a68adf9e', '4c54ecab47d005e6862ced54627c6208'] as Set
     }
 
+    def "shares snapshots of identical classpaths until task outputs are generated"() {
+        def jar = file('library.jar')
+        file('zipContents').create {
+            file('firstFile.txt').text = "Some text"
+        }.zipTo(jar)
+        def classes = file('classes').create {
+            file('thirdFile.txt').text = "Third file"
+        }
+
+        when:
+        def first = snapshotter.snapshot(files(jar, classes), null, InputNormalizationStrategy.NOT_CONFIGURED)
+        def second = snapshotter.snapshot(files(jar, classes), null, InputNormalizationStrategy.NOT_CONFIGURED)
+        def reordered = snapshotter.snapshot(files(classes, jar), null, InputNormalizationStrategy.NOT_CONFIGURED)
+
+        then:
+        second.is(first)
+        !reordered.is(first)
+        snapshotCache.hitCount == 1
+
+        when:
+        snapshotCache.beforeTaskOutputsGenerated()
+        def afterOutputsGenerated = snapshotter.snapshot(files(jar, classes), null, InputNormalizationStrategy.NOT_CONFIGURED)
+
+        then:
+        !afterOutputsGenerated.is(first)
+        afterOutputsGenerated.snapshots == first.snapshots
+        snapshotCache.hitCount == 1
+    }
+
+    def "does not share snapshots of classpaths containing file trees"() {
+        def classes = file('classes').create {
+            file('thirdFile.txt').text = "Third file"
+        }
+
+        def tree = new FileTreeAdapter(directoryFileTreeFactory.create(classes))
+
+        when:
+        def first = snapshotter.snapshot(tree, null, InputNormalizationStrategy.NOT_CONFIGURED)
+        def second = snapshotter.snapshot(tree, null, InputNormalizationStrategy.NOT_CONFIGURED)
+
+        then:
+        !second.is(first)
+        second.snapshots == first.snapshots
+        snapshotCache.hitCount == 0
+    }
+
     def snapshot(TestFile... classpath) {
         fileSystemMirror.beforeTaskOutputsGenerated()
+        snapshotCache.beforeTaskOutputsGenerated()
         def fileCollectionSnapshot = snapshotter.snapshot(files(classpath), null, InputNormalizationStrategy.NOT_CONFIGURED)
         return fileCollectionSnapshot.snapshots.collect { String path, NormalizedFileSnapshot normalizedFileSnapshot ->
             [new File(path).getName(), normalizedFileSnapshot.normalizedPath, normalizedFileSnapshot.snapshot.toString()]
@@ -18,7 +18,12 @@ package org.gradle.api.internal.changedetection.state
 
 import org.gradle.BuildResult
 import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.file.FileSystemSubset
 import org.gradle.internal.classpath.CachedJarFileStore
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherEvent
+import org.gradle.internal.filewatch.FileWatcherFactory
+import org.gradle.internal.filewatch.FileWatcherListener
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -141,4 +146,236 @@ class DefaultFileSystemMirrorTest extends Specification {
         mirror.getDirectoryTree(file.path) == null
         mirror.getContent(file.path) == null
     }
+
+    def "retains state inside watched directory trees between builds"() {
+        def watcher = Mock(FileWatcher)
+        def retainingMirror = retainingMirror(watcher)
+        def dir = tmpDir.file("dir")
+        def file = dir.file("a")
+        def fileSnapshot = fileSnapshot(file)
+        def treeSnapshot = treeSnapshot(dir)
+
+        when:
+        retainingMirror.putFile(fileSnapshot)
+        retainingMirror.putDirectory(treeSnapshot)
+        retainingMirror.beforeComplete()
+
+        then:
+        1 * watcher.watch({ FileSystemSubset subset -> (subset.roots as Set) == [markerDir, dir] as Set })
+        _ * watcher.isRunning() >> true
+
+        and:
+        retainingMirror.getFile(file.path) == null
+        retainingMirror.getDirectoryTree(dir.path) == null
+
+        when:
+        retainingMirror.afterStart()
+        retainingMirror.putFile(fileSnapshot)
+        retainingMirror.putDirectory(treeSnapshot)
+        retainingMirror.beforeComplete()
+        retainingMirror.afterStart()
+
+        then:
+        0 * watcher.watch(_)
+        _ * watcher.isRunning() >> true
+
+        and:
+        retainingMirror.getFile(file.path) == fileSnapshot
+        retainingMirror.getDirectoryTree(dir.path) == treeSnapshot
+    }
+
+    def "does not watch or retain state about files outside of watched directory trees"() {
+        def watcher = Mock(FileWatcher)
+        def retainingMirror = retainingMirror(watcher)
+        def file = tmpDir.file("a")
+
+        when:
+        watchAndRetain(retainingMirror, fileSnapshot(file))
+
+        then:
+        0 * watcher.watch(_)
+
+        and:
+        retainingMirror.getFile(file.path) == null
+    }
+
+    def "discards retained state for changed locations and their ancestor trees"() {
+        def watcher = Stub(FileWatcher) {
+            isRunning() >> true
+        }
+        def retainingMirror = retainingMirror(watcher)
+        def dir = tmpDir.file("dir")
+        def changed = dir.file("sub/changed")
+        def unchanged = dir.file("unchanged")
+        def otherDir = tmpDir.file("other")
+
+        given:
+        watchAndRetain(retainingMirror, fileSnapshot(changed), fileSnapshot(unchanged), treeSnapshot(dir), treeSnapshot(otherDir))
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.modify(changed))
+        retainingMirror.afterStart()
+
+        then:
+        retainingMirror.getFile(changed.path) == null
+        retainingMirror.getDirectoryTree(dir.path) == null
+        retainingMirror.getFile(unchanged.path) != null
+        retainingMirror.getDirectoryTree(otherDir.path) != null
+    }
+
+    def "discards all retained state when changes may have been missed"() {
+        def watcher = Stub(FileWatcher) {
+            isRunning() >> true
+        }
+        def retainingMirror = retainingMirror(watcher)
+        def dir = tmpDir.file("dir")
+
+        given:
+        watchAndRetain(retainingMirror, treeSnapshot(dir))
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.undefined())
+        retainingMirror.afterStart()
+
+        then:
+        retainingMirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "discards all retained state when watcher does not confirm that all changes have been received"() {
+        def watcher = Stub(FileWatcher) {
+            isRunning() >> true
+        }
+        def retainingMirror = retainingMirror(watcher)
+        def dir = tmpDir.file("dir")
+
+        given:
+        watchAndRetain(retainingMirror, treeSnapshot(dir))
+
+        when:
+        reportMarkers = false
+        retainingMirror.afterStart()
+
+        then:
+        retainingMirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "discards all retained state when watcher has stopped"() {
+        def running = true
+        def watcher = Stub(FileWatcher) {
+            isRunning() >> { running }
+        }
+        def retainingMirror = retainingMirror(watcher)
+        def dir = tmpDir.file("dir")
+
+        given:
+        watchAndRetain(retainingMirror, treeSnapshot(dir))
+
+        when:
+        running = false
+        retainingMirror.afterStart()
+
+        then:
+        retainingMirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "stops watching the directory trees of previous builds when too many directory trees are watched"() {
+        def watcher = Mock(FileWatcher)
+        watcher.isRunning() >> true
+        def retainingMirror = retainingMirror(watcher)
+        def dir = tmpDir.file("dir")
+        def otherDirs = (1..FileWatchingChangeTracker.MAX_WATCHED_ROOTS).collect { treeSnapshot(tmpDir.file("other/dir$it")) }
+
+        given:
+        watchAndRetain(retainingMirror, treeSnapshot(dir))
+
+        when:
+        otherDirs.each { retainingMirror.putDirectory(it) }
+        retainingMirror.beforeComplete()
+
+        then:
+        1 * watcher.stop()
+        1 * watcher.watch({ FileSystemSubset subset -> subset.roots.size() == FileWatchingChangeTracker.MAX_WATCHED_ROOTS + 1 })
+
+        and:
+        retainingMirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "stops watcher and removes marker directory when stopped"() {
+        def watcher = Mock(FileWatcher)
+        def retainingMirror = retainingMirror(watcher)
+
+        given:
+        retainingMirror.putDirectory(treeSnapshot(tmpDir.file("dir")))
+        retainingMirror.beforeComplete()
+
+        when:
+        retainingMirror.stop()
+
+        then:
+        1 * watcher.stop()
+        !markerDir.exists()
+    }
+
+    FileWatcherListener listener
+    TestFile markerDir
+    volatile boolean reportMarkers = true
+    Thread markerReporter
+
+    def cleanup() {
+        markerReporter?.interrupt()
+        markerReporter?.join()
+    }
+
+    private DefaultFileSystemMirror retainingMirror(FileWatcher watcher) {
+        markerDir = tmpDir.file("markers")
+        def watcherFactory = Stub(FileWatcherFactory) {
+            watch(_, _) >> { onError, FileWatcherListener watcherListener ->
+                listener = watcherListener
+                watcher
+            }
+        }
+        // Reports the marker files, like a watcher of the marker directory would
+        markerReporter = Thread.start {
+            def reported = [] as Set
+            try {
+                while (true) {
+                    markerDir.listFiles()?.each { File marker ->
+                        if (reportMarkers && reported.add(marker)) {
+                            listener.onChange(watcher, FileWatcherEvent.create(marker))
+                        }
+                    }
+                    Thread.sleep(5)
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            }
+        }
+        return new DefaultFileSystemMirror([], watcherFactory, markerDir)
+    }
+
+    private static void watchAndRetain(DefaultFileSystemMirror mirror, Object... snapshots) {
+        2.times {
+            mirror.afterStart()
+            snapshots.each {
+                if (it instanceof FileTreeSnapshot) {
+                    mirror.putDirectory(it)
+                } else {
+                    mirror.putFile(it as FileSnapshot)
+                }
+            }
+            mirror.beforeComplete()
+        }
+    }
+
+    private FileSnapshot fileSnapshot(File file) {
+        return Stub(FileSnapshot) {
+            getPath() >> file.path
+        }
+    }
+
+    private FileTreeSnapshot treeSnapshot(File dir) {
+        return Stub(FileTreeSnapshot) {
+            getPath() >> dir.path
+        }
+    }
 }
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state
+
+import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableSortedMap
+import com.google.common.collect.ImmutableSortedSet
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.tasks.OriginTaskExecutionMetadata
+import org.gradle.api.invocation.Gradle
+import org.gradle.cache.internal.CacheScopeMapping
+import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory
+import org.gradle.cache.internal.DefaultCacheRepository
+import org.gradle.internal.event.DefaultListenerManager
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.id.UniqueId
+import org.gradle.internal.serialize.SerializerSpec
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.testfixtures.internal.InMemoryCacheFactory
+import org.junit.Rule
+
+import static org.gradle.api.internal.changedetection.state.TaskFilePropertyCompareStrategy.UNORDERED
+
+class FileCollectionSnapshotStoreTest extends SerializerSpec {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def stringInterner = new StringInterner()
+    def snapshotSerializer = new DefaultFileCollectionSnapshot.SerializerImpl(stringInterner)
+    def cacheFactory = new InMemoryCacheFactory()
+    FileCollectionSnapshotStore store
+
+    def setup() {
+        store = createStore()
+    }
+
+    def "stores identical snapshots once"() {
+        when:
+        store.retain([snapshot("/a", "a", "foo")])
+        store.retain([snapshot("/a", "a", "foo")])
+
+        then:
+        store.keyOf(snapshot("/a", "a", "foo")) == store.keyOf(snapshot("/a", "a", "foo"))
+        store.load(store.keyOf(snapshot("/a", "a", "foo"))).snapshots.keySet() == ["/a"] as Set
+    }
+
+    def "stores snapshots with the same normalized content but different locations separately"() {
+        def snapshot1 = snapshot("/a/file", "file", "foo")
+        def snapshot2 = snapshot("/b/file", "file", "foo")
+
+        when:
+        store.retain([snapshot1, snapshot2])
+
+        then:
+        snapshot1.hash == snapshot2.hash
+        store.keyOf(snapshot1) != store.keyOf(snapshot2)
+        store.load(store.keyOf(snapshot1)).snapshots.keySet() == ["/a/file"] as Set
+        store.load(store.keyOf(snapshot2)).snapshots.keySet() == ["/b/file"] as Set
+    }
+
+    def "stores snapshots whose elements with the same normalized path swapped contents separately"() {
+        def snapshot1 = snapshot(["/a/file": "foo", "/b/file": "bar"], "file")
+        def snapshot2 = snapshot(["/a/file": "bar", "/b/file": "foo"], "file")
+
+        when:
+        store.retain([snapshot1, snapshot2])
+
+        then:
+        snapshot1.hash == snapshot2.hash
+        store.keyOf(snapshot1) != store.keyOf(snapshot2)
+        store.load(store.keyOf(snapshot2)).snapshots["/a/file"].snapshot.contentMd5 == Hashing.md5().hashString("bar")
+    }
+
+    def "removes snapshot once it is no longer referenced"() {
+        def snapshot = snapshot("/a", "a", "foo")
+        def key = store.keyOf(snapshot)
+        store.retain([snapshot])
+        store.retain([snapshot("/a", "a", "foo")])
+
+        when:
+        store.release([snapshot])
+
+        then:
+        store.load(key) != null
+
+        when:
+        store.release([snapshot("/a", "a", "foo")])
+
+        then:
+        store.load(key) == null
+
+        when:
+        store.release([snapshot])
+        store.retain([snapshot])
+
+        then:
+        store.load(key) != null
+    }
+
+    def "keeps snapshots shared with replacing entry"() {
+        def classpath = snapshot("/lib.jar", "lib.jar", "lib")
+        def oldOutput = snapshot("/out", "out", "old")
+        def newOutput = snapshot("/out", "out", "new")
+        store.retain([classpath, oldOutput])
+
+        when:
+        store.retain([classpath, newOutput])
+        store.release([classpath, oldOutput])
+
+        then:
+        store.load(store.keyOf(classpath)) != null
+        store.load(store.keyOf(newOutput)) != null
+        store.load(store.keyOf(oldOutput)) == null
+    }
+
+    def "releasing a missing snapshot has no effect"() {
+        def snapshot = FileCollectionSnapshot.EMPTY
+        store.retain([snapshot])
+
+        when:
+        store.release([FileCollectionSnapshotStore.MISSING])
+
+        then:
+        store.load(store.keyOf(snapshot)) != null
+    }
+
+    def "returns null for unknown snapshot"() {
+        expect:
+        store.load(HashCode.fromInt(1234)) == null
+    }
+
+    def "task history entries refer to stored snapshots"() {
+        def serializer = new TaskExecutionSnapshotSerializer(stringInterner, store)
+        def classpath = snapshot("/lib.jar", "lib.jar", "lib")
+        def output = snapshot("/out", "out", "out")
+        store.retain([classpath, output, FileCollectionSnapshot.EMPTY])
+
+        when:
+        def execution = serialize(execution([classpath: classpath], [output: output]), serializer)
+
+        then:
+        execution.successful
+        execution.inputFilesSnapshot.classpath.snapshots.keySet() == ["/lib.jar"] as Set
+        execution.outputFilesSnapshot.output.snapshots.keySet() == ["/out"] as Set
+
+        and:
+        toBytes(execution([classpath: classpath], [:]), serializer).length < toBytes(execution([classpath: classpath], [:]), new TaskExecutionSnapshotSerializer(stringInterner, snapshotSerializer)).length
+    }
+
+    def "treats task history entry as unsuccessful when its snapshots are no longer available"() {
+        def classpath = snapshot("/lib.jar", "lib.jar", "lib")
+        store.retain([classpath, FileCollectionSnapshot.EMPTY])
+        def bytes = toBytes(execution([classpath: classpath], [:]), new TaskExecutionSnapshotSerializer(stringInterner, store))
+
+        when:
+        def execution = fromBytes(bytes, new TaskExecutionSnapshotSerializer(stringInterner, createStore(new InMemoryCacheFactory())))
+
+        then:
+        !execution.successful
+        execution.inputFilesSnapshot.classpath.empty
+        execution.discoveredInputFilesSnapshot.empty
+    }
+
+    private FileCollectionSnapshotStore createStore(InMemoryCacheFactory factory = cacheFactory) {
+        def mapping = Stub(CacheScopeMapping) {
+            getBaseDirectory(_, _, _) >> tmpDir.createDir("snapshots")
+        }
+        def decoratorFactory = new InMemoryCacheDecoratorFactory(false, new CrossBuildInMemoryCacheFactory(new DefaultListenerManager()))
+        return new FileCollectionSnapshotStore(Stub(Gradle), new DefaultCacheRepository(mapping, factory), decoratorFactory, snapshotSerializer)
+    }
+
+    private static FileCollectionSnapshot snapshot(String path, String normalizedPath, String content) {
+        snapshot([(path): content], normalizedPath)
+    }
+
+    private static FileCollectionSnapshot snapshot(Map<String, String> contents, String normalizedPath) {
+        def snapshots = contents.collectEntries { path, content ->
+            [(path): new DefaultNormalizedFileSnapshot(normalizedPath, new FileHashSnapshot(Hashing.md5().hashString(content)))]
+        } as Map<String, NormalizedFileSnapshot>
+        new DefaultFileCollectionSnapshot(snapshots, UNORDERED, true)
+    }
+
+    private static HistoricalTaskExecution execution(Map<String, FileCollectionSnapshot> inputs, Map<String, FileCollectionSnapshot> outputs) {
+        new HistoricalTaskExecution(
+            new ImplementationSnapshot("SomeTask", HashCode.fromInt(1)),
+            ImmutableList.of(),
+            ImmutableSortedMap.of(),
+            ImmutableSortedSet.of(),
+            ImmutableSortedMap.copyOf(inputs),
+            FileCollectionSnapshot.EMPTY,
+            ImmutableSortedMap.copyOf(outputs),
+            true,
+            new OriginTaskExecutionMetadata(UniqueId.generate(), 1)
+        )
+    }
+}
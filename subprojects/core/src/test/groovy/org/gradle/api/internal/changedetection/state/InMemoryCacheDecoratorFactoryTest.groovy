@@ -16,14 +16,23 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableSortedMap
+import com.google.common.collect.ImmutableSortedSet
+import org.gradle.api.internal.tasks.OriginTaskExecutionMetadata
 import org.gradle.cache.AsyncCacheAccess
 import org.gradle.cache.CrossProcessCacheAccess
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache
 import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory
 import org.gradle.internal.Factory
 import org.gradle.internal.event.DefaultListenerManager
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.id.UniqueId
 import spock.lang.Specification
 
+import static org.gradle.api.internal.changedetection.state.TaskFilePropertyCompareStrategy.UNORDERED
+
 class InMemoryCacheDecoratorFactoryTest extends Specification {
     def cacheFactory = new InMemoryCacheDecoratorFactory(false, new CrossBuildInMemoryCacheFactory(new DefaultListenerManager()))
     def target = Mock(MultiProcessSafePersistentIndexedCache)
@@ -202,4 +211,94 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
         0 * target._
     }
 
+    def "records statistics of in-memory caches"() {
+        given:
+        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+        crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        target.get("key") >> "result"
+
+        when:
+        cache.get("key")
+        cache.get("key")
+        cache.get("key")
+
+        then:
+        def statistics = cacheFactory.statistics.find { it.cacheId == "path/fileSnapshots.bin" }
+        statistics.entryCount == 1
+        statistics.hitCount == 2
+        statistics.missCount == 1
+        statistics.evictionCount == 0
+        statistics.weight == InMemoryCacheEntryWeigher.weigh("key", "result")
+    }
+
+    def "discards entries from caches with the lowest hit rate when heap budget is exceeded"() {
+        def entryWeight = InMemoryCacheEntryWeigher.weigh("key-00", "value-00")
+        def factory = new InMemoryCacheDecoratorFactory(false, new CrossBuildInMemoryCacheFactory(new DefaultListenerManager()), 10 * entryWeight)
+        def crossProcessCacheAccess = Stub(CrossProcessCacheAccess) {
+            withFileLock(_) >> { Factory task -> task.create() }
+            acquireFileLock() >> Stub(Runnable)
+        }
+        def asyncCacheAccess = Stub(AsyncCacheAccess) {
+            read(_) >> { Factory task -> task.create() }
+            enqueue(_) >> { Runnable action -> action.run() }
+        }
+        def hotCache = factory.decorator(100, true).decorate("path/hot.bin", "hot", Stub(MultiProcessSafePersistentIndexedCache), crossProcessCacheAccess, asyncCacheAccess)
+        def coldCache = factory.decorator(100, true).decorate("path/cold.bin", "cold", Stub(MultiProcessSafePersistentIndexedCache), crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        (0..2).each { hotCache.put(key(it), value(it)) }
+        5.times { (0..2).each { hotCache.get(key(it)) } }
+        (0..19).each { coldCache.put(key(it), value(it)) }
+
+        then:
+        def hot = factory.statistics.find { it.cacheId == "path/hot.bin" }
+        def cold = factory.statistics.find { it.cacheId == "path/cold.bin" }
+        hot.entryCount == 3
+        hot.evictionCount == 0
+        cold.entryCount < 20
+        cold.evictionCount == 20 - cold.entryCount
+        hot.weight + cold.weight <= factory.maxWeight
+
+        and:
+        (0..2).every { hotCache.get(key(it)) == value(it) }
+    }
+
+    def "weighs task executions without the file collection snapshots they reference"() {
+        def smallSnapshot = snapshot(1)
+        def largeSnapshot = snapshot(100)
+
+        expect:
+        InMemoryCacheEntryWeigher.weigh("key", largeSnapshot) > InMemoryCacheEntryWeigher.weigh("key", smallSnapshot)
+        InMemoryCacheEntryWeigher.weigh(":task", execution(largeSnapshot)) == InMemoryCacheEntryWeigher.weigh(":task", execution(smallSnapshot))
+    }
+
+    private static FileCollectionSnapshot snapshot(int fileCount) {
+        def snapshots = (1..fileCount).collectEntries { index ->
+            [("/file" + index): new DefaultNormalizedFileSnapshot("file" + index, new FileHashSnapshot(Hashing.md5().hashString("content" + index)))]
+        } as Map<String, NormalizedFileSnapshot>
+        return new DefaultFileCollectionSnapshot(snapshots, UNORDERED, true)
+    }
+
+    private static HistoricalTaskExecution execution(FileCollectionSnapshot snapshot) {
+        return new HistoricalTaskExecution(
+            new ImplementationSnapshot("SomeTask", HashCode.fromInt(1)),
+            ImmutableList.of(),
+            ImmutableSortedMap.of(),
+            ImmutableSortedSet.of(),
+            ImmutableSortedMap.of("input", snapshot),
+            snapshot,
+            ImmutableSortedMap.of("output", snapshot),
+            true,
+            new OriginTaskExecutionMetadata(UniqueId.generate(), 1)
+        )
+    }
+
+    private static String key(int index) {
+        return String.format("key-%02d", index)
+    }
+
+    private static String value(int index) {
+        return String.format("value-%02d", index)
+    }
 }
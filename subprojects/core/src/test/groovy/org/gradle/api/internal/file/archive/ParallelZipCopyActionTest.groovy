@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.archive
+
+import org.apache.tools.zip.ZipOutputStream
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.DocumentationRegistry
+import org.gradle.api.internal.file.CopyActionProcessingStreamAction
+import org.gradle.api.internal.file.copy.CopyAction
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream
+import org.gradle.api.internal.file.copy.DefaultZipCompressor
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ParallelismConfigurationManagerFixture
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService
+import org.gradle.internal.work.DefaultWorkerLeaseService
+import org.gradle.internal.work.WorkerLeaseService
+import org.gradle.test.fixtures.archive.ZipTestFixture
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static org.hamcrest.Matchers.equalTo
+
+class ParallelZipCopyActionTest extends Specification {
+
+    @Rule
+    public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def executorFactory = new DefaultExecutorFactory()
+    def workerLeaseServices = []
+    TestFile zipFile = tmpDir.testDirectory.file("test.zip")
+
+    def cleanup() {
+        executorFactory.stop()
+        workerLeaseServices*.stop()
+    }
+
+    @Unroll
+    def "creates #method ZIP file"() {
+        given:
+        zip(action(zipFile, method, 4), dir("dir"), file("dir/file1"), file("file2"))
+
+        when:
+        TestFile expandDir = tmpDir.testDirectory.file("expanded")
+        zipFile.unzipTo(expandDir)
+
+        then:
+        expandDir.file("dir/file1").assertContents(equalTo("contents of dir/file1"))
+        expandDir.file("file2").assertContents(equalTo("contents of file2"))
+
+        where:
+        method << [ZipOutputStream.STORED, ZipOutputStream.DEFLATED]
+    }
+
+    def "writes entries in visiting order"() {
+        given:
+        def entries = (1..200).collect { file("file$it") } + [largeFile("large"), dir("dir"), file("dir/last")]
+
+        when:
+        zip(action(zipFile, ZipOutputStream.DEFLATED, 4), entries as FileCopyDetailsInternal[])
+
+        then:
+        new ZipTestFixture(zipFile).hasDescendantsInOrder(((1..200).collect { "file$it" } + ["large", "dir/last"]) as String[])
+    }
+
+    def "produced archive does not depend on number of threads"() {
+        given:
+        def single = tmpDir.testDirectory.file("single.zip")
+        def parallel = tmpDir.testDirectory.file("parallel.zip")
+        def entries = [dir("dir")] + (1..100).collect { file("dir/file$it") } + [largeFile("large")]
+
+        when:
+        zip(action(single, ZipOutputStream.DEFLATED, 1), entries as FileCopyDetailsInternal[])
+        zip(action(parallel, ZipOutputStream.DEFLATED, 8), entries as FileCopyDetailsInternal[])
+
+        then:
+        single.bytes == parallel.bytes
+    }
+
+    @Unroll
+    def "produces same #method archive as sequential action"() {
+        given:
+        def sequential = tmpDir.testDirectory.file("sequential.zip")
+        def parallel = tmpDir.testDirectory.file("parallel.zip")
+        def entries = [dir("dir")] + (1..100).collect { file("dir/file$it") } + [largeFile("large"), fileOfUnknownSize("unknown"), file("last")]
+
+        when:
+        zip(new ZipCopyAction(sequential, new DefaultZipCompressor(false, method), new DocumentationRegistry(), 'UTF-8', false), entries as FileCopyDetailsInternal[])
+        zip(action(parallel, method, 4), entries as FileCopyDetailsInternal[])
+
+        then:
+        sequential.bytes == parallel.bytes
+
+        where:
+        method << [ZipOutputStream.STORED, ZipOutputStream.DEFLATED]
+    }
+
+    def "writes file of unknown size directly"() {
+        when:
+        zip(action(zipFile, ZipOutputStream.DEFLATED, 2), file("file1"), fileOfUnknownSize("unknown"), file("file2"))
+
+        then:
+        def zipFixture = new ZipTestFixture(zipFile)
+        zipFixture.hasDescendantsInOrder("file1", "unknown", "file2")
+        zipFixture.assertFileContent("unknown", "contents of unknown")
+    }
+
+    def "zip file contains expected permissions"() {
+        given:
+        zip(action(zipFile, ZipOutputStream.DEFLATED, 2), dir("dir"), file("file"))
+
+        expect:
+        def zipFixture = new ZipTestFixture(zipFile)
+        zipFixture.assertFileMode("dir/", 2)
+        zipFixture.assertFileMode("file", 1)
+    }
+
+    def "wraps failure to add element"() {
+        given:
+        Throwable failure = new RuntimeException("broken")
+        def brokenFile = brokenFile("dir/file1", failure)
+
+        when:
+        zip(action(zipFile, ZipOutputStream.DEFLATED, 2), file("file1"), brokenFile)
+
+        then:
+        def e = thrown(Exception)
+        e.message == String.format("Could not add $brokenFile to ZIP '%s'.", zipFile)
+        e.cause.is(failure)
+    }
+
+    private ParallelZipCopyAction action(File zipFile, int method, int maxWorkers) {
+        WorkerLeaseService workerLeaseService = new DefaultWorkerLeaseService(new DefaultResourceLockCoordinationService(), new ParallelismConfigurationManagerFixture(false, maxWorkers))
+        workerLeaseServices << workerLeaseService
+        new ParallelZipCopyAction(zipFile, false, method, new DocumentationRegistry(), 'UTF-8', false, executorFactory, workerLeaseService)
+    }
+
+    private static void zip(CopyAction action, final FileCopyDetailsInternal... files) {
+        action.execute(new CopyActionProcessingStream() {
+            void process(CopyActionProcessingStreamAction streamAction) {
+                for (FileCopyDetailsInternal f : files) {
+                    streamAction.processFile(f)
+                }
+            }
+        })
+    }
+
+    private FileCopyDetailsInternal file(final String path) {
+        def content = "contents of $path"
+        def mock = Stub(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(false, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> false
+        mock.getMode() >> 1
+        mock.getSize() >> content.length()
+        mock.copyTo(_ as OutputStream) >> { OutputStream out ->
+            out << content
+        }
+        mock
+    }
+
+    private FileCopyDetailsInternal largeFile(final String path) {
+        def mock = Stub(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(false, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> false
+        mock.getMode() >> 1
+        // Pretend to be large, so that the entry is not buffered
+        mock.getSize() >> ParallelZipCopyAction.MAX_BUFFERED_ENTRY_SIZE + 1
+        mock.copyTo(_ as OutputStream) >> { OutputStream out ->
+            out << "contents of $path"
+        }
+        mock
+    }
+
+    private FileCopyDetailsInternal fileOfUnknownSize(final String path) {
+        def mock = Stub(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(false, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> false
+        mock.getMode() >> 1
+        mock.getSize() >> -1L
+        mock.copyTo(_ as OutputStream) >> { OutputStream out ->
+            out << "contents of $path"
+        }
+        mock
+    }
+
+    private FileCopyDetailsInternal dir(final String path) {
+        def mock = Stub(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(false, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> true
+        mock.getMode() >> 2
+        mock
+    }
+
+    private FileCopyDetailsInternal brokenFile(final String path, final Throwable failure) {
+        def mock = Stub(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(false, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> false
+        mock.getMode() >> 1
+        mock.copyTo(_ as OutputStream) >> { OutputStream out ->
+            failure.fillInStackTrace()
+            throw failure
+        }
+        mock
+    }
+}
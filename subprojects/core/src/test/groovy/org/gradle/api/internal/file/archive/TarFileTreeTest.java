@@ -15,20 +15,30 @@
  */
 package org.gradle.api.internal.file.archive;
 
+import org.apache.commons.io.IOUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.file.MaybeCompressedFileResource;
 import org.gradle.api.internal.file.TestFiles;
 import org.gradle.api.resources.MissingResourceException;
 import org.gradle.api.resources.internal.LocalResourceAdapter;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.StreamHasher;
 import org.gradle.test.fixtures.file.TestFile;
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider;
 import org.gradle.util.Resources;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.gradle.api.file.FileVisitorUtil.*;
@@ -36,7 +46,9 @@ import static org.gradle.api.internal.file.TestFiles.*;
 import static org.gradle.api.tasks.AntBuilderAwareUtil.assertSetContainsForAllTypes;
 import static org.gradle.util.WrapUtil.toList;
 import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class TarFileTreeTest {
@@ -45,7 +57,8 @@ public class TarFileTreeTest {
     private final TestFile tarFile = tmpDir.getTestDirectory().file("test.tar");
     private final TestFile rootDir = tmpDir.getTestDirectory().file("root");
     private final TestFile expandDir = tmpDir.getTestDirectory().file("tmp");
-    private final TarFileTree tree = new TarFileTree(tarFile, new MaybeCompressedFileResource(new LocalResourceAdapter(TestFiles.fileRepository().localResource(tarFile))), expandDir, fileSystem(), fileSystem(), directoryFileTreeFactory(), streamHasher());
+    private final CountingStreamHasher hasher = new CountingStreamHasher(streamHasher());
+    private final TarFileTree tree = new TarFileTree(tarFile, new MaybeCompressedFileResource(new LocalResourceAdapter(TestFiles.fileRepository().localResource(tarFile))), expandDir, fileSystem(), fileSystem(), directoryFileTreeFactory(), hasher);
 
     @Test
     public void displayName() {
@@ -170,4 +183,63 @@ public class TarFileTreeTest {
         assertVisits(tree, toList("file1.txt"), new ArrayList<String>());
         content.assertHasNotChangedSince(snapshot);
     }
+
+    @Test
+    public void doesNotExpandArchiveWhenOnlyContentIsRead() {
+        rootDir.file("subdir/file1.txt").write("content");
+        rootDir.tarTo(tarFile);
+
+        final List<String> content = new ArrayList<String>();
+        tree.visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                try {
+                    content.add(IOUtils.toString(fileDetails.open()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+
+        assertThat(content, equalTo(toList("content")));
+        assertThat(hasher.count, equalTo(0));
+        assertFalse(expandDir.exists());
+    }
+
+    @Test
+    public void expandsFileWhenRequested() {
+        rootDir.file("subdir/file1.txt").write("content");
+        rootDir.tarTo(tarFile);
+
+        tree.visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                assertThat(new TestFile(fileDetails.getFile()).getText(), equalTo("content"));
+            }
+        });
+
+        assertThat(hasher.count, equalTo(1));
+        assertTrue(expandDir.exists());
+    }
+
+    private static class CountingStreamHasher implements StreamHasher {
+        private final StreamHasher delegate;
+        private int count;
+
+        CountingStreamHasher(StreamHasher delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HashCode hash(InputStream inputStream) {
+            count++;
+            return delegate.hash(inputStream);
+        }
+
+        @Override
+        public HashCode hashCopy(InputStream inputStream, OutputStream outputStream) throws IOException {
+            count++;
+            return delegate.hashCopy(inputStream, outputStream);
+        }
+    }
 }
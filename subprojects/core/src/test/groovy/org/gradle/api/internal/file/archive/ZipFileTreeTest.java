@@ -15,16 +15,27 @@
  */
 package org.gradle.api.internal.file.archive;
 
+import org.apache.commons.io.IOUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.internal.file.FileMetadataSnapshot;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
 import org.gradle.test.fixtures.file.TestFile;
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider;
 import org.gradle.util.Resources;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.gradle.api.file.FileVisitorUtil.*;
@@ -32,7 +43,9 @@ import static org.gradle.api.internal.file.TestFiles.*;
 import static org.gradle.api.tasks.AntBuilderAwareUtil.assertSetContainsForAllTypes;
 import static org.gradle.util.WrapUtil.toList;
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class ZipFileTreeTest {
@@ -41,7 +54,8 @@ public class ZipFileTreeTest {
     private final TestFile zipFile = tmpDir.getTestDirectory().file("test.zip");
     private final TestFile rootDir = tmpDir.getTestDirectory().file("root");
     private final TestFile expandDir = tmpDir.getTestDirectory().file("tmp");
-    private final ZipFileTree tree = new ZipFileTree(zipFile, expandDir, fileSystem(), directoryFileTreeFactory(), fileHasher());
+    private final CountingFileHasher hasher = new CountingFileHasher(fileHasher());
+    private final ZipFileTree tree = new ZipFileTree(zipFile, expandDir, fileSystem(), directoryFileTreeFactory(), hasher);
 
     @Test
     public void displayName() {
@@ -135,4 +149,69 @@ public class ZipFileTreeTest {
         assertVisits(tree, toList("file1.txt"), new ArrayList<String>());
         content.assertHasNotChangedSince(snapshot);
     }
+
+    @Test
+    public void doesNotExpandArchiveWhenOnlyContentIsRead() {
+        rootDir.file("subdir/file1.txt").write("content");
+        rootDir.zipTo(zipFile);
+
+        final List<String> content = new ArrayList<String>();
+        tree.visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                try {
+                    content.add(IOUtils.toString(fileDetails.open()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+
+        assertThat(content, equalTo(toList("content")));
+        assertThat(hasher.count, equalTo(0));
+        assertFalse(expandDir.exists());
+    }
+
+    @Test
+    public void expandsFileWhenRequested() {
+        rootDir.file("subdir/file1.txt").write("content");
+        rootDir.zipTo(zipFile);
+
+        tree.visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                assertThat(new TestFile(fileDetails.getFile()).getText(), equalTo("content"));
+            }
+        });
+
+        assertThat(hasher.count, equalTo(1));
+        assertTrue(expandDir.exists());
+    }
+
+    private static class CountingFileHasher implements FileHasher {
+        private final FileHasher delegate;
+        private int count;
+
+        CountingFileHasher(FileHasher delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HashCode hash(File file) {
+            count++;
+            return delegate.hash(file);
+        }
+
+        @Override
+        public HashCode hash(FileTreeElement fileDetails) {
+            count++;
+            return delegate.hash(fileDetails);
+        }
+
+        @Override
+        public HashCode hash(File file, FileMetadataSnapshot fileDetails) {
+            count++;
+            return delegate.hash(file, fileDetails);
+        }
+    }
 }
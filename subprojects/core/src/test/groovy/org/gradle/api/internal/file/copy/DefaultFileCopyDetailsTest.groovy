@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.copy
+
+import org.gradle.api.Transformer
+import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.file.DefaultFileVisitDetails
+import org.gradle.internal.nativeintegration.filesystem.Chmod
+import org.gradle.internal.nativeintegration.filesystem.Stat
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicBoolean
+
+class DefaultFileCopyDetailsTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def specResolver = Stub(CopySpecResolver) {
+        getFilteringCharset() >> "UTF-8"
+    }
+    File file
+
+    def setup() {
+        file = tmpDir.createFile("f")
+    }
+
+    def "unfiltered source file is the visited file"() {
+        def details = new DefaultFileCopyDetails(visitDetails(file), specResolver, Stub(Chmod))
+
+        expect:
+        details.unfilteredSourceFile == file
+    }
+
+    def "has no unfiltered source file when content is filtered"() {
+        def details = new DefaultFileCopyDetails(visitDetails(file), specResolver, Stub(Chmod))
+        details.filter({ it.toUpperCase() } as Transformer<String, String>)
+
+        expect:
+        details.unfilteredSourceFile == null
+    }
+
+    def "has no unfiltered source file when content does not come from a plain file"() {
+        def archiveEntry = Stub(FileVisitDetails) {
+            getFile() >> file
+        }
+        def details = new DefaultFileCopyDetails(archiveEntry, specResolver, Stub(Chmod))
+
+        expect:
+        details.unfilteredSourceFile == null
+    }
+
+    private FileVisitDetails visitDetails(File file) {
+        new DefaultFileVisitDetails(file, RelativePath.parse(true, file.name), new AtomicBoolean(), Stub(Chmod), Stub(Stat))
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.copy
+
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ParallelismConfigurationManagerFixture
+import org.gradle.internal.nativeintegration.filesystem.FileSystem
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService
+import org.gradle.internal.work.DefaultWorkerLeaseService
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.api.internal.file.copy.CopyActionExecuterUtil.visit
+
+class FileCopyActionParallelTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def executorFactory = new DefaultExecutorFactory()
+    def chmod = Mock(FileSystem) {
+        isCaseSensitive() >> false
+    }
+    def destDir = tmpDir.file("dest")
+    def workerLeaseService = new DefaultWorkerLeaseService(new DefaultResourceLockCoordinationService(), new ParallelismConfigurationManagerFixture(false, 4))
+    def action = new FileCopyAction(TestFiles.resolver(destDir), TestFiles.fileHasher(), chmod, executorFactory, workerLeaseService)
+
+    def cleanup() {
+        executorFactory.stop()
+        workerLeaseService.stop()
+    }
+
+    def "copies unfiltered files"() {
+        def sources = (1..20).collect { tmpDir.file("src/file${it}.txt").createFile() << "content $it" }
+
+        when:
+        def result = visit(action, sources.collect { details(it.name, it) })
+
+        then:
+        result.didWork
+        sources.each { assert destDir.file(it.name).text == it.text }
+    }
+
+    def "leaves destination file untouched when it already has the content of the source"() {
+        def source = tmpDir.file("src/file.txt").createFile() << "content"
+        def target = destDir.file("file.txt").createFile() << "content"
+        target.setLastModified(1000)
+
+        when:
+        def result = visit(action, details("file.txt", source))
+
+        then:
+        result.didWork
+        target.text == "content"
+        target.lastModified() == 1000
+        1 * chmod.chmod(target, 0644)
+    }
+
+    def "replaces destination file with the same size but different content"() {
+        def source = tmpDir.file("src/file.txt").createFile() << "content"
+        def target = destDir.file("file.txt").createFile() << "CONTENT"
+
+        when:
+        visit(action, details("file.txt", source))
+
+        then:
+        target.text == "content"
+    }
+
+    def "last file copied to a destination wins"() {
+        def source1 = tmpDir.file("src1/file.txt").createFile() << "first"
+        def source2 = tmpDir.file("src2/file.txt").createFile() << "second"
+
+        when:
+        visit(action, details("file.txt", source1), details("file.txt", source2))
+
+        then:
+        destDir.file("file.txt").text == "second"
+    }
+
+    def "waits for scheduled copy before copying filtered file to the same destination"() {
+        def source = tmpDir.file("src/file.txt").createFile() << "first"
+        def filtered = Stub(FileCopyDetailsInternal) {
+            getRelativePath() >> RelativePath.parse(true, "file.txt")
+            isDirectory() >> false
+            getUnfilteredSourceFile() >> null
+            copyTo(_ as File) >> { File target ->
+                target.text = "second"
+                true
+            }
+        }
+
+        when:
+        visit(action, details("file.txt", source), filtered)
+
+        then:
+        destDir.file("file.txt").text == "second"
+    }
+
+    def "waits for scheduled copy to a destination spelled with a different case on a case-insensitive file system"() {
+        def source = tmpDir.file("src/FILE.txt").createFile() << "first"
+        def copiedAfterScheduledCopy = false
+        def filtered = Stub(FileCopyDetailsInternal) {
+            getRelativePath() >> RelativePath.parse(true, "file.txt")
+            isDirectory() >> false
+            getUnfilteredSourceFile() >> null
+            copyTo(_ as File) >> { File target ->
+                copiedAfterScheduledCopy = destDir.file("FILE.txt").text == "first"
+                target.text = "second"
+                true
+            }
+        }
+
+        when:
+        visit(action, details("FILE.txt", source), filtered)
+
+        then:
+        copiedAfterScheduledCopy
+    }
+
+    def "reports failures of copies"() {
+        def failure1 = new RuntimeException("broken 1")
+        def failure2 = new RuntimeException("broken 2")
+
+        when:
+        visit(action, failingDetails("file1.txt", failure1), failingDetails("file2.txt", failure2))
+
+        then:
+        def e = thrown(RuntimeException)
+        [e, *e.suppressed] as Set == [failure1, failure2] as Set
+    }
+
+    def "reports failure of visit with failures of copies suppressed"() {
+        def copyFailure = new RuntimeException("broken copy")
+        def visitFailure = new RuntimeException("broken visit")
+        def brokenVisit = Stub(FileCopyDetailsInternal) {
+            getRelativePath() >> { throw visitFailure }
+        }
+
+        when:
+        visit(action, failingDetails("file.txt", copyFailure), brokenVisit)
+
+        then:
+        def e = thrown(RuntimeException)
+        e.is(visitFailure)
+        e.suppressed as List == [copyFailure]
+    }
+
+    def "filtered files are copied on the visiting thread"() {
+        def copied = Mock(FileCopyDetailsInternal)
+        def visitingThread = Thread.currentThread()
+
+        when:
+        visit(action, copied)
+
+        then:
+        _ * copied.relativePath >> RelativePath.parse(true, "file.txt")
+        _ * copied.directory >> false
+        _ * copied.unfilteredSourceFile >> null
+        1 * copied.copyTo(destDir.file("file.txt")) >> {
+            assert Thread.currentThread() == visitingThread
+            true
+        }
+    }
+
+    private FileCopyDetailsInternal failingDetails(String path, Throwable failure) {
+        return Stub(FileCopyDetailsInternal) {
+            getRelativePath() >> RelativePath.parse(true, path)
+            isDirectory() >> false
+            getUnfilteredSourceFile() >> tmpDir.file("src/$path").createFile()
+            copyTo(_ as File) >> { throw failure }
+        }
+    }
+
+    private FileCopyDetailsInternal details(String path, TestFile source) {
+        return Stub(FileCopyDetailsInternal) {
+            getRelativePath() >> RelativePath.parse(true, path)
+            isDirectory() >> false
+            getUnfilteredSourceFile() >> source
+            getMode() >> 0644
+            copyTo(_ as File) >> { File target ->
+                source.copyTo(target)
+                true
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.execution
+
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.changedetection.state.ClasspathSnapshotCache
+import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot
+import org.gradle.api.internal.tasks.TaskExecuter
+import org.gradle.api.internal.tasks.TaskExecutionContext
+import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.internal.Factory
+import org.gradle.internal.hash.HashCode
+import spock.lang.Specification
+
+class RecordSharedClasspathSnapshotsTaskExecuterTest extends Specification {
+    def delegate = Mock(TaskExecuter)
+    def cache = new ClasspathSnapshotCache()
+    def executer = new RecordSharedClasspathSnapshotsTaskExecuter(cache, delegate)
+    def task = Mock(TaskInternal)
+    def state = new TaskStateInternal()
+    def context = Mock(TaskExecutionContext)
+    def normalization = HashCode.fromInt(1)
+    def factory = Stub(Factory) {
+        create() >> FileCollectionSnapshot.EMPTY
+    }
+
+    def "records snapshots shared by the task"() {
+        given:
+        cache.get(normalization, [new File("a.jar")], factory)
+
+        when:
+        executer.execute(task, state, context)
+
+        then:
+        1 * delegate.execute(task, state, context) >> {
+            cache.get(normalization, [new File("a.jar")], factory)
+            cache.get(normalization, [new File("b.jar")], factory)
+            cache.get(normalization, [new File("a.jar")], factory)
+        }
+        1 * context.setSharedClasspathSnapshotCount(2)
+        0 * _
+    }
+
+    def "records shared snapshots when the task fails"() {
+        def failure = new RuntimeException()
+        cache.get(normalization, [new File("a.jar")], factory)
+
+        when:
+        executer.execute(task, state, context)
+
+        then:
+        1 * delegate.execute(task, state, context) >> {
+            cache.get(normalization, [new File("a.jar")], factory)
+            throw failure
+        }
+        1 * context.setSharedClasspathSnapshotCount(1)
+        0 * _
+
+        and:
+        def e = thrown(RuntimeException)
+        e.is(failure)
+    }
+}
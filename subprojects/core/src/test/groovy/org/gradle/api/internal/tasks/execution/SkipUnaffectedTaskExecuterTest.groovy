@@ -0,0 +1,254 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.execution
+
+import org.gradle.api.DefaultTask
+import org.gradle.api.execution.TaskExecutionGraph
+import org.gradle.api.execution.internal.AffectedTasksTracker
+import org.gradle.api.execution.internal.TaskInputsListener
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.changedetection.TaskArtifactState
+import org.gradle.api.internal.changedetection.TaskArtifactStateRepository
+import org.gradle.api.internal.file.FileSystemSubset
+import org.gradle.api.internal.tasks.TaskExecuter
+import org.gradle.api.internal.tasks.TaskExecutionContext
+import org.gradle.api.internal.tasks.TaskExecutionOutcome
+import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.api.internal.tasks.properties.PropertyWalker
+import org.gradle.api.specs.AndSpec
+import org.gradle.api.specs.Spec
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Path
+import org.gradle.util.TestUtil
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class SkipUnaffectedTaskExecuterTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    final TaskInternal task = Mock()
+    final TaskStateInternal state = Mock()
+    final TaskExecutionContext executionContext = Mock()
+    final TaskArtifactState taskArtifactState = Mock()
+    final TaskProperties taskProperties = Mock()
+    final TaskOutputsInternal outputs = Mock()
+    final TaskExecuter target = Mock()
+    final TaskInternal dependency = Mock()
+    final TaskStateInternal dependencyState = Mock()
+    final TaskExecutionGraph taskExecutionGraph = Mock()
+    final TaskInputsListener taskInputsListener = Mock()
+    final AffectedTasksTracker tracker = new AffectedTasksTracker()
+    final SkipUnaffectedTaskExecuter executor = new SkipUnaffectedTaskExecuter(taskExecutionGraph, tracker, taskInputsListener, target)
+    FileSystemSubset inputs
+    boolean hasDeclaredOutputs = true
+    AndSpec<TaskInternal> upToDateSpec = AndSpec.empty()
+
+    def setup() {
+        inputs = FileSystemSubset.builder().add(tmpDir.file("input")).build()
+        _ * task.identityPath >> Path.path(":task")
+        _ * taskExecutionGraph.hasTask(task) >> true
+        _ * taskExecutionGraph.getDependencies(task) >> ([dependency] as Set)
+        _ * dependency.state >> dependencyState
+        _ * executionContext.taskArtifactState >> taskArtifactState
+        _ * executionContext.taskProperties >> taskProperties
+        _ * taskProperties.hasDeclaredOutputs() >> { hasDeclaredOutputs }
+        _ * task.outputs >> outputs
+        _ * outputs.upToDateSpec >> { upToDateSpec }
+        tracker.startTracking()
+    }
+
+    def "skips task whose inputs have not changed and whose dependencies were skipped"() {
+        given:
+        tracker.inputsWatched(task, inputs)
+        tracker.changesDetected([tmpDir.file("other")])
+        taskArtifactState.isUnchangedExceptForInputFiles() >> true
+
+        when:
+        executor.execute(task, state, executionContext)
+
+        then:
+        1 * taskInputsListener.onUnaffected(task, inputs)
+        1 * state.setOutcome(TaskExecutionOutcome.UP_TO_DATE)
+        0 * target._
+        0 * state._
+    }
+
+    @Unroll
+    def "executes task whose inputs have not changed when #change"() {
+        given:
+        tracker.inputsWatched(task, inputs)
+
+        when:
+        executor.execute(task, state, executionContext)
+
+        then:
+        // The artifact state compares the outputs and input properties with the previous execution
+        1 * taskArtifactState.isUnchangedExceptForInputFiles() >> false
+        1 * target.execute(task, state, executionContext)
+        _ * state.executed >> true
+        0 * taskInputsListener._
+
+        where:
+        change << ["an output has been deleted", "an input property has changed"]
+    }
+
+    def "executes task whose inputs have changed"() {
+        given:
+        tracker.inputsWatched(task, inputs)
+        tracker.changesDetected([tmpDir.file("input/changed")])
+
+        when:
+        executor.execute(task, state, executionContext)
+
+        then:
+        1 * target.execute(task, state, executionContext)
+        _ * state.executed >> true
+        0 * taskInputsListener._
+    }
+
+    def "executes task when any of its dependencies was executed"() {
+        given:
+        tracker.inputsWatched(task, inputs)
+        dependencyState.didWork >> true
+
+        when:
+        executor.execute(task, state, executionContext)
+
+        then:
+        1 * target.execute(task, state, executionContext)
+        _ * state.executed >> true
+        0 * taskInputsListener._
+    }
+
+    def "executes task when any of its dependencies was loaded from the cache"() {
+        given:
+        tracker.inputsWatched(task, inputs)
+        tracker.changesDetected([tmpDir.file("other")])
+        dependencyState.fromCache >> true
+
+        when:
+        executor.execute(task, state, executionContext)
+
+        then:
+        1 * target.execute(task, state, executionContext)
+        _ * state.executed >> true
+        0 * taskInputsListener._
+    }
+
+    def "executes task without declared outputs"() {
+        given:
+        tracker.inputsWatched(task, inputs)
+        tracker.changesDetected([tmpDir.file("other")])
+        hasDeclaredOutputs = false
+
+        when:
+        executor.execute(task, state, executionContext)
+
+        then:
+        1 * target.execute(task, state, executionContext)
+        _ * state.executed >> true
+        0 * taskArtifactState.isUnchangedExceptForInputFiles()
+        0 * taskInputsListener._
+    }
+
+    def "executes task whose upToDateWhen spec is not satisfied"() {
+        given:
+        tracker.inputsWatched(task, inputs)
+        tracker.changesDetected([tmpDir.file("other")])
+        upToDateSpec = new AndSpec<TaskInternal>({ false } as Spec)
+
+        when:
+        executor.execute(task, state, executionContext)
+
+        then:
+        1 * target.execute(task, state, executionContext)
+        _ * state.executed >> true
+        0 * taskArtifactState.isUnchangedExceptForInputFiles()
+        0 * taskInputsListener._
+    }
+
+    def "skips unaffected task when run inside the executer that resolves the task artifact state"() {
+        given:
+        def util = TestUtil.create(tmpDir)
+        def realTask = util.task(DefaultTask)
+        realTask.outputs.file(tmpDir.file("output"))
+        def realState = new TaskStateInternal()
+        def repository = Stub(TaskArtifactStateRepository) {
+            getStateFor(realTask, _) >> taskArtifactState
+        }
+        _ * taskExecutionGraph.hasTask(realTask) >> true
+        _ * taskExecutionGraph.getDependencies(realTask) >> ([] as Set)
+        _ * taskArtifactState.isUnchangedExceptForInputFiles() >> true
+        def executer = new ResolveTaskArtifactStateTaskExecuter(repository, realTask.project.fileResolver, Stub(PropertyWalker), new SkipUnaffectedTaskExecuter(taskExecutionGraph, tracker, taskInputsListener, target))
+        tracker.inputsWatched(realTask, inputs)
+        tracker.changesDetected([tmpDir.file("other")])
+
+        when:
+        executer.execute(realTask, realState, new DefaultTaskExecutionContext())
+
+        then:
+        1 * taskInputsListener.onUnaffected(realTask, inputs)
+        0 * target._
+        realState.outcome == TaskExecutionOutcome.UP_TO_DATE
+    }
+
+    def "executes task that has not been executed before"() {
+        given:
+
+        when:
+        executor.execute(task, state, executionContext)
+
+        then:
+        1 * target.execute(task, state, executionContext)
+        _ * state.executed >> true
+        0 * taskInputsListener._
+    }
+
+    def "executes task again after it failed"() {
+        given:
+        tracker.inputsWatched(task, inputs)
+        dependencyState.didWork >> true
+
+        when:
+        executor.execute(task, state, executionContext)
+
+        then:
+        1 * target.execute(task, state, executionContext)
+        _ * state.executed >> true
+        _ * state.failure >> new RuntimeException()
+
+        and:
+        tracker.getUnaffectedInputs(task) == null
+    }
+
+    def "executes all tasks when changes are not known"() {
+        given:
+        tracker.inputsWatched(task, inputs)
+        tracker.changesDetected(null)
+
+        when:
+        executor.execute(task, state, executionContext)
+
+        then:
+        1 * target.execute(task, state, executionContext)
+        _ * state.executed >> true
+    }
+}
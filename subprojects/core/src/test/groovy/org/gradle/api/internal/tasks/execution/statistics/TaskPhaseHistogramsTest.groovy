@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.execution.statistics
+
+import spock.lang.Specification
+
+import static org.gradle.api.internal.tasks.execution.statistics.TaskExecutionPhase.ACTIONS
+import static org.gradle.api.internal.tasks.execution.statistics.TaskExecutionPhase.CACHE_KEY_CALCULATION
+import static org.gradle.api.internal.tasks.execution.statistics.TaskExecutionPhase.OTHER
+import static org.gradle.api.internal.tasks.execution.statistics.TaskExecutionPhase.OUTPUT_SNAPSHOTTING
+
+class TaskPhaseHistogramsTest extends Specification {
+    def histograms = new TaskPhaseHistograms()
+
+    def "nested phases are not counted towards the enclosing phase"() {
+        def timer = new TaskPhaseTimer()
+
+        when:
+        timer.start(ACTIONS)
+        Thread.sleep(20)
+        timer.start(OUTPUT_SNAPSHOTTING)
+        Thread.sleep(20)
+        timer.finish()
+        timer.finish()
+        timer.stop()
+
+        then:
+        timer.hasEntered(ACTIONS)
+        timer.hasEntered(OUTPUT_SNAPSHOTTING)
+        timer.hasEntered(OTHER)
+        !timer.hasEntered(CACHE_KEY_CALCULATION)
+        millis(timer.getElapsedNanos(ACTIONS)) >= 20
+        millis(timer.getElapsedNanos(OUTPUT_SNAPSHOTTING)) >= 20
+        timer.getElapsedNanos(CACHE_KEY_CALCULATION) == 0
+    }
+
+    def "does not count time after the timer is stopped"() {
+        def timer = new TaskPhaseTimer()
+        timer.start(ACTIONS)
+        timer.stop()
+        def elapsed = timer.getElapsedNanos(ACTIONS)
+
+        when:
+        Thread.sleep(10)
+        timer.finish()
+
+        then:
+        timer.getElapsedNanos(ACTIONS) == elapsed
+        millis(timer.getElapsedNanos(OTHER)) < 10
+    }
+
+    def "records only the phases a task execution entered"() {
+        def timer = new TaskPhaseTimer()
+        timer.start(ACTIONS)
+        timer.finish()
+        timer.stop()
+
+        when:
+        histograms.record("org.gradle.Compile", timer)
+        histograms.record("org.gradle.Compile", timer)
+
+        then:
+        histograms.getHistogram("org.gradle.Compile", ACTIONS).count == 2
+        histograms.getHistogram("org.gradle.Compile", OTHER).count == 2
+        histograms.getHistogram("org.gradle.Compile", CACHE_KEY_CALCULATION).count == 0
+        histograms.getHistogram("org.gradle.Copy", ACTIONS) == null
+    }
+
+    def "reports percentiles as bucket upper bounds"() {
+        def histogram = new TaskPhaseHistograms.Histogram()
+
+        when:
+        90.times { histogram.record(100) }
+        10.times { histogram.record(5000) }
+
+        then:
+        histogram.count == 100
+        histogram.totalMicros == 90 * 100 + 10 * 5000
+        histogram.getPercentileUpperBoundMicros(0.5) == 127
+        histogram.getPercentileUpperBoundMicros(0.9) == 127
+        histogram.getPercentileUpperBoundMicros(1) == 8191
+    }
+
+    def "writes report ordered by task type"() {
+        def timer = new TaskPhaseTimer()
+        timer.stop()
+        histograms.record("b.Task", timer)
+        histograms.record("a.Task", timer)
+        def out = new StringBuilder()
+
+        when:
+        histograms.writeReport(out)
+
+        then:
+        def lines = out.toString().readLines()
+        lines.size() == 4
+        lines[0] == "a.Task"
+        lines[1] ==~ /  other count=1 total=\d+\.\dms p50<=\d+\.\dms p90<=\d+\.\dms max<=\d+\.\dms/
+        lines[2] == "b.Task"
+        lines[3].startsWith("  other count=1 ")
+    }
+
+    private static long millis(long nanos) {
+        nanos.intdiv(1000000)
+    }
+}
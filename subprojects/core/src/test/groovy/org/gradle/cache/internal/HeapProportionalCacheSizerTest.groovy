@@ -74,4 +74,19 @@ class HeapProportionalCacheSizerTest extends Specification {
         4096      | 2048     | 4900
     }
 
+    def "heap budget is a proportion of the heap that is not reserved"() {
+        given:
+        System.setProperty(HeapProportionalCacheSizer.CACHE_RESERVED_SYSTEM_PROPERTY, reserved.toString())
+        def heapProportionalCacheSizer = new HeapProportionalCacheSizer(maxHeapMB)
+
+        expect:
+        heapProportionalCacheSizer.heapBudget == expectedBudgetMB * 1024 * 1024
+
+        where:
+        maxHeapMB | reserved | expectedBudgetMB
+        100       | 0        | 32
+        910       | 0        | 304
+        1024      | 0        | 349
+        2048      | 500      | 559
+    }
 }
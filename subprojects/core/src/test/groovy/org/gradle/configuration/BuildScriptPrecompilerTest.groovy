@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration
+
+import org.gradle.api.internal.DocumentationRegistry
+import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.initialization.ClassLoaderScope
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectScript
+import org.gradle.groovy.scripts.ScriptCompiler
+import org.gradle.groovy.scripts.ScriptCompilerFactory
+import org.gradle.groovy.scripts.ScriptSource
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.internal.resource.TextResource
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class BuildScriptPrecompilerTest extends Specification {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def scriptCompilerFactory = Mock(ScriptCompilerFactory)
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def precompiler = new BuildScriptPrecompiler(scriptCompilerFactory, Stub(DocumentationRegistry), buildOperationExecutor)
+    def gradle = Mock(GradleInternal)
+    def classLoader = new URLClassLoader([] as URL[])
+
+    def "does nothing when not enabled"() {
+        when:
+        precompiler.precompile(gradle)
+
+        then:
+        0 * _
+    }
+
+    def "compiles first pass of all groovy build scripts"() {
+        def root = project("build.gradle", true)
+        def child = project("child.gradle", true)
+        def kotlin = project("build.gradle.kts", true)
+        def missing = project("missing.gradle", false)
+        def compiler = Mock(ScriptCompiler)
+        System.setProperty(BuildScriptPrecompiler.PRECOMPILE_PROPERTY, "true")
+
+        given:
+        gradle.rootProject >> root
+        root.allprojects >> ([root, child, kotlin, missing] as Set)
+
+        when:
+        precompiler.precompile(gradle)
+
+        then:
+        1 * scriptCompilerFactory.createCompiler(root.buildScriptSource) >> compiler
+        1 * scriptCompilerFactory.createCompiler(child.buildScriptSource) >> compiler
+        2 * compiler.compile(ProjectScript, { it.id == "cp_proj" }, classLoader, _)
+        0 * scriptCompilerFactory._
+        buildOperationExecutor.operations.size() == 2
+    }
+
+    def "ignores compilation failures"() {
+        def root = project("build.gradle", true)
+        def compiler = Mock(ScriptCompiler)
+        System.setProperty(BuildScriptPrecompiler.PRECOMPILE_PROPERTY, "true")
+
+        given:
+        gradle.rootProject >> root
+        root.allprojects >> ([root] as Set)
+
+        when:
+        precompiler.precompile(gradle)
+
+        then:
+        1 * scriptCompilerFactory.createCompiler(root.buildScriptSource) >> compiler
+        1 * compiler.compile(_, _, _, _) >> { throw new RuntimeException("broken") }
+        noExceptionThrown()
+    }
+
+    def "does not compile scripts of projects whose base class loader scope is not locked"() {
+        def root = project("build.gradle", true)
+        def child = project("child.gradle", true, false)
+        def compiler = Mock(ScriptCompiler)
+        System.setProperty(BuildScriptPrecompiler.PRECOMPILE_PROPERTY, "true")
+
+        given:
+        gradle.rootProject >> root
+        root.allprojects >> ([root, child] as Set)
+
+        when:
+        precompiler.precompile(gradle)
+
+        then:
+        1 * scriptCompilerFactory.createCompiler(root.buildScriptSource) >> compiler
+        1 * compiler.compile(ProjectScript, _, classLoader, _)
+        0 * scriptCompilerFactory._
+    }
+
+    def project(String fileName, boolean exists, boolean scopeLocked = true) {
+        def project = Mock(ProjectInternal)
+        def source = Stub(ScriptSource)
+        def resource = Stub(TextResource)
+        def baseScope = Mock(ClassLoaderScope)
+        resource.file >> new File(fileName)
+        resource.exists >> exists
+        source.resource >> resource
+        source.displayName >> "build file '$fileName'"
+        _ * baseScope.exportClassLoader >> classLoader
+        _ * baseScope.locked >> scopeLocked
+        _ * project.buildScriptSource >> source
+        _ * project.baseClassLoaderScope >> baseScope
+        return project
+    }
+}
@@ -26,7 +26,8 @@ class DefaultBuildConfigurerTest extends Specification {
     private gradle = Mock(GradleInternal)
     private rootProject = Mock(ProjectInternal)
     private projectConfigurer = Mock(ProjectConfigurer)
-    private configurer = new DefaultBuildConfigurer(projectConfigurer)
+    private buildScriptPrecompiler = Mock(BuildScriptPrecompiler)
+    private configurer = new DefaultBuildConfigurer(projectConfigurer, buildScriptPrecompiler)
 
     def setup() {
         gradle.startParameter >> startParameter
@@ -41,6 +42,17 @@ class DefaultBuildConfigurerTest extends Specification {
         1 * projectConfigurer.configureHierarchy(rootProject)
     }
 
+    def "precompiles build scripts before configuring projects"() {
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * buildScriptPrecompiler.precompile(gradle)
+
+        then:
+        1 * projectConfigurer.configureHierarchy(rootProject)
+    }
+
     def "configures build for on demand mode"() {
         when:
         configurer.configure(gradle)
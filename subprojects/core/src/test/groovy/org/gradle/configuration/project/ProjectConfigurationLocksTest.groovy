@@ -0,0 +1,280 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.configuration.project
+
+import org.gradle.api.InvalidUserCodeException
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectStateInternal
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class ProjectConfigurationLocksTest extends ConcurrentSpec {
+    def locks = new ProjectConfigurationLocks()
+    def a = project(":a")
+    def b = project(":b")
+
+    def "static methods do nothing outside of a configuration action"() {
+        when:
+        ProjectConfigurationLocks.beforeAccessing(a)
+        ProjectConfigurationLocks.beforeEvaluating(a)
+        ProjectConfigurationLocks.afterEvaluating(a)
+
+        then:
+        noExceptionThrown()
+        locks.serializations.empty
+    }
+
+    def "configuration of a project waits for another project that accessed it to finish"() {
+        when:
+        async {
+            start {
+                locks.runWithLocks(a, {
+                    ProjectConfigurationLocks.beforeAccessing(b)
+                    instant.accessed
+                    thread.block()
+                    instant.aFinished
+                } as Runnable)
+            }
+            start {
+                thread.blockUntil.accessed
+                locks.runWithLocks(b, {
+                    ProjectConfigurationLocks.beforeEvaluating(b)
+                    instant.bStarted
+                } as Runnable)
+            }
+        }
+
+        then:
+        instant.bStarted > instant.aFinished
+        locks.serializations.size() == 2
+    }
+
+    def "configures a project that comes earlier in serial order before it is accessed"() {
+        def core = project(":core")
+        def web = project(":web")
+        _ * core.compareTo(web) >> -1
+        _ * web.compareTo(core) >> 1
+
+        when:
+        locks.runWithLocks(web, {
+            ProjectConfigurationLocks.beforeAccessing(core)
+            instant.coreAccessed
+        } as Runnable)
+
+        then:
+        1 * core.evaluate() >> {
+            // Configures the project as evaluationDependsOn() would
+            ProjectConfigurationLocks.beforeEvaluating(core)
+            instant.coreEvaluated
+            core
+        }
+
+        and:
+        instant.coreEvaluated < instant.coreAccessed
+        locks.serializations.empty
+    }
+
+    def "waits for the thread configuring a project that comes earlier in serial order"() {
+        def core = project(":core")
+        def web = project(":web")
+        _ * core.compareTo(web) >> -1
+        _ * core.evaluate() >> {
+            ProjectConfigurationLocks.beforeEvaluating(core)
+            core
+        }
+
+        when:
+        async {
+            start {
+                locks.runWithLocks(core, {
+                    ProjectConfigurationLocks.beforeEvaluating(core)
+                    instant.coreStarted
+                    thread.block()
+                    locks.configured(core)
+                    instant.coreConfigured
+                } as Runnable)
+            }
+            start {
+                thread.blockUntil.coreStarted
+                locks.runWithLocks(web, {
+                    ProjectConfigurationLocks.beforeAccessing(core)
+                    instant.coreAccessed
+                } as Runnable)
+            }
+        }
+
+        then:
+        instant.coreAccessed > instant.coreConfigured
+    }
+
+    def "configured projects can be accessed without waiting"() {
+        given:
+        locks.configured(b)
+
+        when:
+        async {
+            start {
+                locks.runWithLocks(a, {
+                    ProjectConfigurationLocks.beforeAccessing(b)
+                    instant.accessed
+                    thread.blockUntil.bFinished
+                } as Runnable)
+            }
+            start {
+                thread.blockUntil.accessed
+                locks.runWithLocks(b, {
+                    ProjectConfigurationLocks.beforeAccessing(b)
+                    instant.bFinished
+                } as Runnable)
+            }
+        }
+
+        then:
+        locks.serializations.empty
+    }
+
+    def "project can be accessed without waiting once it has been evaluated"() {
+        def state = b.state
+
+        when:
+        locks.runWithLocks(a, {
+            ProjectConfigurationLocks.beforeEvaluating(b)
+            ProjectConfigurationLocks.afterEvaluating(b)
+        } as Runnable)
+        locks.runWithLocks(b, {
+            ProjectConfigurationLocks.beforeAccessing(b)
+        } as Runnable)
+
+        then:
+        1 * state.getExecuted() >> true
+        locks.serializations.empty
+    }
+
+    def "configures serially when projects configured in parallel access each other"() {
+        when:
+        async {
+            start {
+                locks.runWithLocks(a, {
+                    ProjectConfigurationLocks.beforeEvaluating(a)
+                    instant.aStarted
+                    thread.blockUntil.bStarted
+                    ProjectConfigurationLocks.beforeAccessing(b)
+                    instant.aAccessed
+                } as Runnable)
+            }
+            start {
+                locks.runWithLocks(b, {
+                    ProjectConfigurationLocks.beforeEvaluating(b)
+                    instant.bStarted
+                    thread.blockUntil.aStarted
+                    ProjectConfigurationLocks.beforeAccessing(a)
+                    instant.bAccessed
+                } as Runnable)
+            }
+        }
+
+        then:
+        instant.aAccessed
+        instant.bAccessed
+        locks.serializations.contains("Configuration of projects [:a, :b, :a] accessed each other before they were configured, so the remaining projects are configured serially.")
+            || locks.serializations.contains("Configuration of projects [:b, :a, :b] accessed each other before they were configured, so the remaining projects are configured serially.")
+    }
+
+    def "thread that waits after configuration has become serial waits for the thread holding the token"() {
+        def c = project(":c")
+
+        when:
+        async {
+            start {
+                locks.runWithLocks(a, {
+                    ProjectConfigurationLocks.beforeEvaluating(a)
+                    instant.aStarted
+                    thread.blockUntil.bStarted
+                    ProjectConfigurationLocks.beforeAccessing(b)
+                    thread.blockUntil.cWaiting
+                    thread.block()
+                    instant.aFinished
+                } as Runnable)
+            }
+            start {
+                locks.runWithLocks(b, {
+                    ProjectConfigurationLocks.beforeEvaluating(b)
+                    instant.bStarted
+                    thread.blockUntil.aStarted
+                    ProjectConfigurationLocks.beforeAccessing(a)
+                    thread.blockUntil.cWaiting
+                    thread.block()
+                    instant.bFinished
+                } as Runnable)
+            }
+            start {
+                thread.blockUntil.aStarted
+                thread.blockUntil.bStarted
+                locks.runWithLocks(c, {
+                    instant.cWaiting
+                    // Waits until the thread holding the token has finished
+                    ProjectConfigurationLocks.beforeAccessing(a)
+                    instant.cAccessed
+                } as Runnable)
+            }
+        }
+
+        then:
+        instant.cAccessed > [instant.aFinished, instant.bFinished].min()
+    }
+
+    def "operations are supported outside of a configuration action"() {
+        when:
+        ProjectConfigurationLocks.assertSupported("Gradle.projectsEvaluated()")
+        ProjectConfigurationLocks.assertSupported("Project.afterEvaluate() for another project", b)
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "project hooks are supported for projects locked by the configuration action"() {
+        when:
+        locks.runWithLocks(a, {
+            ProjectConfigurationLocks.assertSupported("Project.afterEvaluate() for another project", a)
+            ProjectConfigurationLocks.beforeAccessing(b)
+            ProjectConfigurationLocks.assertSupported("Project.afterEvaluate() for another project", b)
+        } as Runnable)
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "fails when an unsupported operation is used by a configuration action"() {
+        when:
+        locks.runWithLocks(a, {
+            ProjectConfigurationLocks.assertSupported("Project.afterEvaluate() for another project", b)
+        } as Runnable)
+
+        then:
+        def e = thrown(InvalidUserCodeException)
+        e.message.startsWith("Project.afterEvaluate() for another project is not supported when projects are configured in parallel, but was used while configuring project ':a'.")
+    }
+
+    def project(String path) {
+        def project = Mock(ProjectInternal)
+        def state = Mock(ProjectStateInternal)
+        _ * project.path >> path
+        _ * project.state >> state
+        _ * project.toString() >> "project '$path'"
+        return project
+    }
+}
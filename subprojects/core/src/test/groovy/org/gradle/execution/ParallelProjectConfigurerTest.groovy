@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution
+
+import org.gradle.StartParameter
+import org.gradle.api.Action
+import org.gradle.api.InvalidUserCodeException
+import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectStateInternal
+import org.gradle.configuration.project.ProjectConfigurationLocks
+import org.gradle.internal.operations.BuildOperationContext
+import org.gradle.internal.operations.BuildOperationExecutor
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.RunnableBuildOperation
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+
+class ParallelProjectConfigurerTest extends ConcurrentSpec {
+    def startParameter = new StartParameter()
+    def gradle = Stub(GradleInternal) {
+        getStartParameter() >> startParameter
+    }
+    def executed = new ConcurrentHashMap<ProjectInternal, Boolean>()
+    def configured = new CopyOnWriteArrayList<String>()
+    def configureActions = [:]
+    def delegate = Mock(ProjectConfigurer)
+    def buildOperationExecutor = Stub(BuildOperationExecutor)
+    def configurer = new ParallelProjectConfigurer(delegate, buildOperationExecutor)
+    def root = project(":", null)
+    def a = project(":a", root)
+    def b = project(":a:b", a)
+    def c = project(":c", root)
+
+    def setup() {
+        startParameter.parallelProjectExecutionEnabled = true
+        startParameter.systemPropertiesArgs = [(ParallelProjectConfigurer.PARALLEL_CONFIGURATION_PROPERTY): "true"]
+        root.getAllprojects() >> ([root, a, b, c] as Set)
+        delegate.configure(_) >> { ProjectInternal project -> evaluate(project) }
+        buildOperationExecutor.runAll(_) >> { Action<BuildOperationQueue<RunnableBuildOperation>> action ->
+            def operations = []
+            action.execute(Stub(BuildOperationQueue) {
+                add(_) >> { RunnableBuildOperation operation -> operations << operation }
+            })
+            async {
+                operations.each { operation ->
+                    start {
+                        operation.run(Stub(BuildOperationContext))
+                    }
+                }
+            }
+        }
+    }
+
+    def "configures the root project first and each other project after its parent"() {
+        when:
+        configurer.configureHierarchy(root)
+
+        then:
+        configured.size() == 4
+        configured as Set == [":", ":a", ":a:b", ":c"] as Set
+        configured[0] == ":"
+        configured.indexOf(":a") < configured.indexOf(":a:b")
+    }
+
+    def "configures project that another project depends on before that project"() {
+        configureActions[a] = {
+            // Simulates evaluationDependsOn(':c')
+            delegate.configure(c)
+            assert executed[c]
+        }
+
+        when:
+        configurer.configureHierarchy(root)
+
+        then:
+        configured.size() == 4
+        configured.indexOf(":c") < configured.indexOf(":a")
+    }
+
+    def "configures projects serially when not enabled"() {
+        startParameter.systemPropertiesArgs = [:]
+
+        when:
+        configurer.configureHierarchy(root)
+
+        then:
+        1 * delegate.configureHierarchy(root)
+        configured.empty
+    }
+
+    def "reports the failure of the first project in project order"() {
+        def failure1 = new RuntimeException("broken :a")
+        def failure2 = new RuntimeException("broken :c")
+        configureActions[a] = {
+            // Make sure the later project fails first
+            thread.blockUntil.cFailed
+            throw failure1
+        }
+        configureActions[c] = {
+            instant.cFailed
+            throw failure2
+        }
+
+        when:
+        configurer.configureHierarchy(root)
+
+        then:
+        def e = thrown(RuntimeException)
+        e.is(failure1)
+        configured == [":"]
+    }
+
+    def "fails when a project configured in parallel registers a hook on the build"() {
+        configureActions[a] = {
+            ProjectConfigurationLocks.assertSupported("Gradle.projectsEvaluated()")
+        }
+
+        when:
+        configurer.configureHierarchy(root)
+
+        then:
+        def e = thrown(InvalidUserCodeException)
+        e.message.startsWith("Gradle.projectsEvaluated() is not supported when projects are configured in parallel, but was used while configuring project ':a'.")
+    }
+
+    private void evaluate(ProjectInternal project) {
+        ProjectConfigurationLocks.beforeEvaluating(project)
+        try {
+            if (!executed[project]) {
+                configureActions[project]?.call()
+                configured << project.path
+                executed[project] = true
+            }
+        } finally {
+            ProjectConfigurationLocks.afterEvaluating(project)
+        }
+    }
+
+    private ProjectInternal project(String path, ProjectInternal parent) {
+        def project = Mock(ProjectInternal)
+        def state = Stub(ProjectStateInternal) {
+            getExecuted() >> { executed[project] ?: false }
+        }
+        _ * project.path >> path
+        _ * project.parent >> parent
+        _ * project.state >> state
+        _ * project.gradle >> gradle
+        _ * project.displayName >> "project '$path'"
+        _ * project.toString() >> "project '$path'"
+        return project
+    }
+}
@@ -24,6 +24,7 @@ import org.gradle.configuration.ScriptTarget
 import org.gradle.groovy.scripts.StringScriptSource
 import org.gradle.internal.Actions
 import org.gradle.internal.hash.Hashing
+import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -39,7 +40,7 @@ class BuildScriptTransformerSpec extends Specification {
         getSimpleNameToFullClassNamesMapping() >> [:]
     }
 
-    final DefaultScriptCompilationHandler scriptCompilationHandler = new DefaultScriptCompilationHandler(new DummyClassLoaderCache(), importsReader)
+    final DefaultScriptCompilationHandler scriptCompilationHandler = new DefaultScriptCompilationHandler(new DummyClassLoaderCache(), importsReader, new TestBuildOperationExecutor())
 
     File scriptCacheDir
     File metadataCacheDir
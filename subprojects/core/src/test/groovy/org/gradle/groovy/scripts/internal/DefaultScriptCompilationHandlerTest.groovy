@@ -39,6 +39,7 @@ import org.gradle.groovy.scripts.Transformer
 import org.gradle.internal.Actions
 import org.gradle.internal.hash.HashCode
 import org.gradle.internal.hash.Hashing
+import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.internal.resource.TextResource
 import org.gradle.internal.serialize.BaseSerializerFactory
 import org.gradle.internal.serialize.Serializer
@@ -71,6 +72,8 @@ class DefaultScriptCompilationHandlerTest extends Specification {
 
     private ClassLoader classLoader
 
+    private final TestBuildOperationExecutor buildOperationExecutor = new TestBuildOperationExecutor()
+
     private Action<ClassNode> verifier = Actions.doNothing()
 
     private Class<? extends Script> expectedScriptClass
@@ -86,7 +89,7 @@ class DefaultScriptCompilationHandlerTest extends Specification {
         File testProjectDir = tmpDir.createDir("projectDir")
         classLoader = getClass().getClassLoader()
         importsReader = Stub(ImportsReader.class)
-        scriptCompilationHandler = new DefaultScriptCompilationHandler(new DummyClassLoaderCache(), importsReader)
+        scriptCompilationHandler = new DefaultScriptCompilationHandler(new DummyClassLoaderCache(), importsReader, buildOperationExecutor)
         scriptCacheDir = new File(testProjectDir, "cache")
         metadataCacheDir = new File(testProjectDir, "metadata")
         scriptText = "System.setProperty('" + TEST_EXPECTED_SYSTEMPROP_KEY + "', '" + TEST_EXPECTED_SYSTEMPROP_VALUE + "')"
@@ -128,6 +131,41 @@ class DefaultScriptCompilationHandlerTest extends Specification {
         evaluateScript(script)
     }
 
+    def testLoadScriptClassesFromBundle() {
+        def scriptSource = scriptSource(scriptText)
+        def sourceHashCode = hashFor(scriptText)
+
+        when:
+        scriptCompilationHandler.compileToDir(scriptSource, classLoader, scriptCacheDir, metadataCacheDir, null, expectedScriptClass, verifier)
+        def classes = [:]
+        scriptCacheDir.listFiles().each { File file -> classes[file.name - ".class"] = file.bytes }
+        ScriptClassBundle.write(classes, ScriptClassBundle.bundleFileFor(scriptCacheDir))
+        def compiledScript = scriptCompilationHandler.loadFromDir(scriptSource, sourceHashCode, classLoader, scriptCacheDir, metadataCacheDir, null, expectedScriptClass, classLoaderId)
+        Script script = compiledScript.loadClass().newInstance()
+
+        then:
+        evaluateScript(script)
+        def result = buildOperationExecutor.log.mostRecentResult(LoadScriptClassesBuildOperationType)
+        result.loadedFromBundle
+        result.bundledClassCount == classes.size()
+    }
+
+    def testLoadScriptClassesFromClassesDirWhenNoBundleIsPresent() {
+        def scriptSource = scriptSource(scriptText)
+        def sourceHashCode = hashFor(scriptText)
+
+        when:
+        scriptCompilationHandler.compileToDir(scriptSource, classLoader, scriptCacheDir, metadataCacheDir, null, expectedScriptClass, verifier)
+        def compiledScript = scriptCompilationHandler.loadFromDir(scriptSource, sourceHashCode, classLoader, scriptCacheDir, metadataCacheDir, null, expectedScriptClass, classLoaderId)
+        Script script = compiledScript.loadClass().newInstance()
+
+        then:
+        evaluateScript(script)
+        def result = buildOperationExecutor.log.mostRecentResult(LoadScriptClassesBuildOperationType)
+        !result.loadedFromBundle
+        result.bundledClassCount == 0
+    }
+
     def testCompileScriptToDirWithPackageDeclaration() {
         ScriptSource scriptSource = scriptSource("""package org.gradle.test
 println 'hi'
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.buildevents
+
+import org.gradle.BuildResult
+import org.gradle.api.invocation.Gradle
+import org.gradle.cache.internal.FileLockWaitStatistics
+import org.gradle.internal.logging.text.TestStyledTextOutputFactory
+import org.gradle.util.TextUtil
+import spock.lang.Specification
+import spock.lang.Subject
+
+@Subject(FileLockWaitStatisticsReporter)
+class FileLockWaitStatisticsReporterTest extends Specification {
+    def textOutputFactory = new TestStyledTextOutputFactory()
+    def statistics = new FileLockWaitStatistics()
+    def reporter = new FileLockWaitStatisticsReporter(textOutputFactory, statistics)
+
+    def "does not report when build did not wait for locks"() {
+        when:
+        reporter.buildFinished(Stub(BuildResult))
+
+        then:
+        (textOutputFactory as String) == ""
+    }
+
+    def "reports waits recorded during the build"() {
+        given:
+        statistics.record("before build", "123", 10, false)
+        reporter.buildStarted(Stub(Gradle))
+        statistics.record("artifact cache", "123", 100, true)
+        statistics.recordTimeout("artifact cache", "123", 60000)
+
+        when:
+        reporter.buildFinished(Stub(BuildResult))
+
+        then:
+        TextUtil.normaliseLineSeparators(textOutputFactory as String) == """{org.gradle.internal.buildevents.FileLockWaitStatisticsReporter}{INFO}Waited for file locks held by other Gradle processes:
+  artifact cache: 2 waits, 60100 ms total, 60000 ms max, 1 woken by release, 1 timed out
+  held by process 123: 2 waits, 60100 ms total, 60000 ms max, 1 woken by release, 1 timed out
+"""
+        statistics.empty
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.buildevents
+
+import org.gradle.BuildResult
+import org.gradle.api.invocation.Gradle
+import org.gradle.internal.logging.text.TestStyledTextOutputFactory
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService
+import org.gradle.util.TextUtil
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.util.concurrent.TimeUnit
+
+@Subject(ResourceLockWaitStatisticsReporter)
+class ResourceLockWaitStatisticsReporterTest extends Specification {
+    def textOutputFactory = new TestStyledTextOutputFactory()
+    def coordinationService = Stub(DefaultResourceLockCoordinationService)
+    def reporter = new ResourceLockWaitStatisticsReporter(textOutputFactory, coordinationService)
+
+    def "does not report when build did not wait for resource locks"() {
+        given:
+        coordinationService.wakeUps >> 3
+
+        when:
+        reporter.buildStarted(Stub(Gradle))
+        reporter.buildFinished(Stub(BuildResult))
+
+        then:
+        (textOutputFactory as String) == ""
+    }
+
+    def "reports waits recorded during the build"() {
+        given:
+        coordinationService.wakeUps >>> [3, 10]
+        coordinationService.waitTimeNanos >>> [TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(350)]
+        coordinationService.spuriousWakeUps >>> [1, 3]
+
+        when:
+        reporter.buildStarted(Stub(Gradle))
+        reporter.buildFinished(Stub(BuildResult))
+
+        then:
+        TextUtil.normaliseLineSeparators(textOutputFactory as String) == """{org.gradle.internal.buildevents.ResourceLockWaitStatisticsReporter}{INFO}Waited for resource locks held by other threads: 7 wake-ups, 250 ms total, 2 wake-ups that had to wait again
+"""
+    }
+}
@@ -529,6 +529,101 @@ class BeanDynamicObjectTest extends Specification {
         !dynamicObject.hasMethod("methodWithValue", [Integer] as Object[])
     }
 
+    def "reuses property and method lookups for objects of the same type"() {
+        def first = new BeanDynamicObject(new LookupBean(prop: "first", other: "other"))
+        def second = new BeanDynamicObject(new LookupBean(prop: "second", other: "other"))
+        def metaClass = GroovySystem.metaClassRegistry.getMetaClass(LookupBean)
+        def cache = MetaClassLookupCache.forMetaClass(metaClass)
+
+        expect:
+        cache != null
+
+        when:
+        first.getProperty("prop")
+        first.invokeMethod("m", [1] as Object[])
+        first.hasProperty("unknown")
+        first.hasMethod("m", ["a"] as Object[])
+
+        then:
+        cache.getProperty("prop") == metaClass.getMetaProperty("prop")
+        cache.getMethod("m", [Integer] as Class[]) == metaClass.pickMethod("m", [Integer] as Class[])
+        MetaClassLookupCache.isMissing(cache.getProperty("unknown"))
+        MetaClassLookupCache.isMissing(cache.getMethod("m", [String] as Class[]))
+
+        when:
+        // Replace the cached results, so that lookups made by the second object can only find these by hitting the cache
+        cache.putProperty("prop", metaClass.getMetaProperty("other"))
+        cache.putMethod("m", [Integer] as Class[], metaClass.pickMethod("otherM", [Integer] as Class[]))
+
+        then:
+        second.getProperty("prop") == "other"
+        second.invokeMethod("m", [2] as Object[]) == "other [2]"
+        !second.hasProperty("unknown")
+        !second.hasMethod("m", ["a"] as Object[])
+    }
+
+    def "does not cache lookups when disabled"() {
+        def metaClass = GroovySystem.metaClassRegistry.getMetaClass(LookupBean)
+
+        when:
+        System.setProperty(MetaClassLookupCache.CACHE_LOOKUPS_PROPERTY, "false")
+        def disabled = forMetaClassMethod().invoke(null, metaClass)
+        System.clearProperty(MetaClassLookupCache.CACHE_LOOKUPS_PROPERTY)
+        def enabled = forMetaClassMethod().invoke(null, metaClass)
+
+        then:
+        disabled == null
+        enabled != null
+
+        cleanup:
+        System.clearProperty(MetaClassLookupCache.CACHE_LOOKUPS_PROPERTY)
+    }
+
+    /**
+     * Loads a new copy of {@link MetaClassLookupCache}, which reads the system property when it is initialized.
+     */
+    private static java.lang.reflect.Method forMetaClassMethod() {
+        def classLoader = new ClassLoader(MetaClassLookupCache.classLoader) {
+            @Override
+            protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (!name.startsWith(MetaClassLookupCache.name)) {
+                    return super.loadClass(name, resolve)
+                }
+                def loaded = findLoadedClass(name)
+                if (loaded == null) {
+                    def bytecode = MetaClassLookupCache.getResourceAsStream("/${name.replace('.', '/')}.class").bytes
+                    loaded = defineClass(name, bytecode, 0, bytecode.length)
+                }
+                return loaded
+            }
+        }
+        def method = classLoader.loadClass(MetaClassLookupCache.name).getDeclaredMethod("forMetaClass", MetaClass)
+        method.accessible = true
+        return method
+    }
+
+    def "uses replacement meta-class of groovy object"() {
+        def bean = new Bean(prop: "value")
+        def dynamicObject = new BeanDynamicObject(bean)
+
+        expect:
+        dynamicObject.getProperty("prop") == "value"
+        !dynamicObject.hasProperty("extra")
+        !dynamicObject.hasMethod("extraMethod")
+
+        when:
+        def metaClass = new ExpandoMetaClass(Bean, false, true)
+        metaClass.getExtra = { -> "extra value" }
+        metaClass.extraMethod = { -> "result" }
+        metaClass.initialize()
+        bean.metaClass = metaClass
+
+        then:
+        dynamicObject.hasProperty("extra")
+        dynamicObject.getProperty("extra") == "extra value"
+        dynamicObject.invokeMethod("extraMethod") == "result"
+    }
+
     def "coerces parameters of method of groovy object"() {
         def bean = new EnumBean()
         def dynamicObject = new BeanDynamicObject(bean, EnumBean, true, false, new SomeEnumConverter(), new SomeEnumConverter())
@@ -800,6 +895,19 @@ class BeanDynamicObjectTest extends Specification {
         }
     }
 
+    static class LookupBean {
+        String prop
+        String other
+
+        String m(int l) {
+            return "[${l + 1}]"
+        }
+
+        String otherM(int l) {
+            return "other [${l}]"
+        }
+    }
+
     static class EnumBean {
         SomeEnum prop
 
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.operations.trace
+
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.logging.events.OperationIdentifier
+import org.gradle.internal.progress.BuildOperationDescriptor
+import org.gradle.internal.progress.OperationFinishEvent
+import org.gradle.internal.progress.OperationStartEvent
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class BinaryBuildOperationTraceTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def executorFactory = new DefaultExecutorFactory()
+    def traceFile = tmpDir.file("trace-log.bin")
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "reads back the recorded operations in order"() {
+        given:
+        def writer = new BinaryBuildOperationTraceWriter(traceFile, executorFactory)
+        def build = descriptor(1, null, "Build", new Details())
+        def task = descriptor(2, 1, "Task :a", null)
+        writer.started(build, new OperationStartEvent(0))
+        writer.started(task, new OperationStartEvent(10))
+        writer.finished(task, new OperationFinishEvent(10, 30, new RuntimeException("broken"), null))
+        writer.finished(build, new OperationFinishEvent(0, 50, null, new Details()))
+        writer.stop()
+
+        when:
+        def events = []
+        BinaryBuildOperationTraceReader.read(traceFile, new BinaryBuildOperationTraceReader.Visitor() {
+            @Override
+            void started(long id, long parentId, String displayName, String detailsType, long startTime) {
+                events << "start $id $parentId $displayName $detailsType $startTime".toString()
+            }
+
+            @Override
+            void finished(long id, long endTime, String resultType, String failure) {
+                events << "finish $id $endTime $resultType $failure".toString()
+            }
+        })
+
+        then:
+        events == [
+            "start 1 0 Build ${Details.name} 0",
+            "start 2 1 Task :a null 10",
+            "finish 2 30 null java.lang.RuntimeException: broken",
+            "finish 1 50 ${Details.name} null"
+        ]*.toString()
+    }
+
+    def "computes totals and critical path by streaming over the trace"() {
+        given:
+        def writer = new BinaryBuildOperationTraceWriter(traceFile, executorFactory)
+        def build = descriptor(1, null, "Build", null)
+        def a = descriptor(2, 1, "Task :a", new Details())
+        def b = descriptor(3, 1, "Task :b", new Details())
+        def compile = descriptor(4, 3, "Compile", null)
+        writer.started(build, new OperationStartEvent(0))
+        writer.started(a, new OperationStartEvent(0))
+        writer.started(b, new OperationStartEvent(5))
+        writer.started(compile, new OperationStartEvent(10))
+        writer.finished(a, new OperationFinishEvent(0, 40, null, null))
+        writer.finished(compile, new OperationFinishEvent(10, 60, null, null))
+        writer.finished(b, new OperationFinishEvent(5, 70, null, null))
+        writer.finished(build, new OperationFinishEvent(0, 80, null, null))
+        writer.stop()
+
+        when:
+        def summary = new StringBuilder()
+        BinaryBuildOperationTraceSummary.writeSummary(traceFile, summary)
+        def tree = new StringBuilder()
+        BinaryBuildOperationTraceSummary.writeTree(traceFile, tree)
+
+        then:
+        summary.toString() == """Totals by details type:
+  (no details) count=2 total=130ms max=80ms
+  ${Details.name} count=2 total=105ms max=65ms
+Critical path:
+  Build [80ms] (1)
+    Task :b [65ms] (3)
+      Compile [50ms] (4)
+"""
+        tree.toString() == """Build [80ms] (1)
+  Task :a [40ms] (2 <- 1)
+  Task :b [65ms] (3 <- 1)
+    Compile [50ms] (4 <- 3)
+"""
+    }
+
+    def "stops reading at the end of a trace that was not closed cleanly"() {
+        given:
+        def writer = new BinaryBuildOperationTraceWriter(traceFile, executorFactory)
+        writer.started(descriptor(1, null, "Build", null), new OperationStartEvent(0))
+        writer.stop()
+        def bytes = traceFile.bytes
+        traceFile.bytes = bytes[0..<(bytes.length - 1)] as byte[]
+
+        when:
+        def summary = new StringBuilder()
+        BinaryBuildOperationTraceSummary.writeSummary(traceFile, summary)
+
+        then:
+        summary.toString() == """Totals by details type:
+Critical path:
+"""
+    }
+
+    private static BuildOperationDescriptor descriptor(long id, Long parentId, String displayName, Object details) {
+        return BuildOperationDescriptor.displayName(displayName)
+            .details(details)
+            .build(new OperationIdentifier(id), parentId == null ? null : new OperationIdentifier(parentId))
+    }
+
+    static class Details {
+    }
+}
@@ -29,4 +29,11 @@ public class NoOpFileLockContentionHandler implements FileLockContentionHandler
     public boolean maybePingOwner(int port, long lockId, String displayName, long timeElapsed) {
         return false;
     }
+
+    public void notifyLockReleased(long lockId) {}
+
+    public boolean waitForRelease(int port, long lockId, long timeoutMs) throws InterruptedException {
+        Thread.sleep(timeoutMs);
+        return false;
+    }
 }
@@ -133,6 +133,11 @@ public class TestBuildOperationExecutor implements BuildOperationExecutor {
         public void setLogLocation(String logLocation) {
             throw new UnsupportedOperationException();
         }
+
+        @Override
+        public BuildOperationQueueProgressDetails getProgressDetails() {
+            return null;
+        }
     }
 
     public static class BuildOperationLog {
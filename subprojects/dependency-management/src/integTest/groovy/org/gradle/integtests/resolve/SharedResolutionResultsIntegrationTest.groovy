@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.integtests.resolve
+
+import org.gradle.api.internal.artifacts.ivyservice.SharedResolutionResultsCache
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+
+class SharedResolutionResultsIntegrationTest extends AbstractIntegrationSpec {
+    def setup() {
+        def bar = mavenRepo.module("org", "bar", "1.0").publish()
+        mavenRepo.module("org", "foo", "1.0").dependsOn(bar).publish()
+
+        settingsFile << "include 'a', 'b'"
+        buildFile << """
+allprojects {
+    group = 'test'
+    version = '1.0'
+    repositories { maven { url "${mavenRepo.uri}" } }
+}
+
+def declareConfiguration(Project project, String name) {
+    project.configurations.create(name)
+    def declared = project.dependencies.add(name, 'org:foo:1.0')
+    project.task('checkDeps') {
+        doLast {
+            def configuration = project.configurations.getByName(name)
+
+            // Old model
+            def firstLevel = configuration.resolvedConfiguration.firstLevelModuleDependencies
+            assert firstLevel*.name == ['org:foo:1.0']
+            def foo = firstLevel.first()
+            assert foo.children*.name == ['org:bar:1.0']
+            assert foo.parents.size() == 1
+            def parent = foo.parents.first()
+            assert parent.moduleName == project.name
+            assert parent.configuration == name
+            assert configuration.resolvedConfiguration.getFirstLevelModuleDependencies({ it.is(declared) } as Spec) == firstLevel
+            assert configuration.files*.name == ['foo-1.0.jar', 'bar-1.0.jar']
+
+            // New model
+            def root = configuration.incoming.resolutionResult.root
+            assert root.moduleVersion.name == project.name
+            assert root.variant.displayName == name
+            assert root.dependencies*.selected*.moduleVersion*.toString() == ['org:foo:1.0']
+            assert root.dependencies.first().selected.dependencies*.selected*.moduleVersion*.toString() == ['org:bar:1.0']
+        }
+    }
+}
+
+declareConfiguration(project(':a'), 'conf')
+declareConfiguration(project(':b'), 'other')
+"""
+        executer.withArgument("-D${SharedResolutionResultsCache.SHARE_IDENTICAL_GRAPHS_PROPERTY}=true")
+    }
+
+    def "configuration that reuses the graph of another project has its own root in the old and new models"() {
+        when:
+        run ":a:checkDeps", ":b:checkDeps", "--info"
+
+        then:
+        outputContains("Shared the resolved dependency graph for 1 of 2 configuration resolutions with identical inputs.")
+    }
+
+    def "does not share the graph of a project that declares component metadata rules"() {
+        file("b/build.gradle") << """
+dependencies.components.all { }
+"""
+
+        when:
+        run ":a:checkDeps", ":b:checkDeps", "--info"
+
+        then:
+        outputContains("Shared the resolved dependency graph for 0 of 1 configuration resolutions with identical inputs.")
+    }
+
+    def "does not share the graph of a project that declares module replacements"() {
+        file("b/build.gradle") << """
+dependencies.modules.module('org:baz') { replacedBy('org:foo') }
+"""
+
+        when:
+        run ":a:checkDeps", ":b:checkDeps", "--info"
+
+        then:
+        outputContains("Shared the resolved dependency graph for 0 of 1 configuration resolutions with identical inputs.")
+    }
+
+    def "does not share the graph of a configuration with a different cache policy"() {
+        file("b/build.gradle") << """
+configurations.all { resolutionStrategy.cacheChangingModulesFor 0, 'seconds' }
+"""
+
+        when:
+        run ":a:checkDeps", ":b:checkDeps", "--info"
+
+        then:
+        outputContains("Shared the resolved dependency graph for 0 of 2 configuration resolutions with identical inputs.")
+    }
+}
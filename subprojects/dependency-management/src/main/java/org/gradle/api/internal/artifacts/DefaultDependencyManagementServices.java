@@ -44,6 +44,7 @@ import org.gradle.api.internal.artifacts.ivyservice.DefaultConfigurationResolver
 import org.gradle.api.internal.artifacts.ivyservice.ErrorHandlingConfigurationResolver;
 import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager;
 import org.gradle.api.internal.artifacts.ivyservice.IvyContextualArtifactPublisher;
+import org.gradle.api.internal.artifacts.ivyservice.SharedResolutionResultsCache;
 import org.gradle.api.internal.artifacts.ivyservice.ShortCircuitEmptyConfigurationResolver;
 import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionRules;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolveIvyFactory;
@@ -264,7 +265,8 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                                                        BuildOperationExecutor buildOperationExecutor,
                                                        ArtifactTypeRegistry artifactTypeRegistry,
                                                        ComponentSelectorConverter componentSelectorConverter,
-                                                       AttributeContainerSerializer attributeContainerSerializer) {
+                                                       AttributeContainerSerializer attributeContainerSerializer,
+                                                       SharedResolutionResultsCache sharedResolutionResultsCache) {
             return new ErrorHandlingConfigurationResolver(
                     new ShortCircuitEmptyConfigurationResolver(
                         new DefaultConfigurationResolver(
@@ -284,7 +286,9 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                             buildOperationExecutor,
                             artifactTypeRegistry,
                             componentSelectorConverter,
-                            attributeContainerSerializer),
+                            attributeContainerSerializer,
+                            componentIdentifierFactory,
+                            sharedResolutionResultsCache),
                         componentIdentifierFactory,
                         moduleIdentifierFactory));
         }
@@ -17,16 +17,22 @@
 package org.gradle.api.internal.artifacts.ivyservice;
 
 import com.google.common.collect.ImmutableList;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ProjectDependency;
 import org.gradle.api.artifacts.UnresolvedDependency;
 import org.gradle.api.artifacts.dsl.RepositoryHandler;
+import org.gradle.api.artifacts.result.ResolutionResult;
 import org.gradle.api.artifacts.result.ResolvedComponentResult;
 import org.gradle.api.internal.artifacts.ArtifactDependencyResolver;
 import org.gradle.api.internal.artifacts.ComponentSelectorConverter;
 import org.gradle.api.internal.artifacts.ConfigurationResolver;
 import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.Module;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
 import org.gradle.api.internal.artifacts.ResolverResults;
+import org.gradle.api.internal.artifacts.component.ComponentIdentifierFactory;
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
 import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.BuildDependenciesOnlyVisitedArtifactSet;
@@ -64,7 +70,10 @@ import org.gradle.internal.component.model.DependencyMetadata;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.util.CollectionUtils;
 
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class DefaultConfigurationResolver implements ConfigurationResolver {
@@ -86,6 +95,8 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
     private final ArtifactTypeRegistry artifactTypeRegistry;
     private final ComponentSelectorConverter componentSelectorConverter;
     private final AttributeContainerSerializer attributeContainerSerializer;
+    private final ComponentIdentifierFactory componentIdentifierFactory;
+    private final SharedResolutionResultsCache sharedResultsCache;
 
     public DefaultConfigurationResolver(ArtifactDependencyResolver resolver, RepositoryHandler repositories,
                                         GlobalDependencyResolutionRules metadataHandler,
@@ -97,7 +108,9 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
                                         BuildOperationExecutor buildOperationExecutor,
                                         ArtifactTypeRegistry artifactTypeRegistry,
                                         ComponentSelectorConverter componentSelectorConverter,
-                                        AttributeContainerSerializer attributeContainerSerializer) {
+                                        AttributeContainerSerializer attributeContainerSerializer,
+                                        ComponentIdentifierFactory componentIdentifierFactory,
+                                        SharedResolutionResultsCache sharedResultsCache) {
         this.resolver = resolver;
         this.repositories = repositories;
         this.metadataHandler = metadataHandler;
@@ -110,6 +123,8 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
         this.artifactTypeRegistry = artifactTypeRegistry;
         this.componentSelectorConverter = componentSelectorConverter;
         this.attributeContainerSerializer = attributeContainerSerializer;
+        this.componentIdentifierFactory = componentIdentifierFactory;
+        this.sharedResultsCache = sharedResultsCache;
     }
 
     @Override
@@ -123,6 +138,15 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
 
     public void resolveGraph(ConfigurationInternal configuration, ResolverResults results) {
         List<ResolutionAwareRepository> resolutionAwareRepositories = CollectionUtils.collect(repositories, Transformers.cast(ResolutionAwareRepository.class));
+        List<Object> sharedResultsKey = sharedResultsCache.keyFor(configuration, resolutionAwareRepositories, metadataHandler);
+        if (sharedResultsKey != null) {
+            SharedResolutionResultsCache.SharedResults sharedResults = sharedResultsCache.get(sharedResultsKey, configuration);
+            if (sharedResults != null) {
+                useSharedResults(configuration, sharedResults, results);
+                return;
+            }
+        }
+
         StoreSet stores = storeFactory.createStoreSet();
 
         BinaryStore oldModelStore = stores.nextBinaryStore();
@@ -150,9 +174,30 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
         ResolvedGraphResults graphResults = oldModelBuilder.complete();
 
         Set<UnresolvedDependency> failures = failureCollector.complete();
-        results.graphResolved(newModelBuilder.complete(), localComponentsVisitor, new BuildDependenciesOnlyVisitedArtifactSet(failures, artifactsResults, artifactTransforms));
+        ResolutionResult resolutionResult = newModelBuilder.complete();
+        results.graphResolved(resolutionResult, localComponentsVisitor, new BuildDependenciesOnlyVisitedArtifactSet(failures, artifactsResults, artifactTransforms));
+
+        ArtifactResolveState resolveState = new ArtifactResolveState(graphResults, artifactsResults, fileDependencyResults, failures, oldTransientModelBuilder);
+        results.retainState(resolveState);
+
+        // Only share graphs that resolved successfully and did not substitute any local components
+        if (sharedResultsKey != null && failures.isEmpty() && !localComponentsVisitor.getResolvedProjectConfigurations().iterator().hasNext()) {
+            sharedResultsCache.put(sharedResultsKey, resolutionResult, new SharedArtifactResolveState(resolveState, ImmutableList.copyOf(configuration.getAllDependencies())));
+        }
+    }
+
+    private void useSharedResults(ConfigurationInternal configuration, SharedResolutionResultsCache.SharedResults sharedResults, ResolverResults results) {
+        SharedArtifactResolveState sharedState = (SharedArtifactResolveState) sharedResults.getArtifactResolveState();
+        ArtifactResolveState sharedResolveState = sharedState.resolveState;
+        Module module = configuration.getModule();
+        ModuleVersionIdentifier moduleVersion = moduleIdentifierFactory.moduleWithVersion(module);
+        ResolutionResult resolutionResult = sharedResults.resolutionResultFor(configuration, moduleVersion, componentIdentifierFactory.createComponentIdentifier(module));
+        results.graphResolved(resolutionResult, new ResolvedLocalComponentsResultGraphVisitor(), new BuildDependenciesOnlyVisitedArtifactSet(sharedResolveState.failures, sharedResolveState.artifactsResults, artifactTransforms));
 
-        results.retainState(new ArtifactResolveState(graphResults, artifactsResults, fileDependencyResults, failures, oldTransientModelBuilder));
+        // The old model is loaded again for this configuration, with its own root and its own first level dependencies
+        ResolvedGraphResults graphResults = sharedState.graphResultsFor(configuration);
+        TransientConfigurationResultsBuilder transientConfigurationResultsBuilder = sharedResolveState.transientConfigurationResultsBuilder.withRoot(new ResolvedConfigurationIdentifier(moduleVersion, configuration.getName()), storeFactory.createStoreSet().oldModelCache());
+        results.retainState(new ArtifactResolveState(graphResults, sharedResolveState.artifactsResults, sharedResolveState.fileDependencyResults, sharedResolveState.failures, transientConfigurationResultsBuilder));
     }
 
     public void resolveArtifacts(ConfigurationInternal configuration, ResolverResults results) {
@@ -182,4 +227,37 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
             this.transientConfigurationResultsBuilder = transientConfigurationResultsBuilder;
         }
     }
+
+    /**
+     * The results of a configuration that can be attached to other configurations with the same inputs, together with the dependencies declared by the configuration.
+     */
+    private static class SharedArtifactResolveState {
+        final ArtifactResolveState resolveState;
+        final List<Dependency> dependencies;
+
+        SharedArtifactResolveState(ArtifactResolveState resolveState, List<Dependency> dependencies) {
+            this.resolveState = resolveState;
+            this.dependencies = dependencies;
+        }
+
+        /**
+         * Maps the first level dependencies of the shared graph to the dependencies declared by the given configuration. The configurations have the same
+         * inputs, so each declares the same dependencies in the same order.
+         */
+        ResolvedGraphResults graphResultsFor(ConfigurationInternal configuration) {
+            final Map<Dependency, Dependency> declaredDependencies = new IdentityHashMap<Dependency, Dependency>();
+            Iterator<Dependency> iterator = configuration.getAllDependencies().iterator();
+            for (Dependency dependency : dependencies) {
+                declaredDependencies.put(dependency, iterator.next());
+            }
+            return new ResolvedGraphResults() {
+                @Override
+                public Dependency getModuleDependency(long nodeId) {
+                    Dependency dependency = resolveState.graphResults.getModuleDependency(nodeId);
+                    Dependency declaredDependency = declaredDependencies.get(dependency);
+                    return declaredDependency != null ? declaredDependency : dependency;
+                }
+            };
+        }
+    }
 }
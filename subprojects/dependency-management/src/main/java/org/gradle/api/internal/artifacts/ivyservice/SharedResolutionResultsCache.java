@@ -0,0 +1,292 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.StartParameter;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.ExcludeRule;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolutionResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.artifacts.result.UnresolvedDependencyResult;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.Module;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.DefaultCachePolicy;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.api.internal.artifacts.result.DefaultResolutionResult;
+import org.gradle.api.internal.artifacts.result.DefaultResolvedComponentResult;
+import org.gradle.api.internal.artifacts.result.DefaultResolvedDependencyResult;
+import org.gradle.api.internal.artifacts.result.DefaultResolvedVariantResult;
+import org.gradle.api.internal.artifacts.result.DefaultUnresolvedDependencyResult;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shares the resolved dependency graph between configurations of a build that have identical inputs, when the {@value #SHARE_IDENTICAL_GRAPHS_PROPERTY}
+ * system property is set to true.
+ *
+ * <p>Only configurations whose dependencies are all external module dependencies are shared. The inputs compared are the dependency declarations,
+ * exclude rules, attributes, repositories, forced modules, conflict resolution, sort order and cache policy. Configurations with dependency substitution or
+ * component selection rules, and configurations of projects that declare component metadata rules or module replacements, are never shared. Attribute
+ * schemas cannot be compared, and are assumed to be the same for all projects of the build, for example because they are added by the same plugins.
+ * This is why sharing must be enabled explicitly.</p>
+ *
+ * <p>The root module takes part in conflict resolution, so a graph is not shared when it has an edge to its root, or when it contains a module with
+ * the group and name of the configuration that would reuse it.</p>
+ */
+public class SharedResolutionResultsCache implements Stoppable {
+    public static final String SHARE_IDENTICAL_GRAPHS_PROPERTY = "org.gradle.internal.resolution.shareIdenticalGraphs";
+
+    private static final Logger LOGGER = Logging.getLogger(SharedResolutionResultsCache.class);
+
+    private final boolean enabled;
+    private final ConcurrentMap<List<Object>, SharedResults> results = new ConcurrentHashMap<List<Object>, SharedResults>();
+    private final AtomicInteger candidates = new AtomicInteger();
+    private final AtomicInteger shared = new AtomicInteger();
+
+    public SharedResolutionResultsCache(StartParameter startParameter) {
+        String value = startParameter.getSystemPropertiesArgs().get(SHARE_IDENTICAL_GRAPHS_PROPERTY);
+        if (value == null) {
+            value = System.getProperty(SHARE_IDENTICAL_GRAPHS_PROPERTY);
+        }
+        this.enabled = Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Calculates the key that identifies the inputs to the resolution of the given configuration, or returns null when its results cannot be shared.
+     */
+    @Nullable
+    public List<Object> keyFor(ConfigurationInternal configuration, List<ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler) {
+        if (!enabled) {
+            return null;
+        }
+        ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
+        if (resolutionStrategy.getDependencySubstitution().hasRules() || !resolutionStrategy.getComponentSelection().getRules().isEmpty()) {
+            return null;
+        }
+        if (metadataHandler.getComponentMetadataProcessor().hasRules() || metadataHandler.getModuleMetadataProcessor().getModuleReplacements().hasReplacements()) {
+            return null;
+        }
+        CachePolicy cachePolicy = resolutionStrategy.getCachePolicy();
+        if (!(cachePolicy instanceof DefaultCachePolicy)) {
+            return null;
+        }
+
+        ImmutableList.Builder<Object> key = ImmutableList.builder();
+        for (Dependency dependency : configuration.getAllDependencies()) {
+            if (!(dependency instanceof ExternalModuleDependency) || dependency instanceof ClientModule) {
+                return null;
+            }
+            key.add(dependencyKey((ExternalModuleDependency) dependency));
+        }
+        for (Configuration configurationInHierarchy : configuration.getHierarchy()) {
+            for (ExcludeRule excludeRule : configurationInHierarchy.getExcludeRules()) {
+                key.add(excludeRuleKey(excludeRule));
+            }
+        }
+        key.add(configuration.isTransitive());
+        key.add(configuration.getAttributes().asImmutable());
+        for (ResolutionAwareRepository repository : repositories) {
+            key.add(repository.createResolver().getId());
+        }
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            key.add(forcedModule.getGroup() + ":" + forcedModule.getName() + ":" + forcedModule.getVersion());
+        }
+        key.add(resolutionStrategy.getConflictResolution());
+        key.add(resolutionStrategy.getSortOrder());
+        key.add(((DefaultCachePolicy) cachePolicy).getRulesSnapshot());
+
+        candidates.incrementAndGet();
+        return key.build();
+    }
+
+    /**
+     * Returns the results shared by another configuration with the given key, if any can be used by the given configuration.
+     */
+    @Nullable
+    public SharedResults get(List<Object> key, ConfigurationInternal configuration) {
+        SharedResults sharedResults = results.get(key);
+        if (sharedResults == null || !sharedResults.canBeUsedBy(configuration.getModule())) {
+            return null;
+        }
+        shared.incrementAndGet();
+        return sharedResults;
+    }
+
+    public void put(List<Object> key, ResolutionResult resolutionResult, Object artifactResolveState) {
+        results.putIfAbsent(key, new SharedResults(resolutionResult, artifactResolveState));
+    }
+
+    public int getSharedCount() {
+        return shared.get();
+    }
+
+    @Override
+    public void stop() {
+        if (enabled) {
+            LOGGER.info("Shared the resolved dependency graph for {} of {} configuration resolutions with identical inputs.", shared.get(), candidates.get());
+        }
+        results.clear();
+    }
+
+    private static List<Object> dependencyKey(ExternalModuleDependency dependency) {
+        List<Object> key = new ArrayList<Object>();
+        key.add(dependency.getGroup());
+        key.add(dependency.getName());
+        key.add(dependency.getVersionConstraint().getPreferredVersion());
+        key.add(dependency.getVersionConstraint().getRejectedVersions());
+        key.add(dependency.getTargetConfiguration());
+        key.add(dependency.isTransitive());
+        key.add(dependency.isForce());
+        key.add(dependency.isChanging());
+        for (DependencyArtifact artifact : dependency.getArtifacts()) {
+            key.add(Arrays.<Object>asList(artifact.getName(), artifact.getType(), artifact.getExtension(), artifact.getClassifier(), artifact.getUrl()));
+        }
+        for (ExcludeRule excludeRule : dependency.getExcludeRules()) {
+            key.add(excludeRuleKey(excludeRule));
+        }
+        return key;
+    }
+
+    private static List<Object> excludeRuleKey(ExcludeRule excludeRule) {
+        return Arrays.<Object>asList("exclude", excludeRule.getGroup(), excludeRule.getModule());
+    }
+
+    /**
+     * The results of resolving the dependency graph of a configuration, which can be attached to other configurations with the same inputs.
+     */
+    public static class SharedResults {
+        private final ResolutionResult resolutionResult;
+        private final Object artifactResolveState;
+        private boolean inspected;
+        private Set<String> modules;
+
+        SharedResults(ResolutionResult resolutionResult, Object artifactResolveState) {
+            this.resolutionResult = resolutionResult;
+            this.artifactResolveState = artifactResolveState;
+        }
+
+        /**
+         * Returns true when resolving the graph with the given module as its root would not have selected the root for any edge.
+         */
+        synchronized boolean canBeUsedBy(Module module) {
+            if (!inspected) {
+                modules = collectModules();
+                inspected = true;
+            }
+            return modules != null && !modules.contains(module.getGroup() + ":" + module.getName());
+        }
+
+        /**
+         * Returns the group and name of each module in the graph other than the root, or null when the graph has an edge to its root.
+         */
+        @Nullable
+        private Set<String> collectModules() {
+            ResolvedComponentResult root = resolutionResult.getRoot();
+            if (!root.getDependents().isEmpty()) {
+                return null;
+            }
+            Set<String> modules = new HashSet<String>();
+            for (ResolvedComponentResult component : resolutionResult.getAllComponents()) {
+                ModuleVersionIdentifier moduleVersion = component.getModuleVersion();
+                if (component != root && moduleVersion != null) {
+                    modules.add(moduleVersion.getGroup() + ":" + moduleVersion.getName());
+                }
+            }
+            return modules;
+        }
+
+        public Object getArtifactResolveState() {
+            return artifactResolveState;
+        }
+
+        /**
+         * Returns a copy of the shared dependency graph, with the root component replaced by the root component of the given configuration.
+         */
+        public ResolutionResult resolutionResultFor(final ConfigurationInternal configuration, final ModuleVersionIdentifier moduleVersion, final ComponentIdentifier componentId) {
+            return new DefaultResolutionResult(new Factory<ResolvedComponentResult>() {
+                private ResolvedComponentResult root;
+
+                @Override
+                public synchronized ResolvedComponentResult create() {
+                    if (root == null) {
+                        root = copyWithRoot(resolutionResult.getRoot(), configuration, moduleVersion, componentId);
+                    }
+                    return root;
+                }
+            });
+        }
+
+        private static ResolvedComponentResult copyWithRoot(ResolvedComponentResult sharedRoot, ConfigurationInternal configuration, ModuleVersionIdentifier moduleVersion, ComponentIdentifier componentId) {
+            Map<ResolvedComponentResult, DefaultResolvedComponentResult> copies = new HashMap<ResolvedComponentResult, DefaultResolvedComponentResult>();
+            DefaultResolvedComponentResult root = new DefaultResolvedComponentResult(moduleVersion, sharedRoot.getSelectionReason(), componentId, new DefaultResolvedVariantResult(configuration.getName(), sharedRoot.getVariant().getAttributes()));
+            copies.put(sharedRoot, root);
+            List<ResolvedComponentResult> queue = new ArrayList<ResolvedComponentResult>();
+            queue.add(sharedRoot);
+            while (!queue.isEmpty()) {
+                ResolvedComponentResult original = queue.remove(queue.size() - 1);
+                DefaultResolvedComponentResult from = copies.get(original);
+                for (DependencyResult dependency : original.getDependencies()) {
+                    if (dependency instanceof ResolvedDependencyResult) {
+                        ResolvedComponentResult selected = ((ResolvedDependencyResult) dependency).getSelected();
+                        DefaultResolvedComponentResult selectedCopy = copies.get(selected);
+                        if (selectedCopy == null) {
+                            selectedCopy = new DefaultResolvedComponentResult(selected.getModuleVersion(), selected.getSelectionReason(), selected.getId(), selected.getVariant());
+                            copies.put(selected, selectedCopy);
+                            queue.add(selected);
+                        }
+                        DefaultResolvedDependencyResult copy = new DefaultResolvedDependencyResult(dependency.getRequested(), selectedCopy, from);
+                        selectedCopy.addDependent(copy);
+                        from.addDependency(copy);
+                    } else {
+                        UnresolvedDependencyResult unresolved = (UnresolvedDependencyResult) dependency;
+                        from.addDependency(new DefaultUnresolvedDependencyResult(unresolved.getRequested(), unresolved.getAttemptedReason(), from, (ModuleVersionResolveException) unresolved.getFailure()));
+                    }
+                }
+            }
+            return root;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy;
 
+import com.google.common.collect.ImmutableList;
 import org.gradle.api.Action;
 import org.gradle.api.artifacts.ArtifactIdentifier;
 import org.gradle.api.artifacts.ModuleIdentifier;
@@ -88,39 +89,17 @@ public class DefaultCachePolicy implements CachePolicy, ResolutionRules {
         artifactCacheRules.add(0, rule);
     }
 
-    public void cacheDynamicVersionsFor(final int value, final TimeUnit unit) {
-        eachDependency(new Action<DependencyResolutionControl>() {
-            public void execute(DependencyResolutionControl dependencyResolutionControl) {
-                dependencyResolutionControl.cacheFor(value, unit);
-            }
-        });
+    public void cacheDynamicVersionsFor(int value, TimeUnit unit) {
+        eachDependency(new CacheDynamicVersionsRule(value, unit));
     }
 
-    public void cacheChangingModulesFor(final int value, final TimeUnit units) {
-        eachModule(new Action<ModuleResolutionControl>() {
-            public void execute(ModuleResolutionControl moduleResolutionControl) {
-                if (moduleResolutionControl.isChanging()) {
-                    moduleResolutionControl.cacheFor(value, units);
-                }
-            }
-        });
-        eachArtifact(new Action<ArtifactResolutionControl>() {
-            public void execute(ArtifactResolutionControl artifactResolutionControl) {
-                if (artifactResolutionControl.belongsToChangingModule()) {
-                    artifactResolutionControl.cacheFor(value, units);
-                }
-            }
-        });
+    public void cacheChangingModulesFor(int value, TimeUnit units) {
+        eachModule(new CacheChangingModulesRule(value, units));
+        eachArtifact(new CacheChangingModuleArtifactsRule(value, units));
     }
 
-    private void cacheMissingArtifactsFor(final int value, final TimeUnit units) {
-        eachArtifact(new Action<ArtifactResolutionControl>() {
-            public void execute(ArtifactResolutionControl artifactResolutionControl) {
-                if (artifactResolutionControl.getCachedResult() == null) {
-                    artifactResolutionControl.cacheFor(value, units);
-                }
-            }
-        });
+    private void cacheMissingArtifactsFor(int value, TimeUnit units) {
+        eachArtifact(new CacheMissingArtifactsRule(value, units));
     }
 
     public boolean mustRefreshVersionList(final ModuleIdentifier moduleIdentifier, Set<ModuleVersionIdentifier> matchingVersions, long ageMillis) {
@@ -191,6 +170,87 @@ public class DefaultCachePolicy implements CachePolicy, ResolutionRules {
         return new DefaultCachePolicy(this);
     }
 
+    /**
+     * Returns a snapshot of the rules of this policy. The snapshots of two policies are equal when both policies have the same rules in the same order.
+     * The built-in rules are compared by value, and rules added by the build script by identity.
+     */
+    public List<Object> getRulesSnapshot() {
+        return ImmutableList.<Object>of(ImmutableList.copyOf(dependencyCacheRules), ImmutableList.copyOf(moduleCacheRules), ImmutableList.copyOf(artifactCacheRules));
+    }
+
+    private abstract static class AbstractCacheForRule {
+        final int value;
+        final TimeUnit units;
+
+        AbstractCacheForRule(int value, TimeUnit units) {
+            this.value = value;
+            this.units = units;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            AbstractCacheForRule that = (AbstractCacheForRule) o;
+            return value == that.value && units == that.units;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * value + units.hashCode();
+        }
+    }
+
+    private static class CacheDynamicVersionsRule extends AbstractCacheForRule implements Action<DependencyResolutionControl> {
+        CacheDynamicVersionsRule(int value, TimeUnit units) {
+            super(value, units);
+        }
+
+        public void execute(DependencyResolutionControl dependencyResolutionControl) {
+            dependencyResolutionControl.cacheFor(value, units);
+        }
+    }
+
+    private static class CacheChangingModulesRule extends AbstractCacheForRule implements Action<ModuleResolutionControl> {
+        CacheChangingModulesRule(int value, TimeUnit units) {
+            super(value, units);
+        }
+
+        public void execute(ModuleResolutionControl moduleResolutionControl) {
+            if (moduleResolutionControl.isChanging()) {
+                moduleResolutionControl.cacheFor(value, units);
+            }
+        }
+    }
+
+    private static class CacheChangingModuleArtifactsRule extends AbstractCacheForRule implements Action<ArtifactResolutionControl> {
+        CacheChangingModuleArtifactsRule(int value, TimeUnit units) {
+            super(value, units);
+        }
+
+        public void execute(ArtifactResolutionControl artifactResolutionControl) {
+            if (artifactResolutionControl.belongsToChangingModule()) {
+                artifactResolutionControl.cacheFor(value, units);
+            }
+        }
+    }
+
+    private static class CacheMissingArtifactsRule extends AbstractCacheForRule implements Action<ArtifactResolutionControl> {
+        CacheMissingArtifactsRule(int value, TimeUnit units) {
+            super(value, units);
+        }
+
+        public void execute(ArtifactResolutionControl artifactResolutionControl) {
+            if (artifactResolutionControl.getCachedResult() == null) {
+                artifactResolutionControl.cacheFor(value, units);
+            }
+        }
+    }
+
     private abstract static class AbstractResolutionControl<A, B> implements ResolutionControl<A, B> {
         private final A request;
         private final B cachedResult;
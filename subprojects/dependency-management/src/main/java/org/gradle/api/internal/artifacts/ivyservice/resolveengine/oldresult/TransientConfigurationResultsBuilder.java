@@ -56,19 +56,48 @@ public class TransientConfigurationResultsBuilder {
     private static final byte EDGE = 4;
     private static final byte NODE_ARTIFACTS = 5;
 
-    private final Object lock = new Object();
+    private final Object lock;
 
     private BinaryStore binaryStore;
     private Store<TransientConfigurationResults> cache;
     private final BuildOperationExecutor buildOperationProcessor;
     private final ResolvedConfigurationIdentifierSerializer resolvedConfigurationIdentifierSerializer;
+    private final ResolvedConfigurationIdentifier rootOverride;
     private BinaryStore.BinaryData binaryData;
+    private Long rootId;
 
     public TransientConfigurationResultsBuilder(BinaryStore binaryStore, Store<TransientConfigurationResults> cache, ImmutableModuleIdentifierFactory moduleIdentifierFactory, BuildOperationExecutor buildOperationProcessor) {
         this.resolvedConfigurationIdentifierSerializer = new ResolvedConfigurationIdentifierSerializer(moduleIdentifierFactory);
         this.binaryStore = binaryStore;
         this.cache = cache;
         this.buildOperationProcessor = buildOperationProcessor;
+        this.lock = new Object();
+        this.rootOverride = null;
+    }
+
+    private TransientConfigurationResultsBuilder(TransientConfigurationResultsBuilder source, Store<TransientConfigurationResults> cache, ResolvedConfigurationIdentifier rootOverride) {
+        this.resolvedConfigurationIdentifierSerializer = source.resolvedConfigurationIdentifierSerializer;
+        this.binaryStore = source.binaryStore;
+        this.binaryData = source.binaryData;
+        this.rootId = source.rootId;
+        this.cache = cache;
+        this.buildOperationProcessor = source.buildOperationProcessor;
+        // Both builders read the same binary data
+        this.lock = source.lock;
+        this.rootOverride = rootOverride;
+    }
+
+    /**
+     * Returns a builder that loads the results written by this builder, with the root node replaced by the given root. Used to attach the results
+     * of one configuration to another configuration with the same dependency graph. The results are loaded into new objects, held by the given cache.
+     */
+    public TransientConfigurationResultsBuilder withRoot(ResolvedConfigurationIdentifier root, Store<TransientConfigurationResults> cache) {
+        synchronized (lock) {
+            if (binaryData == null) {
+                throw new IllegalStateException("Cannot share resolved configuration results that have not been completed.");
+            }
+            return new TransientConfigurationResultsBuilder(this, cache, root);
+        }
     }
 
     public void resolvedDependency(final Long id, final ResolvedConfigurationIdentifier details) {
@@ -91,7 +120,10 @@ public class TransientConfigurationResultsBuilder {
             }
         });
         LOG.debug("Flushing resolved configuration data in {}. Wrote root {}.", binaryStore, id);
-        binaryData = binaryStore.done();
+        synchronized (lock) {
+            rootId = id;
+            binaryData = binaryStore.done();
+        }
     }
 
     public void firstLevelDependency(final Long id) {
@@ -164,6 +196,9 @@ public class TransientConfigurationResultsBuilder {
                     case NODE:
                         id = decoder.readSmallLong();
                         ResolvedConfigurationIdentifier details = resolvedConfigurationIdentifierSerializer.read(decoder);
+                        if (rootOverride != null && id == rootId) {
+                            details = rootOverride;
+                        }
                         allDependencies.put(id, new DefaultResolvedDependency(id, details, buildOperationProcessor));
                         break;
                     case ROOT:
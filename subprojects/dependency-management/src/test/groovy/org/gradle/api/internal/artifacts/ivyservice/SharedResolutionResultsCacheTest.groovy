@@ -0,0 +1,237 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.StartParameter
+import org.gradle.api.artifacts.Dependency
+import org.gradle.api.artifacts.DependencySet
+import org.gradle.api.artifacts.ProjectDependency
+import org.gradle.api.artifacts.result.ResolutionResult
+import org.gradle.api.internal.artifacts.ComponentMetadataProcessor
+import org.gradle.api.internal.artifacts.ComponentModuleMetadataProcessor
+import org.gradle.api.internal.artifacts.ComponentSelectionRulesInternal
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules
+import org.gradle.api.internal.artifacts.Module
+import org.gradle.api.internal.artifacts.component.DefaultBuildIdentifier
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.configurations.ConflictResolution
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal
+import org.gradle.api.internal.artifacts.dependencies.DefaultExternalModuleDependency
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionsInternal
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository
+import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.DefaultCachePolicy
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository
+import org.gradle.api.internal.artifacts.result.DefaultResolutionResult
+import org.gradle.api.internal.attributes.ImmutableAttributes
+import org.gradle.internal.Factory
+import org.gradle.internal.component.local.model.DefaultProjectComponentIdentifier
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.api.artifacts.ResolutionStrategy.SortOrder.DEFAULT
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+import static org.gradle.api.internal.artifacts.result.ResolutionResultDataBuilder.newDependency
+import static org.gradle.api.internal.artifacts.result.ResolutionResultDataBuilder.newModule
+
+class SharedResolutionResultsCacheTest extends Specification {
+    def startParameter = new StartParameter(systemPropertiesArgs: [(SharedResolutionResultsCache.SHARE_IDENTICAL_GRAPHS_PROPERTY): "true"])
+    def cache = new SharedResolutionResultsCache(startParameter)
+    def repository = repository("repo")
+    def rules = resolutionRules()
+
+    def "configurations with identical inputs have the same key"() {
+        def first = configuration([new DefaultExternalModuleDependency("org", "lib", "1.0")])
+        def second = configuration([new DefaultExternalModuleDependency("org", "lib", "1.0")])
+
+        expect:
+        cache.keyFor(first, [repository], rules) != null
+        cache.keyFor(first, [repository], rules) == cache.keyFor(second, [repository], rules)
+    }
+
+    def "configurations with different inputs have different keys"() {
+        def first = configuration([new DefaultExternalModuleDependency("org", "lib", "1.0")])
+        def otherVersion = configuration([new DefaultExternalModuleDependency("org", "lib", "2.0")])
+        def notTransitive = configuration([new DefaultExternalModuleDependency("org", "lib", "1.0").setTransitive(false)])
+
+        expect:
+        cache.keyFor(first, [repository], rules) != cache.keyFor(otherVersion, [repository], rules)
+        cache.keyFor(first, [repository], rules) != cache.keyFor(notTransitive, [repository], rules)
+        cache.keyFor(first, [repository], rules) != cache.keyFor(first, [repository("other")], rules)
+    }
+
+    def "does not share results of configurations with project dependencies"() {
+        def configuration = configuration([Stub(ProjectDependency)])
+
+        expect:
+        cache.keyFor(configuration, [repository], rules) == null
+    }
+
+    def "does not share results of configurations with dependency substitution rules"() {
+        def configuration = configuration([new DefaultExternalModuleDependency("org", "lib", "1.0")], true)
+
+        expect:
+        cache.keyFor(configuration, [repository], rules) == null
+    }
+
+    def "does not share results of projects with component metadata rules or module replacements"() {
+        def configuration = configuration([new DefaultExternalModuleDependency("org", "lib", "1.0")])
+
+        expect:
+        cache.keyFor(configuration, [repository], resolutionRules(true, false)) == null
+        cache.keyFor(configuration, [repository], resolutionRules(false, true)) == null
+    }
+
+    def "configurations with different cache policies have different keys"() {
+        def first = configuration([new DefaultExternalModuleDependency("org", "lib", "1.0")])
+        def second = configuration([new DefaultExternalModuleDependency("org", "lib", "1.0")])
+        second.resolutionStrategy.cachePolicy.cacheChangingModulesFor(0, TimeUnit.SECONDS)
+
+        expect:
+        cache.keyFor(first, [repository], rules) != cache.keyFor(second, [repository], rules)
+    }
+
+    def "does not share results when not enabled"() {
+        def cache = new SharedResolutionResultsCache(new StartParameter())
+        def configuration = configuration([new DefaultExternalModuleDependency("org", "lib", "1.0")])
+
+        expect:
+        cache.keyFor(configuration, [repository], rules) == null
+    }
+
+    def "counts shared results"() {
+        def configuration = configuration([new DefaultExternalModuleDependency("org", "lib", "1.0")])
+        def key = cache.keyFor(configuration, [repository], rules)
+
+        expect:
+        cache.get(key, configuration) == null
+        cache.put(key, Stub(ResolutionResult), "state")
+        cache.get(key, configuration).artifactResolveState == "state"
+        cache.sharedCount == 1
+    }
+
+    def "does not share dependency graph with an edge to its root"() {
+        def sharedRoot = newModule("shared", "root", "1").addDependency(newDependency("org", "lib", "1.0"))
+        sharedRoot.addDependent(newDependency("shared", "root", "0.5"))
+        def configuration = configuration([new DefaultExternalModuleDependency("org", "lib", "1.0")])
+        def key = cache.keyFor(configuration, [repository], rules)
+        cache.put(key, new DefaultResolutionResult({ sharedRoot } as Factory), "state")
+
+        expect:
+        cache.get(key, configuration) == null
+        cache.sharedCount == 0
+    }
+
+    def "does not share dependency graph that contains the module of the consuming configuration"() {
+        def dependency = newDependency("test", "consumer", "1.0")
+        def sharedRoot = newModule("shared", "root", "1").addDependency(dependency)
+        dependency.selected.addDependent(dependency)
+        def consumer = configuration([new DefaultExternalModuleDependency("test", "consumer", "1.0")])
+        def other = configuration([new DefaultExternalModuleDependency("test", "consumer", "1.0")], false, "other")
+        def key = cache.keyFor(consumer, [repository], rules)
+        cache.put(key, new DefaultResolutionResult({ sharedRoot } as Factory), "state")
+
+        expect:
+        cache.get(key, consumer) == null
+        cache.get(key, other) != null
+        cache.sharedCount == 1
+    }
+
+    def "replaces root component of shared dependency graph"() {
+        def dependency = newDependency("org", "lib", "1.0")
+        def sharedRoot = newModule("shared", "root", "1").addDependency(dependency)
+        dependency.selected.addDependent(dependency)
+        def configuration = configuration([new DefaultExternalModuleDependency("org", "lib", "1.0")])
+        def key = cache.keyFor(configuration, [repository], rules)
+        cache.put(key, new DefaultResolutionResult({ sharedRoot } as Factory), "state")
+        def componentId = new DefaultProjectComponentIdentifier(new DefaultBuildIdentifier("build"), ":other")
+
+        when:
+        def result = cache.get(key, configuration).resolutionResultFor(configuration, newId("other", "root", "1"), componentId)
+        def root = result.root
+
+        then:
+        root.id == componentId
+        root.moduleVersion == newId("other", "root", "1")
+        root.variant.displayName == "compile"
+        root.dependencies.size() == 1
+        def copy = root.dependencies.first()
+        copy.from == root
+        copy.requested == dependency.requested
+        copy.selected.id == dependency.selected.id
+        copy.selected.dependents*.from == [root]
+
+        and:
+        sharedRoot.dependencies == [dependency] as Set
+    }
+
+    def configuration(List<Dependency> dependencies, boolean hasSubstitutionRules = false, String moduleName = "consumer") {
+        def dependencySet = Stub(DependencySet) {
+            iterator() >> { dependencies.iterator() }
+        }
+        def cachePolicy = new DefaultCachePolicy(new DefaultImmutableModuleIdentifierFactory())
+        def resolutionStrategy = Stub(ResolutionStrategyInternal) {
+            getDependencySubstitution() >> Stub(DependencySubstitutionsInternal) {
+                hasRules() >> hasSubstitutionRules
+            }
+            getComponentSelection() >> Stub(ComponentSelectionRulesInternal) {
+                getRules() >> []
+            }
+            getForcedModules() >> ([] as Set)
+            getConflictResolution() >> ConflictResolution.latest
+            getSortOrder() >> DEFAULT
+            getCachePolicy() >> cachePolicy
+        }
+        def configuration = Stub(ConfigurationInternal)
+        configuration.name >> "compile"
+        configuration.allDependencies >> dependencySet
+        configuration.hierarchy >> ([configuration] as Set)
+        configuration.excludeRules >> ([] as Set)
+        configuration.transitive >> true
+        configuration.attributes >> ImmutableAttributes.EMPTY
+        configuration.resolutionStrategy >> resolutionStrategy
+        configuration.module >> Stub(Module) {
+            getGroup() >> "test"
+            getName() >> moduleName
+        }
+        return configuration
+    }
+
+    def resolutionRules(boolean metadataRules = false, boolean replacements = false) {
+        return Stub(GlobalDependencyResolutionRules) {
+            getComponentMetadataProcessor() >> Stub(ComponentMetadataProcessor) {
+                hasRules() >> metadataRules
+            }
+            getModuleMetadataProcessor() >> Stub(ComponentModuleMetadataProcessor) {
+                getModuleReplacements() >> Stub(ModuleReplacementsData) {
+                    hasReplacements() >> replacements
+                }
+            }
+        }
+    }
+
+    def repository(String id) {
+        return Stub(ResolutionAwareRepository) {
+            createResolver() >> Stub(ConfiguredModuleComponentRepository) {
+                getId() >> id
+            }
+        }
+    }
+}
@@ -43,11 +43,15 @@ class DaemonRegistryStateProbe implements DaemonStateProbe {
     }
 
     void assertRegistryNotWorldReadable() {
-        def registryFile = new DaemonDir(context.daemonRegistryDir).registry
+        def registryDir = new DaemonDir(context.daemonRegistryDir).registryDir
         if (OperatingSystem.current().isLinux() || OperatingSystem.current().isMacOsX()) {
             def stat = NativeServicesTestFixture.instance.get(Stat)
-            assert stat.getUnixMode(registryFile) == 0600 // user read-write
-            assert stat.getUnixMode(registryFile.parentFile) == 0700 // user read-write-execute
+            assert stat.getUnixMode(registryDir) == 0700 // user read-write-execute
+            def entries = registryDir.listFiles()
+            assert entries.length > 0
+            entries.each { entry ->
+                assert stat.getUnixMode(entry) == 0600 // user read-write
+            }
         }
     }
 
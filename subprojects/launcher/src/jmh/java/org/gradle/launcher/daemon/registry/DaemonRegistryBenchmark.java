@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.launcher.daemon.registry;
+
+import org.gradle.internal.nativeintegration.filesystem.Chmod;
+import org.gradle.internal.remote.Address;
+import org.gradle.internal.remote.internal.inet.MultiChoiceAddress;
+import org.gradle.launcher.daemon.context.DefaultDaemonContext;
+import org.gradle.util.GFileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.gradle.launcher.daemon.server.api.DaemonStateControl.State.Busy;
+import static org.gradle.launcher.daemon.server.api.DaemonStateControl.State.Idle;
+
+/**
+ * Measures the registry access a client performs on startup, with several clients and daemons using the registry at the same time.
+ */
+@Fork(2)
+@Threads(4)
+@Warmup(iterations = 10)
+@State(Scope.Benchmark)
+public class DaemonRegistryBenchmark {
+
+    @Param({"1", "20", "50"})
+    int daemonCount;
+
+    private File tmpDir;
+    private Address[] addresses;
+    private DaemonRegistry directoryRegistry;
+
+    @Setup(Level.Trial)
+    public void createRegistry() throws IOException {
+        tmpDir = File.createTempFile("daemon-registry", "benchmark");
+        tmpDir.delete();
+        directoryRegistry = new DirectoryBackedDaemonRegistry(new File(tmpDir, "registry"), new NoOpChmod());
+        addresses = new Address[daemonCount];
+        for (int i = 0; i < daemonCount; i++) {
+            addresses[i] = new MultiChoiceAddress(UUID.randomUUID(), 10000 + i, Collections.singletonList(InetAddress.getByName("127.0.0.1")));
+            DefaultDaemonContext context = new DefaultDaemonContext(String.valueOf(i), tmpDir, tmpDir, (long) i, 10000, Collections.<String>emptyList());
+            directoryRegistry.store(new DaemonInfo(addresses[i], context, "token".getBytes(), Idle));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteRegistry() {
+        GFileUtils.deleteQuietly(tmpDir);
+    }
+
+    @Benchmark
+    public Object directoryRegistryLookup() {
+        return directoryRegistry.getIdle();
+    }
+
+    @Benchmark
+    public void directoryRegistryBusyIdleCycle() {
+        Address address = addresses[(int) (Thread.currentThread().getId() % daemonCount)];
+        directoryRegistry.markState(address, Busy);
+        directoryRegistry.markState(address, Idle);
+    }
+
+    private static class NoOpChmod implements Chmod {
+        @Override
+        public void chmod(File file, int mode) {
+        }
+    }
+}
@@ -43,6 +43,7 @@ import org.gradle.launcher.daemon.client.ReportDaemonStatusClient;
 import org.gradle.launcher.daemon.configuration.BuildProcess;
 import org.gradle.launcher.daemon.configuration.DaemonParameters;
 import org.gradle.launcher.daemon.configuration.ForegroundDaemonConfiguration;
+import org.gradle.launcher.daemon.registry.DaemonDir;
 import org.gradle.launcher.exec.BuildActionExecuter;
 import org.gradle.launcher.exec.BuildActionParameters;
 import org.gradle.launcher.exec.BuildExecuter;
@@ -78,6 +79,9 @@ class BuildActionsFactory implements CommandLineAction {
         if (parameters.getDaemonParameters().isStatus()) {
             return showDaemonStatus(parameters.getDaemonParameters(), loggingServices);
         }
+        if (parameters.getDaemonParameters().isTelemetry()) {
+            return new ReportDaemonTelemetryAction(new DaemonDir(parameters.getDaemonParameters().getBaseDir()).getVersionedDir());
+        }
         if (parameters.getDaemonParameters().isForeground()) {
             DaemonParameters daemonParameters = parameters.getDaemonParameters();
             ForegroundDaemonConfiguration conf = new ForegroundDaemonConfiguration(
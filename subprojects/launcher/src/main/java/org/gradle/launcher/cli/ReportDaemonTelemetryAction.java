@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher.cli;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.util.NumberUtil;
+import org.gradle.launcher.daemon.server.health.telemetry.BuildTelemetryFile;
+import org.gradle.launcher.daemon.server.health.telemetry.BuildTelemetryRecord;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Prints the per build telemetry recorded by the daemons of the current Gradle version.
+ */
+public class ReportDaemonTelemetryAction implements Runnable {
+    private static final Logger LOGGER = Logging.getLogger(ReportDaemonTelemetryAction.class);
+    private static final String NO_TELEMETRY = "No build telemetry has been recorded by Gradle daemons.";
+    private static final String ALLOCATION_NOTE = "The allocation rate only includes allocations of threads that were still running at the end of each build.";
+    private static final String TELEMETRY_FORMAT = "%1$6s %2$-19s %3$10s %4$12s %5$12s %6$10s %7$10s %8$12s";
+
+    private final File daemonDir;
+
+    public ReportDaemonTelemetryAction(File daemonDir) {
+        this.daemonDir = daemonDir;
+    }
+
+    @Override
+    public void run() {
+        File[] files = daemonDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().endsWith(BuildTelemetryFile.FILE_SUFFIX);
+            }
+        });
+        if (files == null || files.length == 0) {
+            LOGGER.quiet(NO_TELEMETRY);
+            return;
+        }
+        Arrays.sort(files);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        for (File file : files) {
+            List<BuildTelemetryRecord> records = BuildTelemetryFile.read(file);
+            LOGGER.quiet(file.getName().substring(0, file.getName().length() - BuildTelemetryFile.FILE_SUFFIX.length()) + ":");
+            LOGGER.quiet(String.format(TELEMETRY_FORMAT, "BUILD", "STARTED", "DURATION", "HEAP DELTA", "META DELTA", "GC COUNT", "GC TIME", "ALLOC RATE"));
+            for (BuildTelemetryRecord record : records) {
+                LOGGER.quiet(String.format(TELEMETRY_FORMAT,
+                    record.getBuildNumber(),
+                    dateFormat.format(new Date(record.getStartTime())),
+                    record.getDuration() + "ms",
+                    NumberUtil.formatBytes(record.getHeapDelta()),
+                    NumberUtil.formatBytes(record.getMetaspaceDelta()),
+                    record.getGcCount(),
+                    record.getGcTime() + "ms",
+                    record.getAllocationRate() < 0 ? "unknown" : NumberUtil.formatBytes(record.getAllocationRate()) + "/s"));
+            }
+            LOGGER.quiet("");
+        }
+        LOGGER.quiet(ALLOCATION_NOTE);
+    }
+}
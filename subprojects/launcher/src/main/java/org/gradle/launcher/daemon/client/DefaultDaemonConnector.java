@@ -23,6 +23,8 @@ import org.gradle.api.logging.Logging;
 import org.gradle.api.specs.Spec;
 import org.gradle.internal.Pair;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.logging.progress.ProgressLogger;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
 import org.gradle.internal.remote.internal.ConnectException;
@@ -48,6 +50,11 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.lang.Thread.sleep;
 import static org.gradle.launcher.daemon.server.api.DaemonStateControl.State.Canceled;
@@ -60,25 +67,29 @@ public class DefaultDaemonConnector implements DaemonConnector {
     private static final Logger LOGGER = Logging.getLogger(DefaultDaemonConnector.class);
     public static final int DEFAULT_CONNECT_TIMEOUT = 30000;
     public static final int CANCELED_WAIT_TIMEOUT = 3000;
+    public static final int MAX_CONCURRENT_PROBES = 4;
     private final DaemonRegistry daemonRegistry;
     protected final OutgoingConnector connector;
     private final DaemonStarter daemonStarter;
     private final DaemonStartListener startListener;
     private final ProgressLoggerFactory progressLoggerFactory;
+    private final ExecutorFactory executorFactory;
     private long connectTimeout = DefaultDaemonConnector.DEFAULT_CONNECT_TIMEOUT;
 
-    public DefaultDaemonConnector(DaemonRegistry daemonRegistry, OutgoingConnector connector, DaemonStarter daemonStarter, DaemonStartListener startListener, ProgressLoggerFactory progressLoggerFactory) {
+    public DefaultDaemonConnector(DaemonRegistry daemonRegistry, OutgoingConnector connector, DaemonStarter daemonStarter, DaemonStartListener startListener, ProgressLoggerFactory progressLoggerFactory, ExecutorFactory executorFactory) {
         Preconditions.checkNotNull(daemonRegistry);
         Preconditions.checkNotNull(connector);
         Preconditions.checkNotNull(daemonStarter);
         Preconditions.checkNotNull(startListener);
         Preconditions.checkNotNull(progressLoggerFactory);
+        Preconditions.checkNotNull(executorFactory);
 
         this.daemonRegistry = daemonRegistry;
         this.connector = connector;
         this.daemonStarter = daemonStarter;
         this.startListener = startListener;
         this.progressLoggerFactory = progressLoggerFactory;
+        this.executorFactory = executorFactory;
     }
 
     public void setConnectTimeout(long connectTimeout) {
@@ -190,6 +201,9 @@ public class DefaultDaemonConnector implements DaemonConnector {
     }
 
     private DaemonClientConnection findConnection(List<DaemonInfo> compatibleDaemons) {
+        if (compatibleDaemons.size() > 1) {
+            return findConnectionConcurrently(compatibleDaemons);
+        }
         for (DaemonInfo daemon : compatibleDaemons) {
             try {
                 return connectToDaemon(daemon, new CleanupOnStaleAddress(daemon, true));
@@ -200,6 +214,56 @@ public class DefaultDaemonConnector implements DaemonConnector {
         return null;
     }
 
+    /**
+     * Attempts to connect to several candidate daemons at the same time, so that stale registry entries do not delay the connection to a live daemon.
+     * The first connection established wins, connections established afterwards are stopped again.
+     */
+    private DaemonClientConnection findConnectionConcurrently(List<DaemonInfo> compatibleDaemons) {
+        final AtomicReference<DaemonClientConnection> winner = new AtomicReference<DaemonClientConnection>();
+        ManagedExecutor executor = executorFactory.create("Daemon connection probe", Math.min(compatibleDaemons.size(), MAX_CONCURRENT_PROBES));
+        try {
+            CompletionService<DaemonClientConnection> probes = new ExecutorCompletionService<DaemonClientConnection>(executor);
+            for (final DaemonInfo daemon : compatibleDaemons) {
+                probes.submit(new Callable<DaemonClientConnection>() {
+                    @Override
+                    public DaemonClientConnection call() {
+                        if (winner.get() != null) {
+                            return null;
+                        }
+                        DaemonClientConnection connection;
+                        try {
+                            connection = connectToDaemon(daemon, new CleanupOnStaleAddress(daemon, true));
+                        } catch (ConnectException e) {
+                            LOGGER.debug("Cannot connect to daemon {} due to {}. Trying a different daemon...", daemon, e);
+                            return null;
+                        }
+                        if (winner.compareAndSet(null, connection)) {
+                            return connection;
+                        }
+                        connection.stop();
+                        return null;
+                    }
+                });
+            }
+            for (int i = 0; i < compatibleDaemons.size(); i++) {
+                try {
+                    DaemonClientConnection connection = probes.take().get();
+                    if (connection != null) {
+                        return connection;
+                    }
+                } catch (ExecutionException e) {
+                    LOGGER.debug("Failed to probe daemon connection.", e.getCause());
+                }
+            }
+            return winner.get();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            // Probes still in flight clean up after themselves
+            executor.requestStop();
+        }
+    }
+
     public DaemonClientConnection startDaemon(ExplainingSpec<DaemonContext> constraint) {
         return doStartDaemon(constraint, false);
     }
@@ -49,6 +49,7 @@ public class DaemonBuildOptions {
         options.add(new ForegroundOption());
         options.add(new StopOption());
         options.add(new StatusOption());
+        options.add(new TelemetryOption());
         DaemonBuildOptions.options = Collections.unmodifiableList(options);
     }
 
@@ -201,4 +202,15 @@ public class DaemonBuildOptions {
             settings.setStatus(true);
         }
     }
+
+    public static class TelemetryOption extends EnabledOnlyBooleanBuildOption<DaemonParameters> {
+        public TelemetryOption() {
+            super(null, CommandLineOptionConfiguration.create("daemon-telemetry", "Shows the memory and garbage collection telemetry recorded for each build by the Gradle Daemon(s).").incubating());
+        }
+
+        @Override
+        public void applyTo(DaemonParameters settings, Origin origin) {
+            settings.setTelemetry(true);
+        }
+    }
 }
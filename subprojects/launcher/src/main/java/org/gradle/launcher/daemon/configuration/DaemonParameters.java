@@ -52,6 +52,7 @@ public class DaemonParameters {
     private boolean foreground;
     private boolean stop;
     private boolean status;
+    private boolean telemetry;
     private boolean interactive = ConsoleStateUtil.isInteractive();
     private JavaInfo jvm = Jvm.current();
 
@@ -204,6 +205,14 @@ public class DaemonParameters {
         this.status = status;
     }
 
+    public boolean isTelemetry() {
+        return telemetry;
+    }
+
+    public void setTelemetry(boolean telemetry) {
+        this.telemetry = telemetry;
+    }
+
     public Map<String, String> getEnvironmentVariables() {
         return envVariables;
     }
@@ -25,11 +25,13 @@ public class DaemonDir {
     private final File baseDir;
     private final File versionedDir;
     private final File registryFile;
+    private final File registryDir;
 
     public DaemonDir(File baseDir) {
         this.baseDir = baseDir;
         this.versionedDir = new File(baseDir, GradleVersion.current().getVersion());
         this.registryFile = new File(versionedDir, "registry.bin");
+        this.registryDir = new File(versionedDir, "registry");
         GFileUtils.mkdirs(this.versionedDir);
     }
 
@@ -44,4 +46,11 @@ public class DaemonDir {
     public File getRegistry() {
         return registryFile;
     }
+
+    /**
+     * The directory holding the entries of a {@link DirectoryBackedDaemonRegistry}.
+     */
+    public File getRegistryDir() {
+        return registryDir;
+    }
 }
@@ -15,7 +15,6 @@
  */
 package org.gradle.launcher.daemon.registry;
 
-import org.gradle.cache.FileLockManager;
 import org.gradle.cache.internal.Cache;
 import org.gradle.cache.internal.CacheAccessSerializer;
 import org.gradle.cache.internal.MapBackedCache;
@@ -52,11 +51,11 @@ public class DaemonRegistryServices {
         return new DaemonDir(daemonBaseDir);
     }
 
-    DaemonRegistry createDaemonRegistry(DaemonDir daemonDir, final FileLockManager fileLockManager, final Chmod chmod) {
-        final File daemonRegistryFile = daemonDir.getRegistry();
-        return daemonRegistryCache.get(daemonRegistryFile, new Factory<DaemonRegistry>() {
+    DaemonRegistry createDaemonRegistry(DaemonDir daemonDir, final Chmod chmod) {
+        final File daemonRegistryDir = daemonDir.getRegistryDir();
+        return daemonRegistryCache.get(daemonRegistryDir, new Factory<DaemonRegistry>() {
             public DaemonRegistry create() {
-                return new PersistentDaemonRegistry(daemonRegistryFile, fileLockManager, chmod);
+                return new DirectoryBackedDaemonRegistry(daemonRegistryDir, chmod);
             }
         });
     }
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.launcher.daemon.registry;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.nativeintegration.filesystem.Chmod;
+import org.gradle.internal.remote.Address;
+import org.gradle.internal.serialize.InputStreamBackedDecoder;
+import org.gradle.internal.serialize.OutputStreamBackedEncoder;
+import org.gradle.util.GFileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.gradle.launcher.daemon.server.api.DaemonStateControl.State;
+import static org.gradle.launcher.daemon.server.api.DaemonStateControl.State.Canceled;
+import static org.gradle.launcher.daemon.server.api.DaemonStateControl.State.Idle;
+
+/**
+ * A daemon registry that stores each daemon, and each stop event, in its own file in a registry directory.
+ *
+ * <p>Files are only ever replaced by renaming a fully written temporary file over them, so readers never need to take a lock and
+ * never see a partially written entry. A client looking for a daemon does not contend with the other daemons and clients on the
+ * host that are updating their own entries.</p>
+ *
+ * <p>Updates to a single entry are serialized within this process only. This is sufficient as an entry is only ever updated by
+ * the daemon that owns it, and removed either by that daemon or by a client that found the daemon unreachable.</p>
+ */
+public class DirectoryBackedDaemonRegistry implements DaemonRegistry {
+    private static final Logger LOGGER = Logging.getLogger(DirectoryBackedDaemonRegistry.class);
+
+    private static final String DAEMON_FILE_PREFIX = "daemon-";
+    private static final String STOP_EVENT_FILE_PREFIX = "stop-";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    // A reader briefly holding an entry open prevents it from being replaced or deleted on Windows, so retry for a while
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long RETRY_DELAY_MS = 20;
+
+    private final File registryDir;
+    private final Chmod chmod;
+    private final Lock lock = new ReentrantLock();
+
+    public DirectoryBackedDaemonRegistry(File registryDir, Chmod chmod) {
+        this.registryDir = registryDir;
+        this.chmod = chmod;
+    }
+
+    public List<DaemonInfo> getAll() {
+        List<DaemonInfo> infos = new LinkedList<DaemonInfo>();
+        for (File file : listFiles(DAEMON_FILE_PREFIX)) {
+            DaemonRegistryContent content = read(file);
+            if (content != null) {
+                infos.addAll(content.getInfos());
+            }
+        }
+        return infos;
+    }
+
+    public List<DaemonInfo> getIdle() {
+        return getDaemonsMatching(new Spec<DaemonInfo>() {
+            @Override
+            public boolean isSatisfiedBy(DaemonInfo daemonInfo) {
+                return daemonInfo.getState() == Idle;
+            }
+        });
+    }
+
+    public List<DaemonInfo> getNotIdle() {
+        return getDaemonsMatching(new Spec<DaemonInfo>() {
+            @Override
+            public boolean isSatisfiedBy(DaemonInfo daemonInfo) {
+                return daemonInfo.getState() != Idle;
+            }
+        });
+    }
+
+    public List<DaemonInfo> getCanceled() {
+        return getDaemonsMatching(new Spec<DaemonInfo>() {
+            @Override
+            public boolean isSatisfiedBy(DaemonInfo daemonInfo) {
+                return daemonInfo.getState() == Canceled;
+            }
+        });
+    }
+
+    private List<DaemonInfo> getDaemonsMatching(Spec<DaemonInfo> spec) {
+        List<DaemonInfo> out = new LinkedList<DaemonInfo>();
+        for (DaemonInfo d : getAll()) {
+            if (spec.isSatisfiedBy(d)) {
+                out.add(d);
+            }
+        }
+        return out;
+    }
+
+    public void store(DaemonInfo info) {
+        LOGGER.debug("Storing daemon address: {}, context: {}", info.getAddress(), info.getContext());
+        lock.lock();
+        try {
+            writeDaemonInfo(new DaemonInfo(info.getAddress(), info.getContext(), info.getToken(), info.getState()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(Address address) {
+        LOGGER.debug("Removing daemon address: {}", address);
+        lock.lock();
+        try {
+            File file = daemonFileFor(address);
+            for (int attempt = 1; file.exists() && !file.delete() && file.exists(); attempt++) {
+                if (attempt == MAX_ATTEMPTS || !waitBeforeRetry()) {
+                    // Clients remove the entry once they find the daemon unreachable
+                    LOGGER.info("Could not remove daemon registry entry {}.", file);
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void markState(Address address, State state) {
+        LOGGER.debug("Marking busy by address: {}", address);
+        lock.lock();
+        try {
+            DaemonRegistryContent content = read(daemonFileFor(address));
+            DaemonInfo daemonInfo = content != null ? content.getInfo(address) : null;
+            if (daemonInfo != null) {
+                daemonInfo.setState(state);
+                writeDaemonInfo(daemonInfo);
+            }
+            // Else, has been removed by something else - ignore
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void storeStopEvent(DaemonStopEvent stopEvent) {
+        LOGGER.debug("Storing daemon stop event with timestamp {}", stopEvent.getTimestamp().getTime());
+        DaemonRegistryContent content = new DaemonRegistryContent();
+        content.addStopEvent(stopEvent);
+        write(new File(registryDir, STOP_EVENT_FILE_PREFIX + UUID.randomUUID() + FILE_SUFFIX), content);
+    }
+
+    @Override
+    public List<DaemonStopEvent> getStopEvents() {
+        LOGGER.debug("Getting daemon stop events");
+        List<DaemonStopEvent> stopEvents = new LinkedList<DaemonStopEvent>();
+        for (File file : listFiles(STOP_EVENT_FILE_PREFIX)) {
+            DaemonRegistryContent content = read(file);
+            if (content != null) {
+                stopEvents.addAll(content.getStopEvents());
+            }
+        }
+        return stopEvents;
+    }
+
+    @Override
+    public void removeStopEvents(Collection<DaemonStopEvent> events) {
+        LOGGER.info("Removing {} daemon stop events from registry", events.size());
+        if (events.isEmpty()) {
+            return;
+        }
+        for (File file : listFiles(STOP_EVENT_FILE_PREFIX)) {
+            DaemonRegistryContent content = read(file);
+            if (content != null && events.containsAll(content.getStopEvents())) {
+                // Another client may have removed the same event already
+                file.delete();
+            }
+        }
+    }
+
+    private void writeDaemonInfo(DaemonInfo info) {
+        DaemonRegistryContent content = new DaemonRegistryContent();
+        content.setStatus(info.getAddress(), info);
+        write(daemonFileFor(info.getAddress()), content);
+    }
+
+    private File daemonFileFor(Address address) {
+        return new File(registryDir, DAEMON_FILE_PREFIX + HashUtil.createCompactMD5(address.getDisplayName()) + FILE_SUFFIX);
+    }
+
+    private List<File> listFiles(String prefix) {
+        File[] files = registryDir.listFiles();
+        if (files == null) {
+            // when no daemon process has started yet
+            return new ArrayList<File>(0);
+        }
+        List<File> matching = new ArrayList<File>(files.length);
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(prefix) && name.endsWith(FILE_SUFFIX)) {
+                matching.add(file);
+            }
+        }
+        return matching;
+    }
+
+    private DaemonRegistryContent read(File file) {
+        InputStreamBackedDecoder decoder;
+        try {
+            decoder = new InputStreamBackedDecoder(new BufferedInputStream(new FileInputStream(file)));
+        } catch (IOException e) {
+            // Entry has been removed since the directory was listed
+            return null;
+        }
+        try {
+            return DaemonRegistryContent.SERIALIZER.read(decoder);
+        } catch (Exception e) {
+            LOGGER.debug("Ignoring unreadable daemon registry entry {}.", file, e);
+            return null;
+        } finally {
+            try {
+                decoder.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    private void write(File file, DaemonRegistryContent content) {
+        try {
+            GFileUtils.mkdirs(registryDir);
+            chmod.chmod(registryDir, 0700); // read-write-execute for user only
+            File tempFile = File.createTempFile(file.getName(), TEMP_FILE_SUFFIX, registryDir);
+            try {
+                chmod.chmod(tempFile, 0600); // read-write for user only
+                OutputStreamBackedEncoder encoder = new OutputStreamBackedEncoder(new BufferedOutputStream(new FileOutputStream(tempFile)));
+                try {
+                    DaemonRegistryContent.SERIALIZER.write(encoder, content);
+                } finally {
+                    encoder.close();
+                }
+                replace(tempFile, file);
+            } finally {
+                tempFile.delete();
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException("Could not write daemon registry entry " + file, e);
+        }
+    }
+
+    private static void replace(File source, File target) throws IOException {
+        for (int attempt = 1;; attempt++) {
+            try {
+                // Never leaves a window where the entry does not exist, as deleting then renaming would
+                Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return;
+            } catch (AccessDeniedException e) {
+                if (attempt == MAX_ATTEMPTS || !waitBeforeRetry()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static boolean waitBeforeRetry() {
+        try {
+            Thread.sleep(RETRY_DELAY_MS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public String toString() {
+        return String.format("DirectoryBackedDaemonRegistry[dir=%s]", registryDir);
+    }
+}
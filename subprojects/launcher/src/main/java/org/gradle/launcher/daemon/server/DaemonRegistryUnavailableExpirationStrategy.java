@@ -49,7 +49,7 @@ public class DaemonRegistryUnavailableExpirationStrategy implements DaemonExpira
         try {
             final DaemonContext daemonContext = daemon.getDaemonContext();
             final File daemonRegistryDir = daemonContext.getDaemonRegistryDir();
-            if (!new DaemonDir(daemonRegistryDir).getRegistry().canRead()) {
+            if (!new DaemonDir(daemonRegistryDir).getRegistryDir().canRead()) {
                 LOG.warn("Daemon registry {} became unreadable. Expiring daemon.", daemonRegistryDir);
                 return new DaemonExpirationResult(GRACEFUL_EXPIRE, REGISTRY_BECAME_UNREADABLE);
             } else {
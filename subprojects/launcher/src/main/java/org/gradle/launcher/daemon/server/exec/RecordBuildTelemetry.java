@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher.daemon.server.exec;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.launcher.daemon.server.api.DaemonCommandAction;
+import org.gradle.launcher.daemon.server.api.DaemonCommandExecution;
+import org.gradle.launcher.daemon.server.health.telemetry.BuildTelemetryFile;
+import org.gradle.launcher.daemon.server.health.telemetry.BuildTelemetryRecord;
+import org.gradle.launcher.daemon.server.health.telemetry.MemorySnapshot;
+import org.gradle.launcher.daemon.server.stats.DaemonRunningStats;
+
+/**
+ * Records the heap, metaspace and garbage collection behaviour of each build into the daemon's telemetry file.
+ */
+public class RecordBuildTelemetry implements DaemonCommandAction {
+
+    private static final Logger LOG = Logging.getLogger(RecordBuildTelemetry.class);
+
+    private final BuildTelemetryFile telemetryFile;
+    private final DaemonRunningStats runningStats;
+
+    public RecordBuildTelemetry(BuildTelemetryFile telemetryFile, DaemonRunningStats runningStats) {
+        this.telemetryFile = telemetryFile;
+        this.runningStats = runningStats;
+    }
+
+    @Override
+    public void execute(DaemonCommandExecution execution) {
+        if (execution.isSingleUseDaemon()) {
+            execution.proceed();
+            return;
+        }
+
+        MemorySnapshot before = MemorySnapshot.capture();
+        try {
+            execution.proceed();
+        } finally {
+            MemorySnapshot after = MemorySnapshot.capture();
+            try {
+                telemetryFile.append(BuildTelemetryRecord.between(runningStats.getBuildCount(), before, after));
+            } catch (Exception e) {
+                LOG.debug("Could not record build telemetry to {}.", telemetryFile.getFile(), e);
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.gradle.launcher.daemon.server.health;
 
 import com.google.common.annotations.VisibleForTesting;
+import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.concurrent.ManagedScheduledExecutor;
@@ -27,6 +28,9 @@ import org.gradle.launcher.daemon.server.health.gc.GarbageCollectionStats;
 import org.gradle.launcher.daemon.server.health.gc.GarbageCollectorMonitoringStrategy;
 import org.gradle.launcher.daemon.server.stats.DaemonRunningStats;
 
+import javax.annotation.Nullable;
+import java.util.List;
+
 import static java.lang.String.format;
 
 public class DaemonHealthStats implements Stoppable {
@@ -35,20 +39,28 @@ public class DaemonHealthStats implements Stoppable {
     private final ManagedScheduledExecutor scheduler;
     private final GarbageCollectionInfo gcInfo;
     private final GarbageCollectionMonitor gcMonitor;
+    private final InMemoryCacheDecoratorFactory inMemoryCaches;
 
-    public DaemonHealthStats(DaemonRunningStats runningStats, ExecutorFactory executorFactory) {
+    public DaemonHealthStats(DaemonRunningStats runningStats, ExecutorFactory executorFactory, InMemoryCacheDecoratorFactory inMemoryCaches) {
         this.runningStats = runningStats;
         this.scheduler = executorFactory.createScheduled("Daemon health stats", 1);
         this.gcInfo = new GarbageCollectionInfo();
         this.gcMonitor = new GarbageCollectionMonitor(scheduler);
+        this.inMemoryCaches = inMemoryCaches;
     }
 
     @VisibleForTesting
     DaemonHealthStats(DaemonRunningStats runningStats, GarbageCollectionInfo gcInfo, GarbageCollectionMonitor gcMonitor) {
+        this(runningStats, gcInfo, gcMonitor, null);
+    }
+
+    @VisibleForTesting
+    DaemonHealthStats(DaemonRunningStats runningStats, GarbageCollectionInfo gcInfo, GarbageCollectionMonitor gcMonitor, InMemoryCacheDecoratorFactory inMemoryCaches) {
         this.runningStats = runningStats;
         this.scheduler = null;
         this.gcInfo = gcInfo;
         this.gcMonitor = gcMonitor;
+        this.inMemoryCaches = inMemoryCaches;
     }
 
     @Override
@@ -101,6 +113,27 @@ public class DaemonHealthStats implements Stoppable {
         }
     }
 
+    /**
+     * description of the in-memory caches retained by the daemon, or null when there are none
+     */
+    @Nullable
+    String getCacheInfo() {
+        if (inMemoryCaches == null) {
+            return null;
+        }
+        List<InMemoryCacheDecoratorFactory.CacheStatistics> statistics = inMemoryCaches.getStatistics();
+        if (statistics.isEmpty()) {
+            return null;
+        }
+        long weight = 0;
+        StringBuilder caches = new StringBuilder();
+        for (InMemoryCacheDecoratorFactory.CacheStatistics cacheStatistics : statistics) {
+            weight += cacheStatistics.getWeight();
+            caches.append(format("%n  %s", cacheStatistics));
+        }
+        return format("In-memory caches [size: %s of %s]:%s", NumberUtil.formatBytes(weight), NumberUtil.formatBytes(inMemoryCaches.getMaxWeight()), caches);
+    }
+
     /**
      * 0-100, the percentage of time spent on doing the work vs time spent in gc
      */
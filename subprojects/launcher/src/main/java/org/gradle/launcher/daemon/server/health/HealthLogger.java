@@ -23,11 +23,18 @@ public class HealthLogger {
     static final String HEALTH_MESSAGE_PROPERTY = "org.gradle.daemon.performance.logging";
 
     public void logHealth(DaemonHealthStats stats, Logger logger) {
+        String cacheInfo = stats.getCacheInfo();
         if (Boolean.getBoolean(HEALTH_MESSAGE_PROPERTY)) {
             logger.lifecycle(stats.getHealthInfo());
+            if (cacheInfo != null) {
+                logger.lifecycle(cacheInfo);
+            }
         } else {
             //the default
             logger.info(stats.getHealthInfo());
+            if (cacheInfo != null) {
+                logger.info(cacheInfo);
+            }
         }
     }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher.daemon.server.health.telemetry;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed size ring file of {@link BuildTelemetryRecord}s. Once the file is full, the oldest record is overwritten, so the file never grows beyond
+ * {@code capacity} records regardless of how long the daemon runs.
+ *
+ * <p>The file starts with a header holding the capacity and the total number of records ever appended, followed by the fixed size records.
+ * The file is kept after the daemon stops, so that the builds of a daemon that expired, for example because of GC thrashing, can still be inspected.
+ * The files of stopped daemons are pruned by age and count, see {@link #pruneFilesOfStoppedDaemons(File, Collection)}.</p>
+ */
+public class BuildTelemetryFile {
+    public static final String FILE_SUFFIX = ".telemetry.bin";
+    public static final int DEFAULT_CAPACITY = 1000;
+    public static final int MAX_FILES_OF_STOPPED_DAEMONS = 20;
+    public static final long MAX_AGE_OF_STOPPED_DAEMON_FILES = TimeUnit.DAYS.toMillis(7);
+    private static final String FILE_PREFIX = "daemon-";
+    private static final Logger LOGGER = Logging.getLogger(BuildTelemetryFile.class);
+
+    private static final int MAGIC = 0x47445446;
+    private static final int VERSION = 1;
+    // magic, version, capacity, count
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+    private static final int COUNT_OFFSET = 12;
+    // build number + 9 longs
+    private static final int RECORD_SIZE = 4 + 9 * 8;
+
+    private final File file;
+    private final int capacity;
+    private boolean started;
+
+    public BuildTelemetryFile(File file, int capacity) {
+        this.file = file;
+        this.capacity = capacity;
+    }
+
+    public static BuildTelemetryFile forDaemon(File daemonDir, Long pid, String uid) {
+        return new BuildTelemetryFile(new File(daemonDir, FILE_PREFIX + idOf(pid, uid) + FILE_SUFFIX), DEFAULT_CAPACITY);
+    }
+
+    public static String idOf(Long pid, String uid) {
+        return pid == null ? uid : String.valueOf(pid);
+    }
+
+    /**
+     * Deletes the telemetry files in the given directory that do not belong to one of the given daemons and were last written more than
+     * {@link #MAX_AGE_OF_STOPPED_DAEMON_FILES} ago, or are not among the {@link #MAX_FILES_OF_STOPPED_DAEMONS} most recently written of them.
+     */
+    public static void pruneFilesOfStoppedDaemons(File daemonDir, Collection<String> runningDaemonIds) {
+        pruneFilesOfStoppedDaemons(daemonDir, runningDaemonIds, MAX_FILES_OF_STOPPED_DAEMONS, System.currentTimeMillis() - MAX_AGE_OF_STOPPED_DAEMON_FILES);
+    }
+
+    static void pruneFilesOfStoppedDaemons(File daemonDir, Collection<String> runningDaemonIds, int maxFiles, long minLastModified) {
+        File[] files = daemonDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().startsWith(FILE_PREFIX) && file.getName().endsWith(FILE_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return;
+        }
+        List<File> filesOfStoppedDaemons = new ArrayList<File>();
+        for (File file : files) {
+            String id = file.getName().substring(FILE_PREFIX.length(), file.getName().length() - FILE_SUFFIX.length());
+            if (!runningDaemonIds.contains(id)) {
+                filesOfStoppedDaemons.add(file);
+            }
+        }
+        // Most recently written first
+        Collections.sort(filesOfStoppedDaemons, new Comparator<File>() {
+            @Override
+            public int compare(File left, File right) {
+                return Long.valueOf(right.lastModified()).compareTo(left.lastModified());
+            }
+        });
+        for (int i = 0; i < filesOfStoppedDaemons.size(); i++) {
+            File file = filesOfStoppedDaemons.get(i);
+            if ((i >= maxFiles || file.lastModified() < minLastModified) && !file.delete()) {
+                LOGGER.debug("Could not delete build telemetry file {} of stopped daemon.", file);
+            }
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized void append(BuildTelemetryRecord record) {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                int fileCapacity = readCapacity(raf);
+                // An existing file belongs to a stopped daemon that had the same process id
+                if (!started || fileCapacity <= 0) {
+                    fileCapacity = capacity;
+                    writeHeader(raf, fileCapacity);
+                    started = true;
+                }
+                raf.seek(COUNT_OFFSET);
+                long count = raf.readLong();
+                raf.seek(HEADER_SIZE + (count % fileCapacity) * RECORD_SIZE);
+                raf.write(encode(record));
+                raf.seek(COUNT_OFFSET);
+                raf.writeLong(count + 1);
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    /**
+     * Returns the records of this file, oldest first.
+     */
+    public List<BuildTelemetryRecord> read() {
+        return read(file);
+    }
+
+    /**
+     * Returns the records of the given file, oldest first. Returns an empty list when the file does not exist or has an unknown format.
+     */
+    public static List<BuildTelemetryRecord> read(File file) {
+        if (!file.isFile()) {
+            return Collections.emptyList();
+        }
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                int fileCapacity = readCapacity(raf);
+                if (fileCapacity <= 0) {
+                    return Collections.emptyList();
+                }
+                raf.seek(COUNT_OFFSET);
+                long count = raf.readLong();
+                int available = (int) Math.min(count, fileCapacity);
+                long first = count - available;
+                List<BuildTelemetryRecord> records = new ArrayList<BuildTelemetryRecord>(available);
+                byte[] buffer = new byte[RECORD_SIZE];
+                for (long i = first; i < count; i++) {
+                    raf.seek(HEADER_SIZE + (i % fileCapacity) * RECORD_SIZE);
+                    raf.readFully(buffer);
+                    records.add(decode(buffer));
+                }
+                return records;
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private static int readCapacity(RandomAccessFile raf) throws IOException {
+        if (raf.length() < HEADER_SIZE) {
+            return -1;
+        }
+        raf.seek(0);
+        if (raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+            return -1;
+        }
+        return raf.readInt();
+    }
+
+    private static void writeHeader(RandomAccessFile raf, int capacity) throws IOException {
+        raf.setLength(0);
+        raf.writeInt(MAGIC);
+        raf.writeInt(VERSION);
+        raf.writeInt(capacity);
+        raf.writeLong(0);
+    }
+
+    private static byte[] encode(BuildTelemetryRecord record) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.putInt(record.getBuildNumber());
+        buffer.putLong(record.getStartTime());
+        buffer.putLong(record.getDuration());
+        buffer.putLong(record.getHeapUsedBefore());
+        buffer.putLong(record.getHeapUsedAfter());
+        buffer.putLong(record.getMetaspaceUsedBefore());
+        buffer.putLong(record.getMetaspaceUsedAfter());
+        buffer.putLong(record.getGcCount());
+        buffer.putLong(record.getGcTime());
+        buffer.putLong(record.getAllocatedBytes());
+        return buffer.array();
+    }
+
+    private static BuildTelemetryRecord decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new BuildTelemetryRecord(buffer.getInt(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+}
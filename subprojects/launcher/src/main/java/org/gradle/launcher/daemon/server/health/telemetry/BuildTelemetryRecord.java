@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server.health.telemetry;
+
+/**
+ * The memory and garbage collection behaviour of the daemon during a single build.
+ */
+public class BuildTelemetryRecord {
+    private final int buildNumber;
+    private final long startTime;
+    private final long duration;
+    private final long heapUsedBefore;
+    private final long heapUsedAfter;
+    private final long metaspaceUsedBefore;
+    private final long metaspaceUsedAfter;
+    private final long gcCount;
+    private final long gcTime;
+    private final long allocatedBytes;
+
+    public BuildTelemetryRecord(int buildNumber, long startTime, long duration, long heapUsedBefore, long heapUsedAfter, long metaspaceUsedBefore, long metaspaceUsedAfter, long gcCount, long gcTime, long allocatedBytes) {
+        this.buildNumber = buildNumber;
+        this.startTime = startTime;
+        this.duration = duration;
+        this.heapUsedBefore = heapUsedBefore;
+        this.heapUsedAfter = heapUsedAfter;
+        this.metaspaceUsedBefore = metaspaceUsedBefore;
+        this.metaspaceUsedAfter = metaspaceUsedAfter;
+        this.gcCount = gcCount;
+        this.gcTime = gcTime;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public static BuildTelemetryRecord between(int buildNumber, MemorySnapshot before, MemorySnapshot after) {
+        long allocatedBytes = after.allocatedBytesSince(before);
+        return new BuildTelemetryRecord(
+            buildNumber,
+            before.getTimestamp(),
+            Math.max(after.getTimestamp() - before.getTimestamp(), 0),
+            before.getHeapUsed(),
+            after.getHeapUsed(),
+            before.getMetaspaceUsed(),
+            after.getMetaspaceUsed(),
+            after.getGcCount() - before.getGcCount(),
+            after.getGcTime() - before.getGcTime(),
+            allocatedBytes);
+    }
+
+    public int getBuildNumber() {
+        return buildNumber;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public long getHeapUsedBefore() {
+        return heapUsedBefore;
+    }
+
+    public long getHeapUsedAfter() {
+        return heapUsedAfter;
+    }
+
+    public long getHeapDelta() {
+        return heapUsedAfter - heapUsedBefore;
+    }
+
+    public long getMetaspaceUsedBefore() {
+        return metaspaceUsedBefore;
+    }
+
+    public long getMetaspaceUsedAfter() {
+        return metaspaceUsedAfter;
+    }
+
+    public long getMetaspaceDelta() {
+        return metaspaceUsedAfter - metaspaceUsedBefore;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getGcTime() {
+        return gcTime;
+    }
+
+    /**
+     * The bytes allocated during the build, or -1 when unknown.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * The allocation rate in bytes per second, or -1 when unknown.
+     */
+    public long getAllocationRate() {
+        if (allocatedBytes < 0) {
+            return -1;
+        }
+        return allocatedBytes * 1000 / Math.max(duration, 1);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server.health.telemetry;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The memory and garbage collection counters of the daemon JVM at a point in time.
+ */
+public class MemorySnapshot {
+    private final long timestamp;
+    private final long heapUsed;
+    private final long metaspaceUsed;
+    private final long gcCount;
+    private final long gcTime;
+    private final long allocatedBytes;
+    private final Map<Long, Long> allocatedBytesByThread;
+
+    public MemorySnapshot(long timestamp, long heapUsed, long metaspaceUsed, long gcCount, long gcTime, long allocatedBytes) {
+        this(timestamp, heapUsed, metaspaceUsed, gcCount, gcTime, allocatedBytes, Collections.<Long, Long>emptyMap());
+    }
+
+    public MemorySnapshot(long timestamp, long heapUsed, long metaspaceUsed, long gcCount, long gcTime, long allocatedBytes, Map<Long, Long> allocatedBytesByThread) {
+        this.allocatedBytesByThread = allocatedBytesByThread;
+        this.timestamp = timestamp;
+        this.heapUsed = heapUsed;
+        this.metaspaceUsed = metaspaceUsed;
+        this.gcCount = gcCount;
+        this.gcTime = gcTime;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public static MemorySnapshot capture() {
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long metaspaceUsed = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            String name = pool.getName();
+            if (pool.getType() == MemoryType.NON_HEAP && (name.contains("Metaspace") || name.contains("Perm Gen"))) {
+                metaspaceUsed += pool.getUsage().getUsed();
+            }
+        }
+        long gcCount = 0;
+        long gcTime = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(gc.getCollectionCount(), 0);
+            gcTime += Math.max(gc.getCollectionTime(), 0);
+        }
+        Map<Long, Long> allocatedBytesByThread = AllocationCounter.allocatedBytesByThread();
+        long allocatedBytes = -1;
+        if (allocatedBytesByThread != null) {
+            allocatedBytes = 0;
+            for (Long allocated : allocatedBytesByThread.values()) {
+                allocatedBytes += allocated;
+            }
+        } else {
+            allocatedBytesByThread = Collections.emptyMap();
+        }
+        return new MemorySnapshot(System.currentTimeMillis(), heapUsed, metaspaceUsed, gcCount, gcTime, allocatedBytes, allocatedBytesByThread);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getHeapUsed() {
+        return heapUsed;
+    }
+
+    public long getMetaspaceUsed() {
+        return metaspaceUsed;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getGcTime() {
+        return gcTime;
+    }
+
+    /**
+     * The bytes allocated so far by the live threads of the JVM, or -1 when the JVM does not support allocation tracking.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * The bytes allocated between the given earlier snapshot and this one, or -1 when unknown. Counts the allocations of each thread that is live
+     * when this snapshot is taken, so that threads that exit in between do not reduce the result. Allocations made by those threads are not counted.
+     */
+    public long allocatedBytesSince(MemorySnapshot earlier) {
+        if (allocatedBytes < 0 || earlier.allocatedBytes < 0) {
+            return -1;
+        }
+        if (allocatedBytesByThread.isEmpty()) {
+            return Math.max(allocatedBytes - earlier.allocatedBytes, 0);
+        }
+        long total = 0;
+        for (Map.Entry<Long, Long> entry : allocatedBytesByThread.entrySet()) {
+            Long before = earlier.allocatedBytesByThread.get(entry.getKey());
+            total += Math.max(entry.getValue() - (before == null ? 0 : before), 0);
+        }
+        return total;
+    }
+
+    /**
+     * Collects the allocations of all live threads, or returns null when not supported. The daemon runs builds on long-lived pooled threads, so the
+     * per-thread differences between two samples are a good approximation of the allocations made in between. Kept in a separate class, as
+     * {@code com.sun.management} is not available on all JVMs.
+     */
+    private static class AllocationCounter {
+        static Map<Long, Long> allocatedBytesByThread() {
+            try {
+                ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+                if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+                    return null;
+                }
+                com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (!sunThreadMXBean.isThreadAllocatedMemorySupported() || !sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                    return null;
+                }
+                long[] threadIds = threadMXBean.getAllThreadIds();
+                long[] allocated = sunThreadMXBean.getThreadAllocatedBytes(threadIds);
+                Map<Long, Long> allocatedBytesByThread = new HashMap<Long, Long>(threadIds.length);
+                for (int i = 0; i < threadIds.length; i++) {
+                    if (allocated[i] > 0) {
+                        allocatedBytesByThread.put(threadIds[i], allocated[i]);
+                    }
+                }
+                return allocatedBytesByThread;
+            } catch (LinkageError e) {
+                return null;
+            }
+        }
+    }
+}
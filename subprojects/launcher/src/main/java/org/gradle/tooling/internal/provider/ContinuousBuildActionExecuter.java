@@ -17,6 +17,7 @@
 package org.gradle.tooling.internal.provider;
 
 import org.gradle.api.Action;
+import org.gradle.api.execution.internal.AffectedTasksTracker;
 import org.gradle.api.execution.internal.TaskInputsListener;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.deployment.internal.Deployment;
@@ -36,6 +37,7 @@ import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.filewatch.DefaultFileWatcherEventListener;
 import org.gradle.internal.filewatch.FileSystemChangeWaiter;
 import org.gradle.internal.filewatch.FileSystemChangeWaiterFactory;
+import org.gradle.internal.filewatch.FileWatcherEvent;
 import org.gradle.internal.filewatch.FileWatcherEventListener;
 import org.gradle.internal.filewatch.PendingChangesListener;
 import org.gradle.internal.filewatch.SingleFirePendingChangesListener;
@@ -50,17 +52,25 @@ import org.gradle.launcher.exec.BuildActionParameters;
 import org.gradle.util.DisconnectableInputStream;
 import org.gradle.util.SingleMessageLogger;
 
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 public class ContinuousBuildActionExecuter implements BuildActionExecuter<BuildActionParameters> {
     private final BuildActionExecuter<BuildActionParameters> delegate;
     private final TaskInputsListener inputsListener;
+    private final AffectedTasksTracker affectedTasksTracker;
     private final OperatingSystem operatingSystem;
     private final FileSystemChangeWaiterFactory changeWaiterFactory;
     private final ExecutorFactory executorFactory;
     private final StyledTextOutput logger;
 
-    public ContinuousBuildActionExecuter(BuildActionExecuter<BuildActionParameters> delegate, FileSystemChangeWaiterFactory changeWaiterFactory, TaskInputsListener inputsListener, StyledTextOutputFactory styledTextOutputFactory, ExecutorFactory executorFactory) {
+    public ContinuousBuildActionExecuter(BuildActionExecuter<BuildActionParameters> delegate, FileSystemChangeWaiterFactory changeWaiterFactory, TaskInputsListener inputsListener, AffectedTasksTracker affectedTasksTracker, StyledTextOutputFactory styledTextOutputFactory, ExecutorFactory executorFactory) {
         this.delegate = delegate;
         this.inputsListener = inputsListener;
+        this.affectedTasksTracker = affectedTasksTracker;
         this.operatingSystem = OperatingSystem.current();
         this.executorFactory = executorFactory;
         this.changeWaiterFactory = changeWaiterFactory;
@@ -115,6 +125,21 @@ public class ContinuousBuildActionExecuter implements BuildActionExecuter<BuildA
 
     private Object executeMultipleBuilds(BuildAction action, BuildRequestContext requestContext, final BuildActionParameters actionParameters, final ServiceRegistry buildSessionScopeServices,
                                          CancellableOperationManager cancellableOperationManager, ContinuousExecutionGate continuousExecutionGate) {
+        boolean trackAffectedTasks = AffectedTasksTracker.isEnabled();
+        if (trackAffectedTasks) {
+            affectedTasksTracker.startTracking();
+        }
+        try {
+            return executeMultipleBuilds(action, requestContext, actionParameters, buildSessionScopeServices, cancellableOperationManager, continuousExecutionGate, trackAffectedTasks);
+        } finally {
+            if (trackAffectedTasks) {
+                affectedTasksTracker.stopTracking();
+            }
+        }
+    }
+
+    private Object executeMultipleBuilds(BuildAction action, BuildRequestContext requestContext, final BuildActionParameters actionParameters, final ServiceRegistry buildSessionScopeServices,
+                                         CancellableOperationManager cancellableOperationManager, ContinuousExecutionGate continuousExecutionGate, boolean trackAffectedTasks) {
         BuildCancellationToken cancellationToken = requestContext.getCancellationToken();
         BuildStartedTime buildStartedTime = buildSessionScopeServices.get(BuildStartedTime.class);
         Clock clock = buildSessionScopeServices.get(Clock.class);
@@ -123,6 +148,7 @@ public class ContinuousBuildActionExecuter implements BuildActionExecuter<BuildA
         while (true) {
             PendingChangesListener pendingChangesListener = buildSessionScopeServices.get(ListenerManager.class).getBroadcaster(PendingChangesListener.class);
             final FileSystemChangeWaiter waiter = changeWaiterFactory.createChangeWaiter(new SingleFirePendingChangesListener(pendingChangesListener), cancellationToken, continuousExecutionGate);
+            final ChangedFilesCollector changedFiles = new ChangedFilesCollector();
             try {
                 try {
                     lastResult = executeBuildAndAccumulateInputs(action, requestContext, actionParameters, waiter, buildSessionScopeServices);
@@ -146,7 +172,7 @@ public class ContinuousBuildActionExecuter implements BuildActionExecuter<BuildA
                                 public void run() {
                                     logger.println().println("Waiting for changes to input files of tasks..." + determineExitHint(actionParameters));
                                 }
-                            }, reporter);
+                            }, changedFiles.forwardTo(reporter));
                             if (!cancellationToken.isCancellationRequested()) {
                                 reporter.reportChanges(logger);
                             }
@@ -160,6 +186,9 @@ public class ContinuousBuildActionExecuter implements BuildActionExecuter<BuildA
             if (cancellationToken.isCancellationRequested()) {
                 break;
             } else {
+                if (trackAffectedTasks) {
+                    affectedTasksTracker.changesDetected(changedFiles.getChangedFiles());
+                }
                 logger.println("Change detected, executing build...").println();
                 buildStartedTime.reset(clock.getCurrentTime());
             }
@@ -193,4 +222,37 @@ public class ContinuousBuildActionExecuter implements BuildActionExecuter<BuildA
         }
 
     }
+
+    private static class ChangedFilesCollector {
+        private final Set<File> changedFiles = new LinkedHashSet<File>();
+        private boolean unknownChanges;
+
+        FileWatcherEventListener forwardTo(final FileWatcherEventListener delegate) {
+            return new FileWatcherEventListener() {
+                @Override
+                public void onChange(FileWatcherEvent event) {
+                    changed(event);
+                    delegate.onChange(event);
+                }
+
+                @Override
+                public void reportChanges(StyledTextOutput logger) {
+                    delegate.reportChanges(logger);
+                }
+            };
+        }
+
+        synchronized void changed(FileWatcherEvent event) {
+            if (event.getType() == FileWatcherEvent.Type.UNDEFINED || event.getFile() == null) {
+                unknownChanges = true;
+            } else {
+                changedFiles.add(event.getFile());
+            }
+        }
+
+        @Nullable
+        synchronized Collection<File> getChangedFiles() {
+            return unknownChanges ? null : changedFiles;
+        }
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.tooling.internal.provider;
 
+import org.gradle.api.execution.internal.AffectedTasksTracker;
 import org.gradle.api.execution.internal.TaskInputsListener;
 import org.gradle.initialization.GradleLauncherFactory;
 import org.gradle.internal.classpath.CachedClasspathTransformer;
@@ -64,6 +65,7 @@ public class LauncherServices extends AbstractPluginServiceRegistry {
                                           GradleLauncherFactory gradleLauncherFactory,
                                           BuildOperationListenerManager buildOperationListenerManager,
                                           TaskInputsListener inputsListener,
+                                          AffectedTasksTracker affectedTasksTracker,
                                           StyledTextOutputFactory styledTextOutputFactory,
                                           ExecutorFactory executorFactory,
                                           LoggingManagerInternal loggingManager,
@@ -89,6 +91,7 @@ public class LauncherServices extends AbstractPluginServiceRegistry {
                                                 gradleLauncherFactory)),
                                         fileSystemChangeWaiterFactory,
                                         inputsListener,
+                                        affectedTasksTracker,
                                         styledTextOutputFactory,
                                         executorFactory),
                                     userHomeServiceRegistry)),
@@ -119,6 +119,14 @@ class BuildActionsFactoryTest extends Specification {
         action instanceof ReportDaemonStatusAction
     }
 
+    def "shows telemetry of daemons"() {
+        when:
+        def action = convert('--daemon-telemetry')
+
+        then:
+        action instanceof ReportDaemonTelemetryAction
+    }
+
     def "stops daemon"() {
         when:
         def action = convert('--stop')
@@ -21,7 +21,7 @@ import org.gradle.internal.service.scopes.GlobalScopeServices
 import org.gradle.launcher.daemon.configuration.DaemonParameters
 import org.gradle.launcher.daemon.context.DaemonContext
 import org.gradle.launcher.daemon.registry.DaemonRegistry
-import org.gradle.launcher.daemon.registry.PersistentDaemonRegistry
+import org.gradle.launcher.daemon.registry.DirectoryBackedDaemonRegistry
 import org.gradle.internal.logging.services.LoggingServiceRegistry
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.testfixtures.internal.NativeServicesTestFixture
@@ -43,7 +43,7 @@ class DaemonClientServicesTest extends Specification {
 
     def "makes a DaemonRegistry available"() {
         expect:
-        services.get(DaemonRegistry.class) instanceof PersistentDaemonRegistry
+        services.get(DaemonRegistry.class) instanceof DirectoryBackedDaemonRegistry
     }
 
     def "makes a DaemonConnector available"() {
@@ -17,6 +17,7 @@ package org.gradle.launcher.daemon.client
 
 import org.gradle.api.internal.specs.ExplainingSpec
 import org.gradle.api.internal.specs.ExplainingSpecs
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.logging.progress.ProgressLoggerFactory
 import org.gradle.internal.remote.Address
 import org.gradle.internal.remote.internal.ConnectCompletion
@@ -61,7 +62,8 @@ class DefaultDaemonConnectorTest extends Specification {
                 Spy(OutgoingConnectorStub),
                 { startBusyDaemon() } as DaemonStarter,
                 Stub(DaemonStartListener),
-                Stub(ProgressLoggerFactory)]
+                Stub(ProgressLoggerFactory),
+                new DefaultExecutorFactory()]
         )
         connector.connectTimeout = connectTimeoutSecs * 1000
         connector
@@ -194,4 +196,17 @@ class DefaultDaemonConnectorTest extends Specification {
 
         registry.all.empty
     }
+
+    def "maybeConnect() connects to live daemon when other compatible daemons are unreachable"() {
+        given:
+        4.times { startIdleDaemon() }
+
+        connector.connector.connect({ it.num != 2 }) >> { throw new ConnectException("Problem!", new RuntimeException("foo")) }
+
+        when:
+        def connection = connector.maybeConnect( { true } as ExplainingSpec)
+
+        then:
+        connection.connection.num == 2
+    }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 the original author or authors.
+ * Copyright 2018 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,90 +14,127 @@
  * limitations under the License.
  */
 
+
 package org.gradle.launcher.daemon.registry
 
 import org.gradle.internal.nativeintegration.ProcessEnvironment
 import org.gradle.internal.nativeintegration.filesystem.Chmod
+import org.gradle.internal.remote.Address
 import org.gradle.launcher.daemon.context.DaemonContext
 import org.gradle.launcher.daemon.context.DaemonContextBuilder
-import org.gradle.internal.remote.Address
 import org.gradle.launcher.daemon.server.expiry.DaemonExpirationStatus
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
 
-import static org.gradle.cache.internal.DefaultFileLockManagerTestHelper.createDefaultFileLockManager
-import static org.gradle.cache.internal.DefaultFileLockManagerTestHelper.unlockUncleanly
 import static org.gradle.launcher.daemon.server.api.DaemonStateControl.State.*
 
-class PersistentDaemonRegistryTest extends Specification {
+class DirectoryBackedDaemonRegistryTest extends Specification {
 
     @Rule TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
 
     int addressCounter = 0
-    def lockManager = createDefaultFileLockManager()
-    def file = tmp.file("registry")
-    def registry = new PersistentDaemonRegistry(file, lockManager, Stub(Chmod))
-
-    def "corrupt registry file is ignored"() {
-        given:
-        registry.store(new DaemonInfo(address(), daemonContext(), "password".bytes, Idle))
+    def dir = tmp.file("registry")
+    def registry = new DirectoryBackedDaemonRegistry(dir, Stub(Chmod))
 
+    def "is empty when registry directory does not exist"() {
         expect:
-        registry.all.size() == 1
+        registry.all.empty
+        registry.stopEvents.empty
+    }
+
+    def "stores each daemon in its own file"() {
+        given:
+        def address1 = address()
+        def address2 = address()
 
         when:
-        unlockUncleanly(file)
+        registry.store(new DaemonInfo(address1, daemonContext(), "password".bytes, Idle))
+        registry.store(new DaemonInfo(address2, daemonContext(), "password".bytes, Busy))
 
         then:
-        registry.all.empty
+        dir.list().length == 2
+        registry.all*.address as Set == [address1, address2] as Set
+        registry.idle*.address == [address1]
+        registry.notIdle*.address == [address2]
     }
 
-    def "safely removes from registry file"() {
+    def "updates state of stored daemon"() {
         given:
         def address = address()
+        registry.store(new DaemonInfo(address, daemonContext(), "password".bytes, Busy))
 
-        and:
+        when:
+        registry.markState(address, Canceled)
+
+        then:
+        registry.canceled*.address == [address]
+        dir.list().length == 1
+    }
+
+    def "corrupt entry is ignored"() {
+        given:
+        def address = address()
         registry.store(new DaemonInfo(address, daemonContext(), "password".bytes, Idle))
+        registry.store(new DaemonInfo(address(), daemonContext(), "password".bytes, Idle))
 
         when:
-        registry.remove(address)
+        dir.listFiles()[0].text = "corrupt"
 
         then:
-        registry.all.empty
+        registry.all.size() == 1
+    }
 
-        and: //it is safe to remove it again
-        registry.remove(address)
+    def "ignores partially written temporary files"() {
+        given:
+        registry.store(new DaemonInfo(address(), daemonContext(), "password".bytes, Idle))
+        new File(dir, "daemon-123.bin123.tmp").text = "partial"
+
+        expect:
+        registry.all.size() == 1
     }
 
-    def "safely removes if registry empty"() {
+    def "safely removes from registry"() {
         given:
         def address = address()
 
+        and:
+        registry.store(new DaemonInfo(address, daemonContext(), "password".bytes, Idle))
+
         when:
         registry.remove(address)
 
         then:
         registry.all.empty
+        dir.list().length == 0
+
+        and: //it is safe to remove it again
+        registry.remove(address)
     }
 
-    def "mark busy ignores entry that has been removed"() {
+    def "does not fail when entry cannot be removed"() {
         given:
         def address = address()
+        registry.store(new DaemonInfo(address, daemonContext(), "password".bytes, Idle))
+        def entry = dir.listFiles().first()
+        entry.delete()
+        // A non-empty directory cannot be deleted
+        entry.mkdirs()
+        new File(entry, "content").createNewFile()
 
         when:
-        registry.markState(address, Busy)
+        registry.remove(address)
 
         then:
-        registry.all.empty
+        noExceptionThrown()
     }
 
-    def "mark idle ignores entry that has been removed"() {
+    def "mark busy ignores entry that has been removed"() {
         given:
         def address = address()
 
         when:
-        registry.markState(address, Idle)
+        registry.markState(address, Busy)
 
         then:
         registry.all.empty
@@ -111,31 +148,33 @@ class PersistentDaemonRegistryTest extends Specification {
         registry.stopEvents.empty
     }
 
-    def "clears single stop event when non-empty"() {
+    def "clears only given stop events"() {
         given:
-        def stopEvent = new DaemonStopEvent(new Date(1L), new Random().nextLong(), DaemonExpirationStatus.GRACEFUL_EXPIRE, "STOP_REASON")
-        registry.storeStopEvent(stopEvent)
+        def stopEvents = [
+            new DaemonStopEvent(new Date(1L), new Random().nextLong(), DaemonExpirationStatus.GRACEFUL_EXPIRE, "STOP_REASON"),
+            new DaemonStopEvent(new Date(42L), new Random().nextLong(), DaemonExpirationStatus.IMMEDIATE_EXPIRE, "ANOTHER_STOP_REASON")
+        ]
+        def retained = new DaemonStopEvent(new Date(43L), new Random().nextLong(), DaemonExpirationStatus.GRACEFUL_EXPIRE, "RETAINED")
+        (stopEvents + retained).each { registry.storeStopEvent(it) }
 
         when:
-        registry.removeStopEvents([stopEvent])
+        registry.removeStopEvents(stopEvents)
 
         then:
-        registry.stopEvents.empty
+        registry.stopEvents == [retained]
     }
 
-    def "clears multiple stop events when non-empty"() {
+    def "entries are visible to other registry instances"() {
         given:
-        def stopEvents = [
-            new DaemonStopEvent(new Date(1L), new Random().nextLong(), DaemonExpirationStatus.GRACEFUL_EXPIRE, "STOP_REASON"),
-            new DaemonStopEvent(new Date(42L), new Random().nextLong(), DaemonExpirationStatus.IMMEDIATE_EXPIRE, "ANOTHER_STOP_REASON")
-        ]
-        stopEvents.each { registry.storeStopEvent(it) }
+        def other = new DirectoryBackedDaemonRegistry(dir, Stub(Chmod))
+        def address = address()
 
         when:
-        registry.removeStopEvents(stopEvents)
+        registry.store(new DaemonInfo(address, daemonContext(), "password".bytes, Busy))
+        other.markState(address, Idle)
 
         then:
-        registry.stopEvents.empty
+        registry.idle*.address == [address]
     }
 
     DaemonContext daemonContext() {
@@ -165,5 +204,4 @@ class PersistentDaemonRegistryTest extends Specification {
             displayName.hashCode()
         }
     }
-
 }
@@ -62,7 +62,7 @@ class DaemonRegistryUnavailableExpirationStrategyTest extends Specification {
         DaemonContext daemonContext = new DefaultDaemonContext("user", null, daemonDir, 51234L, 10000, [] as List<String>)
         DaemonDir daemonDir = new DaemonDir(daemonDir)
         DaemonRegistry registry = new EmbeddedDaemonRegistry()
-        daemonDir.getRegistry().createNewFile()
+        daemonDir.getRegistryDir().mkdirs()
         registry.store(new DaemonInfo(address, daemonContext, "password".bytes, Idle))
 
         when:
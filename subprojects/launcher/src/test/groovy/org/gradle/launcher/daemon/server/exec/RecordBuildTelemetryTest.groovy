@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher.daemon.server.exec
+
+import org.gradle.launcher.daemon.server.api.DaemonCommandExecution
+import org.gradle.launcher.daemon.server.health.telemetry.BuildTelemetryFile
+import org.gradle.launcher.daemon.server.stats.DaemonRunningStats
+import spock.lang.Specification
+
+class RecordBuildTelemetryTest extends Specification {
+    def exec = Mock(DaemonCommandExecution)
+    def telemetryFile = Mock(BuildTelemetryFile)
+    def runningStats = Mock(DaemonRunningStats)
+    def recorder = new RecordBuildTelemetry(telemetryFile, runningStats)
+
+    def "does not record single use daemon"() {
+        when:
+        recorder.execute(exec)
+
+        then:
+        1 * exec.isSingleUseDaemon() >> true
+        1 * exec.proceed()
+        0 * _
+    }
+
+    def "records telemetry after build"() {
+        when:
+        recorder.execute(exec)
+
+        then:
+        1 * exec.proceed()
+
+        then:
+        1 * runningStats.getBuildCount() >> 3
+        1 * telemetryFile.append({ it.buildNumber == 3 && it.duration >= 0 })
+    }
+
+    def "does not fail build when telemetry cannot be recorded"() {
+        when:
+        recorder.execute(exec)
+
+        then:
+        1 * exec.proceed()
+        1 * telemetryFile.append(_) >> { throw new IOException("broken") }
+        noExceptionThrown()
+    }
+}
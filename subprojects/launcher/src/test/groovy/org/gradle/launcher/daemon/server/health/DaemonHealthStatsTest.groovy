@@ -16,6 +16,7 @@
 
 package org.gradle.launcher.daemon.server.health
 
+import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory
 import org.gradle.internal.event.DefaultListenerManager
 import org.gradle.launcher.daemon.server.health.gc.GarbageCollectionInfo
 import org.gradle.launcher.daemon.server.health.gc.GarbageCollectionMonitor
@@ -76,4 +77,18 @@ class DaemonHealthStatsTest extends Specification {
         healthStats.healthInfo == "Starting 2nd build in daemon [uptime: 3 mins, performance: 98%, no major garbage collections]"
     }
 
+    def "describes in-memory caches"() {
+        def inMemoryCaches = Stub(InMemoryCacheDecoratorFactory) {
+            getMaxWeight() >> 2048
+            getStatistics() >> [new InMemoryCacheDecoratorFactory.CacheStatistics("fileHashes", 2, 512, 3, 4, 5), new InMemoryCacheDecoratorFactory.CacheStatistics("taskHistory", 1, 512, 0, 1, 0)]
+        }
+
+        expect:
+        new DaemonHealthStats(runningStats, gcInfo, gcMonitor, inMemoryCaches).cacheInfo == String.format("In-memory caches [size: %.1f kB of %.1f kB]:%n  fileHashes [entries: 2, size: 512 B, hits: 3, misses: 4, evictions: 5]%n  taskHistory [entries: 1, size: 512 B, hits: 0, misses: 1, evictions: 0]", 1.0, 2.0)
+    }
+
+    def "does not describe in-memory caches when there are none"() {
+        expect:
+        healthStats.cacheInfo == null
+    }
 }
@@ -41,4 +41,16 @@ class HealthLoggerTest extends Specification {
         when: healthLogger.logHealth(stats, logger)
         then: logger.lifecycle("yyy")
     }
+
+    def "logs in-memory cache statistics when present"() {
+        stats.healthInfo >> "xxx"
+        stats.cacheInfo >> "caches"
+
+        when:
+        healthLogger.logHealth(stats, logger)
+
+        then:
+        1 * logger.info("xxx")
+        1 * logger.info("caches")
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher.daemon.server.health.telemetry
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class BuildTelemetryFileTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def "reads nothing from missing file"() {
+        expect:
+        BuildTelemetryFile.read(tmpDir.file("missing" + BuildTelemetryFile.FILE_SUFFIX)).empty
+    }
+
+    def "reads appended records in order"() {
+        def file = new BuildTelemetryFile(tmpDir.file("daemon" + BuildTelemetryFile.FILE_SUFFIX), 10)
+
+        when:
+        file.append(record(1))
+        file.append(record(2))
+        def records = file.read()
+
+        then:
+        records*.buildNumber == [1, 2]
+        records[1].startTime == 2000
+        records[1].duration == 20
+        records[1].heapDelta == 200
+        records[1].metaspaceDelta == 20
+        records[1].gcCount == 2
+        records[1].gcTime == 4
+        records[1].allocatedBytes == 2000
+    }
+
+    def "overwrites oldest records once full"() {
+        def file = new BuildTelemetryFile(tmpDir.file("daemon" + BuildTelemetryFile.FILE_SUFFIX), 3)
+
+        when:
+        (1..7).each { file.append(record(it)) }
+
+        then:
+        file.read()*.buildNumber == [5, 6, 7]
+        file.file.length() == 20 + 3 * 76
+    }
+
+    def "ignores file with unknown format"() {
+        def telemetryFile = tmpDir.file("daemon" + BuildTelemetryFile.FILE_SUFFIX)
+        telemetryFile.text = "not telemetry"
+
+        expect:
+        BuildTelemetryFile.read(telemetryFile).empty
+
+        when:
+        new BuildTelemetryFile(telemetryFile, 3).append(record(1))
+
+        then:
+        BuildTelemetryFile.read(telemetryFile)*.buildNumber == [1]
+    }
+
+    def "calculates deltas between snapshots"() {
+        def before = new MemorySnapshot(1000, 100, 10, 5, 50, 1000)
+        def after = new MemorySnapshot(3000, 300, 15, 8, 80, 5000)
+
+        when:
+        def record = BuildTelemetryRecord.between(4, before, after)
+
+        then:
+        record.buildNumber == 4
+        record.duration == 2000
+        record.heapDelta == 200
+        record.metaspaceDelta == 5
+        record.gcCount == 3
+        record.gcTime == 30
+        record.allocatedBytes == 4000
+        record.allocationRate == 2000
+    }
+
+    def "allocation rate is unknown when allocations are not tracked"() {
+        def before = new MemorySnapshot(1000, 100, 10, 5, 50, -1)
+        def after = new MemorySnapshot(3000, 300, 15, 8, 80, -1)
+
+        expect:
+        BuildTelemetryRecord.between(1, before, after).allocationRate == -1
+    }
+
+    def "counts allocations of threads that exit during the build as not allocated"() {
+        // Thread 1 exits during the build, thread 3 starts during the build
+        def before = new MemorySnapshot(1000, 100, 10, 5, 50, 3000, [1L: 1000L, 2L: 2000L])
+        def after = new MemorySnapshot(3000, 300, 15, 8, 80, 3000, [2L: 2500L, 3L: 500L])
+
+        expect:
+        BuildTelemetryRecord.between(1, before, after).allocatedBytes == 1000
+    }
+
+    def "starts a new file when a daemon reuses the file of a stopped daemon"() {
+        def stopped = BuildTelemetryFile.forDaemon(tmpDir.testDirectory, 12L, "uid-1")
+        (1..2).each { stopped.append(record(it)) }
+
+        when:
+        def reused = BuildTelemetryFile.forDaemon(tmpDir.testDirectory, 12L, "uid-2")
+        reused.append(record(1))
+
+        then:
+        reused.read()*.buildNumber == [1]
+    }
+
+    def "keeps files of running daemons and prunes files of stopped daemons by age and count"() {
+        def running = BuildTelemetryFile.forDaemon(tmpDir.testDirectory, 12L, "uid-1")
+        def recent = BuildTelemetryFile.forDaemon(tmpDir.testDirectory, 13L, "uid-2")
+        def older = BuildTelemetryFile.forDaemon(tmpDir.testDirectory, 14L, "uid-3")
+        def expired = BuildTelemetryFile.forDaemon(tmpDir.testDirectory, 15L, "uid-4")
+        def other = tmpDir.file("registry.bin").createFile()
+        [running, recent, older, expired].each { it.append(record(1)) }
+        running.file.lastModified = 1000
+        recent.file.lastModified = 40000
+        older.file.lastModified = 30000
+        expired.file.lastModified = 10000
+
+        when:
+        BuildTelemetryFile.pruneFilesOfStoppedDaemons(tmpDir.testDirectory, ["12"], 3, 20000)
+
+        then:
+        running.file.exists()
+        recent.file.exists()
+        older.file.exists()
+        !expired.file.exists()
+        other.exists()
+
+        when:
+        BuildTelemetryFile.pruneFilesOfStoppedDaemons(tmpDir.testDirectory, ["12"], 1, 20000)
+
+        then:
+        running.file.exists()
+        recent.file.exists()
+        !older.file.exists()
+    }
+
+    def "captures snapshot of current jvm"() {
+        when:
+        def snapshot = MemorySnapshot.capture()
+
+        then:
+        snapshot.heapUsed > 0
+        snapshot.gcCount >= 0
+    }
+
+    private static BuildTelemetryRecord record(int buildNumber) {
+        return new BuildTelemetryRecord(buildNumber, buildNumber * 1000, buildNumber * 10, 0, buildNumber * 100, 0, buildNumber * 10, buildNumber, buildNumber * 2, buildNumber * 1000)
+    }
+}
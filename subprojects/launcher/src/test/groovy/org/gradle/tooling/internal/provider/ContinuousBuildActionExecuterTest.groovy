@@ -16,6 +16,7 @@
 
 package org.gradle.tooling.internal.provider
 
+import org.gradle.api.execution.internal.AffectedTasksTracker
 import org.gradle.api.execution.internal.DefaultTaskInputsListener
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.file.collections.SimpleFileCollection
@@ -61,7 +62,8 @@ class ContinuousBuildActionExecuterTest extends Specification {
     def actionParameters = Stub(BuildActionParameters)
     def waiterFactory = Mock(FileSystemChangeWaiterFactory)
     def waiter = Mock(FileSystemChangeWaiter)
-    def inputsListener = new DefaultTaskInputsListener()
+    def affectedTasksTracker = new AffectedTasksTracker()
+    def inputsListener = new DefaultTaskInputsListener(affectedTasksTracker)
     @AutoCleanup("stop")
     def executorFactory = new DefaultExecutorFactory()
     def buildSessionScopeServices = Stub(ServiceRegistry)
@@ -215,6 +217,6 @@ class ContinuousBuildActionExecuterTest extends Specification {
     }
 
     private ContinuousBuildActionExecuter executer() {
-        new ContinuousBuildActionExecuter(delegate, waiterFactory, inputsListener, new TestStyledTextOutputFactory(), executorFactory)
+        new ContinuousBuildActionExecuter(delegate, waiterFactory, inputsListener, affectedTasksTracker, new TestStyledTextOutputFactory(), executorFactory)
     }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.performance.experiment.corefeature
+
+import org.gradle.performance.AbstractCrossBuildPerformanceTest
+import org.gradle.performance.categories.PerformanceExperiment
+import org.junit.experimental.categories.Category
+
+@Category(PerformanceExperiment)
+class ParallelArchiveCreationPerformanceTest extends AbstractCrossBuildPerformanceTest {
+
+    def "create large zip with parallel compression"() {
+        when:
+        runner.testGroup = "parallel archive creation"
+        runner.buildSpec {
+            warmUpCount = 2
+            invocationCount = 10
+            projectName("archivePerformanceProject").displayName("parallel").invocation {
+                tasksToRun("largeZip").cleanTasks("cleanLargeZip").args("-PparallelCompression", "--max-workers=4")
+            }
+        }
+        runner.baseline {
+            warmUpCount = 2
+            invocationCount = 10
+            projectName("archivePerformanceProject").displayName("sequential").invocation {
+                tasksToRun("largeZip").cleanTasks("cleanLargeZip").args("--max-workers=4")
+            }
+        }
+
+        then:
+        runner.run()
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.performance.experiment.corefeature
+
+import org.gradle.performance.AbstractCrossBuildPerformanceTest
+import org.gradle.performance.categories.PerformanceExperiment
+import org.gradle.performance.fixture.BuildExperimentListenerAdapter
+import org.gradle.performance.fixture.BuildExperimentSpec
+import org.junit.experimental.categories.Category
+
+@Category(PerformanceExperiment)
+class RetainedFileSystemSnapshotsPerformanceTest extends AbstractCrossBuildPerformanceTest {
+    private static final int DIRECTORY_COUNT = 1000
+    private static final int FILES_PER_DIRECTORY = 1000
+
+    def "up-to-date build with 1M input files and retained file system snapshots"() {
+        given:
+        runner.buildExperimentListener = new BuildExperimentListenerAdapter() {
+            @Override
+            void beforeExperiment(BuildExperimentSpec experimentSpec, File projectDir) {
+                generateInputFiles(new File(projectDir, "input"))
+            }
+        }
+
+        when:
+        runner.testGroup = "retained file system snapshots"
+        runner.buildSpec {
+            warmUpCount = 3
+            invocationCount = 10
+            projectName("largeInputDirectoryProject").displayName("retained snapshots").invocation {
+                tasksToRun("checkInputs").gradleOpts("-Xmx2g", "-Dorg.gradle.internal.filewatch.retainSnapshots=true").useDaemon()
+            }
+        }
+        runner.baseline {
+            warmUpCount = 3
+            invocationCount = 10
+            projectName("largeInputDirectoryProject").displayName("discarded snapshots").invocation {
+                tasksToRun("checkInputs").gradleOpts("-Xmx2g").useDaemon()
+            }
+        }
+
+        then:
+        runner.run()
+    }
+
+    private static void generateInputFiles(File inputDir) {
+        if (new File(inputDir, "dir${DIRECTORY_COUNT - 1}/file${FILES_PER_DIRECTORY - 1}.txt").file) {
+            return
+        }
+        DIRECTORY_COUNT.times { dirIndex ->
+            def dir = new File(inputDir, "dir${dirIndex}")
+            dir.mkdirs()
+            FILES_PER_DIRECTORY.times { fileIndex ->
+                new File(dir, "file${fileIndex}.txt").text = "content ${dirIndex}/${fileIndex}"
+            }
+        }
+    }
+}
@@ -24,9 +24,14 @@ import org.gradle.internal.concurrent.ExecutorPolicy;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.time.CountdownTimer;
 import org.gradle.internal.time.Time;
+import org.gradle.internal.time.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
@@ -35,7 +40,13 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Applies the operations queued for a cache while holding the cache lock, in batches.
+ *
+ * <p>Within a batch, {@link IndexedCacheUpdate}s are buffered and coalesced per entry, so that only the last update to each entry is applied. Buffered updates are applied grouped by indexed cache before any other operation runs, and at the end of the batch.</p>
+ */
 class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheAccessWorker.class);
     private final BlockingQueue<Runnable> workQueue;
     private final String displayName;
     private final CacheAccess cacheAccess;
@@ -46,6 +57,9 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
     private boolean stopSeen;
     private final CountDownLatch doneSignal = new CountDownLatch(1);
     private final ExecutorPolicy.CatchAndRecordFailures failureHandler = new ExecutorPolicy.CatchAndRecordFailures();
+    private final int queueCapacity;
+    private final WriteBehindBuffer writeBehindBuffer = new WriteBehindBuffer();
+    private final Statistics statistics = new Statistics();
 
     CacheAccessWorker(String displayName, CacheAccess cacheAccess) {
         this.displayName = displayName;
@@ -53,7 +67,7 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
         this.batchWindowMillis = 200;
         this.maximumLockingTimeMillis = 5000;
         HeapProportionalCacheSizer heapProportionalCacheSizer = new HeapProportionalCacheSizer();
-        int queueCapacity = Math.min(4000, heapProportionalCacheSizer.scaleCacheSize(40000));
+        queueCapacity = Math.min(4000, heapProportionalCacheSizer.scaleCacheSize(40000));
         workQueue = new ArrayBlockingQueue<Runnable>(queueCapacity, true);
     }
 
@@ -93,9 +107,11 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
     @Override
     public synchronized void flush() {
         if (!workerCompleted && !closed) {
+            Timer timer = Time.startTimer();
             FlushOperationsCommand flushOperationsCommand = new FlushOperationsCommand();
             addToQueue(flushOperationsCommand);
             flushOperationsCommand.await();
+            statistics.flushed(timer.getElapsedMillis());
         }
         rethrowFailure();
     }
@@ -170,18 +186,20 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
 
     private void flushOperations(final Runnable updateOperation) {
         final List<FlushOperationsCommand> flushOperations = new ArrayList<FlushOperationsCommand>();
+        statistics.batchStarted(workQueue.size() + 1);
+        Timer batchTimer = Time.startTimer();
         try {
             cacheAccess.useCache(new Runnable() {
                 @Override
                 public void run() {
                     CountdownTimer timer = Time.startCountdownTimer(maximumLockingTimeMillis, TimeUnit.MILLISECONDS);
-                    if (updateOperation != null) {
-                        failureHandler.onExecute(updateOperation);
-                    }
-                    Runnable otherOperation;
                     try {
+                        if (updateOperation != null) {
+                            execute(updateOperation);
+                        }
+                        Runnable otherOperation;
                         while ((otherOperation = workQueue.poll(batchWindowMillis, TimeUnit.MILLISECONDS)) != null) {
-                            failureHandler.onExecute(otherOperation);
+                            execute(otherOperation);
                             final Class<? extends Runnable> runnableClass = otherOperation.getClass();
                             if (runnableClass == FlushOperationsCommand.class) {
                                 flushOperations.add((FlushOperationsCommand) otherOperation);
@@ -197,16 +215,36 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
                         }
                     } catch (InterruptedException e) {
                         throw UncheckedException.throwAsUncheckedException(e);
+                    } finally {
+                        applyBufferedUpdates();
                     }
                 }
             });
         } finally {
+            statistics.batchCompleted(batchTimer.getElapsedMillis());
             for (FlushOperationsCommand flushOperation : flushOperations) {
                 flushOperation.completed();
             }
         }
     }
 
+    private void execute(Runnable operation) {
+        if (operation instanceof IndexedCacheUpdate) {
+            writeBehindBuffer.add((IndexedCacheUpdate) operation);
+            if (writeBehindBuffer.size() >= queueCapacity) {
+                applyBufferedUpdates();
+            }
+        } else {
+            // Any other operation may depend on the buffered updates
+            applyBufferedUpdates();
+            failureHandler.onExecute(operation);
+        }
+    }
+
+    private void applyBufferedUpdates() {
+        writeBehindBuffer.apply();
+    }
+
     public synchronized void stop() {
         if (!closed && !workerCompleted) {
             closed = true;
@@ -220,10 +258,102 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
             } catch (InterruptedException e) {
                 // ignore
             }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Cache operations on {}: {}", displayName, statistics);
+            }
         }
         rethrowFailure();
     }
 
+    /**
+     * Buffers the updates of a batch, keeping only the last update to each entry of each indexed cache.
+     */
+    private class WriteBehindBuffer {
+        private final Map<Object, Map<Object, IndexedCacheUpdate>> updatesByCache = new LinkedHashMap<Object, Map<Object, IndexedCacheUpdate>>();
+        private final List<Runnable> supersededCompletions = new ArrayList<Runnable>();
+        private int size;
+
+        void add(IndexedCacheUpdate update) {
+            Map<Object, IndexedCacheUpdate> updates = updatesByCache.get(update.getCache());
+            if (updates == null) {
+                updates = new LinkedHashMap<Object, IndexedCacheUpdate>();
+                updatesByCache.put(update.getCache(), updates);
+            }
+            IndexedCacheUpdate superseded = updates.remove(update.getKey());
+            updates.put(update.getKey(), update);
+            if (superseded != null) {
+                supersededCompletions.add(superseded.getCompletion());
+            } else {
+                size++;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        void apply() {
+            if (size == 0) {
+                return;
+            }
+            try {
+                for (Map<Object, IndexedCacheUpdate> updates : updatesByCache.values()) {
+                    for (IndexedCacheUpdate update : updates.values()) {
+                        failureHandler.onExecute(update);
+                    }
+                }
+                for (Runnable completion : supersededCompletions) {
+                    failureHandler.onExecute(completion);
+                }
+                statistics.updatesApplied(size, supersededCompletions.size());
+            } finally {
+                updatesByCache.clear();
+                supersededCompletions.clear();
+                size = 0;
+            }
+        }
+    }
+
+    /**
+     * Statistics about the operations of this worker. Batch statistics are only updated by the worker thread, flush statistics by the threads that flush the worker.
+     */
+    private static class Statistics {
+        private long batches;
+        private int maxQueueDepth;
+        private long totalBatchMillis;
+        private long maxBatchMillis;
+        private long updates;
+        private long coalescedUpdates;
+        private long flushes;
+        private long maxFlushMillis;
+
+        void batchStarted(int queueDepth) {
+            batches++;
+            maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+        }
+
+        void batchCompleted(long millis) {
+            totalBatchMillis += millis;
+            maxBatchMillis = Math.max(maxBatchMillis, millis);
+        }
+
+        void updatesApplied(int applied, int coalesced) {
+            updates += applied;
+            coalescedUpdates += coalesced;
+        }
+
+        synchronized void flushed(long millis) {
+            flushes++;
+            maxFlushMillis = Math.max(maxFlushMillis, millis);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%d updates applied, %d superseded updates skipped, %d batches (max queue depth: %d, average batch time: %dms, max batch time: %dms), %d flushes (max flush time: %dms)",
+                updates, coalescedUpdates, batches, maxQueueDepth, batches == 0 ? 0 : totalBatchMillis / batches, maxBatchMillis, flushes, maxFlushMillis);
+        }
+    }
+
     private static class ShutdownOperationsCommand implements Runnable {
         @Override
         public void run() {
@@ -37,6 +37,7 @@ import org.gradle.internal.id.IdGenerator;
 import org.gradle.internal.id.RandomLongIdGenerator;
 import org.gradle.internal.time.CountdownTimer;
 import org.gradle.internal.time.Time;
+import org.gradle.internal.time.Timer;
 import org.gradle.util.GFileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,21 +63,32 @@ public class DefaultFileLockManager implements FileLockManager {
     private final IdGenerator<Long> generator;
     private final FileLockContentionHandler fileLockContentionHandler;
     private final int shortTimeoutMs = 10000;
+    private final FileLockWaitStatistics waitStatistics;
 
     public DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, FileLockContentionHandler fileLockContentionHandler) {
         this(metaDataProvider, DEFAULT_LOCK_TIMEOUT, fileLockContentionHandler);
     }
 
+    public DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, FileLockContentionHandler fileLockContentionHandler, FileLockWaitStatistics waitStatistics) {
+        this(metaDataProvider, DEFAULT_LOCK_TIMEOUT, fileLockContentionHandler, new RandomLongIdGenerator(), waitStatistics);
+    }
+
     public DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, int lockTimeoutMs, FileLockContentionHandler fileLockContentionHandler) {
         this(metaDataProvider, lockTimeoutMs, fileLockContentionHandler, new RandomLongIdGenerator());
     }
 
     DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, int lockTimeoutMs, FileLockContentionHandler fileLockContentionHandler,
                            IdGenerator<Long> generator) {
+        this(metaDataProvider, lockTimeoutMs, fileLockContentionHandler, generator, new FileLockWaitStatistics());
+    }
+
+    private DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, int lockTimeoutMs, FileLockContentionHandler fileLockContentionHandler,
+                                   IdGenerator<Long> generator, FileLockWaitStatistics waitStatistics) {
         this.metaDataProvider = metaDataProvider;
         this.lockTimeoutMs = lockTimeoutMs;
         this.fileLockContentionHandler = fileLockContentionHandler;
         this.generator = generator;
+        this.waitStatistics = waitStatistics;
     }
 
     public FileLock lock(File target, LockOptions options, String targetDisplayName) throws LockTimeoutException {
@@ -104,6 +116,13 @@ public class DefaultFileLockManager implements FileLockManager {
         }
     }
 
+    /**
+     * Returns the time this manager has spent waiting for locks held by other processes.
+     */
+    public FileLockWaitStatistics getWaitStatistics() {
+        return waitStatistics;
+    }
+
     static File determineLockTargetFile(File target) {
         if (target.isDirectory()) {
             return new File(target, target.getName() + ".lock");
@@ -260,6 +279,11 @@ public class DefaultFileLockManager implements FileLockManager {
                     }
                 }
             });
+            stoppable.add(new Stoppable() {
+                public void stop() {
+                    fileLockContentionHandler.notifyLockReleased(lockId);
+                }
+            });
             stoppable.add(new Stoppable() {
                 public void stop() {
                     lock = null;
@@ -334,26 +358,41 @@ public class DefaultFileLockManager implements FileLockManager {
 
         private java.nio.channels.FileLock lockStateRegion(final LockMode lockMode) throws IOException, InterruptedException {
             final ExponentialBackoff backoff = new ExponentialBackoff(lockTimeoutMs);
-            return backoff.retryUntil(new IOQuery<java.nio.channels.FileLock>() {
+            final Timer waitTimer = Time.startTimer();
+            IOQuery<java.nio.channels.FileLock> query = new IOQuery<java.nio.channels.FileLock>() {
                 private long lastPingTime;
                 private int lastLockHolderPort;
+                private long pingedLockId;
+                private boolean pinged;
+                private boolean contended;
+                private boolean releaseNotified;
+                private String holderPid = "unknown";
 
                 @Override
                 public java.nio.channels.FileLock run() throws IOException, InterruptedException {
                     java.nio.channels.FileLock fileLock = lockFileAccess.tryLockState(lockMode == LockMode.Shared);
                     if (fileLock != null) {
+                        if (contended) {
+                            recordWait();
+                        }
                         return fileLock;
                     }
+                    contended = true;
+                    releaseNotified = false;
                     if (port != -1) { //we don't like the assumption about the port very much
                         LockInfo lockInfo = readInformationRegion(backoff);
                         if (lockInfo.port != -1) {
+                            holderPid = lockInfo.pid;
                             if (lockInfo.port != lastLockHolderPort) {
                                 backoff.restartTimer();
                                 lastLockHolderPort = lockInfo.port;
                                 lastPingTime = 0;
+                                pinged = false;
                             }
                             if (fileLockContentionHandler.maybePingOwner(lockInfo.port, lockInfo.lockId, displayName, backoff.timer.getElapsedMillis() - lastPingTime)) {
                                 lastPingTime = backoff.timer.getElapsedMillis();
+                                pingedLockId = lockInfo.lockId;
+                                pinged = true;
                                 LOGGER.debug("The file lock is held by a different Gradle process (pid: {}, lockId: {}). Pinged owner at port {}", lockInfo.pid, lockInfo.lockId, lockInfo.port);
                             }
                         } else {
@@ -362,7 +401,31 @@ public class DefaultFileLockManager implements FileLockManager {
                     }
                     return null;
                 }
-            });
+
+                @Override
+                void awaitRetry(long periodMs) throws InterruptedException {
+                    if (pinged) {
+                        // The owner notifies the processes that pinged it once it has released the lock, so retry as soon as that happens
+                        releaseNotified = fileLockContentionHandler.waitForRelease(lastLockHolderPort, pingedLockId, periodMs);
+                    } else {
+                        super.awaitRetry(periodMs);
+                    }
+                }
+
+                @Override
+                void timedOut() {
+                    long waitTime = waitTimer.getElapsedMillis();
+                    waitStatistics.recordTimeout(displayName, holderPid, waitTime);
+                    LOGGER.debug("Timed out after {} ms waiting for lock on {} held by a different Gradle process (pid: {}).", waitTime, displayName, holderPid);
+                }
+
+                private void recordWait() {
+                    long waitTime = waitTimer.getElapsedMillis();
+                    waitStatistics.record(displayName, holderPid, waitTime, releaseNotified);
+                    LOGGER.debug("Waited {} ms for lock on {} held by a different Gradle process (pid: {}).", waitTime, displayName, holderPid);
+                }
+            };
+            return backoff.retryUntil(query);
         }
 
         private java.nio.channels.FileLock lockInformationRegion(final LockMode lockMode, ExponentialBackoff backoff) throws IOException, InterruptedException {
@@ -375,8 +438,18 @@ public class DefaultFileLockManager implements FileLockManager {
         }
     }
 
-    private interface IOQuery<T> {
-        T run() throws IOException, InterruptedException;
+    private abstract static class IOQuery<T> {
+        abstract T run() throws IOException, InterruptedException;
+
+        void awaitRetry(long periodMs) throws InterruptedException {
+            Thread.sleep(periodMs);
+        }
+
+        /**
+         * Called when the query has not produced a result before the timeout expired.
+         */
+        void timedOut() {
+        }
     }
 
     private static class ExponentialBackoff {
@@ -404,9 +477,10 @@ public class DefaultFileLockManager implements FileLockManager {
             T result;
             while ((result = query.run()) == null) {
                 if (timer.hasExpired()) {
+                    query.timedOut();
                     break;
                 }
-                Thread.sleep(backoffPeriodFor(++iteration));
+                query.awaitRetry(backoffPeriodFor(++iteration));
             }
             return result;
         }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Accumulates the time spent waiting for file locks held by other processes, per lock target and per holder process.
+ */
+public class FileLockWaitStatistics {
+    private final Map<String, WaitTime> byTarget;
+    private final Map<String, WaitTime> byHolder;
+
+    public FileLockWaitStatistics() {
+        this(new HashMap<String, WaitTime>(), new HashMap<String, WaitTime>());
+    }
+
+    private FileLockWaitStatistics(Map<String, WaitTime> byTarget, Map<String, WaitTime> byHolder) {
+        this.byTarget = byTarget;
+        this.byHolder = byHolder;
+    }
+
+    /**
+     * Records a wait that ended with the lock being acquired.
+     */
+    public synchronized void record(String targetDisplayName, String holderPid, long waitMillis, boolean releaseNotified) {
+        byTarget.put(targetDisplayName, WaitTime.of(byTarget.get(targetDisplayName)).plus(waitMillis, releaseNotified, false));
+        byHolder.put(holderPid, WaitTime.of(byHolder.get(holderPid)).plus(waitMillis, releaseNotified, false));
+    }
+
+    /**
+     * Records a wait that ended with the lock request timing out.
+     */
+    public synchronized void recordTimeout(String targetDisplayName, String holderPid, long waitMillis) {
+        byTarget.put(targetDisplayName, WaitTime.of(byTarget.get(targetDisplayName)).plus(waitMillis, false, true));
+        byHolder.put(holderPid, WaitTime.of(byHolder.get(holderPid)).plus(waitMillis, false, true));
+    }
+
+    /**
+     * Returns the waits recorded so far and starts recording afresh.
+     */
+    public synchronized FileLockWaitStatistics drain() {
+        FileLockWaitStatistics recorded = new FileLockWaitStatistics(new HashMap<String, WaitTime>(byTarget), new HashMap<String, WaitTime>(byHolder));
+        byTarget.clear();
+        byHolder.clear();
+        return recorded;
+    }
+
+    public synchronized boolean isEmpty() {
+        return byTarget.isEmpty();
+    }
+
+    /**
+     * Returns the wait times keyed by the display name of the lock target.
+     */
+    public synchronized Map<String, WaitTime> getWaitTimesByTarget() {
+        return new HashMap<String, WaitTime>(byTarget);
+    }
+
+    /**
+     * Returns the wait times keyed by the process identifier of the lock holder.
+     */
+    public synchronized Map<String, WaitTime> getWaitTimesByHolder() {
+        return new HashMap<String, WaitTime>(byHolder);
+    }
+
+    public static class WaitTime {
+        private static final WaitTime NONE = new WaitTime(0, 0, 0, 0, 0);
+
+        private final int count;
+        private final int releaseNotifiedCount;
+        private final int timedOutCount;
+        private final long totalMillis;
+        private final long maxMillis;
+
+        private WaitTime(int count, int releaseNotifiedCount, int timedOutCount, long totalMillis, long maxMillis) {
+            this.count = count;
+            this.releaseNotifiedCount = releaseNotifiedCount;
+            this.timedOutCount = timedOutCount;
+            this.totalMillis = totalMillis;
+            this.maxMillis = maxMillis;
+        }
+
+        private static WaitTime of(WaitTime waitTime) {
+            return waitTime == null ? NONE : waitTime;
+        }
+
+        private WaitTime plus(long waitMillis, boolean releaseNotified, boolean timedOut) {
+            return new WaitTime(count + 1, releaseNotified ? releaseNotifiedCount + 1 : releaseNotifiedCount, timedOut ? timedOutCount + 1 : timedOutCount, totalMillis + waitMillis, Math.max(maxMillis, waitMillis));
+        }
+
+        /**
+         * The number of contended lock requests, including those that timed out.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * The number of contended lock acquisitions that were woken up by a release notification from the holder rather than by polling.
+         */
+        public int getReleaseNotifiedCount() {
+            return releaseNotifiedCount;
+        }
+
+        /**
+         * The number of contended lock requests that timed out.
+         */
+        public int getTimedOutCount() {
+            return timedOutCount;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d waits, %d ms total, %d ms max, %d woken by release, %d timed out", count, totalMillis, maxMillis, releaseNotifiedCount, timedOutCount);
+        }
+    }
+}
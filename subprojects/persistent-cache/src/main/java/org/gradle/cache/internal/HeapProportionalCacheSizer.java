@@ -22,6 +22,8 @@ public class HeapProportionalCacheSizer {
     private static final int ASSUMED_USED_HEAP = 150; // assume that Gradle itself uses about 150MB heap
 
     private static final double MIN_RATIO = 0.2d;
+    private static final double HEAP_BUDGET_RATIO = 0.4d;
+    private static final int MIN_HEAP_BUDGET_MB = 32;
 
     private final int maxHeapMB;
     private final double sizingRatio;
@@ -48,6 +50,15 @@ public class HeapProportionalCacheSizer {
         return Math.max(ratioToDefaultAvailableHeap, MIN_RATIO);
     }
 
+    /**
+     * Returns the amount of heap, in bytes, that in-memory caches may use in total. This is a proportion of the heap that is not reserved for Gradle itself.
+     */
+    public long getHeapBudget() {
+        int availableHeapMB = Math.max(maxHeapMB - reservedHeap, 0);
+        long budgetMB = Math.max((long) (availableHeapMB * HEAP_BUDGET_RATIO), MIN_HEAP_BUDGET_MB);
+        return budgetMB * 1024 * 1024;
+    }
+
     public int scaleCacheSize(int referenceValue) {
         return scaleCacheSize(referenceValue, 100);
     }
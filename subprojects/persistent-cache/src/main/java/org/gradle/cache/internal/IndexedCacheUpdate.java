@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.internal;
+
+/**
+ * An update to an entry of an indexed cache, queued on a {@link CacheAccessWorker}.
+ *
+ * <p>Updates to the same entry are idempotent when applied in order, so the worker can skip an update that is superseded by a later update to the same entry before it has been applied. The completion of a skipped update is still run.</p>
+ */
+class IndexedCacheUpdate implements Runnable {
+    private final Object cache;
+    private final Object key;
+    private final Runnable update;
+    private final Runnable completion;
+
+    IndexedCacheUpdate(Object cache, Object key, Runnable update, Runnable completion) {
+        this.cache = cache;
+        this.key = key;
+        this.update = update;
+        this.completion = completion;
+    }
+
+    Object getCache() {
+        return cache;
+    }
+
+    Object getKey() {
+        return key;
+    }
+
+    Runnable getCompletion() {
+        return completion;
+    }
+
+    @Override
+    public void run() {
+        try {
+            update.run();
+        } finally {
+            completion.run();
+        }
+    }
+}
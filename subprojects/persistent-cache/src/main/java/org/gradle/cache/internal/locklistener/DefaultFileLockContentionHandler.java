@@ -24,8 +24,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.DatagramPacket;
+import java.net.SocketAddress;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -61,6 +66,11 @@ import java.util.concurrent.locks.ReentrantLock;
  *     <li>the message is interpreted as confirmation and stored. No further messages are sent to the Lock Owner via
  *    {@link #maybePingOwner(int, long, String, long)}.</li>
  * <p>
+ * Once the Lock Holder has released the lock, it notifies every Lock Requester that pinged it via {@link #notifyLockReleased(long)}.
+ * A Lock Requester waiting in {@link #waitForRelease(int, long, long)} then retries immediately instead of waiting for its next poll
+ * of the lock file. The notification is an optimization only: Lock Requesters still poll, so lost messages and processes running
+ * older versions that do not send notifications are handled as before.
+ * <p>
  * As Lock Requester, the state of the request is always stored per lock (lockId) and Lock Holder (port). The Lock Holder
  * for a lock might change without acquiring the lock if several Lock Requester compete for the same lock.
  */
@@ -68,10 +78,13 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFileLockContentionHandler.class);
     private static final int PING_DELAY = 1000;
     private final Lock lock = new ReentrantLock();
+    private final Condition releaseNotified = lock.newCondition();
 
     private final Map<Long, ContendedAction> contendedActions = new HashMap<Long, ContendedAction>();
     private final Map<Long, Integer> unlocksRequestedFrom = new HashMap<Long, Integer>();
     private final Map<Long, Integer> unlocksConfirmedFrom = new HashMap<Long, Integer>();
+    private final Map<Long, Integer> releasesNotifiedFrom = new HashMap<Long, Integer>();
+    private final Map<Long, Set<SocketAddress>> pendingReleaseNotifications = new HashMap<Long, Set<SocketAddress>>();
 
     private final ExecutorFactory executorFactory;
     private final InetAddressFactory addressFactory;
@@ -112,14 +125,19 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
                     }
 
                     lock.lock();
-                    ContendedAction contendedAction = contendedActions.get(lockId);
-                    if (contendedAction == null) {
-                        acceptConfirmationAsLockRequester(lockId, packet.getPort());
+                    if (communicator.isLockReleasedNotification(packet)) {
+                        acceptReleaseAsLockRequester(lockId, packet.getPort());
                     } else {
-                        if (!contendedAction.running) {
-                            startLockReleaseAsLockHolder(contendedAction);
+                        ContendedAction contendedAction = contendedActions.get(lockId);
+                        if (contendedAction == null) {
+                            acceptConfirmationAsLockRequester(lockId, packet.getPort());
+                        } else {
+                            if (!contendedAction.running) {
+                                startLockReleaseAsLockHolder(contendedAction);
+                            }
+                            contendedAction.requesters.add(packet.getSocketAddress());
+                            communicator.confirmUnlockRequest(packet);
                         }
-                        communicator.confirmUnlockRequest(packet);
                     }
                     lock.unlock();
                 }
@@ -137,19 +155,26 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
         LOGGER.debug("Gradle process at port {} confirmed unlock request for lock with id {}.", port, lockId);
     }
 
+    private void acceptReleaseAsLockRequester(long lockId, int port) {
+        // The released lock will not be contended again, so any state about requesting its release can go
+        unlocksRequestedFrom.remove(lockId);
+        unlocksConfirmedFrom.remove(lockId);
+        releasesNotifiedFrom.put(lockId, port);
+        releaseNotified.signalAll();
+        LOGGER.debug("Gradle process at port {} released lock with id {}.", port, lockId);
+    }
+
     public void start(long lockId, Runnable whenContended) {
         lock.lock();
         unlocksRequestedFrom.remove(lockId);
         unlocksConfirmedFrom.remove(lockId);
+        releasesNotifiedFrom.remove(lockId);
         try {
             assertNotStopped();
             if (communicator == null) {
                 throw new IllegalStateException("Must initialize the handler by reserving the port first.");
             }
-            if (fileLockRequestListener == null) {
-                fileLockRequestListener = executorFactory.create("File lock request listener");
-                fileLockRequestListener.execute(listener());
-            }
+            startListener();
             if (unlockActionExecutor == null) {
                 unlockActionExecutor = executorFactory.create("File lock release action executor");
             }
@@ -176,11 +201,37 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
         if (pingSentSuccessfully) {
             lock.lock();
             unlocksRequestedFrom.put(lockId, port);
+            // Listen for the confirmation and the release notification
+            startListener();
             lock.unlock();
         }
         return pingSentSuccessfully;
     }
 
+    private void startListener() {
+        if (fileLockRequestListener == null && !stopped) {
+            fileLockRequestListener = executorFactory.create("File lock request listener");
+            fileLockRequestListener.execute(listener());
+        }
+    }
+
+    public boolean waitForRelease(int port, long lockId, long timeoutMs) throws InterruptedException {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (!Integer.valueOf(port).equals(releasesNotifiedFrom.get(lockId))) {
+                if (remainingNanos <= 0 || stopped) {
+                    return false;
+                }
+                remainingNanos = releaseNotified.awaitNanos(remainingNanos);
+            }
+            releasesNotifiedFrom.remove(lockId);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private void assertNotStopped() {
         if (stopped) {
             throw new IllegalStateException(
@@ -191,10 +242,31 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
     public void stop(long lockId) {
         lock.lock();
         try {
-            contendedActions.remove(lockId);
+            ContendedAction contendedAction = contendedActions.remove(lockId);
+            if (contendedAction != null && !contendedAction.requesters.isEmpty()) {
+                pendingReleaseNotifications.put(lockId, contendedAction.requesters);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void notifyLockReleased(long lockId) {
+        Set<SocketAddress> requesters;
+        FileLockCommunicator communicator;
+        lock.lock();
+        try {
+            requesters = pendingReleaseNotifications.remove(lockId);
+            communicator = this.communicator;
         } finally {
             lock.unlock();
         }
+        if (requesters == null || communicator == null) {
+            return;
+        }
+        for (SocketAddress requester : requesters) {
+            communicator.notifyLockReleased(requester, lockId);
+        }
     }
 
     public void stop() {
@@ -202,6 +274,8 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
         try {
             stopped = true;
             contendedActions.clear();
+            pendingReleaseNotifications.clear();
+            releaseNotified.signalAll();
             if (communicator != null) {
                 communicator.stop();
             }
@@ -235,6 +309,7 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
 
     private static class ContendedAction {
         private final Runnable action;
+        private final Set<SocketAddress> requesters = new LinkedHashSet<SocketAddress>();
         private boolean running;
 
         private ContendedAction(Runnable action) {
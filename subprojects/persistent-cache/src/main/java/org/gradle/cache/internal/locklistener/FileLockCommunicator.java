@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.SocketAddress;
 import java.net.SocketException;
 
 import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
@@ -37,6 +38,9 @@ public class FileLockCommunicator {
     private static final String SOCKET_OPERATION_NOT_PERMITTED_ERROR_MESSAGE = "Operation not permitted";
 
     private static final byte PROTOCOL_VERSION = 1;
+    private static final int LOCK_ID_MESSAGE_LENGTH = 9;
+    // Appended to a lock id message. Older versions only read the lock id and treat the message as a confirmation.
+    private static final byte LOCK_RELEASED = 1;
     private final DatagramSocket socket;
     private final InetAddressFactory addressFactory;
     private boolean stopped;
@@ -74,7 +78,7 @@ public class FileLockCommunicator {
 
     public DatagramPacket receive() throws GracefullyStoppedException {
         try {
-            byte[] bytes = new byte[9];
+            byte[] bytes = new byte[LOCK_ID_MESSAGE_LENGTH + 1];
             DatagramPacket packet = new DatagramPacket(bytes, bytes.length);
             socket.receive(packet);
             return packet;
@@ -97,10 +101,14 @@ public class FileLockCommunicator {
         }
     }
 
+    public boolean isLockReleasedNotification(DatagramPacket receivedPacket) {
+        return receivedPacket.getLength() > LOCK_ID_MESSAGE_LENGTH && receivedPacket.getData()[LOCK_ID_MESSAGE_LENGTH] == LOCK_RELEASED;
+    }
+
     public void confirmUnlockRequest(DatagramPacket receivedPacket) {
         try {
             byte[] bytes = receivedPacket.getData();
-            DatagramPacket confirmPacket = new DatagramPacket(bytes, bytes.length, receivedPacket.getAddress(), receivedPacket.getPort());
+            DatagramPacket confirmPacket = new DatagramPacket(bytes, Math.min(receivedPacket.getLength(), LOCK_ID_MESSAGE_LENGTH), receivedPacket.getAddress(), receivedPacket.getPort());
             socket.send(confirmPacket);
         } catch (IOException e) {
             if (!stopped) {
@@ -110,6 +118,20 @@ public class FileLockCommunicator {
         }
     }
 
+    public void notifyLockReleased(SocketAddress requester, long lockId) {
+        try {
+            ByteArrayOutputStream packet = new ByteArrayOutputStream();
+            packet.write(encode(lockId));
+            packet.write(LOCK_RELEASED);
+            byte[] bytes = packet.toByteArray();
+            socket.send(new DatagramPacket(bytes, bytes.length, requester));
+        } catch (IOException e) {
+            if (!stopped) {
+                LOGGER.debug("Failed to notify {} about the release of lock with id {}.", requester, lockId, e);
+            }
+        }
+    }
+
     public void stop() {
         stopped = true;
         socket.close();
@@ -32,4 +32,17 @@ public interface FileLockContentionHandler {
      * @return true if the owner was pinged in this call
      */
     boolean maybePingOwner(int port, long lockId, String displayName, long timeElapsed);
+
+    /**
+     * Notifies the Lock Requesters that pinged this process about the given lock that the lock has been released.
+     * Called by the Lock Holder after the lock file has been unlocked, following {@link #stop(long)}.
+     */
+    void notifyLockReleased(long lockId);
+
+    /**
+     * Waits until the owner with the given port notifies that it has released the given lock, or the timeout expires.
+     *
+     * @return true if the release was notified
+     */
+    boolean waitForRelease(int port, long lockId, long timeoutMs) throws InterruptedException;
 }
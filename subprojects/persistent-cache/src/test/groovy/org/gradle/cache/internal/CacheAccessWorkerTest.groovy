@@ -198,4 +198,51 @@ class CacheAccessWorkerTest extends ConcurrentSpec {
         def e = thrown(RuntimeException)
         e == failure
     }
+
+    def "applies only the last of the queued updates to an entry and runs all completions"() {
+        given:
+        def writes = []
+        def completions = 0
+        def cache1 = new Object()
+        def cache2 = new Object()
+        def update = { cache, key, value ->
+            new IndexedCacheUpdate(cache, key, { writes << "$key=$value".toString() }, { completions++ })
+        }
+        cacheAccessWorker.enqueue(update(cache1, "a", 1))
+        cacheAccessWorker.enqueue(update(cache2, "a", 2))
+        cacheAccessWorker.enqueue(update(cache1, "b", 3))
+        cacheAccessWorker.enqueue(update(cache1, "a", 4))
+        cacheAccessWorker.enqueue(update(cache1, "a", 5))
+
+        when:
+        start(cacheAccessWorker)
+        cacheAccessWorker.flush()
+
+        then:
+        writes == ["b=3", "a=5", "a=2"]
+        completions == 5
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    def "applies buffered updates before running other operations"() {
+        given:
+        def value = null
+        def cache = new Object()
+        cacheAccessWorker.enqueue(new IndexedCacheUpdate(cache, "a", { value = 1 }, {}))
+        cacheAccessWorker.enqueue(new IndexedCacheUpdate(cache, "a", { value = 2 }, {}))
+        cacheAccessWorker.enqueue { value = value * 10 }
+        cacheAccessWorker.enqueue(new IndexedCacheUpdate(cache, "a", { value = value + 1 }, {}))
+
+        when:
+        start(cacheAccessWorker)
+        def result = cacheAccessWorker.read { value }
+
+        then:
+        result == 21
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
 }
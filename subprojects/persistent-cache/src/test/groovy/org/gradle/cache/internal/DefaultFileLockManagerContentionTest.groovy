@@ -114,6 +114,42 @@ class DefaultFileLockManagerContentionTest extends ConcurrentSpec {
         }
     }
 
+    def "records time spent waiting for a lock held by another lock manager"() {
+        given:
+        def file = tmpDir.file("lock-file.bin")
+        FileLock lock
+        lock = createLock(Exclusive, file, manager, {
+            Thread.sleep(100)
+            lock.close()
+        } as Runnable)
+
+        when:
+        createLock(Exclusive, file, manager2)
+
+        then:
+        def waitTime = manager2.waitStatistics.waitTimesByTarget["foo"]
+        waitTime.count == 1
+        waitTime.totalMillis >= 100
+        manager2.waitStatistics.waitTimesByHolder.size() == 1
+        manager.waitStatistics.waitTimesByTarget.isEmpty()
+    }
+
+    def "records time spent waiting for a lock that times out"() {
+        given:
+        def file = tmpDir.file("lock-file.bin")
+        createLock(Shared, file)
+
+        when:
+        createLock(Exclusive, file, manager2)
+
+        then:
+        thrown(LockTimeoutException)
+        def waitTime = manager2.waitStatistics.waitTimesByTarget["foo"]
+        waitTime.count == 1
+        waitTime.timedOutCount == 1
+        waitTime.totalMillis >= 2000
+    }
+
     FileLock createLock(FileLockManager.LockMode lockMode, File file, FileLockManager lockManager = manager, Runnable whenContended = null) {
         def lock = lockManager.lock(file, LockOptionsBuilder.mode(lockMode), "foo", "operation", whenContended)
         openedLocks << lock
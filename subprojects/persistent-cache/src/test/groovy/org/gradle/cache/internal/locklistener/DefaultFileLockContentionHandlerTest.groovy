@@ -113,6 +113,39 @@ class DefaultFileLockContentionHandlerTest extends ConcurrentSpecification {
         canHandleMoreRequests()
     }
 
+    def "notifies requesters once the lock has been released"() {
+        def action = new AtomicBoolean()
+
+        when:
+        int port = handler.reservePort()
+        client.reservePort()
+        handler.start(10, { action.set(true) })
+        client.maybePingOwner(port, 10, "lock 1", 50000)
+
+        then:
+        poll {
+            assert action.get()
+        }
+
+        when:
+        handler.stop(10)
+        handler.notifyLockReleased(10)
+
+        then:
+        client.waitForRelease(port, 10, 5000)
+    }
+
+    def "waiting for release times out when the owner does not notify"() {
+        when:
+        int port = handler.reservePort()
+        client.reservePort()
+        handler.start(10, {} as Runnable)
+        client.maybePingOwner(port, 10, "lock 1", 50000)
+
+        then:
+        !client.waitForRelease(port, 10, 100)
+    }
+
     private void canHandleMoreRequests() {
         def executed = new AtomicBoolean()
         int port = handler.reservePort();